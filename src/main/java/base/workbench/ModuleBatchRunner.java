@@ -10,6 +10,11 @@ import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 
+import modules.BoundedModuleScheduler;
+import modules.ModuleScheduler;
+import modules.ThreadPerModuleScheduler;
+import modules.VirtualThreadModuleScheduler;
+
 /**
  * Provides a CLI to run module trees.
  * @author Marcel Boeing
@@ -23,6 +28,7 @@ public class ModuleBatchRunner {
 		Options options = new Options();
 		options.addOption("c", "config", true, "Module tree configuration file");
 		options.addOption("u", "update", true, "Update module tree configuration file and write it to the specified location");
+		options.addOption("s", "scheduler", true, "Threading of the modules: 'thread' (one thread per module, default), 'pool[:<n>]' (at most n threads, defaults to the amount of modules) or 'virtual' (one virtual thread per module, needs Java 21+)");
 		options.addOption("h", "help", false, "Show help and exit");
 		
 		// Instantiate parser for CLI options
@@ -91,6 +97,17 @@ public class ModuleBatchRunner {
 			System.exit(1);
 		}
 		
+		// Set scheduler if requested
+		if(commandLine.hasOption("s")) {
+			try {
+				int moduleCount = controller.getModuleNetwork().getModuleList().size();
+				controller.getModuleNetwork().setScheduler(createScheduler(commandLine.getOptionValue("s"), moduleCount));
+			} catch (IllegalArgumentException e) {
+				Logger.getLogger("").log(Level.SEVERE, "Invalid scheduler.", e);
+				System.exit(1);
+			}
+		}
+		
 		// Finally: Run the module tree
 		try {
 			controller.getModuleNetwork().runModules(true);
@@ -102,5 +119,27 @@ public class ModuleBatchRunner {
 		Logger.getLogger("").log(Level.INFO, "Finished successfully.");
 		
 	}
+	
+	/**
+	 * Creates the module scheduler specified on the command line.
+	 * @param specification One of 'thread', 'pool[:&lt;n&gt;]' or 'virtual'
+	 * @param moduleCount Amount of modules (default size of the pool)
+	 * @return Module scheduler
+	 * @throws IllegalArgumentException Thrown if the specification is invalid
+	 */
+	static ModuleScheduler createScheduler(String specification, int moduleCount) throws IllegalArgumentException {
+		String[] parts = specification.trim().split(":", 2);
+		if (parts[0].equals("thread"))
+			return new ThreadPerModuleScheduler();
+		if (parts[0].equals("virtual"))
+			return new VirtualThreadModuleScheduler();
+		if (parts[0].equals("pool")) {
+			int maximumThreads = parts.length > 1 ? Integer.parseInt(parts[1]) : Math.max(moduleCount, 1);
+			if (maximumThreads < moduleCount)
+				Logger.getLogger("").log(Level.WARNING, "The pool has fewer threads ("+maximumThreads+") than there are modules ("+moduleCount+"); connected modules waiting for a thread may block the network.");
+			return new BoundedModuleScheduler(maximumThreads);
+		}
+		throw new IllegalArgumentException("Unknown scheduler '"+specification+"'.");
+	}
 
 }
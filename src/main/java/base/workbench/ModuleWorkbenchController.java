@@ -7,7 +7,9 @@ import java.io.StringReader;
 import java.lang.reflect.Constructor;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Scanner;
@@ -117,7 +119,97 @@ public class ModuleWorkbenchController{ // TODO anderer Listener
 	
 	public static final String LINEBREAKREGEX = "\\R+";
 	public static final String LINEBREAK = "\n";
-	protected Map<String,Module> availableModules = new TreeMap<String,Module>(); // Key: module name
+	// Classes of the modules available in the workbench (templates of them are only
+	// created when needed, see getAvailableModules())
+	private static final List<Class<? extends ModuleImpl>> MODULECLASSES = Arrays.<Class<? extends ModuleImpl>>asList(
+			FileFinderModule.class,
+			FileWriterModule.class,
+			SmbFileWriterModule.class,
+			OANCXMLParser.class,
+			FileReaderModule.class,
+			SmbFileReaderModule.class,
+			ConsoleWriterModule.class,
+			ConsoleReaderModule.class,
+			ExampleModule.class,
+			TreeBuilder.class,
+			AtomicRangeSuffixTrieBuilder.class,
+			SuffixNetBuilderModule.class,
+			ColourGraph.class,
+			ASCIIGraph.class,
+			ParadigmSegmenterModule.class,
+			CreateArtificialSeqs.class,
+			CreateArtificialSeqsContent.class,
+			SeqMemory.class,
+			SeqTreePropController.class,
+			SeqSuffixTrie2SuffixTreeController.class,
+			SeqNewickExporterController.class,
+			SeqNewickExporterControllerV2.class,
+			HalAdvancedModule.class,
+			RegExReplacementModule.class,
+			RegExLineFilterModule.class,
+			BagsOfWordsModule.class,
+			FilterModule.class,
+			KeyWordInPhraseModule.class,
+			PlainText2TreeBuilderConverter.class,
+			TreeBuilder2OutputController.class,
+			TreeBuilder2OutputControllerV2.class,
+			GeneralisedSuffixTreeModule.class,
+			BufferModule.class,
+			SuffixTreeClusteringModuleWrapper.class,
+			BagsOfWordsDistancesModule.class,
+			ReverserModule.class,
+			ExternalCommandModule.class,
+			TreeBuilderV2Module.class,
+			TreeBuilderV3Module.class,
+			ExampleRandString.class,
+			ExampleGsonSerialization.class,
+			ExampleGsonDeserialization.class,
+			ExtensibleTreeNode2GEXFModule.class,
+			SuffixTreeVectorizationWrapperController.class,
+			SuffixTreeClusteringWrapperV2.class,
+			LabelDataMergeModule.class,
+			TreeSimilarityClusteringModule.class,
+			SeqQueryController.class,
+			VectorAberrationCalculatorModule.class,
+			MinkowskiDistanceMatrixModule.class,
+			VectorMedianCalculatorModule.class,
+			GexfFilterModule.class,
+			SegmentJoinerModule.class,
+			SegmentMatrixModule.class,
+			ComparisonModule.class,
+			CaseChangerModule.class,
+			KwipBowMatrixModule.class,
+			SegmentationCheckModule.class,
+			MatrixColumnSumModule.class,
+			MatrixBitwiseOperationModule.class,
+			Dot2TreeController.class,
+			TreeIndexController.class,
+			MatrixEliminateOppositionalValuesModule.class,
+			MatrixRowColPairExtractorModule.class,
+			JoinModule.class,
+			BowTypeMatrixModule.class,
+			BurrowsWheelerTransformationModule.class,
+			MclModule.class,
+			CSV2GEXFModule.class,
+			TextSorterModule.class,
+			LFGroupBuildingModule.class,
+			BranchLengthGrouping.class,
+			MatrixFilterModule.class,
+			ExtensibleTreeNode2CSVModule.class,
+			MotifDetectionController.class,
+			SuffixTreeVector2CsvModule.class,
+			TextReducerModule.class,
+			GeneralizedSuffixTreesMorphologyModule.class,
+			SegmentsTransitionNetworkModule.class,
+			SegmentDistanceMatrixModule.class,
+			SegmentCombinerModule.class,
+			SegmentationApplyModule.class,
+			SegmentMatrixAnalyzeModule.class,
+			MorphologyCheckModule.class,
+			MatrixValuesExpressionApplyModule.class,
+			MatrixOperations.class);
+	
+	protected Map<String,Module> availableModules = null; // Key: module name; created on first use
 	private ModuleNetwork moduleNetwork;
 	private ListLoggingHandler listLoggingHandler;
 	private Gson jsonConverter;
@@ -137,96 +229,6 @@ public class ModuleWorkbenchController{ // TODO anderer Listener
 		// Add jlist handler to logger
 		this.listLoggingHandler = new ListLoggingHandler();
 		Logger.getLogger("").addHandler(this.listLoggingHandler);
-
-		/*
-		 * INSTANTIATE MODULES BELOW
-		 */
-		createAndRegisterModule(FileFinderModule.class);
-		createAndRegisterModule(FileWriterModule.class);
-		createAndRegisterModule(SmbFileWriterModule.class);
-		createAndRegisterModule(OANCXMLParser.class);
-		createAndRegisterModule(FileReaderModule.class);
-		createAndRegisterModule(SmbFileReaderModule.class);
-		createAndRegisterModule(ConsoleWriterModule.class);
-		createAndRegisterModule(ConsoleReaderModule.class);
-		createAndRegisterModule(ExampleModule.class);
-		createAndRegisterModule(TreeBuilder.class);
-		createAndRegisterModule(AtomicRangeSuffixTrieBuilder.class);
-		createAndRegisterModule(SuffixNetBuilderModule.class);
-		createAndRegisterModule(ColourGraph.class);
-		createAndRegisterModule(ASCIIGraph.class);
-		createAndRegisterModule(ParadigmSegmenterModule.class);
-		createAndRegisterModule(CreateArtificialSeqs.class);
-		createAndRegisterModule(CreateArtificialSeqsContent.class);
-		createAndRegisterModule(SeqMemory.class);
-		createAndRegisterModule(SeqTreePropController.class);
-		createAndRegisterModule(SeqSuffixTrie2SuffixTreeController.class);
-		createAndRegisterModule(SeqNewickExporterController.class);
-		createAndRegisterModule(SeqNewickExporterControllerV2.class);
-		createAndRegisterModule(HalAdvancedModule.class);
-		createAndRegisterModule(RegExReplacementModule.class);
-		createAndRegisterModule(RegExLineFilterModule.class);
-		createAndRegisterModule(BagsOfWordsModule.class);
-		createAndRegisterModule(FilterModule.class);
-		createAndRegisterModule(KeyWordInPhraseModule.class);
-		createAndRegisterModule(PlainText2TreeBuilderConverter.class);
-		createAndRegisterModule(TreeBuilder2OutputController.class);
-		createAndRegisterModule(TreeBuilder2OutputControllerV2.class);
-		createAndRegisterModule(GeneralisedSuffixTreeModule.class);
-		createAndRegisterModule(BufferModule.class);
-		createAndRegisterModule(SuffixTreeClusteringModuleWrapper.class);
-		createAndRegisterModule(BagsOfWordsDistancesModule.class);
-		createAndRegisterModule(ReverserModule.class);
-		createAndRegisterModule(ExternalCommandModule.class);
-		createAndRegisterModule(TreeBuilderV2Module.class);
-		createAndRegisterModule(TreeBuilderV3Module.class);
-		createAndRegisterModule(ExampleRandString.class);
-		createAndRegisterModule(ExampleGsonSerialization.class);
-		createAndRegisterModule(ExampleGsonDeserialization.class);
-		createAndRegisterModule(ExtensibleTreeNode2GEXFModule.class);
-		createAndRegisterModule(SuffixTreeVectorizationWrapperController.class);
-		createAndRegisterModule(SuffixTreeClusteringWrapperV2.class);
-		createAndRegisterModule(LabelDataMergeModule.class);
-		createAndRegisterModule(TreeSimilarityClusteringModule.class);
-		createAndRegisterModule(SeqQueryController.class);
-		createAndRegisterModule(VectorAberrationCalculatorModule.class);
-		createAndRegisterModule(MinkowskiDistanceMatrixModule.class);
-		createAndRegisterModule(VectorMedianCalculatorModule.class);
-		createAndRegisterModule(GexfFilterModule.class);
-		createAndRegisterModule(SegmentJoinerModule.class);
-		createAndRegisterModule(SegmentMatrixModule.class);
-		createAndRegisterModule(ComparisonModule.class);
-		createAndRegisterModule(CaseChangerModule.class);
-		createAndRegisterModule(KwipBowMatrixModule.class);
-		createAndRegisterModule(SegmentationCheckModule.class);
-		createAndRegisterModule(MatrixColumnSumModule.class);
-		createAndRegisterModule(MatrixBitwiseOperationModule.class);
-		createAndRegisterModule(Dot2TreeController.class);
-		createAndRegisterModule(TreeIndexController.class);
-		createAndRegisterModule(MatrixEliminateOppositionalValuesModule .class);
-		createAndRegisterModule(MatrixRowColPairExtractorModule.class);
-		createAndRegisterModule(JoinModule.class);
-		createAndRegisterModule(BowTypeMatrixModule.class);
-		createAndRegisterModule(BurrowsWheelerTransformationModule.class);
-		createAndRegisterModule(MclModule.class);
-		createAndRegisterModule(CSV2GEXFModule.class);
-		createAndRegisterModule(TextSorterModule.class);
-		createAndRegisterModule(LFGroupBuildingModule.class);
-		createAndRegisterModule(BranchLengthGrouping.class);
-		createAndRegisterModule(MatrixFilterModule.class);
-		createAndRegisterModule(ExtensibleTreeNode2CSVModule.class);
-		createAndRegisterModule(MotifDetectionController.class);
-		createAndRegisterModule(SuffixTreeVector2CsvModule.class);
-		createAndRegisterModule(TextReducerModule.class);
-		createAndRegisterModule(GeneralizedSuffixTreesMorphologyModule.class);
-		createAndRegisterModule(SegmentsTransitionNetworkModule.class);
-		createAndRegisterModule(SegmentDistanceMatrixModule.class);
-		createAndRegisterModule(SegmentCombinerModule.class);
-		createAndRegisterModule(SegmentationApplyModule.class);
-		createAndRegisterModule(SegmentMatrixAnalyzeModule.class);
-		createAndRegisterModule(MorphologyCheckModule.class);
-		createAndRegisterModule(MatrixValuesExpressionApplyModule.class);
-		createAndRegisterModule(MatrixOperations.class);
 	}
 	
 	/**
@@ -235,8 +237,10 @@ public class ModuleWorkbenchController{ // TODO anderer Listener
 	 * @param clazz
 	 * 		A class of the desired type extending ModuleImpl and having a Constructor with
 	 * 		signature (CallbackReceiver, Properties)
+	 * @param modules
+	 * 		Map to make the module available in
 	 */
-	private void createAndRegisterModule(Class<? extends ModuleImpl> clazz) throws Exception {
+	private void createAndRegisterModule(Class<? extends ModuleImpl> clazz, Map<String,Module> modules) throws Exception {
 		// initiate a new Properties object for the module
 		Properties properties = new Properties();
 		
@@ -253,7 +257,14 @@ public class ModuleWorkbenchController{ // TODO anderer Listener
 		module.applyProperties();
 		
 		// make the module available in the workbench
-		availableModules.put(module.getName(), module);
+		modules.put(module.getName(), module);
+	}
+	
+	/**
+	 * @return the classes of the modules available in the workbench
+	 */
+	public static List<Class<? extends ModuleImpl>> getModuleClasses() {
+		return MODULECLASSES;
 	}
 	
 	/**
@@ -286,7 +297,7 @@ public class ModuleWorkbenchController{ // TODO anderer Listener
 	 * @throws Exception Thrown if something goes wrong
 	 */
 	public Module getNewInstanceOfModule(String moduleName) throws Exception{
-		return this.getNewInstanceOfModule(this.availableModules.get(moduleName));
+		return this.getNewInstanceOfModule(this.getAvailableModules().get(moduleName));
 	}
 	
 	/**
@@ -302,11 +313,11 @@ public class ModuleWorkbenchController{ // TODO anderer Listener
 			throw new Exception("There does not seem to be a module network I can bind a new module to.");
 		
 		// If specified module is null, throw exception
-		if (module == null || !this.availableModules.containsKey(module.getName()))
+		if (module == null || !MODULECLASSES.contains(module.getClass()))
 			throw new Exception("I do not know the specified module template.");
 		
-		// Template module
-		Module templateModule = this.availableModules.get(module.getName());
+		// Template module (the one specified, so templates of all other modules need not exist)
+		Module templateModule = module;
 		
 		// Transfer module properties from template to new instance (via new properties instance)
 		Properties properties = new Properties();
@@ -324,10 +335,20 @@ public class ModuleWorkbenchController{ // TODO anderer Listener
 	}
 
 	/**
+	 * Returns a template of every available module, instantiating them on
+	 * first use (loading and running a module network does not need them).
 	 * @return the availableModules
+	 * @throws Exception Thrown if a module cannot be instantiated
 	 */
-	public Map<String,Module> getAvailableModules() {
-		return availableModules;
+	public synchronized Map<String,Module> getAvailableModules() throws Exception {
+		if (this.availableModules == null){
+			Map<String,Module> modules = new TreeMap<String,Module>();
+			Iterator<Class<? extends ModuleImpl>> moduleClasses = MODULECLASSES.iterator();
+			while (moduleClasses.hasNext())
+				this.createAndRegisterModule(moduleClasses.next(), modules);
+			this.availableModules = modules;
+		}
+		return this.availableModules;
 	}
 
 	/**
@@ -445,11 +466,11 @@ public class ModuleWorkbenchController{ // TODO anderer Listener
 				} catch (ClassNotFoundException e){
 					// Search for replacement class
 					Class<?> moduleClass = null;
-					Iterator<Module> modules = this.availableModules.values().iterator();
-					while (modules.hasNext()){
-						Module module = modules.next();
-						if (module.getClass().getSimpleName().equals(className.substring(className.lastIndexOf('.')+1))){
-							moduleClass = module.getClass();
+					Iterator<Class<? extends ModuleImpl>> moduleClasses = MODULECLASSES.iterator();
+					while (moduleClasses.hasNext()){
+						Class<? extends ModuleImpl> candidate = moduleClasses.next();
+						if (candidate.getSimpleName().equals(className.substring(className.lastIndexOf('.')+1))){
+							moduleClass = candidate;
 							break;
 						}
 					}
@@ -184,11 +184,19 @@ public class ModuleWorkbenchGui extends CallbackReceiverImpl implements Internal
 		ToolTipManager.sharedInstance().registerComponent(moduleTemplateTree);
 		moduleTemplateTree.getSelectionModel().setSelectionMode(TreeSelectionModel.SINGLE_TREE_SELECTION);
 		
+		// Templates of the available modules (instantiated on first use)
+		Map<String,Module> availableModules;
+		try {
+			availableModules = this.controller.getAvailableModules();
+		} catch (Exception e) {
+			throw new IllegalStateException("Could not instantiate the available modules.", e);
+		}
+		
 		// Map to keep track of created category label nodes (we only allow one level of categories within the module tree)
 		Map<String,DefaultMutableTreeNode> categoryLabelMap = new TreeMap<String,DefaultMutableTreeNode>();
 		
 		// Loop over the controller's available modules list to determine existing categories
-		Iterator<Module> moduleTemplateIterator = this.controller.getAvailableModules().values().iterator();
+		Iterator<Module> moduleTemplateIterator = availableModules.values().iterator();
 		while(moduleTemplateIterator.hasNext()){
 			
 			// Determine next module and its category
@@ -210,7 +218,7 @@ public class ModuleWorkbenchGui extends CallbackReceiverImpl implements Internal
 		}
 		
 		// Loop over the controller's available modules list a second time to insert modules into our tree in an orderly fashion
-		moduleTemplateIterator = this.controller.getAvailableModules().values().iterator();
+		moduleTemplateIterator = availableModules.values().iterator();
 		while(moduleTemplateIterator.hasNext()){
 			
 			// Determine next module and its category
@@ -0,0 +1,386 @@
+package common;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Replaces the matches of several regular expressions in one pass over text
+ * arriving chunk by chunk. The patterns and replacements are compiled once.
+ * The text is kept in a window sliding over the input, so that matches
+ * spanning chunks are found as long as they are no longer than the maximum
+ * match length, which is also how far look-behinds see back.
+ *
+ * Where several rules match, the one whose match starts first is applied,
+ * ties going to the rule added first; replaced text is not matched again.
+ * Replacements refer to groups as those of {@link Matcher#appendReplacement}
+ * do ({@code $1}, {@code ${name}}, {@code \$} for a dollar sign), and
+ * {@code \G} matches where the last replacement ended, as with
+ * {@link Matcher#replaceAll}.
+ *
+ * Streaming through {@link #write(char[], int, int, Writer)} and
+ * {@link #close(Writer)} is for one thread, while
+ * {@link #replace(char[], int, int, Writer)}, which replaces in a text on its
+ * own, can be called by several threads at once.
+ */
+public class StreamingRegExReplacer {
+
+	private static final int NONE = Integer.MAX_VALUE;
+
+	private final int maxMatchLength;
+	private final List<Pattern> patterns = new ArrayList<Pattern>();
+	// the patterns with \G never matching, for searches not starting where
+	// the last replacement ended (null for patterns without \G)
+	private final List<Pattern> unanchoredPatterns = new ArrayList<Pattern>();
+	private final List<Replacement> replacements = new ArrayList<Replacement>();
+
+	// the window over the stream, written up to the position, and where in
+	// it the last replacement ended (-1 if before it)
+	private char[] window = new char[0];
+	private int length;
+	private final int[] cursor = new int[2];
+	private Matcher[] matchers;
+
+	/**
+	 * @param maxMatchLength
+	 *            Length up to which matches are found across chunks
+	 */
+	public StreamingRegExReplacer(int maxMatchLength) {
+		if (maxMatchLength < 1)
+			throw new IllegalArgumentException("The maximum match length has to be positive.");
+		this.maxMatchLength = maxMatchLength;
+	}
+
+	/**
+	 * Adds a rule, to be added before any text is written.
+	 *
+	 * @param regex
+	 *            Regular expression
+	 * @param replacement
+	 *            Replacement of its matches
+	 * @throws java.util.regex.PatternSyntaxException
+	 *             If the expression is invalid
+	 * @throws IllegalArgumentException
+	 *             If the replacement refers to a group wrongly
+	 */
+	public void addRule(String regex, String replacement) {
+		final Pattern pattern = Pattern.compile(regex);
+		this.replacements.add(new Replacement(replacement, pattern.matcher("").groupCount()));
+		this.patterns.add(pattern);
+		final String unanchored = withoutLastMatchAnchor(regex);
+		this.unanchoredPatterns.add(unanchored == null ? null : Pattern.compile(unanchored, pattern.flags()));
+		this.matchers = null;
+	}
+
+	/**
+	 * @return The amount of rules
+	 */
+	public int getRuleCount() {
+		return this.patterns.size();
+	}
+
+	/**
+	 * Writes the next chunk of the stream. The text replaced is written to
+	 * the output as far as it cannot change with the chunks to come.
+	 *
+	 * @param chars
+	 *            Chunk
+	 * @param offset
+	 *            Start of the chunk
+	 * @param length
+	 *            Length of the chunk
+	 * @param out
+	 *            Output
+	 * @throws IOException
+	 *             If the output cannot be written
+	 */
+	public void write(char[] chars, int offset, int length, Writer out) throws IOException {
+		if (this.length + length > this.window.length)
+			this.window = Arrays.copyOf(this.window, Math.max(this.length + length, 2 * this.window.length));
+		System.arraycopy(chars, offset, this.window, this.length, length);
+		this.length += length;
+		this.replace(this.window, 0, this.length, this.cursor, false, this.streamMatchers(), out);
+
+		// keep what is not written yet and what look-behinds may see
+		final int keep = Math.max(0, this.cursor[0] - this.maxMatchLength);
+		System.arraycopy(this.window, keep, this.window, 0, this.length - keep);
+		this.length -= keep;
+		this.cursor[0] -= keep;
+		this.cursor[1] = Math.max(-1, this.cursor[1] - keep);
+	}
+
+	/**
+	 * Ends the stream, writing the rest of the text replaced. The replacer can
+	 * be used for a new stream afterwards.
+	 *
+	 * @param out
+	 *            Output, not closed
+	 * @throws IOException
+	 *             If the output cannot be written
+	 */
+	public void close(Writer out) throws IOException {
+		this.replace(this.window, 0, this.length, this.cursor, true, this.streamMatchers(), out);
+		this.length = 0;
+		this.cursor[0] = 0;
+		this.cursor[1] = 0;
+	}
+
+	/**
+	 * Replaces in a text on its own, as if it were a whole stream.
+	 *
+	 * @param text
+	 *            Chars holding the text
+	 * @param begin
+	 *            Start of the text
+	 * @param end
+	 *            End of the text
+	 * @param out
+	 *            Output
+	 * @throws IOException
+	 *             If the output cannot be written
+	 */
+	public void replace(char[] text, int begin, int end, Writer out) throws IOException {
+		final Matcher[] matchers = this.newMatchers(CharBuffer.wrap(text, begin, end - begin).slice());
+		this.replace(text, begin, end - begin, new int[2], true, matchers, out);
+	}
+
+	private Matcher[] streamMatchers() {
+		final CharBuffer text = CharBuffer.wrap(this.window, 0, this.length);
+		if (this.matchers == null) {
+			this.matchers = this.newMatchers(text);
+		} else {
+			for (Matcher matcher : this.matchers) {
+				if (matcher != null)
+					matcher.reset(text);
+			}
+		}
+		return this.matchers;
+	}
+
+	/*
+	 * The matchers of the patterns, followed by those of the unanchored ones.
+	 */
+	private Matcher[] newMatchers(CharSequence text) {
+		final int rules = this.patterns.size();
+		final Matcher[] matchers = new Matcher[2 * rules];
+		for (int r = 0; r < rules; r++) {
+			matchers[r] = newMatcher(this.patterns.get(r), text);
+			if (this.unanchoredPatterns.get(r) != null)
+				matchers[rules + r] = newMatcher(this.unanchoredPatterns.get(r), text);
+		}
+		return matchers;
+	}
+
+	private static Matcher newMatcher(Pattern pattern, CharSequence text) {
+		// regions only mark where to search, anchors and look-arounds see the whole text
+		return pattern.matcher(text).useAnchoringBounds(false).useTransparentBounds(true);
+	}
+
+	/*
+	 * The expression with \G replaced by a group never matching, null if it
+	 * does not contain \G.
+	 */
+	private static String withoutLastMatchAnchor(String regex) {
+		final StringBuilder result = new StringBuilder(regex.length());
+		boolean found = false;
+		boolean quoted = false;
+		for (int i = 0; i < regex.length(); i++) {
+			final char c = regex.charAt(i);
+			if (c != '\\' || i + 1 == regex.length()) {
+				result.append(c);
+				continue;
+			}
+			final char next = regex.charAt(++i);
+			if (quoted) {
+				quoted = next != 'E';
+			} else if (next == 'Q') {
+				quoted = true;
+			} else if (next == 'G') {
+				result.append("(?!)");
+				found = true;
+				continue;
+			}
+			result.append(c).append(next);
+		}
+		return found ? result.toString() : null;
+	}
+
+	/*
+	 * Replaces in the text after the position, the matchers reading it from
+	 * the base on. Without the end of the input, text a match might still
+	 * begin in or extend over is left. The cursor holds the position, which
+	 * it is moved to the end of the text written, and where the last
+	 * replacement ended.
+	 */
+	private void replace(char[] text, int base, int length, int[] cursor, boolean endOfInput, Matcher[] matchers,
+			Writer out) throws IOException {
+		final int rules = matchers.length / 2;
+		int position = cursor[0];
+		int lastEnd = cursor[1];
+		// the next match of each rule, the matcher it was found by, and
+		// whether text to come could change it
+		final int[] starts = new int[rules];
+		final Matcher[] found = new Matcher[rules];
+		final boolean[] pending = new boolean[rules];
+		Arrays.fill(starts, -1);
+		// matches before this are complete as far as they can be found
+		final int limit = endOfInput ? length : length - this.maxMatchLength;
+
+		while (true) {
+			int best = -1;
+			int bestStart = NONE;
+			boolean anyPending = false;
+			for (int r = 0; r < rules; r++) {
+				if (starts[r] < position) {
+					// \G only matches where the last replacement ended
+					final Matcher matcher = position == lastEnd || matchers[rules + r] == null ? matchers[r]
+							: matchers[rules + r];
+					matcher.region(position, length);
+					final boolean matched = matcher.find();
+					starts[r] = matched ? matcher.start() : NONE;
+					found[r] = matcher;
+					pending[r] = matcher.hitEnd() || (matched && matcher.requireEnd());
+				}
+				anyPending |= pending[r];
+				if (starts[r] < bestStart) {
+					best = r;
+					bestStart = starts[r];
+				}
+			}
+
+			if (!endOfInput && anyPending && bestStart >= limit) {
+				final int written = Math.min(bestStart, Math.max(position, limit));
+				out.write(text, base + position, written - position);
+				cursor[0] = written;
+				cursor[1] = lastEnd;
+				return;
+			}
+			final Matcher matcher = best < 0 ? null : found[best];
+			if (best < 0 || (!endOfInput && bestStart == length && matcher.end() == length)) {
+				// an empty match at the end is found again once the next chars
+				// are there, so it is left for them
+				out.write(text, base + position, length - position);
+				cursor[0] = length;
+				cursor[1] = lastEnd;
+				return;
+			}
+
+			out.write(text, base + position, bestStart - position);
+			this.replacements.get(best).write(matcher, text, base, out);
+			position = matcher.end();
+			lastEnd = position;
+			// matches of other rules may now start with \G
+			for (int r = 0; r < rules; r++) {
+				if (matchers[rules + r] != null)
+					starts[r] = -1;
+			}
+			if (position == bestStart) {
+				// an empty match, the search goes on after the next char
+				if (position == length) {
+					cursor[0] = length;
+					cursor[1] = lastEnd;
+					return;
+				}
+				out.write(text, base + position, 1);
+				position++;
+			}
+		}
+	}
+
+	/*
+	 * A replacement compiled into literal parts and group references.
+	 */
+	private static final class Replacement {
+
+		private static final int LITERAL = -1;
+		private static final int NAMED = -2;
+
+		// the literal or the name for each part
+		private final String[] texts;
+		// the group for each part, LITERAL or NAMED
+		private final int[] groups;
+
+		Replacement(String replacement, int groupCount) {
+			final List<String> texts = new ArrayList<String>();
+			final List<Integer> groups = new ArrayList<Integer>();
+			final StringBuilder literal = new StringBuilder();
+			int cursor = 0;
+			while (cursor < replacement.length()) {
+				char c = replacement.charAt(cursor++);
+				if (c == '\\') {
+					if (cursor == replacement.length())
+						throw new IllegalArgumentException("character to be escaped is missing");
+					literal.append(replacement.charAt(cursor++));
+					continue;
+				}
+				if (c != '$') {
+					literal.append(c);
+					continue;
+				}
+				if (cursor == replacement.length())
+					throw new IllegalArgumentException("Illegal group reference: group index is missing");
+				if (literal.length() > 0) {
+					texts.add(literal.toString());
+					groups.add(LITERAL);
+					literal.setLength(0);
+				}
+				c = replacement.charAt(cursor++);
+				if (c == '{') {
+					final int close = replacement.indexOf('}', cursor);
+					if (close < 0)
+						throw new IllegalArgumentException("named capturing group is missing trailing '}'");
+					if (close == cursor)
+						throw new IllegalArgumentException("named capturing group has 0 length name");
+					texts.add(replacement.substring(cursor, close));
+					groups.add(NAMED);
+					cursor = close + 1;
+					continue;
+				}
+				if (c < '0' || c > '9')
+					throw new IllegalArgumentException("Illegal group reference");
+				// further digits are taken as long as such a group exists
+				int group = c - '0';
+				while (cursor < replacement.length()) {
+					final char digit = replacement.charAt(cursor);
+					if (digit < '0' || digit > '9' || group * 10 + digit - '0' > groupCount)
+						break;
+					group = group * 10 + digit - '0';
+					cursor++;
+				}
+				if (group > groupCount)
+					throw new IndexOutOfBoundsException("No group " + group);
+				texts.add(null);
+				groups.add(group);
+			}
+			if (literal.length() > 0) {
+				texts.add(literal.toString());
+				groups.add(LITERAL);
+			}
+			this.texts = texts.toArray(new String[texts.size()]);
+			this.groups = new int[groups.size()];
+			for (int i = 0; i < this.groups.length; i++)
+				this.groups[i] = groups.get(i);
+		}
+
+		void write(Matcher matcher, char[] text, int base, Writer out) throws IOException {
+			for (int i = 0; i < this.groups.length; i++) {
+				final int group = this.groups[i];
+				if (group == LITERAL) {
+					out.write(this.texts[i]);
+					continue;
+				}
+				final int start = group == NAMED ? matcher.start(this.texts[i]) : matcher.start(group);
+				// groups not taking part in the match are left out
+				if (start >= 0)
+					out.write(text, base + start,
+							(group == NAMED ? matcher.end(this.texts[i]) : matcher.end(group)) - start);
+			}
+		}
+	}
+
+}
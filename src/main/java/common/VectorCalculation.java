@@ -49,7 +49,7 @@ public class VectorCalculation {
 		while(aIterator.hasNext() && bIterator.hasNext()){
 			result += Math.pow(Math.abs(aIterator.next()-bIterator.next()),power);
 		}
-		result = Math.sqrt(result);
+		result = Math.pow(result, 1d / power);
 		
 		return result;
 	}
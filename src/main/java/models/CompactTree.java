@@ -0,0 +1,320 @@
+package models;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A read-only tree of the shape of {@link ExtensibleTreeNode}, held in a few
+ * arrays instead of an object, a child map and an attribute map per node.
+ * Nodes are numbered in preorder, the root being 0, so that the descendants of
+ * a node are the ones up to {@link #getEnd(int)}. Keys and values are interned,
+ * counters are primitive, and attributes are only kept for nodes having any.
+ *
+ * Children follow in the order they were added, which is the ascending order
+ * of their keys for trees read from {@link ExtensibleTreeNode}s or their JSON.
+ */
+public final class CompactTree {
+
+	private final String[] labels;
+	private final int[] keys;
+	private final int[] values;
+	private final int[] counters;
+	private final int[] parents;
+	private final int[] ends;
+	// attributes by node, null if no node has any
+	private final Map<Integer, Map<String, Object>> attributes;
+
+	private CompactTree(Builder builder) {
+		final int size = builder.size;
+		this.labels = builder.labels.toArray(new String[builder.labels.size()]);
+		this.keys = Arrays.copyOf(builder.keys, size);
+		this.values = Arrays.copyOf(builder.values, size);
+		this.counters = Arrays.copyOf(builder.counters, size);
+		this.parents = Arrays.copyOf(builder.parents, size);
+		this.ends = Arrays.copyOf(builder.ends, size);
+		this.attributes = builder.attributes;
+	}
+
+	/**
+	 * Copies a tree of {@link ExtensibleTreeNode}s.
+	 *
+	 * @param root
+	 *            Root of the tree
+	 * @return The compact tree
+	 */
+	public static CompactTree of(ExtensibleTreeNode root) {
+		final Builder builder = new Builder();
+		// nodes to open, or null to close the last one opened
+		final Deque<Object[]> stack = new ArrayDeque<Object[]>();
+		stack.push(new Object[] { null, root });
+		while (!stack.isEmpty()) {
+			final Object[] entry = stack.pop();
+			if (entry[1] == null) {
+				builder.close();
+				continue;
+			}
+			final ExtensibleTreeNode node = (ExtensibleTreeNode) entry[1];
+			builder.open((String) entry[0]);
+			builder.setNodeValue(node.getNodeValue());
+			builder.setNodeCounter(node.getNodeCounter());
+			if (node.getAttributes() != null)
+				builder.setAttributes(node.getAttributes());
+			stack.push(new Object[2]);
+			final List<Entry<String, ExtensibleTreeNode>> children = new ArrayList<Entry<String, ExtensibleTreeNode>>(
+					node.getChildNodes().entrySet());
+			for (int c = children.size() - 1; c >= 0; c--)
+				stack.push(new Object[] { children.get(c).getKey(), children.get(c).getValue() });
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @return The amount of nodes
+	 */
+	public int size() {
+		return this.keys.length;
+	}
+
+	/**
+	 * @param node
+	 *            Number of the node
+	 * @return The key the node is found by in its parent, null for the root
+	 */
+	public String getKey(int node) {
+		return this.label(this.keys[node]);
+	}
+
+	/**
+	 * @param node
+	 *            Number of the node
+	 * @return The value of the node
+	 */
+	public String getNodeValue(int node) {
+		return this.label(this.values[node]);
+	}
+
+	/**
+	 * @param node
+	 *            Number of the node
+	 * @return The counter of the node
+	 */
+	public int getNodeCounter(int node) {
+		return this.counters[node];
+	}
+
+	/**
+	 * @param node
+	 *            Number of the node
+	 * @return The number of the parent, -1 for the root
+	 */
+	public int getParent(int node) {
+		return this.parents[node];
+	}
+
+	/**
+	 * @param node
+	 *            Number of the node
+	 * @return The number after the last descendant of the node
+	 */
+	public int getEnd(int node) {
+		return this.ends[node];
+	}
+
+	/**
+	 * @param node
+	 *            Number of the node
+	 * @return The number of the first child, -1 if there is none
+	 */
+	public int getFirstChild(int node) {
+		return this.ends[node] > node + 1 ? node + 1 : -1;
+	}
+
+	/**
+	 * @param node
+	 *            Number of the node
+	 * @return The number of the next child of the same parent, -1 if there is
+	 *         none
+	 */
+	public int getNextSibling(int node) {
+		final int parent = this.parents[node];
+		return parent >= 0 && this.ends[node] < this.ends[parent] ? this.ends[node] : -1;
+	}
+
+	/**
+	 * @param node
+	 *            Number of the node
+	 * @param key
+	 *            Key of the child
+	 * @return The number of the child found by the key, -1 if there is none
+	 */
+	public int getChild(int node, String key) {
+		for (int child = this.getFirstChild(node); child >= 0; child = this.getNextSibling(child)) {
+			if (key.equals(this.getKey(child)))
+				return child;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param node
+	 *            Number of the node
+	 * @return The numbers of the children
+	 */
+	public int[] getChildren(int node) {
+		int amount = 0;
+		for (int child = this.getFirstChild(node); child >= 0; child = this.getNextSibling(child))
+			amount++;
+		final int[] children = new int[amount];
+		amount = 0;
+		for (int child = this.getFirstChild(node); child >= 0; child = this.getNextSibling(child))
+			children[amount++] = child;
+		return children;
+	}
+
+	/**
+	 * @param node
+	 *            Number of the node
+	 * @return The attributes of the node, not to be modified
+	 */
+	public Map<String, Object> getAttributes(int node) {
+		final Map<String, Object> attributes = this.attributes == null ? null : this.attributes.get(node);
+		return attributes == null ? Collections.<String, Object> emptyMap() : attributes;
+	}
+
+	/**
+	 * Copies the tree into {@link ExtensibleTreeNode}s.
+	 *
+	 * @return The root of the copy
+	 */
+	public ExtensibleTreeNode toExtensibleTreeNode() {
+		final ExtensibleTreeNode[] nodes = new ExtensibleTreeNode[this.size()];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = new ExtensibleTreeNode(this.getNodeValue(i));
+			nodes[i].setNodeCounter(this.counters[i]);
+			nodes[i].getAttributes().putAll(this.getAttributes(i));
+			if (i > 0)
+				nodes[this.parents[i]].getChildNodes().put(this.getKey(i), nodes[i]);
+		}
+		return nodes[0];
+	}
+
+	private String label(int id) {
+		return id < 0 ? null : this.labels[id];
+	}
+
+	/**
+	 * Assembles a tree node by node in preorder: each node is opened, given
+	 * its value, counter and attributes at any time, and closed after its
+	 * children.
+	 */
+	public static final class Builder {
+
+		private final Map<String, Integer> ids = new HashMap<String, Integer>();
+		private final List<String> labels = new ArrayList<String>();
+		private int[] keys = new int[16];
+		private int[] values = new int[16];
+		private int[] counters = new int[16];
+		private int[] parents = new int[16];
+		private int[] ends = new int[16];
+		private Map<Integer, Map<String, Object>> attributes;
+		private int size;
+		// the node opened last and not yet closed
+		private int open = -1;
+
+		/**
+		 * Opens a child of the node open, or the root.
+		 *
+		 * @param key
+		 *            Key of the child, ignored for the root
+		 * @return The number of the node
+		 */
+		public int open(String key) {
+			if (this.open < 0 && this.size > 0)
+				throw new IllegalStateException("The tree already has a root.");
+			if (this.size == this.keys.length) {
+				final int capacity = this.size + (this.size >> 1);
+				this.keys = Arrays.copyOf(this.keys, capacity);
+				this.values = Arrays.copyOf(this.values, capacity);
+				this.counters = Arrays.copyOf(this.counters, capacity);
+				this.parents = Arrays.copyOf(this.parents, capacity);
+				this.ends = Arrays.copyOf(this.ends, capacity);
+			}
+			final int node = this.size++;
+			this.keys[node] = this.open < 0 ? -1 : this.id(key);
+			this.values[node] = -1;
+			this.counters[node] = 0;
+			this.parents[node] = this.open;
+			this.open = node;
+			return node;
+		}
+
+		/**
+		 * Closes the node open, returning to its parent.
+		 */
+		public void close() {
+			if (this.open < 0)
+				throw new IllegalStateException("No node is open.");
+			this.ends[this.open] = this.size;
+			this.open = this.parents[this.open];
+		}
+
+		public void setNodeValue(String value) {
+			this.values[this.current()] = this.id(value);
+		}
+
+		public void setNodeCounter(int counter) {
+			this.counters[this.current()] = counter;
+		}
+
+		/**
+		 * @param attributes
+		 *            Attributes of the node open; empty ones are not kept
+		 */
+		public void setAttributes(Map<String, Object> attributes) {
+			final int node = this.current();
+			if (attributes.isEmpty()) {
+				if (this.attributes != null)
+					this.attributes.remove(node);
+				return;
+			}
+			if (this.attributes == null)
+				this.attributes = new HashMap<Integer, Map<String, Object>>();
+			this.attributes.put(node, attributes);
+		}
+
+		/**
+		 * @return The tree, once all nodes are closed
+		 */
+		public CompactTree build() {
+			if (this.size == 0 || this.open >= 0)
+				throw new IllegalStateException("The tree is incomplete.");
+			return new CompactTree(this);
+		}
+
+		private int current() {
+			if (this.open < 0)
+				throw new IllegalStateException("No node is open.");
+			return this.open;
+		}
+
+		private int id(String label) {
+			if (label == null)
+				return -1;
+			Integer id = this.ids.get(label);
+			if (id == null) {
+				id = this.labels.size();
+				this.ids.put(label, id);
+				this.labels.add(label);
+			}
+			return id;
+		}
+	}
+
+}
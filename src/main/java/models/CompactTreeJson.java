@@ -0,0 +1,189 @@
+package models;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Reads and writes trees in the JSON form Gson gives {@link ExtensibleTreeNode}s,
+ * token by token. Neither a JSON document nor the objects of the nodes are
+ * built, and trees are traversed without recursion, so that their size and
+ * depth are only limited by the arrays of {@link CompactTree}.
+ *
+ * Empty child and attribute maps are left out when writing, which Gson reads
+ * as empty maps as well.
+ */
+public final class CompactTreeJson {
+
+	private static final String NODEVALUE = "nodeValue";
+	private static final String NODECOUNTER = "nodeCounter";
+	private static final String CHILDNODES = "childNodes";
+	private static final String ATTRIBUTES = "attributes";
+
+	// reads and writes attribute values as Gson does for Map<String,Object>
+	private static final TypeAdapter<Object> VALUES = new Gson().getAdapter(Object.class);
+
+	private CompactTreeJson() {
+	}
+
+	/**
+	 * @param reader
+	 *            JSON of an {@link ExtensibleTreeNode} tree
+	 * @return The tree
+	 * @throws IOException
+	 *             If the input cannot be read or is no such tree
+	 */
+	@SuppressWarnings("unchecked")
+	public static CompactTree read(Reader reader) throws IOException {
+		final JsonReader in = new JsonReader(reader);
+		in.setLenient(true);
+		final CompactTree.Builder builder = new CompactTree.Builder();
+		builder.open(null);
+		in.beginObject();
+		int depth = 1;
+		// whether the reader is inside the child map of the node open
+		boolean inChildren = false;
+		while (depth > 0) {
+			if (inChildren) {
+				if (!in.hasNext()) {
+					in.endObject();
+					inChildren = false;
+				} else {
+					final String key = in.nextName();
+					if (in.peek() == JsonToken.NULL) {
+						in.nextNull();
+						continue;
+					}
+					builder.open(key);
+					in.beginObject();
+					depth++;
+					inChildren = false;
+				}
+				continue;
+			}
+			if (!in.hasNext()) {
+				in.endObject();
+				builder.close();
+				depth--;
+				// nodes other than the root are found in child maps
+				inChildren = depth > 0;
+				continue;
+			}
+			final String name = in.nextName();
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+			} else if (NODEVALUE.equals(name)) {
+				builder.setNodeValue(in.nextString());
+			} else if (NODECOUNTER.equals(name)) {
+				builder.setNodeCounter(in.nextInt());
+			} else if (CHILDNODES.equals(name)) {
+				in.beginObject();
+				inChildren = true;
+			} else if (ATTRIBUTES.equals(name)) {
+				builder.setAttributes((Map<String, Object>) VALUES.read(in));
+			} else {
+				in.skipValue();
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @param tree
+	 *            The tree to write
+	 * @param writer
+	 *            Output, not closed
+	 * @throws IOException
+	 *             If the output cannot be written
+	 */
+	public static void write(CompactTree tree, Writer writer) throws IOException {
+		final JsonWriter out = newWriter(writer);
+		final Deque<Integer> open = new ArrayDeque<Integer>();
+		for (int node = 0; node < tree.size(); node++) {
+			while (!open.isEmpty() && tree.getEnd(open.peek()) <= node) {
+				final int done = open.pop();
+				endNode(out, tree.getFirstChild(done) >= 0, tree.getAttributes(done));
+			}
+			if (node > 0)
+				out.name(tree.getKey(node));
+			beginNode(out, tree.getNodeValue(node), tree.getNodeCounter(node), tree.getFirstChild(node) >= 0);
+			open.push(node);
+		}
+		while (!open.isEmpty()) {
+			final int done = open.pop();
+			endNode(out, tree.getFirstChild(done) >= 0, tree.getAttributes(done));
+		}
+		out.flush();
+	}
+
+	/**
+	 * @param root
+	 *            Root of the tree to write
+	 * @param writer
+	 *            Output, not closed
+	 * @throws IOException
+	 *             If the output cannot be written
+	 */
+	public static void write(ExtensibleTreeNode root, Writer writer) throws IOException {
+		final JsonWriter out = newWriter(writer);
+		final Deque<ExtensibleTreeNode> nodes = new ArrayDeque<ExtensibleTreeNode>();
+		final Deque<Iterator<Entry<String, ExtensibleTreeNode>>> children = new ArrayDeque<Iterator<Entry<String, ExtensibleTreeNode>>>();
+		beginNode(out, root.getNodeValue(), root.getNodeCounter(), !root.getChildNodes().isEmpty());
+		nodes.push(root);
+		children.push(root.getChildNodes().entrySet().iterator());
+		while (!nodes.isEmpty()) {
+			if (children.peek().hasNext()) {
+				final Entry<String, ExtensibleTreeNode> child = children.peek().next();
+				final ExtensibleTreeNode node = child.getValue();
+				out.name(child.getKey());
+				beginNode(out, node.getNodeValue(), node.getNodeCounter(), !node.getChildNodes().isEmpty());
+				nodes.push(node);
+				children.push(node.getChildNodes().entrySet().iterator());
+			} else {
+				final ExtensibleTreeNode node = nodes.pop();
+				children.pop();
+				endNode(out, !node.getChildNodes().isEmpty(), node.getAttributes());
+			}
+		}
+		out.flush();
+	}
+
+	private static JsonWriter newWriter(Writer writer) {
+		final JsonWriter out = new JsonWriter(writer);
+		out.setSerializeNulls(false);
+		return out;
+	}
+
+	private static void beginNode(JsonWriter out, String value, int counter, boolean hasChildren)
+			throws IOException {
+		out.beginObject();
+		if (value != null)
+			out.name(NODEVALUE).value(value);
+		out.name(NODECOUNTER).value(counter);
+		if (hasChildren)
+			out.name(CHILDNODES).beginObject();
+	}
+
+	private static void endNode(JsonWriter out, boolean hasChildren, Map<String, Object> attributes)
+			throws IOException {
+		if (hasChildren)
+			out.endObject();
+		if (attributes != null && !attributes.isEmpty()) {
+			out.name(ATTRIBUTES);
+			VALUES.write(out, attributes);
+		}
+		out.endObject();
+	}
+
+}
@@ -0,0 +1,166 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the values of a {@link NamedFieldMatrix} in a dynamically resizing
+ * two-dimensional array, with a field for every cell.
+ */
+class DenseMatrixStorage extends MatrixStorage {
+
+	// the actual values in a 2-dimensional array
+	private double[][] values;
+
+	// current maximum of allocated elements
+	private int colMax = 100;
+	private int rowMax = 100;
+
+	// amount of rows backed by an array
+	private int allocatedRows = 0;
+
+	DenseMatrixStorage() {
+		this.values = new double[rowMax][];
+	}
+
+	@Override
+	void ensureCapacity(int rows, int cols) {
+		if (cols > colMax) {
+			while (cols > colMax)
+				colMax = nextSize(colMax);
+			for (int i = 0; i < allocatedRows; i++)
+				values[i] = Arrays.copyOf(values[i], colMax);
+		}
+		if (rows > rowMax) {
+			while (rows > rowMax)
+				rowMax = nextSize(rowMax);
+			values = Arrays.copyOf(values, rowMax);
+		}
+		for (; allocatedRows < rows; allocatedRows++)
+			values[allocatedRows] = new double[colMax];
+	}
+
+	// Increase the amount of allocated rows or columns
+	private static int nextSize(int size) {
+		if (size < 100) {
+			return 100;
+		} else if (size < 100000) {
+			return size * 2;
+		} else {
+			return size + 50000;
+		}
+	}
+
+	@Override
+	double get(int row, int col) {
+		return values[row][col];
+	}
+
+	@Override
+	double set(int row, int col, double value) {
+		double previousValue = values[row][col];
+		values[row][col] = value;
+		return previousValue;
+	}
+
+	@Override
+	double[] getRow(int row, int cols) {
+		return Arrays.copyOf(values[row], cols);
+	}
+
+	@Override
+	int getNonZeroValues(int row, int cols, int[] colsOut, double[] valuesOut) {
+		int amount = 0;
+		for (int col = 0; col < cols; col++) {
+			if (values[row][col] != 0) {
+				colsOut[amount] = col;
+				valuesOut[amount++] = values[row][col];
+			}
+		}
+		return amount;
+	}
+
+	@Override
+	double[] getColumn(int col, int rows) {
+		double[] result = new double[rows];
+		for (int i = 0; i < rows; i++) {
+			result[i] = values[i][col];
+		}
+		return result;
+	}
+
+	@Override
+	double[][] toArray(int rows, int cols) {
+		contract(rows, cols);
+		return values;
+	}
+
+	@Override
+	void setArray(double[][] values) {
+		this.values = values;
+		this.rowMax = this.allocatedRows = values.length;
+		this.colMax = values.length == 0 ? 0 : values[0].length;
+	}
+
+	@Override
+	void contract(int rows, int cols) {
+		// contract the array containing the rows
+		if (rows != values.length) {
+			values = Arrays.copyOf(values, rows);
+			rowMax = rows;
+		}
+		// contract each row to the amount of columns
+		for (int i = 0; i < rows; i++) {
+			if (values[i] == null) {
+				values[i] = new double[cols];
+			} else if (cols != values[i].length) {
+				values[i] = Arrays.copyOf(values[i], cols);
+			}
+		}
+		allocatedRows = rows;
+		colMax = cols;
+	}
+
+	@Override
+	int getHammingDistanceForRows(int row1, int row2, int cols) {
+		int distance = 0;
+		for (int i = 0; i < cols; i++) {
+			if (Double.compare(values[row1][i], values[row2][i]) != 0) {
+				distance += 1;
+			}
+		}
+		return distance;
+	}
+
+	@Override
+	int getHammingDistanceForColumns(int col1, int col2, int rows) {
+		int distance = 0;
+		for (int i = 0; i < rows; i++) {
+			if (Double.compare(values[i][col1], values[i][col2]) != 0) {
+				distance += 1;
+			}
+		}
+		return distance;
+	}
+
+	@Override
+	void appendCsvFields(StringBuilder sb, int row, int cols, String delimiter) {
+		for (int col = 0; col < cols; col++) {
+			sb.append(delimiter);
+			// Write only non-zero values
+			if (values[row][col] != 0) {
+				sb.append(values[row][col]);
+			}
+		}
+	}
+
+	@Override
+	long getNonZeroAmount() {
+		long amount = 0;
+		for (int i = 0; i < allocatedRows; i++)
+			for (double value : values[i])
+				if (value != 0)
+					amount++;
+		return amount;
+	}
+
+}
@@ -0,0 +1,149 @@
+package models;
+
+/**
+ * Storage backend for the values of a {@link NamedFieldMatrix}. The matrix
+ * keeps track of row and column names and amounts and addresses its values
+ * through this class only, so that their representation can be exchanged.
+ *
+ * Two implementations exist: {@link DenseMatrixStorage} keeps a two
+ * dimensional array with a field for every cell, {@link SparseMatrixStorage}
+ * keeps only the non-zero values of each row.
+ */
+abstract class MatrixStorage {
+
+	/**
+	 * Makes room for the given amount of rows and columns.
+	 *
+	 * @param rows
+	 *            Amount of rows
+	 * @param cols
+	 *            Amount of columns
+	 */
+	abstract void ensureCapacity(int rows, int cols);
+
+	/**
+	 * @param row
+	 *            Row index
+	 * @param col
+	 *            Column index
+	 * @return The value of the field (0 if never set)
+	 */
+	abstract double get(int row, int col);
+
+	/**
+	 * @param row
+	 *            Row index
+	 * @param col
+	 *            Column index
+	 * @param value
+	 *            The new value of the field
+	 * @return The previous value of the field
+	 */
+	abstract double set(int row, int col, double value);
+
+	/**
+	 * @param row
+	 *            Row index
+	 * @param cols
+	 *            Amount of columns
+	 * @return A new array holding the row's values
+	 */
+	abstract double[] getRow(int row, int cols);
+
+	/**
+	 * Copies the row's non-zero values and their columns in ascending order of
+	 * the columns.
+	 *
+	 * @param row
+	 *            Row index
+	 * @param cols
+	 *            Amount of columns
+	 * @param colsOut
+	 *            Receives the columns, at least as long as the row's non-zero
+	 *            values
+	 * @param valuesOut
+	 *            Receives the values, at least as long as the row's non-zero
+	 *            values
+	 * @return The amount of non-zero values copied
+	 */
+	abstract int getNonZeroValues(int row, int cols, int[] colsOut, double[] valuesOut);
+
+	/**
+	 * @param col
+	 *            Column index
+	 * @param rows
+	 *            Amount of rows
+	 * @return A new array holding the column's values
+	 */
+	abstract double[] getColumn(int col, int rows);
+
+	/**
+	 * @param rows
+	 *            Amount of rows
+	 * @param cols
+	 *            Amount of columns
+	 * @return The values as an array of exactly the given size
+	 */
+	abstract double[][] toArray(int rows, int cols);
+
+	/**
+	 * Replaces all values.
+	 *
+	 * @param values
+	 *            The new values (already checked to match the matrix' size)
+	 */
+	abstract void setArray(double[][] values);
+
+	/**
+	 * Shrinks the storage to the given amount of rows and columns.
+	 *
+	 * @param rows
+	 *            Amount of rows
+	 * @param cols
+	 *            Amount of columns
+	 */
+	abstract void contract(int rows, int cols);
+
+	/**
+	 * @param row1
+	 *            First row
+	 * @param row2
+	 *            Second row
+	 * @param cols
+	 *            Amount of columns
+	 * @return The amount of differing values in both rows
+	 */
+	abstract int getHammingDistanceForRows(int row1, int row2, int cols);
+
+	/**
+	 * @param col1
+	 *            First column
+	 * @param col2
+	 *            Second column
+	 * @param rows
+	 *            Amount of rows
+	 * @return The amount of differing values in both columns
+	 */
+	abstract int getHammingDistanceForColumns(int col1, int col2, int rows);
+
+	/**
+	 * Appends the row's values as csv fields, each preceded by the
+	 * delimiter, leaving zero values empty.
+	 *
+	 * @param sb
+	 *            The builder to append to
+	 * @param row
+	 *            Row index
+	 * @param cols
+	 *            Amount of columns
+	 * @param delimiter
+	 *            The csv delimiter
+	 */
+	abstract void appendCsvFields(StringBuilder sb, int row, int cols, String delimiter);
+
+	/**
+	 * @return The amount of non-zero values
+	 */
+	abstract long getNonZeroAmount();
+
+}
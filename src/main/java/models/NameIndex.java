@@ -0,0 +1,146 @@
+package models;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Maps the row or column names of a {@link NamedFieldMatrix} to consecutive
+ * indexes and back. Names are kept in an array by index, the reverse
+ * direction is an open addressing hash table of indexes, such that no boxed
+ * Integers or map entries are created per name.
+ */
+class NameIndex {
+
+	// marks an unused slot in the hash table
+	private static final int FREE = -1;
+
+	// the names by their index
+	private String[] names = new String[16];
+	private int size = 0;
+
+	// the indexes of names by the hash of the name, linear probing
+	private int[] table = newTable(32);
+
+	// a sorted copy of the names, created on demand
+	private Set<String> sortedNames = null;
+
+	// an unmodifiable view on the names in sorted order
+	private final Set<String> view = new AbstractSet<String>() {
+		@Override
+		public Iterator<String> iterator() {
+			return sortedNames().iterator();
+		}
+
+		@Override
+		public int size() {
+			return NameIndex.this.size;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return (o instanceof String) && NameIndex.this.get((String) o) >= 0;
+		}
+	};
+
+	private static int[] newTable(int length) {
+		final int[] table = new int[length];
+		Arrays.fill(table, FREE);
+		return table;
+	}
+
+	private static int slot(String name, int mask) {
+		final int h = name.hashCode();
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	/**
+	 * @param name
+	 *            The name to look up
+	 * @return The index of the name or -1 if it is not present
+	 */
+	int get(String name) {
+		final int mask = this.table.length - 1;
+		for (int slot = slot(name, mask);; slot = (slot + 1) & mask) {
+			final int index = this.table[slot];
+			if (index == FREE)
+				return -1;
+			if (this.names[index].equals(name))
+				return index;
+		}
+	}
+
+	/**
+	 * @param name
+	 *            The name to look up or add
+	 * @return The index of the name, the next free index if it was added
+	 */
+	int getOrAdd(String name) {
+		final int mask = this.table.length - 1;
+		int slot = slot(name, mask);
+		for (;; slot = (slot + 1) & mask) {
+			final int index = this.table[slot];
+			if (index == FREE)
+				break;
+			if (this.names[index].equals(name))
+				return index;
+		}
+		final int index = this.size++;
+		if (index == this.names.length)
+			this.names = Arrays.copyOf(this.names, index * 2);
+		this.names[index] = name;
+		this.table[slot] = index;
+		// keep the table at most half full
+		if (this.size * 2 > this.table.length)
+			this.rehash();
+		this.sortedNames = null;
+		return index;
+	}
+
+	private void rehash() {
+		this.table = newTable(this.table.length * 2);
+		final int mask = this.table.length - 1;
+		for (int index = 0; index < this.size; index++) {
+			int slot = slot(this.names[index], mask);
+			while (this.table[slot] != FREE)
+				slot = (slot + 1) & mask;
+			this.table[slot] = index;
+		}
+	}
+
+	/**
+	 * @param index
+	 *            The index of the name
+	 * @return The name or null if the index is not set
+	 */
+	String getName(int index) {
+		return (index < 0 || index >= this.size) ? null : this.names[index];
+	}
+
+	/**
+	 * @return The amount of names
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return An unmodifiable view on all names that iterates them in sorted
+	 *         order
+	 */
+	Set<String> names() {
+		return this.view;
+	}
+
+	private Set<String> sortedNames() {
+		if (this.sortedNames == null) {
+			this.sortedNames = Collections
+					.unmodifiableSet(new TreeSet<String>(Arrays.asList(this.names).subList(0, this.size)));
+		}
+		return this.sortedNames;
+	}
+
+}
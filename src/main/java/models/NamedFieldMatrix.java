@@ -3,50 +3,55 @@ package models;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Map;
-import java.util.Scanner;
+import java.util.List;
 import java.util.Set;
-import java.util.TreeMap;
 
 /**
  * A dynamically resizing two-dimensional Array whose fields can be addressed by
  * pairs of Strings as well as pairs of numbers.
  * 
+ * The values are either kept densely, with a field for every cell, or
+ * sparsely, with only the non-zero values of each row (see
+ * {@link MatrixStorage}). Matrices read by {@link #parseCSV(Reader, String)}
+ * choose the representation by the amount of non-zero values.
+ * 
  * Supports output to a csv-Table and can be read from a csv-Table.
  */
 public class NamedFieldMatrix {
 
-	// the actual values in a 2-dimensional list
-	private double[][] values;
+	// parsed matrices with more non-zero values than this share of their
+	// fields are kept dense
+	private static final double MAX_SPARSE_DENSITY = 0.5;
 
-	// current maximum of allocated elements
-	private int colMax = 100;
-	private int rowMax = 100;
+	// size of the buffer used when reading csv input
+	private static final int CSV_BUFFERSIZE = 8192;
 
-	// current amount of columns and rows set, equals the next index to set
-	private int colAmount = 0;
-	private int rowAmount = 0;
+	// the actual values
+	private MatrixStorage values;
 
 	// maps rows of the table to a row name and vice versa
-	private final Map<Integer, String> rowsToRowNames;
-	private final Map<String, Integer> rowNamesToRows;
+	private final NameIndex rows;
 
-	// maps columns of the table to a column name no and vice versa
-	private final Map<Integer, String> colsToColNames;
-	private final Map<String, Integer> colNamesToCols;
+	// maps columns of the table to a column name and vice versa
+	private final NameIndex cols;
 
 	private String delimiter = ",";
 
 	public NamedFieldMatrix() {
-		this.values = new double[rowMax][];
-
-		this.rowNamesToRows = new TreeMap<String, Integer>();
-		this.colNamesToCols = new TreeMap<String, Integer>();
+		this(false);
+	}
 
-		this.rowsToRowNames = new TreeMap<Integer, String>();
-		this.colsToColNames = new TreeMap<Integer, String>();
+	/**
+	 * @param sparse
+	 *            Whether to keep only the matrix' non-zero values.
+	 */
+	public NamedFieldMatrix(boolean sparse) {
+		this.values = sparse ? new SparseMatrixStorage() : new DenseMatrixStorage();
+		this.rows = new NameIndex();
+		this.cols = new NameIndex();
 	}
 
 	/**
@@ -65,10 +70,10 @@ public class NamedFieldMatrix {
 		int row = getOrAddRow(rowName);
 		int col = getOrAddColumn(columnName);
 
-		double previousValue = values[row][col];
-		values[row][col] = previousValue + value;
+		double newValue = values.get(row, col) + value;
+		values.set(row, col, newValue);
 
-		return values[row][col];
+		return newValue;
 	}
 
 	/**
@@ -87,10 +92,7 @@ public class NamedFieldMatrix {
 		int row = getOrAddRow(rowName);
 		int col = getOrAddColumn(columnName);
 
-		double previousValue = values[row][col];
-		values[row][col] = value;
-
-		return previousValue;
+		return values.set(row, col, value);
 	}
 
 	/**
@@ -108,14 +110,11 @@ public class NamedFieldMatrix {
 	 *             If the rowNo/colNo combination was not previously set.
 	 */
 	public double setValue(int rowNo, int colNo, double value) {
-		if (rowNo < 0 || colNo < 0 || rowNo >= rowAmount || colNo >= colAmount) {
+		if (rowNo < 0 || colNo < 0 || rowNo >= getRowAmount() || colNo >= getColumnsAmount()) {
 			throw new IllegalArgumentException("Row/Column index does not exist: " + rowNo + "/" + colNo);
 		}
 
-		double previousValue = values[rowNo][colNo];
-		values[rowNo][colNo] = value;
-
-		return previousValue;
+		return values.set(rowNo, colNo, value);
 	}
 
 	/**
@@ -129,13 +128,13 @@ public class NamedFieldMatrix {
 	 *         null if the field does not exist
 	 */
 	public Double getValue(String rowName, String columnName) {
-		Integer row = rowNamesToRows.get(rowName);
-		Integer col = colNamesToCols.get(columnName);
+		int row = rows.get(rowName);
+		int col = cols.get(columnName);
 
-		if (row == null || col == null) {
+		if (row < 0 || col < 0) {
 			return null;
 		} else {
-			return values[row][col];
+			return values.get(row, col);
 		}
 	}
 
@@ -149,10 +148,10 @@ public class NamedFieldMatrix {
 	 * @return The value specified by the indices or null if none exists.
 	 */
 	public Double getValue(int row, int col) {
-		if (row >= rowAmount || col >= colAmount) {
+		if (row < 0 || col < 0 || row >= getRowAmount() || col >= getColumnsAmount()) {
 			return null;
 		} else {
-			return values[row][col];
+			return values.get(row, col);
 		}
 	}
 
@@ -162,11 +161,14 @@ public class NamedFieldMatrix {
 	 * NOTE: Once exposed the user of this method has to take care, that row and
 	 * column names match the actual values and matrix dimensions.
 	 * 
+	 * NOTE: A sparse matrix has no such array, it returns a dense copy of its
+	 * values instead, changes to which are not reflected in the matrix unless
+	 * set by {@link #setValues(double[][])}.
+	 * 
 	 * @return a pointer to the matrix' values.
 	 */
 	public double[][] getValues() {
-		contract();
-		return values;
+		return values.toArray(getRowAmount(), getColumnsAmount());
 	}
 
 	/**
@@ -180,19 +182,17 @@ public class NamedFieldMatrix {
 	 */
 	public void setValues(double[][] values) {
 		// check rows array
-		if (values == null || values.length != rowAmount) {
+		if (values == null || values.length != getRowAmount()) {
 			throw new IllegalArgumentException("Null array or bad array length. Should equal amount of rows.");
 		}
 		// check cols array
 		for (int i = 0; i < values.length; i++) {
-			if (values[i] == null || values[i].length != colAmount) {
+			if (values[i] == null || values[i].length != getColumnsAmount()) {
 				throw new IllegalArgumentException("Column arrays must match amount of columns.");
 			}
 		}
 		// all ok, so set
-		this.colMax = colAmount;
-		this.rowMax = rowAmount;
-		this.values = values;
+		this.values.setArray(values);
 	}
 
 	/**
@@ -205,8 +205,8 @@ public class NamedFieldMatrix {
 	 *             If there is no row with that name.
 	 */
 	public double[] getRow(String rowName) throws IllegalArgumentException {
-		Integer row = rowNamesToRows.get(rowName);
-		if (row == null) {
+		int row = rows.get(rowName);
+		if (row < 0) {
 			throw new IllegalArgumentException("No row for name: " + rowName);
 		} else {
 			return getRow(row);
@@ -223,10 +223,33 @@ public class NamedFieldMatrix {
 	 *             if there is no row with that index.
 	 */
 	public double[] getRow(int row) throws IllegalArgumentException {
-		if (row >= rowAmount) {
+		if (row < 0 || row >= getRowAmount()) {
 			throw new IllegalArgumentException("Row not set: " + row);
 		}
-		return Arrays.copyOf(values[row], colAmount);
+		return values.getRow(row, getColumnsAmount());
+	}
+
+	/**
+	 * Copies the non-zero values of a row by it's index, without creating an
+	 * array for all of the row's fields.
+	 * 
+	 * @param row
+	 *            The index of the row.
+	 * @param cols
+	 *            Receives the columns of the non-zero values in ascending
+	 *            order, at least as long as the amount of columns set.
+	 * @param values
+	 *            Receives the non-zero values, at least as long as the amount
+	 *            of columns set.
+	 * @return The amount of non-zero values in the row.
+	 * @throws IllegalArgumentException
+	 *             if there is no row with that index.
+	 */
+	public int getNonZeroValues(int row, int[] cols, double[] values) throws IllegalArgumentException {
+		if (row < 0 || row >= getRowAmount()) {
+			throw new IllegalArgumentException("Row not set: " + row);
+		}
+		return this.values.getNonZeroValues(row, getColumnsAmount(), cols, values);
 	}
 
 	/**
@@ -240,8 +263,8 @@ public class NamedFieldMatrix {
 	 */
 	public double[] getColumn(String columnName) throws IllegalArgumentException {
 		// get col number and fail if none exists
-		Integer col = colNamesToCols.get(columnName);
-		if (col == null) {
+		int col = cols.get(columnName);
+		if (col < 0) {
 			throw new IllegalArgumentException("No column for name: " + columnName);
 		}
 		return getColumn(col);
@@ -257,15 +280,10 @@ public class NamedFieldMatrix {
 	 *             if the column is not set
 	 */
 	public double[] getColumn(int col) throws IllegalArgumentException {
-		if (col >= colAmount) {
+		if (col < 0 || col >= getColumnsAmount()) {
 			throw new IllegalArgumentException("Col not set: " + col);
 		}
-		// simply copy the column
-		double[] result = new double[rowAmount];
-		for (int i = 0; i < rowAmount; i++) {
-			result[i] = values[i][col];
-		}
-		return result;
+		return values.getColumn(col, getRowAmount());
 	}
 
 	/**
@@ -274,7 +292,7 @@ public class NamedFieldMatrix {
 	 * @return number of rows
 	 */
 	public int getRowAmount() {
-		return rowAmount;
+		return rows.size();
 	}
 
 	/**
@@ -283,7 +301,7 @@ public class NamedFieldMatrix {
 	 * @return number of columns
 	 */
 	public int getColumnsAmount() {
-		return colAmount;
+		return cols.size();
 	}
 
 	/**
@@ -292,7 +310,7 @@ public class NamedFieldMatrix {
 	 * @return a view on the matrix' row names currently set.
 	 */
 	public Set<String> getRowNames() {
-		return Collections.unmodifiableSet(rowNamesToRows.keySet());
+		return rows.names();
 	}
 
 	/**
@@ -301,7 +319,7 @@ public class NamedFieldMatrix {
 	 * @return a view on the matrix' column names currently set.
 	 */
 	public Set<String> getColumnNames() {
-		return Collections.unmodifiableSet(colNamesToCols.keySet());
+		return cols.names();
 	}
 
 	/**
@@ -331,7 +349,8 @@ public class NamedFieldMatrix {
 	 * @return the row number or null if the rowName is not part of the table.
 	 */
 	public Integer getRowNo(String rowName) {
-		return rowNamesToRows.get(rowName);
+		int row = rows.get(rowName);
+		return row < 0 ? null : row;
 	}
 
 	/**
@@ -343,7 +362,8 @@ public class NamedFieldMatrix {
 	 *         table.
 	 */
 	public Integer getColumnNo(String columnName) {
-		return colNamesToCols.get(columnName);
+		int col = cols.get(columnName);
+		return col < 0 ? null : col;
 	}
 
 	/**
@@ -355,7 +375,7 @@ public class NamedFieldMatrix {
 	 *         table.
 	 */
 	public String getColumnName(int colNo) {
-		return colsToColNames.get(colNo);
+		return cols.getName(colNo);
 	}
 
 	/**
@@ -367,7 +387,7 @@ public class NamedFieldMatrix {
 	 *         table.
 	 */
 	public String getRowName(int rowNo) {
-		return rowsToRowNames.get(rowNo);
+		return rows.getName(rowNo);
 	}
 
 	/**
@@ -380,20 +400,12 @@ public class NamedFieldMatrix {
 	 * @return The amount of differing values in both rows.
 	 */
 	public int getHammingDistanceForRows(int row1, int row2) {
-		if (row1 >= rowAmount)
+		if (row1 < 0 || row1 >= getRowAmount())
 			throw new IllegalArgumentException("Row not set: " + row1);
-		if (row2 >= rowAmount)
+		if (row2 < 0 || row2 >= getRowAmount())
 			throw new IllegalArgumentException("Row not set: " + row2);
 
-		int distance = 0;
-
-		for (int i = 0; i < colAmount; i++) {
-			if (Double.compare(values[row1][i], values[row2][i]) != 0) {
-				distance += 1;
-			}
-		}
-
-		return distance;
+		return values.getHammingDistanceForRows(row1, row2, getColumnsAmount());
 	}
 
 	/**
@@ -428,20 +440,12 @@ public class NamedFieldMatrix {
 	 * @return The amount of differing values in both columns.
 	 */
 	public int getHammingDistanceForColumns(int col1, int col2) {
-		if (col1 >= colAmount)
+		if (col1 < 0 || col1 >= getColumnsAmount())
 			throw new IllegalArgumentException("Column not set: " + col1);
-		if (col2 >= colAmount)
+		if (col2 < 0 || col2 >= getColumnsAmount())
 			throw new IllegalArgumentException("Column not set: " + col2);
 
-		int distance = 0;
-
-		for (int i = 0; i < rowAmount; i++) {
-			if (Double.compare(values[i][col1], values[i][col2]) != 0) {
-				distance += 1;
-			}
-		}
-
-		return distance;
+		return values.getHammingDistanceForColumns(col1, col2, getRowAmount());
 	}
 
 	/**
@@ -473,14 +477,7 @@ public class NamedFieldMatrix {
 	 */
 	public String csvHeader() {
 		StringBuilder sb = new StringBuilder();
-		// the first header field is empty
-		sb.append(delimiter);
-		for (int col = 0; col < colAmount; col++) {
-			sb.append(colsToColNames.get(col));
-			sb.append(delimiter);
-		}
-		sb.setLength(sb.length() - 1);
-		sb.append('\n');
+		appendCsvHeader(sb);
 		return sb.toString();
 	}
 
@@ -494,47 +491,75 @@ public class NamedFieldMatrix {
 	 *             If row doesn't mach a row in the table.
 	 */
 	public String csvLine(int row) throws IllegalArgumentException {
-		if (row >= rowAmount) {
+		if (row < 0 || row >= getRowAmount()) {
 			throw new IllegalArgumentException("No row for index: " + row);
 		}
 		StringBuilder sb = new StringBuilder();
-		// write the row header
-		sb.append(rowsToRowNames.get(row));
-		sb.append(delimiter);
-		// write values
-		for (int col = 0; col < colAmount; col++) {
-			// Write only non-zero values
-			if (values[row][col] != 0) {
-				sb.append(values[row][col]);
+		appendCsvLine(sb, row);
+		return sb.toString();
+	}
+
+	/**
+	 * Writes the whole table as csv, i.e. the header followed by all rows,
+	 * without creating a String per line.
+	 * 
+	 * @param writer
+	 *            The writer to output to.
+	 * @throws IOException
+	 *             If writing fails.
+	 */
+	public void writeCsv(Writer writer) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		appendCsvHeader(sb);
+		for (int row = 0; row < getRowAmount(); row++) {
+			appendCsvLine(sb, row);
+			if (sb.length() >= CSV_BUFFERSIZE) {
+				writer.append(sb);
+				sb.setLength(0);
 			}
+		}
+		writer.append(sb);
+		writer.flush();
+	}
+
+	private void appendCsvHeader(StringBuilder sb) {
+		// the first header field is empty
+		for (int col = 0; col < getColumnsAmount(); col++) {
 			sb.append(delimiter);
+			sb.append(cols.getName(col));
 		}
-		sb.setLength(sb.length() - 1);
 		sb.append('\n');
-		return sb.toString();
+	}
+
+	private void appendCsvLine(StringBuilder sb, int row) {
+		// write the row header
+		sb.append(rows.getName(row));
+		// write values, only non-zero values are written
+		values.appendCsvFields(sb, row, getColumnsAmount(), delimiter);
+		sb.append('\n');
+	}
+
+	/**
+	 * @return Whether only the matrix' non-zero values are kept.
+	 */
+	public boolean isSparse() {
+		return values instanceof SparseMatrixStorage;
 	}
 
 	/**
 	 * get the current row if it exists or add a new one: i.e. note it's name in
-	 * the mappings and make sure that it is backed by an appropriately sized
-	 * array in values[newRowNo]
+	 * the mappings and make sure that it is backed by the storage
 	 * 
 	 * @param rowName
 	 *            Name of row
 	 * @return row index
 	 */
 	private int getOrAddRow(String rowName) {
-		Integer row = rowNamesToRows.get(rowName);
+		int row = rows.get(rowName);
 		// If the row is new, add it
-		if (row == null) {
-			if (rowAmount >= rowMax - 1) {
-				yResize();
-			}
-			row = rowAmount;
-			values[row] = new double[colMax];
-			rowNamesToRows.put(rowName, row);
-			rowsToRowNames.put(row, rowName);
-			rowAmount += 1;
+		if (row < 0) {
+			row = rows.getOrAdd(rowName);
+			values.ensureCapacity(getRowAmount(), getColumnsAmount());
 		}
 		return row;
 	}
@@ -548,76 +573,21 @@ public class NamedFieldMatrix {
 	 * @return column index
 	 */
 	private int getOrAddColumn(String columnName) {
-		Integer col = colNamesToCols.get(columnName);
+		int col = cols.get(columnName);
 		// If the column is new, add it
-		if (col == null) {
-			if (colAmount >= colMax) {
-				xResize();
-			}
-			col = colAmount;
-			colNamesToCols.put(columnName, col);
-			colsToColNames.put(col, columnName);
-			colAmount += 1;
+		if (col < 0) {
+			col = cols.getOrAdd(columnName);
+			values.ensureCapacity(getRowAmount(), getColumnsAmount());
 		}
 		return col;
 	}
 
 	/**
-	 * Increase the amount of allocated rows
-	 */
-	private void yResize() {
-		if (rowMax < 100) {
-			rowMax = 100;
-		} else if (rowMax < 100000) {
-			rowMax *= 2;
-		} else {
-			rowMax += 50000;
-		}
-		values = Arrays.copyOf(values, rowMax);
-	}
-
-	/**
-	 * Increase the amount of allocated columns
-	 */
-	private void xResize() {
-		if (colMax < 100) {
-			colMax = 100;
-		} else if (colMax < 100000) {
-			colMax *= 2;
-		} else {
-			colMax += 50000;
-		}
-		for (int i = 0; i < rowAmount; i++) {
-			double[] row = values[i];
-			if (row != null) {
-				values[i] = Arrays.copyOf(row, colMax);
-			}
-		}
-	}
-
-	/**
-	 * Contract the matrices underlying double[][] x and y dimensions, such that
-	 * it uses exactly an amount of space equal to the rows and columns entered
-	 * so far.
+	 * Contract the matrices underlying storage, such that it uses exactly an
+	 * amount of space equal to the rows and columns entered so far.
 	 */
 	public void contract() {
-		// contract the array containing the rows
-		if (rowAmount != values.length) {
-			values = Arrays.copyOf(values, rowAmount);
-			rowMax = rowAmount;
-		}
-
-		// contract each row to the amount of columns
-		for (int i = 0; i < rowAmount; i++) {
-			if (values[i] == null) {
-				values[i] = new double[colAmount];
-			} else {
-				if (colAmount != values[i].length) {
-					values[i] = Arrays.copyOf(values[i], colAmount);
-				}
-			}
-			colMax = colAmount;
-		}
+		values.contract(getRowAmount(), getColumnsAmount());
 	}
 
 	/**
@@ -638,49 +608,147 @@ public class NamedFieldMatrix {
 
 	/**
 	 * Reads CSV data from specified reader and returns a NamedFieldMatrix
-	 * object instance.
+	 * object instance. The matrix is kept sparse if at most half of its fields
+	 * are non-zero.
 	 * 
 	 * @param csvReader
 	 *            Reader instance providing CSV formatted data
 	 * @param delimiter
-	 *            The input delimiter to split cells on.
+	 *            The input delimiter to split cells on (taken literally).
 	 * @return NamedFieldMatrix instance
 	 * @throws Exception
 	 *             Thrown if the CSV input cannot be parsed
 	 */
 	public static NamedFieldMatrix parseCSV(Reader csvReader, String delimiter) throws Exception {
-
-		// Instantiate matrix
-		NamedFieldMatrix matrix = new NamedFieldMatrix();
-
-		// Use scanner for input
-		Scanner input = new Scanner(csvReader);
-		input.useDelimiter("\\R");
-
-		// Read csv head row
-		String[] colNames = null;
-		if (input.hasNext()) {
-			colNames = input.next().split(delimiter, -1);
+		NamedFieldMatrix matrix = new NamedFieldMatrix(true);
+		matrix.readCsv(csvReader, delimiter);
+
+		// switch to dense storage if that is as small
+		final long fields = (long) matrix.getRowAmount() * matrix.getColumnsAmount();
+		if (matrix.values.getNonZeroAmount() > fields * MAX_SPARSE_DENSITY) {
+			MatrixStorage dense = new DenseMatrixStorage();
+			dense.setArray(matrix.getValues());
+			matrix.values = dense;
 		} else {
-			input.close();
-			throw new IOException("Cannot parse CSV data -- no head row found.");
+			matrix.contract();
 		}
+		return matrix;
+	}
+
+	/**
+	 * Reads CSV data from specified reader and returns a NamedFieldMatrix
+	 * object instance.
+	 * 
+	 * @param csvReader
+	 *            Reader instance providing CSV formatted data
+	 * @param delimiter
+	 *            The input delimiter to split cells on (taken literally).
+	 * @param sparse
+	 *            Whether the matrix should keep only its non-zero values.
+	 * @return NamedFieldMatrix instance
+	 * @throws Exception
+	 *             Thrown if the CSV input cannot be parsed
+	 */
+	public static NamedFieldMatrix parseCSV(Reader csvReader, String delimiter, boolean sparse) throws Exception {
+		NamedFieldMatrix matrix = new NamedFieldMatrix(sparse);
+		matrix.readCsv(csvReader, delimiter);
+		return matrix;
+	}
 
-		// Read data rows
-		while (input.hasNext()) {
-			String[] data = input.next().split(delimiter, -1);
-			// Store data into matrix (assuming the first column contains the
-			// dataset names)
-			for (int i = 1; i < data.length && i < colNames.length; i++) {
-				Double value = 0d; // Default value for empty string input
-				if (data[i] != null && !data[i].isEmpty())
-					value = Double.parseDouble(data[i]);
-				matrix.addValue(data[0], colNames[i], value);
+	/**
+	 * Adds the values of csv data to this matrix. The first line holds the
+	 * column names, the first field of every other line the row name. The
+	 * input is read in chunks and split into fields char by char, without
+	 * creating a String for each line or empty field.
+	 */
+	private void readCsv(Reader csvReader, String delimiter) throws IOException {
+		if (delimiter.isEmpty()) {
+			throw new IllegalArgumentException("Cannot parse CSV data with an empty delimiter.");
+		}
+		final char[] buffer = new char[CSV_BUFFERSIZE];
+		final StringBuilder field = new StringBuilder();
+		final int delimiterLength = delimiter.length();
+		final char delimiterEnd = delimiter.charAt(delimiterLength - 1);
+
+		// column names by their position in the header and their indexes
+		// in the matrix, once a value for them was read
+		final List<String> colNames = new ArrayList<String>();
+		int[] colNos = null;
+
+		boolean headerRead = false;
+		boolean skipLinefeed = false;
+		int fieldNo = 0;
+		String rowName = null;
+		int row = -1;
+
+		try {
+			boolean end = false;
+			while (!end) {
+				int length = csvReader.read(buffer);
+				if (length == -1) {
+					end = true;
+					// the last line may end without a line break
+					if (fieldNo == 0 && field.length() == 0)
+						break;
+					buffer[0] = '\n';
+					length = 1;
+					skipLinefeed = false;
+				}
+				for (int i = 0; i < length; i++) {
+					final char c = buffer[i];
+					final boolean lineEnd = (c == '\n' || c == '\r');
+					if (skipLinefeed) {
+						skipLinefeed = false;
+						if (c == '\n')
+							continue;
+					}
+					if (!lineEnd) {
+						field.append(c);
+						// a field ends if it ends with the delimiter
+						if (c != delimiterEnd || (delimiterLength > 1 && (field.length() < delimiterLength
+								|| field.indexOf(delimiter, field.length() - delimiterLength) < 0)))
+							continue;
+						field.setLength(field.length() - delimiterLength);
+					}
+
+					// handle the field just ended
+					if (!headerRead) {
+						colNames.add(field.toString());
+					} else if (fieldNo == 0) {
+						rowName = field.toString();
+						row = -1;
+					} else if (fieldNo < colNames.size()) {
+						if (row < 0)
+							row = getOrAddRow(rowName);
+						if (colNos[fieldNo] < 0)
+							colNos[fieldNo] = getOrAddColumn(colNames.get(fieldNo));
+						// empty fields default to zero
+						if (field.length() > 0) {
+							final int col = colNos[fieldNo];
+							values.set(row, col, values.get(row, col) + Double.parseDouble(field.toString()));
+						}
+					}
+					field.setLength(0);
+					fieldNo++;
+
+					if (lineEnd) {
+						if (!headerRead) {
+							headerRead = true;
+							colNos = new int[colNames.size()];
+							Arrays.fill(colNos, -1);
+						}
+						fieldNo = 0;
+						skipLinefeed = (c == '\r');
+					}
+				}
 			}
+		} finally {
+			csvReader.close();
 		}
 
-		input.close();
-		return matrix;
+		if (!headerRead) {
+			throw new IOException("Cannot parse CSV data -- no head row found.");
+		}
 	}
 
 }
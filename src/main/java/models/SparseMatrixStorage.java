@@ -0,0 +1,217 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * Keeps only the non-zero values of a {@link NamedFieldMatrix}: for each row
+ * a pair of primitive arrays holds the column indexes (in ascending order)
+ * and values of its non-zero fields (compressed sparse rows). This needs 12
+ * bytes per non-zero value instead of 8 bytes per field, so it pays off for
+ * matrices with less than two thirds of their fields set.
+ *
+ * Reading a field takes a binary search within its row, appending to a row
+ * in order of the columns is cheap, setting fields in any other order moves
+ * the row's later fields.
+ */
+class SparseMatrixStorage extends MatrixStorage {
+
+	private static final int[] NOCOLS = new int[0];
+	private static final double[] NOVALUES = new double[0];
+
+	// per row: the columns of its non-zero fields, their values and amount
+	private int[][] cols = new int[0][];
+	private double[][] values = new double[0][];
+	private int[] sizes = new int[0];
+
+	private int rowAmount = 0;
+
+	@Override
+	void ensureCapacity(int rows, int cols) {
+		if (rows > this.sizes.length) {
+			final int size = Math.max(rows, this.sizes.length + (this.sizes.length >> 1) + 16);
+			this.cols = Arrays.copyOf(this.cols, size);
+			this.values = Arrays.copyOf(this.values, size);
+			this.sizes = Arrays.copyOf(this.sizes, size);
+		}
+		for (; this.rowAmount < rows; this.rowAmount++) {
+			this.cols[this.rowAmount] = NOCOLS;
+			this.values[this.rowAmount] = NOVALUES;
+		}
+	}
+
+	// index of the column within the row, or (-(insertion point) - 1)
+	private int indexOf(int row, int col) {
+		final int size = this.sizes[row];
+		// fast path for appending in order of the columns
+		if (size == 0 || this.cols[row][size - 1] < col)
+			return -size - 1;
+		return Arrays.binarySearch(this.cols[row], 0, size, col);
+	}
+
+	@Override
+	double get(int row, int col) {
+		final int index = this.indexOf(row, col);
+		return index < 0 ? 0d : this.values[row][index];
+	}
+
+	@Override
+	double set(int row, int col, double value) {
+		int index = this.indexOf(row, col);
+		if (index >= 0) {
+			final double previousValue = this.values[row][index];
+			if (value != 0) {
+				this.values[row][index] = value;
+			} else {
+				// remove the field
+				final int size = --this.sizes[row];
+				System.arraycopy(this.cols[row], index + 1, this.cols[row], index, size - index);
+				System.arraycopy(this.values[row], index + 1, this.values[row], index, size - index);
+			}
+			return previousValue;
+		}
+		if (value != 0) {
+			// insert the field
+			index = -index - 1;
+			final int size = this.sizes[row]++;
+			if (size == this.cols[row].length) {
+				final int length = Math.max(4, size + (size >> 1));
+				this.cols[row] = Arrays.copyOf(this.cols[row], length);
+				this.values[row] = Arrays.copyOf(this.values[row], length);
+			}
+			System.arraycopy(this.cols[row], index, this.cols[row], index + 1, size - index);
+			System.arraycopy(this.values[row], index, this.values[row], index + 1, size - index);
+			this.cols[row][index] = col;
+			this.values[row][index] = value;
+		}
+		return 0d;
+	}
+
+	@Override
+	double[] getRow(int row, int cols) {
+		final double[] result = new double[cols];
+		for (int i = 0; i < this.sizes[row]; i++)
+			result[this.cols[row][i]] = this.values[row][i];
+		return result;
+	}
+
+	@Override
+	int getNonZeroValues(int row, int cols, int[] colsOut, double[] valuesOut) {
+		final int size = this.sizes[row];
+		System.arraycopy(this.cols[row], 0, colsOut, 0, size);
+		System.arraycopy(this.values[row], 0, valuesOut, 0, size);
+		return size;
+	}
+
+	@Override
+	double[] getColumn(int col, int rows) {
+		final double[] result = new double[rows];
+		for (int row = 0; row < rows; row++)
+			result[row] = this.get(row, col);
+		return result;
+	}
+
+	@Override
+	double[][] toArray(int rows, int cols) {
+		final double[][] result = new double[rows][];
+		for (int row = 0; row < rows; row++)
+			result[row] = this.getRow(row, cols);
+		return result;
+	}
+
+	@Override
+	void setArray(double[][] values) {
+		this.cols = new int[values.length][];
+		this.values = new double[values.length][];
+		this.sizes = new int[values.length];
+		this.rowAmount = values.length;
+		for (int row = 0; row < values.length; row++) {
+			int size = 0;
+			for (double value : values[row])
+				if (value != 0)
+					size++;
+			this.cols[row] = new int[size];
+			this.values[row] = new double[size];
+			this.sizes[row] = size;
+			int index = 0;
+			for (int col = 0; col < values[row].length; col++) {
+				if (values[row][col] != 0) {
+					this.cols[row][index] = col;
+					this.values[row][index++] = values[row][col];
+				}
+			}
+		}
+	}
+
+	@Override
+	void contract(int rows, int cols) {
+		this.cols = Arrays.copyOf(this.cols, rows);
+		this.values = Arrays.copyOf(this.values, rows);
+		this.sizes = Arrays.copyOf(this.sizes, rows);
+		for (int row = 0; row < rows; row++) {
+			if (this.cols[row].length != this.sizes[row]) {
+				this.cols[row] = Arrays.copyOf(this.cols[row], this.sizes[row]);
+				this.values[row] = Arrays.copyOf(this.values[row], this.sizes[row]);
+			}
+		}
+	}
+
+	@Override
+	int getHammingDistanceForRows(int row1, int row2, int cols) {
+		// merge both rows, fields missing in both are equal
+		final int[] cols1 = this.cols[row1];
+		final int[] cols2 = this.cols[row2];
+		final int size1 = this.sizes[row1];
+		final int size2 = this.sizes[row2];
+		int distance = 0;
+		int i = 0;
+		int j = 0;
+		while (i < size1 && j < size2) {
+			if (cols1[i] < cols2[j]) {
+				distance++;
+				i++;
+			} else if (cols1[i] > cols2[j]) {
+				distance++;
+				j++;
+			} else {
+				if (Double.compare(this.values[row1][i], this.values[row2][j]) != 0)
+					distance++;
+				i++;
+				j++;
+			}
+		}
+		return distance + (size1 - i) + (size2 - j);
+	}
+
+	@Override
+	int getHammingDistanceForColumns(int col1, int col2, int rows) {
+		int distance = 0;
+		for (int row = 0; row < rows; row++) {
+			if (Double.compare(this.get(row, col1), this.get(row, col2)) != 0) {
+				distance += 1;
+			}
+		}
+		return distance;
+	}
+
+	@Override
+	void appendCsvFields(StringBuilder sb, int row, int cols, String delimiter) {
+		int col = 0;
+		for (int i = 0; i < this.sizes[row]; i++) {
+			// empty fields up to the next non-zero value
+			for (; col <= this.cols[row][i]; col++)
+				sb.append(delimiter);
+			sb.append(this.values[row][i]);
+		}
+		for (; col < cols; col++)
+			sb.append(delimiter);
+	}
+
+	@Override
+	long getNonZeroAmount() {
+		long amount = 0;
+		for (int row = 0; row < this.rowAmount; row++)
+			amount += this.sizes[row];
+		return amount;
+	}
+
+}
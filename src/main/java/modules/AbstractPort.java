@@ -7,6 +7,7 @@ import java.util.Map;
 public abstract class AbstractPort implements Port {
 	
 	private Map<String, Class<? extends Pipe>> supportedPipes = new HashMap<String, Class<? extends Pipe>>();
+	private Class<?> objectPipeType = Object.class;
 	private String name;
 	private String description;
 	private Module parent;
@@ -82,6 +83,25 @@ public abstract class AbstractPort implements Port {
 		this.supportedPipes.put(pipeClass.getCanonicalName(),pipeClass);
 	}
 
+	/**
+	 * Adds support for object pipes passing objects of the specified type.
+	 * For output ports this is the type emitted, for input ports the type
+	 * accepted.
+	 * @param objectType Type of objects
+	 */
+	public void addSupportedObjectPipe(Class<?> objectType) {
+		this.addSupportedPipe(ObjectPipe.class);
+		this.objectPipeType = objectType;
+	}
+
+	/* (non-Javadoc)
+	 * @see modules.Port#getObjectPipeType()
+	 */
+	@Override
+	public Class<?> getObjectPipeType() {
+		return this.objectPipeType;
+	}
+
 	/* (non-Javadoc)
 	 * @see modules.Port#getParent()
 	 */
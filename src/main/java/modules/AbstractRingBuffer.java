@@ -0,0 +1,232 @@
+package modules;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bookkeeping for a bounded single-producer/single-consumer ring buffer as
+ * used by {@link CharPipe} and {@link BytePipe}. Both sides only ever write
+ * their own position counter, so no locks are needed; a waiting side parks
+ * its thread and gets unparked by the other side once there is something to
+ * do. Subclasses provide the backing array and the copy operations.
+ * 
+ * The locks merely serialise several threads using the same side of the
+ * buffer. They are {@link Lock}s rather than monitors because a virtual
+ * thread that parks while holding a monitor pins its carrier thread (see
+ * {@link VirtualThreadModuleScheduler}).
+ */
+public abstract class AbstractRingBuffer {
+
+	/**
+	 * Default capacity (in elements). May be overridden by setting the system
+	 * property <code>modules.pipe.buffersize</code>.
+	 */
+	public static final int DEFAULT_CAPACITY = Integer.getInteger("modules.pipe.buffersize", 1 << 16);
+
+	// Upper bound for a single park; after that, the liveness of the other side is re-checked
+	private static final long PARKNANOS = TimeUnit.MILLISECONDS.toNanos(250l);
+
+	protected final int capacity;
+	protected final int mask;
+
+	// Total amount of elements written resp. read so far
+	private volatile long writePosition = 0l;
+	private volatile long readPosition = 0l;
+
+	// Threads currently parked on this buffer (if any)
+	private volatile Thread waitingReader = null;
+	private volatile Thread waitingWriter = null;
+
+	// Threads last seen on each side (used to detect dead ends, like the piped streams do)
+	private volatile Thread readSide = null;
+	private volatile Thread writeSide = null;
+
+	private volatile boolean writeClosed = false;
+	private volatile boolean readClosed = false;
+
+	// Set if a side is given up without closing it, whether its thread lives on or not
+	private volatile boolean readDead = false;
+	private volatile boolean writeDead = false;
+
+	// Serialise concurrent readers resp. writers
+	protected final Lock readLock = new ReentrantLock();
+	protected final Lock writeLock = new ReentrantLock();
+
+	/**
+	 * Constructor
+	 * @param capacity Minimal capacity in elements; will be rounded up to the next power of two
+	 */
+	public AbstractRingBuffer(int capacity) {
+		super();
+		if (capacity < 1)
+			throw new IllegalArgumentException("The capacity of a ring buffer must be positive.");
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity)
+			size <<= 1;
+		this.capacity = size;
+		this.mask = size - 1;
+	}
+
+	/**
+	 * @return Capacity in elements
+	 */
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * @return Amount of elements that can currently be read without blocking
+	 */
+	public int available() {
+		return (int) (this.writePosition - this.readPosition);
+	}
+
+	/**
+	 * @return Array index of the next element to read
+	 */
+	protected int readIndex() {
+		return (int) (this.readPosition & this.mask);
+	}
+
+	/**
+	 * @return Array index of the next element to write
+	 */
+	protected int writeIndex() {
+		return (int) (this.writePosition & this.mask);
+	}
+
+	/**
+	 * Blocks until there is at least one element to read.
+	 * @return Amount of elements readable or -1 if the write end has been closed and all data is consumed
+	 * @throws IOException Thrown if the read end is closed, the write end died or the thread got interrupted
+	 */
+	protected int awaitReadable() throws IOException {
+		if (this.readClosed)
+			throw new IOException("Pipe closed");
+		Thread currentThread = Thread.currentThread();
+		if (this.readSide != currentThread)
+			this.readSide = currentThread;
+
+		long available;
+		while ((available = this.writePosition - this.readPosition) == 0l) {
+			// The writer publishes its data before it closes, so check the flag first and the position again afterwards
+			boolean closed = this.writeClosed;
+			if (this.writePosition != this.readPosition)
+				continue;
+			if (closed)
+				return -1;
+			Thread writer = this.writeSide;
+			if (this.writeDead || (writer != null && !writer.isAlive()))
+				throw new IOException("Write end dead");
+
+			this.waitingReader = currentThread;
+			if (this.writePosition == this.readPosition && !this.writeClosed)
+				LockSupport.parkNanos(this, PARKNANOS);
+			this.waitingReader = null;
+
+			if (Thread.interrupted())
+				throw new InterruptedIOException("Thread has been interrupted.");
+		}
+		return (int) available;
+	}
+
+	/**
+	 * Blocks until there is room for at least one element.
+	 * @return Amount of elements that can be written
+	 * @throws IOException Thrown if either end is closed, the read end died or the thread got interrupted
+	 */
+	protected int awaitWritable() throws IOException {
+		if (this.writeClosed || this.readClosed)
+			throw new IOException("Pipe closed");
+		Thread currentThread = Thread.currentThread();
+		if (this.writeSide != currentThread)
+			this.writeSide = currentThread;
+
+		long free;
+		while ((free = this.capacity - (this.writePosition - this.readPosition)) == 0l) {
+			if (this.readClosed)
+				throw new IOException("Pipe closed");
+			Thread reader = this.readSide;
+			if (this.readDead || (reader != null && !reader.isAlive()))
+				throw new IOException("Read end dead");
+
+			this.waitingWriter = currentThread;
+			if (this.writePosition - this.readPosition == this.capacity && !this.readClosed)
+				LockSupport.parkNanos(this, PARKNANOS);
+			this.waitingWriter = null;
+
+			if (Thread.interrupted())
+				throw new InterruptedIOException("Thread has been interrupted.");
+		}
+		return (int) free;
+	}
+
+	/**
+	 * Marks the given amount of elements as consumed and wakes up a waiting writer.
+	 * @param amount Amount of elements read
+	 */
+	protected void commitRead(int amount) {
+		this.readPosition += amount;
+		Thread writer = this.waitingWriter;
+		if (writer != null)
+			LockSupport.unpark(writer);
+	}
+
+	/**
+	 * Publishes the given amount of elements and wakes up a waiting reader.
+	 * @param amount Amount of elements written
+	 */
+	protected void commitWrite(int amount) {
+		this.writePosition += amount;
+		Thread reader = this.waitingReader;
+		if (reader != null)
+			LockSupport.unpark(reader);
+	}
+
+	/**
+	 * Closes the write end; the reader will receive EOF after consuming the remaining data.
+	 */
+	public void closeWrite() {
+		this.writeClosed = true;
+		Thread reader = this.waitingReader;
+		if (reader != null)
+			LockSupport.unpark(reader);
+	}
+
+	/**
+	 * Closes the read end; subsequent writes will fail.
+	 */
+	public void closeRead() {
+		this.readClosed = true;
+		Thread writer = this.waitingWriter;
+		if (writer != null)
+			LockSupport.unpark(writer);
+	}
+
+	/**
+	 * Marks the write end as dead; a reader waiting for data fails unless
+	 * the write end has been closed.
+	 */
+	public void markWriteDead() {
+		this.writeDead = true;
+		Thread reader = this.waitingReader;
+		if (reader != null)
+			LockSupport.unpark(reader);
+	}
+
+	/**
+	 * Marks the read end as dead; a writer waiting for room fails unless the
+	 * read end has been closed.
+	 */
+	public void markReadDead() {
+		this.readDead = true;
+		Thread writer = this.waitingWriter;
+		if (writer != null)
+			LockSupport.unpark(writer);
+	}
+
+}
@@ -0,0 +1,67 @@
+package modules;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the modules on a pool of at most the given amount of platform
+ * threads, which are reused between runs of the network. Modules exceeding
+ * that amount are queued until a thread becomes available, so the pool
+ * should be at least as large as the amount of modules that have to run
+ * concurrently (see {@link ModuleScheduler}). Idle threads time out after
+ * a minute; all threads are daemons and do not keep the JVM alive.
+ */
+public class BoundedModuleScheduler implements ModuleScheduler {
+
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * Constructor
+	 * @param maximumThreads Maximum amount of threads running modules at the same time
+	 */
+	public BoundedModuleScheduler(int maximumThreads) {
+		super();
+		if (maximumThreads < 1)
+			throw new IllegalArgumentException("A scheduler needs at least one thread.");
+		this.executor = new ThreadPoolExecutor(maximumThreads, maximumThreads, 60l, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ModuleThreadFactory());
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * @return Maximum amount of threads running modules at the same time
+	 */
+	public int getMaximumThreads() {
+		return this.executor.getMaximumPoolSize();
+	}
+
+	@Override
+	public void execute(Module module, Runnable task) {
+		this.executor.execute(task);
+	}
+
+	@Override
+	public void shutdown() {
+		this.executor.shutdown();
+	}
+
+	/*
+	 * Creates numbered daemon threads; ModuleNetwork renames them after the
+	 * module they are currently running.
+	 */
+	private static class ModuleThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger threadCount = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "module-pool-" + this.threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
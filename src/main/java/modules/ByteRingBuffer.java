@@ -0,0 +1,180 @@
+package modules;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Ring buffer for bytes, accessible through an {@link InputStream} (consumer
+ * side) and an {@link OutputStream} (producer side).
+ */
+public class ByteRingBuffer extends AbstractRingBuffer {
+
+	private final byte[] buffer;
+	private final InputStream inputStream;
+	private final OutputStream outputStream;
+
+	/**
+	 * Constructor
+	 * @param capacity Minimal capacity in bytes
+	 */
+	public ByteRingBuffer(int capacity) {
+		super(capacity);
+		this.buffer = new byte[this.capacity];
+		this.inputStream = new RingBufferInputStream();
+		this.outputStream = new RingBufferOutputStream();
+	}
+
+	/**
+	 * @return Input stream for the consumer side
+	 */
+	public InputStream getInputStream() {
+		return this.inputStream;
+	}
+
+	/**
+	 * @return Output stream for the producer side
+	 */
+	public OutputStream getOutputStream() {
+		return this.outputStream;
+	}
+
+	/**
+	 * Reads at least one byte, blocking if none is available.
+	 * @param target Array to read into
+	 * @param offset Offset within the target array
+	 * @param length Maximum amount of bytes to read
+	 * @return Amount of bytes read or -1 at the end of the stream
+	 * @throws IOException Thrown if the pipe is broken
+	 */
+	public int read(byte[] target, int offset, int length) throws IOException {
+		if (length == 0)
+			return 0;
+		int available = this.awaitReadable();
+		if (available < 0)
+			return -1;
+		int amount = Math.min(length, available);
+		int index = this.readIndex();
+		int firstPart = Math.min(amount, this.capacity - index);
+		System.arraycopy(this.buffer, index, target, offset, firstPart);
+		if (firstPart < amount)
+			System.arraycopy(this.buffer, 0, target, offset + firstPart, amount - firstPart);
+		this.commitRead(amount);
+		return amount;
+	}
+
+	/**
+	 * Reads a single byte, blocking if none is available.
+	 * @return The byte read (0-255) or -1 at the end of the stream
+	 * @throws IOException Thrown if the pipe is broken
+	 */
+	public int read() throws IOException {
+		if (this.awaitReadable() < 0)
+			return -1;
+		int b = this.buffer[this.readIndex()] & 0xFF;
+		this.commitRead(1);
+		return b;
+	}
+
+	/**
+	 * Writes all given bytes, blocking whenever the buffer is full.
+	 * @param source Array to write from
+	 * @param offset Offset within the source array
+	 * @param length Amount of bytes to write
+	 * @throws IOException Thrown if the pipe is broken
+	 */
+	public void write(byte[] source, int offset, int length) throws IOException {
+		while (length > 0) {
+			int amount = Math.min(length, this.awaitWritable());
+			int index = this.writeIndex();
+			int firstPart = Math.min(amount, this.capacity - index);
+			System.arraycopy(source, offset, this.buffer, index, firstPart);
+			if (firstPart < amount)
+				System.arraycopy(source, offset + firstPart, this.buffer, 0, amount - firstPart);
+			this.commitWrite(amount);
+			offset += amount;
+			length -= amount;
+		}
+	}
+
+	/**
+	 * Writes a single byte, blocking if the buffer is full.
+	 * @param b Byte to write
+	 * @throws IOException Thrown if the pipe is broken
+	 */
+	public void write(int b) throws IOException {
+		this.awaitWritable();
+		this.buffer[this.writeIndex()] = (byte) b;
+		this.commitWrite(1);
+	}
+
+	/*
+	 * Consumer side. The lock merely protects against several threads
+	 * reading concurrently; it is never contended by the producer.
+	 */
+	private class RingBufferInputStream extends InputStream {
+
+		@Override
+		public int read() throws IOException {
+			ByteRingBuffer.this.readLock.lock();
+			try {
+				return ByteRingBuffer.this.read();
+			} finally {
+				ByteRingBuffer.this.readLock.unlock();
+			}
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			ByteRingBuffer.this.readLock.lock();
+			try {
+				return ByteRingBuffer.this.read(b, off, len);
+			} finally {
+				ByteRingBuffer.this.readLock.unlock();
+			}
+		}
+
+		@Override
+		public int available() throws IOException {
+			return ByteRingBuffer.this.available();
+		}
+
+		@Override
+		public void close() throws IOException {
+			ByteRingBuffer.this.closeRead();
+		}
+	}
+
+	/*
+	 * Producer side. The lock merely protects against several threads
+	 * writing concurrently; it is never contended by the consumer.
+	 */
+	private class RingBufferOutputStream extends OutputStream {
+
+		@Override
+		public void write(int b) throws IOException {
+			ByteRingBuffer.this.writeLock.lock();
+			try {
+				ByteRingBuffer.this.write(b);
+			} finally {
+				ByteRingBuffer.this.writeLock.unlock();
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			ByteRingBuffer.this.writeLock.lock();
+			try {
+				ByteRingBuffer.this.write(b, off, len);
+			} finally {
+				ByteRingBuffer.this.writeLock.unlock();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			ByteRingBuffer.this.closeWrite();
+		}
+	}
+
+}
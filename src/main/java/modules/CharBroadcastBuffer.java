@@ -0,0 +1,411 @@
+package modules;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Single-producer/multi-consumer ring buffer for characters. Data is written
+ * once into a shared buffer and every {@link Subscription} reads it through
+ * its own cursor, so consumers progress independently of each other. A slot
+ * is only reused once every open subscription has read past it, which bounds
+ * the lag of the slowest consumer to the buffer's capacity.
+ */
+public class CharBroadcastBuffer {
+
+	// Upper bound for a single park; after that, the liveness of the other side is re-checked
+	private static final long PARKNANOS = TimeUnit.MILLISECONDS.toNanos(250l);
+
+	private final char[] buffer;
+	private final int capacity;
+	private final int mask;
+
+	private volatile long writePosition = 0l;
+	private volatile boolean writeClosed = false;
+	// Set if the write end is given up without closing it
+	private volatile boolean writeDead = false;
+	private volatile Thread waitingWriter = null;
+	private volatile Thread writeSide = null;
+
+	private final List<Subscription> subscriptions = new CopyOnWriteArrayList<Subscription>();
+
+	// Serialises concurrent writers (a lock rather than a monitor, see AbstractRingBuffer)
+	private final Lock writeLock = new ReentrantLock();
+
+	/**
+	 * Constructor
+	 * @param capacity Maximum lag of any subscription in chars (rounded up to the next power of two)
+	 */
+	public CharBroadcastBuffer(int capacity) {
+		super();
+		if (capacity < 1)
+			throw new IllegalArgumentException("The capacity of a broadcast buffer must be positive.");
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity)
+			size <<= 1;
+		this.capacity = size;
+		this.mask = size - 1;
+		this.buffer = new char[size];
+	}
+
+	/**
+	 * @return Capacity in chars (i.e. the maximum lag of a subscription)
+	 */
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * Adds a new subscription; it will receive all data written from now on.
+	 * @return Subscription
+	 */
+	public Subscription subscribe() {
+		Subscription subscription = new Subscription(this.writePosition);
+		this.subscriptions.add(subscription);
+		return subscription;
+	}
+
+	/**
+	 * @return The current subscriptions
+	 */
+	public List<Subscription> getSubscriptions() {
+		return this.subscriptions;
+	}
+
+	/**
+	 * Determines the position of the slowest open subscription and updates
+	 * the lag statistics on the way. Subscriptions whose reader died are
+	 * removed, so that they no longer hold back the others.
+	 * @return Lowest read position
+	 * @throws IOException Thrown if there are no open subscriptions with a live reader left
+	 */
+	private long minimumReadPosition() throws IOException {
+		long writePosition = this.writePosition;
+		long minimum = writePosition;
+		boolean open = false;
+		boolean dead = false;
+		Iterator<Subscription> subscriptions = this.subscriptions.iterator();
+		while (subscriptions.hasNext()) {
+			Subscription subscription = subscriptions.next();
+			if (subscription.closed)
+				continue;
+			Thread reader = subscription.readSide;
+			if (subscription.dead || (reader != null && !reader.isAlive())) {
+				// The list is copied on write, so this does not disturb the iteration
+				this.subscriptions.remove(subscription);
+				dead = true;
+				continue;
+			}
+			open = true;
+			long readPosition = subscription.readPosition;
+			long lag = writePosition - readPosition;
+			if (lag > subscription.peakLag)
+				subscription.peakLag = lag;
+			if (readPosition < minimum)
+				minimum = readPosition;
+		}
+		if (!open)
+			throw new IOException(dead ? "Read end dead" : "Pipe closed");
+		return minimum;
+	}
+
+	/**
+	 * Blocks until there is room for at least one char.
+	 * @return Amount of chars that can be written
+	 * @throws IOException Thrown if the buffer is closed, all readers are gone or the thread got interrupted
+	 */
+	private int awaitWritable() throws IOException {
+		if (this.writeClosed)
+			throw new IOException("Pipe closed");
+		Thread currentThread = Thread.currentThread();
+		if (this.writeSide != currentThread)
+			this.writeSide = currentThread;
+
+		long free;
+		while ((free = this.capacity - (this.writePosition - this.minimumReadPosition())) == 0l) {
+			this.waitingWriter = currentThread;
+			if (this.capacity - (this.writePosition - this.minimumReadPosition()) == 0l)
+				LockSupport.parkNanos(this, PARKNANOS);
+			this.waitingWriter = null;
+
+			if (Thread.interrupted())
+				throw new InterruptedIOException("Thread has been interrupted.");
+		}
+		return (int) free;
+	}
+
+	/**
+	 * Publishes the given amount of chars and wakes up waiting subscribers.
+	 * @param amount Amount of chars written
+	 */
+	private void commitWrite(int amount) {
+		this.writePosition += amount;
+		this.unparkSubscribers();
+	}
+
+	private void unparkSubscribers() {
+		Iterator<Subscription> subscriptions = this.subscriptions.iterator();
+		while (subscriptions.hasNext()) {
+			Thread reader = subscriptions.next().waitingReader;
+			if (reader != null)
+				LockSupport.unpark(reader);
+		}
+	}
+
+	/**
+	 * Writes all given characters, blocking whenever the slowest subscription lags behind by the buffer's capacity.
+	 * @param source Array to write from
+	 * @param offset Offset within the source array
+	 * @param length Amount of characters to write
+	 * @throws IOException Thrown if the pipe is broken
+	 */
+	public void write(char[] source, int offset, int length) throws IOException {
+		this.writeLock.lock();
+		try {
+			while (length > 0) {
+				int amount = Math.min(length, this.awaitWritable());
+				int index = (int) (this.writePosition & this.mask);
+				int firstPart = Math.min(amount, this.capacity - index);
+				System.arraycopy(source, offset, this.buffer, index, firstPart);
+				if (firstPart < amount)
+					System.arraycopy(source, offset + firstPart, this.buffer, 0, amount - firstPart);
+				this.commitWrite(amount);
+				offset += amount;
+				length -= amount;
+			}
+		} finally {
+			this.writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Writes all given characters without copying the string to an intermediate array.
+	 * @param source String to write from
+	 * @param offset Offset within the string
+	 * @param length Amount of characters to write
+	 * @throws IOException Thrown if the pipe is broken
+	 */
+	public void write(String source, int offset, int length) throws IOException {
+		this.writeLock.lock();
+		try {
+			while (length > 0) {
+				int amount = Math.min(length, this.awaitWritable());
+				int index = (int) (this.writePosition & this.mask);
+				int firstPart = Math.min(amount, this.capacity - index);
+				source.getChars(offset, offset + firstPart, this.buffer, index);
+				if (firstPart < amount)
+					source.getChars(offset + firstPart, offset + amount, this.buffer, 0);
+				this.commitWrite(amount);
+				offset += amount;
+				length -= amount;
+			}
+		} finally {
+			this.writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Closes the write end; subscribers will receive EOF after consuming the remaining data.
+	 */
+	public void closeWrite() {
+		this.writeClosed = true;
+		this.unparkSubscribers();
+	}
+
+	/**
+	 * Marks the write end as dead; subscribers waiting for data fail unless
+	 * the write end has been closed.
+	 */
+	public void markWriteDead() {
+		this.writeDead = true;
+		this.unparkSubscribers();
+	}
+
+	/**
+	 * Read cursor of a single consumer.
+	 */
+	public class Subscription {
+
+		private volatile long readPosition;
+		private volatile long peakLag = 0l;
+		private volatile boolean closed = false;
+		// Set if the subscription is given up without closing it
+		private volatile boolean dead = false;
+		private volatile Thread waitingReader = null;
+		private volatile Thread readSide = null;
+		private final Lock readLock = new ReentrantLock();
+		private final Reader reader = new SubscriptionReader();
+
+		private Subscription(long readPosition) {
+			this.readPosition = readPosition;
+		}
+
+		/**
+		 * @return Reader for this subscription
+		 */
+		public Reader getReader() {
+			return this.reader;
+		}
+
+		/**
+		 * @return Amount of chars written but not yet read by this subscription
+		 */
+		public long getLag() {
+			return CharBroadcastBuffer.this.writePosition - this.readPosition;
+		}
+
+		/**
+		 * @return Highest lag observed by the writer so far
+		 */
+		public long getPeakLag() {
+			return this.peakLag;
+		}
+
+		/**
+		 * @return True if this subscription has been closed
+		 */
+		public boolean isClosed() {
+			return this.closed;
+		}
+
+		/**
+		 * Blocks until there is at least one char to read.
+		 * @return Amount of chars readable or -1 at the end of the stream
+		 * @throws IOException Thrown if the subscription is closed, the writer died or the thread got interrupted
+		 */
+		private int awaitReadable() throws IOException {
+			if (this.closed)
+				throw new IOException("Pipe closed");
+			Thread currentThread = Thread.currentThread();
+			if (this.readSide != currentThread)
+				this.readSide = currentThread;
+
+			long available;
+			while ((available = CharBroadcastBuffer.this.writePosition - this.readPosition) == 0l) {
+				// The writer publishes its data before it closes, so check the flag first and the position again afterwards
+				boolean writeClosed = CharBroadcastBuffer.this.writeClosed;
+				if (CharBroadcastBuffer.this.writePosition != this.readPosition)
+					continue;
+				if (writeClosed)
+					return -1;
+				Thread writer = CharBroadcastBuffer.this.writeSide;
+				if (CharBroadcastBuffer.this.writeDead || (writer != null && !writer.isAlive()))
+					throw new IOException("Write end dead");
+
+				this.waitingReader = currentThread;
+				if (CharBroadcastBuffer.this.writePosition == this.readPosition && !CharBroadcastBuffer.this.writeClosed)
+					LockSupport.parkNanos(this, PARKNANOS);
+				this.waitingReader = null;
+
+				if (Thread.interrupted())
+					throw new InterruptedIOException("Thread has been interrupted.");
+			}
+			return (int) available;
+		}
+
+		private void commitRead(int amount) {
+			this.readPosition += amount;
+			Thread writer = CharBroadcastBuffer.this.waitingWriter;
+			if (writer != null)
+				LockSupport.unpark(writer);
+		}
+
+		/**
+		 * Reads at least one character, blocking if none is available.
+		 * @param target Array to read into
+		 * @param offset Offset within the target array
+		 * @param length Maximum amount of characters to read
+		 * @return Amount of characters read or -1 at the end of the stream
+		 * @throws IOException Thrown if the pipe is broken
+		 */
+		public int read(char[] target, int offset, int length) throws IOException {
+			if (length == 0)
+				return 0;
+			this.readLock.lock();
+			try {
+				int available = this.awaitReadable();
+				if (available < 0)
+					return -1;
+				int amount = Math.min(length, available);
+				int index = (int) (this.readPosition & CharBroadcastBuffer.this.mask);
+				int firstPart = Math.min(amount, CharBroadcastBuffer.this.capacity - index);
+				System.arraycopy(CharBroadcastBuffer.this.buffer, index, target, offset, firstPart);
+				if (firstPart < amount)
+					System.arraycopy(CharBroadcastBuffer.this.buffer, 0, target, offset + firstPart, amount - firstPart);
+				this.commitRead(amount);
+				return amount;
+			} finally {
+				this.readLock.unlock();
+			}
+		}
+
+		/**
+		 * Reads a single character, blocking if none is available.
+		 * @return The character read or -1 at the end of the stream
+		 * @throws IOException Thrown if the pipe is broken
+		 */
+		public int read() throws IOException {
+			this.readLock.lock();
+			try {
+				if (this.awaitReadable() < 0)
+					return -1;
+				char c = CharBroadcastBuffer.this.buffer[(int) (this.readPosition & CharBroadcastBuffer.this.mask)];
+				this.commitRead(1);
+				return c;
+			} finally {
+				this.readLock.unlock();
+			}
+		}
+
+		/**
+		 * Closes this subscription; the writer will no longer wait for it.
+		 */
+		public void close() {
+			this.closed = true;
+			Thread writer = CharBroadcastBuffer.this.waitingWriter;
+			if (writer != null)
+				LockSupport.unpark(writer);
+		}
+
+		/**
+		 * Marks the subscription as dead, as if its reader had died.
+		 */
+		public void markDead() {
+			this.dead = true;
+			Thread writer = CharBroadcastBuffer.this.waitingWriter;
+			if (writer != null)
+				LockSupport.unpark(writer);
+		}
+
+		private class SubscriptionReader extends Reader {
+
+			@Override
+			public int read() throws IOException {
+				return Subscription.this.read();
+			}
+
+			@Override
+			public int read(char[] cbuf, int off, int len) throws IOException {
+				return Subscription.this.read(cbuf, off, len);
+			}
+
+			@Override
+			public boolean ready() throws IOException {
+				return Subscription.this.getLag() > 0;
+			}
+
+			@Override
+			public void close() throws IOException {
+				Subscription.this.close();
+			}
+		}
+	}
+
+}
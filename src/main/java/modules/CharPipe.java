@@ -1,32 +1,72 @@
 package modules;
 
 import java.io.IOException;
-import java.io.PipedReader;
-import java.io.PipedWriter;
+import java.io.Reader;
+import java.io.Writer;
 
+/**
+ * Character pipe between two module ports, backed by a lock-free
+ * single-producer/single-consumer ring buffer. If the output port it is
+ * attached to runs in broadcast mode, the pipe is instead fed by a
+ * subscription to that port's {@link CharBroadcastBuffer} and cannot be
+ * written to directly.
+ */
 public class CharPipe implements Pipe {
 	
-	private PipedReader input;
-	private PipedWriter output;
+	private final int bufferSize;
+	private CharRingBuffer buffer;
+	private CharBroadcastBuffer.Subscription subscription = null;
 
 	public CharPipe() throws IOException {
+		this(AbstractRingBuffer.DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Constructor
+	 * @param bufferSize Size of the pipe's buffer in chars (rounded up to the next power of two)
+	 * @throws IOException Thrown if something goes wrong
+	 */
+	public CharPipe(int bufferSize) throws IOException {
+		this.bufferSize = bufferSize;
 		this.reset();
 	}
 	
 	/**
-	 * Get input writer
+	 * Get input reader
 	 * @return the input
 	 */
-	public PipedReader getInput() {
-		return input;
+	public Reader getInput() {
+		if (this.subscription != null)
+			return this.subscription.getReader();
+		return this.buffer.getReader();
 	}
 
 	/**
 	 * Get output writer
 	 * @return the output
 	 */
-	public PipedWriter getOutput() {
-		return output;
+	public Writer getOutput() {
+		if (this.subscription != null)
+			throw new IllegalStateException("This pipe is fed by the broadcast buffer of its output port and cannot be written to directly.");
+		return this.buffer.getWriter();
+	}
+	
+	/**
+	 * Makes this pipe read from a new subscription to the given broadcast
+	 * buffer instead of its own buffer (until the next reset).
+	 * @param broadcastBuffer Broadcast buffer to subscribe to
+	 */
+	public void subscribe(CharBroadcastBuffer broadcastBuffer) {
+		if (this.subscription != null)
+			this.subscription.close();
+		this.subscription = broadcastBuffer.subscribe();
+	}
+	
+	/**
+	 * @return The broadcast subscription this pipe reads from (null if not subscribed)
+	 */
+	public CharBroadcastBuffer.Subscription getSubscription() {
+		return this.subscription;
 	}
 	
 	/**
@@ -36,29 +76,31 @@ public class CharPipe implements Pipe {
 	 * @throws IOException thrown on I/O error
 	 */
 	public void write(String data) throws IOException {
-		this.output.write(data);
+		this.checkNotSubscribed();
+		this.buffer.write(data, 0, data.length());
 	}
 	
 	/**
 	 * Writes to the output pipe.
-	 * @see PipedWriter#write(char[], int, int) PipedReader.write
+	 * @see java.io.Writer#write(char[], int, int) Writer.write
 	 * @param data char-array with data to write
 	 * @param offset write offset
 	 * @param length length of data to write
 	 * @throws IOException thrown on I/O error
 	 */
 	public void write(char[] data, int offset, int length) throws IOException {
-		this.output.write(data, offset, length);
+		this.checkNotSubscribed();
+		this.buffer.write(data, offset, length);
 	}
 
 	@Override
 	public void writeClose() throws IOException {
-		this.output.close();
+		this.buffer.closeWrite();
 	}
 	
 	/**
 	 * Reads from the input pipe.
-	 * @see PipedReader#read(char[], int, int) PipedReader.read
+	 * @see java.io.Reader#read(char[], int, int) Reader.read
 	 * @param buffer buffer to store read input in
 	 * @param offset read offset
 	 * @param length amount of chars to read
@@ -66,19 +108,41 @@ public class CharPipe implements Pipe {
 	 * @throws IOException thrown on I/O error
 	 */
 	public int read(char[] buffer, int offset, int length) throws IOException {
-		return this.input.read(buffer, offset, length);
+		if (this.subscription != null)
+			return this.subscription.read(buffer, offset, length);
+		return this.buffer.read(buffer, offset, length);
 	}
 	
 	@Override
 	public void readClose() throws IOException {
-		this.input.close();
+		if (this.subscription != null)
+			this.subscription.close();
+		this.buffer.closeRead();
+	}
+
+	@Override
+	public void markReadEndDead() throws IOException {
+		if (this.subscription != null)
+			this.subscription.markDead();
+		this.buffer.markReadDead();
+	}
+
+	@Override
+	public void markWriteEndDead() throws IOException {
+		this.buffer.markWriteDead();
 	}
 
 	@Override
 	public void reset() throws IOException {
-		this.input = new PipedReader();
-		this.output = new PipedWriter();
-		this.input.connect(this.output);
+		if (this.subscription != null)
+			this.subscription.close();
+		this.subscription = null;
+		this.buffer = new CharRingBuffer(this.bufferSize);
+	}
+	
+	private void checkNotSubscribed() throws IOException {
+		if (this.subscription != null)
+			throw new IOException("This pipe is fed by the broadcast buffer of its output port and cannot be written to directly.");
 	}
 
 }
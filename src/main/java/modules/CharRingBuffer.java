@@ -0,0 +1,216 @@
+package modules;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * Ring buffer for characters, accessible through a {@link Reader} (consumer
+ * side) and a {@link Writer} (producer side).
+ */
+public class CharRingBuffer extends AbstractRingBuffer {
+
+	private final char[] buffer;
+	private final Reader reader;
+	private final Writer writer;
+
+	/**
+	 * Constructor
+	 * @param capacity Minimal capacity in characters
+	 */
+	public CharRingBuffer(int capacity) {
+		super(capacity);
+		this.buffer = new char[this.capacity];
+		this.reader = new RingBufferReader();
+		this.writer = new RingBufferWriter();
+	}
+
+	/**
+	 * @return Reader for the consumer side
+	 */
+	public Reader getReader() {
+		return this.reader;
+	}
+
+	/**
+	 * @return Writer for the producer side
+	 */
+	public Writer getWriter() {
+		return this.writer;
+	}
+
+	/**
+	 * Reads at least one character, blocking if none is available.
+	 * @param target Array to read into
+	 * @param offset Offset within the target array
+	 * @param length Maximum amount of characters to read
+	 * @return Amount of characters read or -1 at the end of the stream
+	 * @throws IOException Thrown if the pipe is broken
+	 */
+	public int read(char[] target, int offset, int length) throws IOException {
+		if (length == 0)
+			return 0;
+		int available = this.awaitReadable();
+		if (available < 0)
+			return -1;
+		int amount = Math.min(length, available);
+		int index = this.readIndex();
+		int firstPart = Math.min(amount, this.capacity - index);
+		System.arraycopy(this.buffer, index, target, offset, firstPart);
+		if (firstPart < amount)
+			System.arraycopy(this.buffer, 0, target, offset + firstPart, amount - firstPart);
+		this.commitRead(amount);
+		return amount;
+	}
+
+	/**
+	 * Reads a single character, blocking if none is available.
+	 * @return The character read or -1 at the end of the stream
+	 * @throws IOException Thrown if the pipe is broken
+	 */
+	public int read() throws IOException {
+		if (this.awaitReadable() < 0)
+			return -1;
+		char c = this.buffer[this.readIndex()];
+		this.commitRead(1);
+		return c;
+	}
+
+	/**
+	 * Writes all given characters, blocking whenever the buffer is full.
+	 * @param source Array to write from
+	 * @param offset Offset within the source array
+	 * @param length Amount of characters to write
+	 * @throws IOException Thrown if the pipe is broken
+	 */
+	public void write(char[] source, int offset, int length) throws IOException {
+		while (length > 0) {
+			int amount = Math.min(length, this.awaitWritable());
+			int index = this.writeIndex();
+			int firstPart = Math.min(amount, this.capacity - index);
+			System.arraycopy(source, offset, this.buffer, index, firstPart);
+			if (firstPart < amount)
+				System.arraycopy(source, offset + firstPart, this.buffer, 0, amount - firstPart);
+			this.commitWrite(amount);
+			offset += amount;
+			length -= amount;
+		}
+	}
+
+	/**
+	 * Writes all given characters without copying the string to an intermediate array.
+	 * @param source String to write from
+	 * @param offset Offset within the string
+	 * @param length Amount of characters to write
+	 * @throws IOException Thrown if the pipe is broken
+	 */
+	public void write(String source, int offset, int length) throws IOException {
+		while (length > 0) {
+			int amount = Math.min(length, this.awaitWritable());
+			int index = this.writeIndex();
+			int firstPart = Math.min(amount, this.capacity - index);
+			source.getChars(offset, offset + firstPart, this.buffer, index);
+			if (firstPart < amount)
+				source.getChars(offset + firstPart, offset + amount, this.buffer, 0);
+			this.commitWrite(amount);
+			offset += amount;
+			length -= amount;
+		}
+	}
+
+	/**
+	 * Writes a single character, blocking if the buffer is full.
+	 * @param c Character to write
+	 * @throws IOException Thrown if the pipe is broken
+	 */
+	public void write(int c) throws IOException {
+		this.awaitWritable();
+		this.buffer[this.writeIndex()] = (char) c;
+		this.commitWrite(1);
+	}
+
+	/*
+	 * Consumer side. The lock merely protects against several threads
+	 * reading concurrently; it is never contended by the producer.
+	 */
+	private class RingBufferReader extends Reader {
+
+		@Override
+		public int read() throws IOException {
+			CharRingBuffer.this.readLock.lock();
+			try {
+				return CharRingBuffer.this.read();
+			} finally {
+				CharRingBuffer.this.readLock.unlock();
+			}
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			CharRingBuffer.this.readLock.lock();
+			try {
+				return CharRingBuffer.this.read(cbuf, off, len);
+			} finally {
+				CharRingBuffer.this.readLock.unlock();
+			}
+		}
+
+		@Override
+		public boolean ready() throws IOException {
+			return CharRingBuffer.this.available() > 0;
+		}
+
+		@Override
+		public void close() throws IOException {
+			CharRingBuffer.this.closeRead();
+		}
+	}
+
+	/*
+	 * Producer side. The lock merely protects against several threads
+	 * writing concurrently; it is never contended by the consumer.
+	 */
+	private class RingBufferWriter extends Writer {
+
+		@Override
+		public void write(int c) throws IOException {
+			CharRingBuffer.this.writeLock.lock();
+			try {
+				CharRingBuffer.this.write(c);
+			} finally {
+				CharRingBuffer.this.writeLock.unlock();
+			}
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			CharRingBuffer.this.writeLock.lock();
+			try {
+				CharRingBuffer.this.write(cbuf, off, len);
+			} finally {
+				CharRingBuffer.this.writeLock.unlock();
+			}
+		}
+
+		@Override
+		public void write(String str, int off, int len) throws IOException {
+			CharRingBuffer.this.writeLock.lock();
+			try {
+				CharRingBuffer.this.write(str, off, len);
+			} finally {
+				CharRingBuffer.this.writeLock.unlock();
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			// Data is visible to the reader as soon as it is written
+		}
+
+		@Override
+		public void close() throws IOException {
+			CharRingBuffer.this.closeWrite();
+		}
+	}
+
+}
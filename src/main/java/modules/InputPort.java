@@ -1,8 +1,8 @@
 package modules;
 
 import java.io.IOException;
-import java.io.PipedInputStream;
-import java.io.PipedReader;
+import java.io.InputStream;
+import java.io.Reader;
 
 
 public class InputPort extends AbstractPort {
@@ -34,7 +34,7 @@ public class InputPort extends AbstractPort {
 	 * @return Input stream
 	 * @throws NotSupportedException Thrown if something goes wrong
 	 */
-	public PipedInputStream getInputStream() throws NotSupportedException {
+	public InputStream getInputStream() throws NotSupportedException {
 		if (this.pipe == null) return null;
 		if (!this.pipe.getClass().equals(BytePipe.class)){
 			throw new NotSupportedException("This port ("+this.toString()+") does not provide byte stream input.");
@@ -49,7 +49,7 @@ public class InputPort extends AbstractPort {
 	 * @return Input reader
 	 * @throws NotSupportedException Thrown if something goes wrong
 	 */
-	public PipedReader getInputReader() throws NotSupportedException {
+	public Reader getInputReader() throws NotSupportedException {
 		if (this.pipe == null) return null;
 		if (!this.pipe.getClass().equals(CharPipe.class)){
 			throw new NotSupportedException("This port ("+this.toString()+") does not provide character stream input.");
@@ -59,6 +59,40 @@ public class InputPort extends AbstractPort {
 		}
 	}
 	
+	/**
+	 * Returns the object pipe this port is connected through.
+	 * @return Object pipe
+	 * @throws NotSupportedException Thrown if this port is not connected through an object pipe
+	 */
+	public ObjectPipe<?> getObjectPipe() throws NotSupportedException {
+		if (this.pipe == null) return null;
+		if (!this.pipe.getClass().equals(ObjectPipe.class)){
+			throw new NotSupportedException("This port ("+this.toString()+") does not provide object input.");
+		} else {
+			return (ObjectPipe<?>) this.pipe;
+		}
+	}
+	
+	/**
+	 * Determines whether this port is connected through an object pipe.
+	 * @return True if objects can be read from this port
+	 */
+	public boolean providesObjects() {
+		return this.pipe != null && this.pipe.getClass().equals(ObjectPipe.class);
+	}
+	
+	/**
+	 * Reads the next object from the input.
+	 * @see modules.ObjectPipe#read()
+	 * @return Object read (null if input is closed)
+	 * @throws NotSupportedException Thrown if this port does not provide object input after all
+	 * @throws IOException Thrown if something goes wrong
+	 */
+	public Object readObject() throws NotSupportedException, IOException {
+		if (this.pipe == null) throw new IOException("There is no pipe to read from.");
+		return this.getObjectPipe().read();
+	}
+	
 	/**
 	 * Reads bytes from the input.
 	 * @see modules.BytePipe#read(byte[] buffer, int offset, int length)
@@ -129,6 +163,16 @@ public class InputPort extends AbstractPort {
 		this.pipe.reset();
 	}
 
+	/**
+	 * Marks the read end of the connected pipe as dead (see
+	 * {@link Pipe#markReadEndDead()}).
+	 * @throws IOException Thrown if something goes wrong
+	 */
+	public void markDead() throws IOException {
+		if (this.pipe != null)
+			this.pipe.markReadEndDead();
+	}
+
 	@Override
 	public boolean isConnected() {
 		return this.connectedPort != null;
@@ -1,6 +1,7 @@
 package modules;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -9,6 +10,12 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.google.gson.Gson;
+
+import models.CompactTree;
+import models.CompactTreeJson;
+import models.ExtensibleTreeNode;
+
 import common.parallelization.CallbackReceiver;
 
 public abstract class ModuleImpl implements Module {
@@ -137,6 +144,100 @@ public abstract class ModuleImpl implements Module {
 		return stringBuilder.toString();
 	}
 
+	/**
+	 * Reads a single object of the given type from inputPort. If the port is
+	 * connected through an object pipe, the instance is taken over as is
+	 * (and must not be modified, since other modules may share it);
+	 * otherwise it is parsed from the JSON provided by the char pipe.
+	 *
+	 * @param inputPort the port to read from
+	 * @param type type of the object to read
+	 * @param <T> type of the object to read
+	 * @return The object read (null if the input did not provide any)
+	 * @throws Exception if the input cannot be read or is of the wrong type
+	 */
+	protected <T> T readObjectFromInputPort(InputPort inputPort, Class<T> type)
+			throws Exception {
+
+		if(!inputPort.isConnected()) {
+			throw new Exception("inputPort is not connected");
+		}
+
+		if (inputPort.providesObjects())
+			return type.cast(inputPort.readObject());
+
+		return new Gson().fromJson(inputPort.getInputReader(), type);
+	}
+
+	/**
+	 * Reads a tree of {@link ExtensibleTreeNode}s from inputPort into a
+	 * {@link CompactTree}: trees from object pipes are copied, JSON from char
+	 * pipes is read token by token without building the nodes.
+	 *
+	 * @param inputPort the port to read from
+	 * @return The tree read (null if the input did not provide any)
+	 * @throws Exception if the input cannot be read or is no tree
+	 */
+	protected CompactTree readTreeFromInputPort(InputPort inputPort) throws Exception {
+
+		if(!inputPort.isConnected()) {
+			throw new Exception("inputPort is not connected");
+		}
+
+		if (inputPort.providesObjects()) {
+			ExtensibleTreeNode root = (ExtensibleTreeNode) inputPort.readObject();
+			return root == null ? null : CompactTree.of(root);
+		}
+
+		return CompactTreeJson.read(inputPort.getInputReader());
+	}
+
+	/**
+	 * Writes a tree to all pipes of outputPort: object pipes receive the
+	 * root itself, char pipes its JSON representation, written node by node.
+	 *
+	 * @param outputPort the port to write to
+	 * @param root root of the tree to write
+	 * @throws IOException if an IO-Error occurs
+	 */
+	protected void writeTreeToOutputPort(OutputPort outputPort, ExtensibleTreeNode root)
+			throws IOException {
+
+		if (outputPort.hasPipes(ObjectPipe.class))
+			outputPort.outputToAllObjectPipes(root);
+
+		if (outputPort.hasPipes(CharPipe.class)) {
+			Iterator<Pipe> charPipes = outputPort.getPipes(CharPipe.class).iterator();
+			while (charPipes.hasNext())
+				CompactTreeJson.write(root, ((CharPipe) charPipes.next()).getOutput());
+		}
+	}
+
+	/**
+	 * Writes the given object to all pipes of outputPort: object pipes
+	 * receive the instance itself, char pipes its JSON representation
+	 * (which is only generated if there are any char pipes connected).
+	 *
+	 * @param outputPort the port to write to
+	 * @param object the object to write
+	 * @param gson serializer to use for char pipes
+	 * @throws IOException if an IO-Error occurs
+	 */
+	protected void writeObjectToOutputPort(OutputPort outputPort, Object object, Gson gson)
+			throws IOException {
+
+		if (outputPort.hasPipes(ObjectPipe.class))
+			outputPort.outputToAllObjectPipes(object);
+
+		if (outputPort.hasPipes(CharPipe.class)) {
+			Iterator<Pipe> charPipes = outputPort.getPipes(CharPipe.class).iterator();
+			while (charPipes.hasNext()) {
+				Writer writer = ((CharPipe) charPipes.next()).getOutput();
+				gson.toJson(object, writer);
+			}
+		}
+	}
+
 	/*
 	 * @see parallelization.CallbackProcess#getRueckmeldungsEmpfaenger()
 	 */
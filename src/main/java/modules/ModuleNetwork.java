@@ -6,6 +6,10 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -26,9 +30,17 @@ public class ModuleNetwork extends CallbackReceiverImpl {
 	// List of started threads
 	private Map<Module,Thread> startedThreads = new HashMap<Module,Thread>();
 
+	// Decides on which threads the modules are run
+	private ModuleScheduler scheduler = new ThreadPerModuleScheduler();
+
+	// Tasks of the current run (including those not started yet) and the latch counting them down
+	private List<ModuleTask> moduleTasks = new ArrayList<ModuleTask>();
+	private CountDownLatch completionLatch = new CountDownLatch(0);
+
 	/**
 	 * Determines which pipe to use between both given module ports (prefers
-	 * byte pipe).
+	 * object pipe if both ports pass compatible types of objects, then byte
+	 * pipe).
 	 * 
 	 * @param port1
 	 *            Module port 1
@@ -42,6 +54,8 @@ public class ModuleNetwork extends CallbackReceiverImpl {
 	 */
 	public static Pipe getCompatiblePipe(Port port1,
 			Port port2) throws NotSupportedException, IOException {
+		if (ModuleNetwork.supportObjectPipe(port1, port2))
+			return new ObjectPipe<Object>();
 		Pipe pipe = new BytePipe();
 		if (!(port2.supportsPipe(pipe) && port1
 				.supportsPipe(pipe))) {
@@ -55,6 +69,25 @@ public class ModuleNetwork extends CallbackReceiverImpl {
 		return pipe;
 	}
 
+	/**
+	 * Determines whether the two given ports can be connected by an object
+	 * pipe, i.e. whether both support it and the type of objects emitted by
+	 * the output port is assignable to the one accepted by the input port.
+	 * 
+	 * @param port1
+	 *            Module port 1
+	 * @param port2
+	 *            Module port 2
+	 * @return True if an object pipe can be used
+	 */
+	public static boolean supportObjectPipe(Port port1, Port port2) {
+		if (!port1.supportsPipeClass(ObjectPipe.class) || !port2.supportsPipeClass(ObjectPipe.class))
+			return false;
+		Port outputPort = OutputPort.class.isAssignableFrom(port1.getClass()) ? port1 : port2;
+		Port inputPort = outputPort == port1 ? port2 : port1;
+		return inputPort.getObjectPipeType().isAssignableFrom(outputPort.getObjectPipeType());
+	}
+
 	/**
 	 * Constructor
 	 */
@@ -63,6 +96,22 @@ public class ModuleNetwork extends CallbackReceiverImpl {
 		this.moduleList = new ArrayList<Module>();
 	}
 
+	/**
+	 * @return The scheduler used to run the modules
+	 */
+	public ModuleScheduler getScheduler() {
+		return scheduler;
+	}
+
+	/**
+	 * Sets the scheduler used to run the modules. Takes effect with the next
+	 * call of {@link #runModules()}; the previous scheduler is not shut down.
+	 * @param scheduler Scheduler
+	 */
+	public void setScheduler(ModuleScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
 	/**
 	 * @return Returns a map of the running module threads
 	 */
@@ -92,7 +141,9 @@ public class ModuleNetwork extends CallbackReceiverImpl {
 	 * @return True if successful
 	 */
 	public synchronized boolean removeStartedThread(Thread thread){
-		thread.interrupt();
+		// A module thread removing itself is done anyway (and might be a pooled one that is reused)
+		if (thread != Thread.currentThread())
+			thread.interrupt();
 		return (this.startedThreads.values().remove(thread));
 	}
 	
@@ -172,6 +223,9 @@ public class ModuleNetwork extends CallbackReceiverImpl {
 				|| !inputPort.supportsPipe(pipe))
 			throw new NotSupportedException(
 					"This pipe cannot be used for I/O between those ports.");
+		if (ObjectPipe.class.equals(pipe.getClass()) && !ModuleNetwork.supportObjectPipe(outputPort, inputPort))
+			throw new NotSupportedException(
+					"Those ports do not pass compatible types of objects.");
 
 		// Connect modules
 		outputPort.addPipe(pipe, inputPort);
@@ -255,6 +309,13 @@ public class ModuleNetwork extends CallbackReceiverImpl {
 					.log(Level.WARNING,
 							"Excuse me, but there are no running threads to interrupt.");
 
+		// Withdraw modules that have not been started yet
+		synchronized (this) {
+			Iterator<ModuleTask> moduleTasks = this.moduleTasks.iterator();
+			while (moduleTasks.hasNext())
+				moduleTasks.next().cancel();
+		}
+
 		// Interrupt running threads
 		this.interruptAllThreads();
 		
@@ -290,31 +351,44 @@ public class ModuleNetwork extends CallbackReceiverImpl {
 	 * Runs all modules.
 	 * 
 	 * @param runUntilAllThreadsAreDone
-	 *            If true, the method runs until all spawned threads have
-	 *            finished
+	 *            If true, the method runs until all modules have finished
 	 * @param interval
-	 *            Interval to check for thread completion in milliseconds
+	 *            Interval to log the modules' status in milliseconds (the
+	 *            method returns as soon as the last module finishes,
+	 *            regardless of the interval)
 	 * @throws Exception Thrown if something goes wrong
 	 */
 	public void runModules(boolean runUntilAllThreadsAreDone, long interval)
 			throws Exception {
 
-		// Loop over all modules
+		// Prepare the tasks first, so that the completion latch covers all of them
+		List<ModuleTask> moduleTasks = new ArrayList<ModuleTask>();
+		CountDownLatch completionLatch = new CountDownLatch(this.moduleList.size());
 		Iterator<Module> modules = this.moduleList.iterator();
-		while (modules.hasNext()){
-			// Run module
-			this.runModule(modules.next());
+		while (modules.hasNext())
+			moduleTasks.add(new ModuleTask(modules.next(), completionLatch));
+		synchronized (this) {
+			this.moduleTasks = moduleTasks;
+			this.completionLatch = completionLatch;
+		}
+
+		// Hand the tasks over to the scheduler
+		Iterator<ModuleTask> tasks = moduleTasks.iterator();
+		while (tasks.hasNext()) {
+			ModuleTask task = tasks.next();
+			this.scheduler.execute(task.module, task);
 		}
 		
 		// Determine runtime environment
 		Runtime rt = Runtime.getRuntime();
 		long maxBelegterHauptspeicher = 0l;
 
-		// Wait for threads to finish, if requested
-		while (runUntilAllThreadsAreDone && !this.startedThreads.isEmpty()) {
+		// Wait for the modules to finish, if requested
+		while (runUntilAllThreadsAreDone) {
 			try {
-				// Sleep for a quarter second
-				Thread.sleep(interval);
+				// Wait for the last module to finish, but wake up periodically to log the status
+				if (completionLatch.await(interval, TimeUnit.MILLISECONDS))
+					break;
 
 				// Print pretty overview
 				Logger.getLogger(this.getClass().getSimpleName()).log(
@@ -327,10 +401,6 @@ public class ModuleNetwork extends CallbackReceiverImpl {
 			    	maxBelegterHauptspeicher = belegterHauptspeicher;
 			    Logger.getLogger(this.getClass().getSimpleName()).log(Level.INFO, "Hauptspeicher belegt (MB):" + belegterHauptspeicher + "; bisheriges Max.:"+maxBelegterHauptspeicher);
 
-				// Test which threads are still active and remove the rest from
-				// the list
-				this.removeDeadThreads();
-
 			} catch (InterruptedException e) {
 				break;
 			}
@@ -338,16 +408,35 @@ public class ModuleNetwork extends CallbackReceiverImpl {
 	}
 
 	/**
-	 * Runs the specified module (within a separate thread).
+	 * Waits for the modules of the current run to finish.
+	 * 
+	 * @param timeout
+	 *            Maximum time to wait
+	 * @param unit
+	 *            Unit of the timeout
+	 * @return True if all modules have finished (or have been withdrawn
+	 *         before starting), false if the timeout elapsed first
+	 * @throws InterruptedException
+	 *             Thrown if the waiting thread is interrupted
+	 */
+	public boolean awaitModules(long timeout, TimeUnit unit) throws InterruptedException {
+		CountDownLatch completionLatch;
+		synchronized (this) {
+			completionLatch = this.completionLatch;
+		}
+		return completionLatch.await(timeout, unit);
+	}
+
+	/**
+	 * Runs the specified module on the thread calling this method and
+	 * registers the callback actions for it.
 	 * 
 	 * @param module Module to run
-	 * @throws Exception
 	 */
-	private void runModule(Module module) throws Exception {
+	private void runModule(final Module module) {
 
-		// Initialize thread
-		final Thread moduleThread = new Thread(module);
-		moduleThread.setName(module.getName());
+		// The thread is only known now, since schedulers may reuse threads
+		final Thread moduleThread = Thread.currentThread();
 
 		// Final list of started threads
 		final ModuleNetwork moduleNetworkInstance = this;
@@ -393,15 +482,88 @@ public class ModuleNetwork extends CallbackReceiverImpl {
 		this.registerSuccessCallback(moduleThread, successAction);
 		this.registerFailureCallback(moduleThread, failureAction);
 
-		// Log thread start message & fire it up 
+		// Log thread start message & run the module
 		Logger.getLogger("").log(
 				Level.INFO,
 				"Starting to process module " + module.getName()
 						+ " on thread #" + moduleThread.getId());
-		moduleThread.start();
+		try {
+			module.run();
+		} catch (Throwable e) {
+			// Modules report exceptions themselves, but errors would otherwise get lost within pooled threads
+			this.receiveException(moduleThread, e);
+		} finally {
+			// Pooled threads do not die with the module, so the modules at the
+			// other ends of its pipes are told explicitly
+			this.markPortsDead(module);
+			this.removeStartedThread(moduleThread);
+		}
 
 	}
 
+	/**
+	 * Marks the pipe ends of the given module dead, such that modules still
+	 * writing to or reading from them fail instead of waiting forever. Pipes
+	 * the module closed are not affected.
+	 * 
+	 * @param module Module that is done
+	 */
+	private void markPortsDead(Module module) {
+		try {
+			for (InputPort inputPort : module.getInputPorts().values())
+				inputPort.markDead();
+			for (OutputPort outputPort : module.getOutputPorts().values())
+				outputPort.markDead();
+		} catch (IOException e) {
+			Logger.getLogger("").log(Level.WARNING, "Could not release the pipes of module " + module.getName(), e);
+		}
+	}
+
+	/**
+	 * Task running a single module. Counts down the completion latch once
+	 * the module is done or has been withdrawn before starting.
+	 */
+	private class ModuleTask implements Runnable {
+
+		private final Module module;
+		private final CountDownLatch completionLatch;
+		// Set once the task has either been started or withdrawn
+		private final AtomicBoolean claimed = new AtomicBoolean(false);
+
+		private ModuleTask(Module module, CountDownLatch completionLatch) {
+			this.module = module;
+			this.completionLatch = completionLatch;
+		}
+
+		@Override
+		public void run() {
+			if (!this.claimed.compareAndSet(false, true))
+				return;
+			Thread currentThread = Thread.currentThread();
+			String threadName = currentThread.getName();
+			currentThread.setName(this.module.getName());
+			try {
+				ModuleNetwork.this.runModule(this.module);
+			} finally {
+				currentThread.setName(threadName);
+				this.completionLatch.countDown();
+			}
+		}
+
+		/**
+		 * Withdraws the task if it has not been started yet.
+		 * @return True if the task has been withdrawn
+		 */
+		private boolean cancel() {
+			if (!this.claimed.compareAndSet(false, true))
+				return false;
+			Logger.getLogger(ModuleNetwork.class.getSimpleName()).log(Level.INFO,
+					"Module " + this.module.getName() + " has been withdrawn before starting.");
+			this.completionLatch.countDown();
+			return true;
+		}
+	}
+
 	/**
 	 * Resets the modules' I/O. Must be called prior re-running the module tree.
 	 * 
@@ -435,6 +597,14 @@ public class ModuleNetwork extends CallbackReceiverImpl {
 	 */
 	public synchronized boolean removeModule(Module module){
 		
+		// If scheduled but not started yet, withdraw it
+		Iterator<ModuleTask> moduleTasks = this.moduleTasks.iterator();
+		while (moduleTasks.hasNext()) {
+			ModuleTask moduleTask = moduleTasks.next();
+			if (moduleTask.module.equals(module))
+				moduleTask.cancel();
+		}
+		
 		// If running, stop
 		Thread moduleThread = this.startedThreads.remove(module);
 		if (moduleThread != null)
@@ -516,6 +686,20 @@ public class ModuleNetwork extends CallbackReceiverImpl {
 			result.append(module.getName()+":\t"+Module.STATUSMESSAGES[module.getStatus()]+"\n");
 			if (module.getStatusDetail() != null && !module.getStatusDetail().isEmpty())
 				result.append("\t"+module.getStatusDetail()+"\n");
+			
+			// Print lag of the receivers of broadcasting ports
+			Iterator<OutputPort> outputPorts = module.getOutputPorts().values().iterator();
+			while (outputPorts.hasNext()) {
+				OutputPort outputPort = outputPorts.next();
+				if (!outputPort.isBroadcast())
+					continue;
+				Map<Port, Long> peakLag = outputPort.getBroadcastPeakLag();
+				Iterator<Entry<Port, Long>> lag = outputPort.getBroadcastLag().entrySet().iterator();
+				while (lag.hasNext()) {
+					Entry<Port, Long> entry = lag.next();
+					result.append("\t"+outputPort.getName()+" -> "+entry.getKey()+": lag "+entry.getValue()+" chars (peak "+peakLag.get(entry.getKey())+")\n");
+				}
+			}
 		}
 
 		return result.toString();
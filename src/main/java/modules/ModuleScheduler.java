@@ -0,0 +1,29 @@
+package modules;
+
+/**
+ * Strategy deciding on which thread the modules of a {@link ModuleNetwork}
+ * are run. Completion is tracked by the network itself, so a scheduler only
+ * has to make sure that each task is eventually executed.
+ * 
+ * Note that modules connected by pipes block until their counterparts read
+ * resp. write, so a scheduler has to be able to run all modules of a
+ * connected network at the same time; otherwise it will deadlock as soon as
+ * a pipe fills up.
+ */
+public interface ModuleScheduler {
+
+	/**
+	 * Executes the given task, which runs the given module, asynchronously.
+	 * @param module Module that is run by the task (e.g. to name the thread after)
+	 * @param task Task to execute
+	 * @throws Exception Thrown if the task cannot be scheduled
+	 */
+	public void execute(Module module, Runnable task) throws Exception;
+
+	/**
+	 * Releases the resources held by this scheduler. Tasks that have already
+	 * been scheduled will still run, new ones are rejected.
+	 */
+	public void shutdown();
+
+}
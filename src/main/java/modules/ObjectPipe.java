@@ -0,0 +1,103 @@
+package modules;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Pipe that passes object references between two module ports, so that
+ * modules working on the same in-memory model (e.g. trees of
+ * ExtensibleTreeNode) do not have to serialize and re-parse it. Objects
+ * written to an output port are shared between all connected object pipes
+ * and must hence be treated as read-only by the receiving modules.
+ * 
+ * Ports declare the type of object they emit or accept via
+ * {@link AbstractPort#addSupportedObjectPipe(Class)}; the network only uses an
+ * object pipe between two ports if those types are compatible.
+ * 
+ * @param <T> Type of objects passed
+ */
+public class ObjectPipe<T> implements Pipe {
+
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private final int capacity;
+	private ObjectRingBuffer<T> buffer;
+
+	public ObjectPipe() throws IOException {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor
+	 * @param capacity Amount of objects the pipe can hold before writes block
+	 * @throws IOException Thrown if something goes wrong
+	 */
+	public ObjectPipe(int capacity) throws IOException {
+		this.capacity = capacity;
+		this.reset();
+	}
+
+	/**
+	 * Writes a single object to the pipe.
+	 * @param object Object to write
+	 * @throws IOException thrown on I/O error
+	 */
+	public void write(T object) throws IOException {
+		this.buffer.write(object);
+	}
+
+	/**
+	 * Writes a batch of objects to the pipe.
+	 * @param batch Objects to write
+	 * @throws IOException thrown on I/O error
+	 */
+	public void writeBatch(Collection<? extends T> batch) throws IOException {
+		this.buffer.write(batch);
+	}
+
+	@Override
+	public void writeClose() throws IOException {
+		this.buffer.closeWrite();
+	}
+
+	/**
+	 * Reads a single object from the pipe.
+	 * @return Object read or null if the pipe has been closed and is empty
+	 * @throws IOException thrown on I/O error
+	 */
+	public T read() throws IOException {
+		return this.buffer.read();
+	}
+
+	/**
+	 * Reads the objects currently available (at least one) from the pipe.
+	 * @param target Collection to add the objects to
+	 * @param maximum Maximum amount of objects to read
+	 * @return Amount of objects read or -1 if the pipe has been closed and is empty
+	 * @throws IOException thrown on I/O error
+	 */
+	public int readBatch(Collection<? super T> target, int maximum) throws IOException {
+		return this.buffer.read(target, maximum);
+	}
+
+	@Override
+	public void readClose() throws IOException {
+		this.buffer.closeRead();
+	}
+
+	@Override
+	public void markReadEndDead() throws IOException {
+		this.buffer.markReadDead();
+	}
+
+	@Override
+	public void markWriteEndDead() throws IOException {
+		this.buffer.markWriteDead();
+	}
+
+	@Override
+	public void reset() throws IOException {
+		this.buffer = new ObjectRingBuffer<T>(this.capacity);
+	}
+
+}
@@ -0,0 +1,124 @@
+package modules;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Ring buffer for object references, used by {@link ObjectPipe}. Slots are
+ * cleared upon reading so that consumed objects can be garbage collected.
+ * 
+ * @param <T> Type of objects buffered
+ */
+public class ObjectRingBuffer<T> extends AbstractRingBuffer {
+
+	private final Object[] buffer;
+
+	/**
+	 * Constructor
+	 * @param capacity Minimal capacity in objects
+	 */
+	public ObjectRingBuffer(int capacity) {
+		super(capacity);
+		this.buffer = new Object[this.capacity];
+	}
+
+	/**
+	 * Reads a single object, blocking if none is available.
+	 * @return The object read or null at the end of the stream
+	 * @throws IOException Thrown if the pipe is broken
+	 */
+	@SuppressWarnings("unchecked")
+	public T read() throws IOException {
+		this.readLock.lock();
+		try {
+			if (this.awaitReadable() < 0)
+				return null;
+			int index = this.readIndex();
+			T object = (T) this.buffer[index];
+			this.buffer[index] = null;
+			this.commitRead(1);
+			return object;
+		} finally {
+			this.readLock.unlock();
+		}
+	}
+
+	/**
+	 * Moves at least one object into the given collection, blocking if none is available.
+	 * @param target Collection to add the objects to
+	 * @param maximum Maximum amount of objects to read
+	 * @return Amount of objects read or -1 at the end of the stream
+	 * @throws IOException Thrown if the pipe is broken
+	 */
+	@SuppressWarnings("unchecked")
+	public int read(Collection<? super T> target, int maximum) throws IOException {
+		if (maximum == 0)
+			return 0;
+		this.readLock.lock();
+		try {
+			int available = this.awaitReadable();
+			if (available < 0)
+				return -1;
+			int amount = Math.min(maximum, available);
+			int index = this.readIndex();
+			for (int i = 0; i < amount; i++) {
+				target.add((T) this.buffer[index]);
+				this.buffer[index] = null;
+				index = (index + 1) & this.mask;
+			}
+			this.commitRead(amount);
+			return amount;
+		} finally {
+			this.readLock.unlock();
+		}
+	}
+
+	/**
+	 * Writes a single object, blocking if the buffer is full.
+	 * @param object Object to write (must not be null)
+	 * @throws IOException Thrown if the pipe is broken
+	 */
+	public void write(T object) throws IOException {
+		if (object == null)
+			throw new NullPointerException("Cannot pass null through an object pipe.");
+		this.writeLock.lock();
+		try {
+			this.awaitWritable();
+			this.buffer[this.writeIndex()] = object;
+			this.commitWrite(1);
+		} finally {
+			this.writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Writes all objects of the given batch, publishing as many at once as
+	 * there is room for.
+	 * @param batch Objects to write (must not contain null)
+	 * @throws IOException Thrown if the pipe is broken
+	 */
+	public void write(Collection<? extends T> batch) throws IOException {
+		Iterator<? extends T> objects = batch.iterator();
+		int remaining = batch.size();
+		this.writeLock.lock();
+		try {
+			while (remaining > 0) {
+				int amount = Math.min(remaining, this.awaitWritable());
+				int index = this.writeIndex();
+				for (int i = 0; i < amount; i++) {
+					T object = objects.next();
+					if (object == null)
+						throw new NullPointerException("Cannot pass null through an object pipe.");
+					this.buffer[index] = object;
+					index = (index + 1) & this.mask;
+				}
+				this.commitWrite(amount);
+				remaining -= amount;
+			}
+		} finally {
+			this.writeLock.unlock();
+		}
+	}
+
+}
@@ -1,7 +1,13 @@
 package modules;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -9,10 +15,27 @@ import java.util.concurrent.CopyOnWriteArrayList;
 
 public class OutputPort extends AbstractPort {
 	
+	/**
+	 * Default maximum lag (in chars) of a char pipe behind the others in broadcast mode.
+	 */
+	public static final int DEFAULT_BROADCASTCAPACITY = 1 << 20;
+	
+	/**
+	 * Default amount of chars (or bytes) buffered by the writers and streams of this port.
+	 */
+	public static final int DEFAULT_WRITEBUFFERSIZE = 8192;
+	
 	// Maps a list of pipes to each of the supported pipe classes 
 	private Map<Class<? extends Pipe>, List<Pipe>> pipes;
 	private Map<Pipe, Port> connectedPorts;
 	
+	// Whether char output is broadcast
+	private volatile boolean broadcast = false;
+	// Shared buffer all char pipes read from in broadcast mode (null otherwise,
+	// and until the first char pipe is connected)
+	private volatile CharBroadcastBuffer broadcastBuffer = null;
+	private int broadcastCapacity = DEFAULT_BROADCASTCAPACITY;
+	
 	
 	public OutputPort(String name, String description, Module parent) {
 		super(name, description, parent);
@@ -37,6 +60,8 @@ public class OutputPort extends AbstractPort {
 	public void addPipe(Pipe pipe, Port connectedPort) throws NotSupportedException, OccupiedException {
 		if (super.supportsPipe(pipe))
 			if (InputPort.class.isAssignableFrom(connectedPort.getClass())){
+				if (pipe.getClass().equals(CharPipe.class))
+					this.subscribeToBroadcast((CharPipe) pipe);
 				this.pipes.get(pipe.getClass()).add(pipe);
 				this.connectedPorts.put(pipe, connectedPort);
 			} else
@@ -77,6 +102,109 @@ public class OutputPort extends AbstractPort {
 			throw new NotFoundException("The specified pipe could not be found.");
 		if (this.connectedPorts.get(pipe) != null)
 			this.connectedPorts.remove(pipe);
+		// Make sure a removed pipe does not hold back the remaining ones
+		if (pipe.getClass().equals(CharPipe.class) && ((CharPipe) pipe).getSubscription() != null)
+			((CharPipe) pipe).getSubscription().close();
+	}
+	
+	/**
+	 * Switches broadcast mode for char output on or off (using the default
+	 * maximum lag).
+	 * @see #setBroadcast(boolean, int)
+	 * @param broadcast True to enable broadcast mode
+	 * @throws IOException Thrown if the connected pipes cannot be reset
+	 */
+	public void setBroadcast(boolean broadcast) throws IOException {
+		this.setBroadcast(broadcast, DEFAULT_BROADCASTCAPACITY);
+	}
+	
+	/**
+	 * Switches broadcast mode for char output on or off. In broadcast mode,
+	 * data written to this port is put into one shared buffer once and every
+	 * connected char pipe reads it through its own cursor, so a slow receiver
+	 * only holds back the others once it lags behind by more than the given
+	 * amount of chars. Modules using this mode must write char output through
+	 * the outputToAllCharPipes() methods only, not to the individual pipes.
+	 * @param broadcast True to enable broadcast mode
+	 * @param maxLag Maximum amount of chars any pipe may lag behind the fastest one
+	 * @throws IOException Thrown if the connected pipes cannot be reset
+	 */
+	public synchronized void setBroadcast(boolean broadcast, int maxLag) throws IOException {
+		this.broadcastCapacity = maxLag;
+		if (broadcast) {
+			this.broadcast = true;
+			// The buffer is allocated once a char pipe needs it
+			this.broadcastBuffer = null;
+			if (this.pipes.containsKey(CharPipe.class)) {
+				Iterator<Pipe> charPipes = this.pipes.get(CharPipe.class).iterator();
+				while (charPipes.hasNext())
+					this.subscribeToBroadcast((CharPipe) charPipes.next());
+			}
+		} else if (this.broadcast) {
+			this.broadcast = false;
+			this.broadcastBuffer = null;
+			// Detach pipes from the broadcast buffer
+			if (this.pipes.containsKey(CharPipe.class)) {
+				Iterator<Pipe> charPipes = this.pipes.get(CharPipe.class).iterator();
+				while (charPipes.hasNext())
+					charPipes.next().reset();
+			}
+		}
+	}
+	
+	/*
+	 * Subscribes the pipe to the broadcast buffer in broadcast mode, creating
+	 * the buffer for the first pipe.
+	 */
+	private synchronized void subscribeToBroadcast(CharPipe pipe) {
+		if (!this.broadcast)
+			return;
+		if (this.broadcastBuffer == null)
+			this.broadcastBuffer = new CharBroadcastBuffer(this.broadcastCapacity);
+		pipe.subscribe(this.broadcastBuffer);
+	}
+	
+	/**
+	 * @return True if this port runs in broadcast mode
+	 */
+	public boolean isBroadcast() {
+		return this.broadcast;
+	}
+	
+	/**
+	 * Returns how many chars each connected input port currently lags behind
+	 * the data written (broadcast mode only).
+	 * @return Map of connected ports to their lag (empty if not in broadcast mode)
+	 */
+	public Map<Port, Long> getBroadcastLag() {
+		Map<Port, Long> lag = new LinkedHashMap<Port, Long>();
+		if (this.broadcastBuffer != null && this.pipes.containsKey(CharPipe.class)) {
+			Iterator<Pipe> charPipes = this.pipes.get(CharPipe.class).iterator();
+			while (charPipes.hasNext()) {
+				CharPipe charPipe = (CharPipe) charPipes.next();
+				if (charPipe.getSubscription() != null && this.connectedPorts.containsKey(charPipe))
+					lag.put(this.connectedPorts.get(charPipe), charPipe.getSubscription().getLag());
+			}
+		}
+		return lag;
+	}
+	
+	/**
+	 * Returns the highest lag (in chars) observed for each connected input
+	 * port since the last reset (broadcast mode only).
+	 * @return Map of connected ports to their peak lag (empty if not in broadcast mode)
+	 */
+	public Map<Port, Long> getBroadcastPeakLag() {
+		Map<Port, Long> lag = new LinkedHashMap<Port, Long>();
+		if (this.broadcastBuffer != null && this.pipes.containsKey(CharPipe.class)) {
+			Iterator<Pipe> charPipes = this.pipes.get(CharPipe.class).iterator();
+			while (charPipes.hasNext()) {
+				CharPipe charPipe = (CharPipe) charPipes.next();
+				if (charPipe.getSubscription() != null && this.connectedPorts.containsKey(charPipe))
+					lag.put(this.connectedPorts.get(charPipe), charPipe.getSubscription().getPeakLag());
+			}
+		}
+		return lag;
 	}
 	
 	/**
@@ -117,6 +245,15 @@ public class OutputPort extends AbstractPort {
 		if (!this.supportsPipeClass(CharPipe.class))
 			throw new IOException("This port ("+this.toString()+") does not support character stream output.");
 		
+		// In broadcast mode, the data is written just once (if any char pipe
+		// is connected at all)
+		if (this.broadcast) {
+			CharBroadcastBuffer broadcastBuffer = this.broadcastBuffer;
+			if (broadcastBuffer != null && !this.pipes.get(CharPipe.class).isEmpty())
+				broadcastBuffer.write(data, offset, charsToWrite);
+			return;
+		}
+		
 		// Loop over the defined outputs
 		Iterator<Pipe> outputPipes = this.pipes.get(CharPipe.class).iterator();
 		while (outputPipes.hasNext()) {
@@ -144,11 +281,124 @@ public class OutputPort extends AbstractPort {
 	 * @throws IOException Thrown if an I/O problem occurs
 	 */
 	public void outputToAllCharPipes(String data) throws IOException {
-		if (data != null && !data.isEmpty())
-			this.outputToAllCharPipes(data.toCharArray(), 0, data.length());
+		if (data == null || data.isEmpty())
+			return;
+		
+		// Check whether this port does support char output
+		if (!this.supportsPipeClass(CharPipe.class))
+			throw new IOException("This port ("+this.toString()+") does not support character stream output.");
+		
+		// In broadcast mode, the data is written just once (if any char pipe
+		// is connected at all)
+		if (this.broadcast) {
+			CharBroadcastBuffer broadcastBuffer = this.broadcastBuffer;
+			if (broadcastBuffer != null && !this.pipes.get(CharPipe.class).isEmpty())
+				broadcastBuffer.write(data, 0, data.length());
+			return;
+		}
+		
+		// Otherwise the string is copied into each pipe directly (without an intermediate char array)
+		Iterator<Pipe> outputPipes = this.pipes.get(CharPipe.class).iterator();
+		while (outputPipes.hasNext()) {
+			((CharPipe) outputPipes.next()).write(data);
+		}
+	}
+	
+	/**
+	 * Writes the given object to all object output pipes. The same instance
+	 * is passed to every pipe, so receivers must not modify it.
+	 * @param object Object to write
+	 * @throws IOException Thrown if an I/O problem occurs
+	 */
+	@SuppressWarnings("unchecked")
+	public void outputToAllObjectPipes(Object object) throws IOException {
+		
+		// Check whether this port does support object output
+		if (!this.supportsPipeClass(ObjectPipe.class))
+			throw new IOException("This port ("+this.toString()+") does not support object output.");
+		
+		// Loop over the defined outputs
+		Iterator<Pipe> outputPipes = this.pipes.get(ObjectPipe.class).iterator();
+		while (outputPipes.hasNext()) {
+			((ObjectPipe<Object>) outputPipes.next()).write(object);
+		}
+	}
+	
+	/**
+	 * Writes the given batch of objects to all object output pipes. The same
+	 * instances are passed to every pipe, so receivers must not modify them.
+	 * @param batch Objects to write
+	 * @throws IOException Thrown if an I/O problem occurs
+	 */
+	@SuppressWarnings("unchecked")
+	public void outputBatchToAllObjectPipes(Collection<?> batch) throws IOException {
+		
+		// Check whether this port does support object output
+		if (!this.supportsPipeClass(ObjectPipe.class))
+			throw new IOException("This port ("+this.toString()+") does not support object output.");
+		
+		// Loop over the defined outputs
+		Iterator<Pipe> outputPipes = this.pipes.get(ObjectPipe.class).iterator();
+		while (outputPipes.hasNext()) {
+			((ObjectPipe<Object>) outputPipes.next()).writeBatch(batch);
+		}
+	}
+	
+	/**
+	 * Returns a writer passing its output on to all char pipes (using the default buffer size).
+	 * @see #getWriter(int)
+	 * @return Writer
+	 */
+	public Writer getWriter() {
+		return this.getWriter(DEFAULT_WRITEBUFFERSIZE);
+	}
+	
+	/**
+	 * Returns a writer passing its output on to all char pipes. At most the
+	 * given amount of chars is held back before being written to the pipes,
+	 * flushing the writer writes them at once. Closing the writer closes
+	 * this port.
+	 * @param bufferSize Amount of chars to buffer
+	 * @return Writer
+	 */
+	public Writer getWriter(int bufferSize) {
+		return new BufferedWriter(new PortWriter(), bufferSize);
+	}
+	
+	/**
+	 * Returns a stream passing its output on to all byte pipes (using the default buffer size).
+	 * @see #getOutputStream(int)
+	 * @return Output stream
+	 */
+	public OutputStream getOutputStream() {
+		return this.getOutputStream(DEFAULT_WRITEBUFFERSIZE);
+	}
+	
+	/**
+	 * Returns a stream passing its output on to all byte pipes. At most the
+	 * given amount of bytes is held back before being written to the pipes,
+	 * flushing the stream writes them at once. Closing the stream closes
+	 * this port.
+	 * @param bufferSize Amount of bytes to buffer
+	 * @return Output stream
+	 */
+	public OutputStream getOutputStream(int bufferSize) {
+		return new BufferedOutputStream(new PortOutputStream(), bufferSize);
+	}
+	
+	/**
+	 * Determines whether there are pipes of the given class connected to this port.
+	 * @param pipeClass Pipe class
+	 * @return True if at least one pipe of that class is connected
+	 */
+	public boolean hasPipes(Class<? extends Pipe> pipeClass) {
+		List<Pipe> pipeList = this.pipes.get(pipeClass);
+		return pipeList != null && !pipeList.isEmpty();
 	}
 	
 	public void close() throws IOException{
+		if (this.broadcastBuffer != null)
+			this.broadcastBuffer.closeWrite();
 		Iterator<List<Pipe>> pipeLists = this.getPipes().values().iterator();
 		while (pipeLists.hasNext()){
 			Iterator<Pipe> pipes = pipeLists.next().iterator();
@@ -160,6 +410,23 @@ public class OutputPort extends AbstractPort {
 	}
 
 
+	/**
+	 * Marks the write ends of all connected pipes as dead (see
+	 * {@link Pipe#markWriteEndDead()}).
+	 * @throws IOException Thrown if something goes wrong
+	 */
+	public void markDead() throws IOException {
+		if (this.broadcastBuffer != null)
+			this.broadcastBuffer.markWriteDead();
+		Iterator<List<Pipe>> pipeLists = this.getPipes().values().iterator();
+		while (pipeLists.hasNext()){
+			Iterator<Pipe> pipes = pipeLists.next().iterator();
+			while (pipes.hasNext())
+				pipes.next().markWriteEndDead();
+		}
+	}
+
+
 	@Override
 	public void reset() throws IOException {
 		Iterator<List<Pipe>> pipeLists = this.getPipes().values().iterator();
@@ -170,6 +437,9 @@ public class OutputPort extends AbstractPort {
 				pipe.reset();
 			}
 		}
+		// Re-subscribe the (reset) char pipes to a fresh broadcast buffer
+		if (this.broadcast)
+			this.setBroadcast(true, this.broadcastCapacity);
 	}
 
 
@@ -178,4 +448,52 @@ public class OutputPort extends AbstractPort {
 		return !this.connectedPorts.isEmpty();
 	}
 
+
+	/*
+	 * Unbuffered writer on top of outputToAllCharPipes().
+	 */
+	private class PortWriter extends Writer {
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			OutputPort.this.outputToAllCharPipes(cbuf, off, len);
+		}
+
+		@Override
+		public void write(String str) throws IOException {
+			OutputPort.this.outputToAllCharPipes(str);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			// Data is handed on to the pipes as soon as it is written
+		}
+
+		@Override
+		public void close() throws IOException {
+			OutputPort.this.close();
+		}
+	}
+
+	/*
+	 * Unbuffered stream on top of outputToAllBytePipes().
+	 */
+	private class PortOutputStream extends OutputStream {
+
+		@Override
+		public void write(int b) throws IOException {
+			OutputPort.this.outputToAllBytePipes(new byte[] { (byte) b });
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			OutputPort.this.outputToAllBytePipes(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			OutputPort.this.close();
+		}
+	}
+
 }
@@ -16,6 +16,21 @@ public interface Pipe {
 	 */
 	public void writeClose() throws IOException;
 	
+	/**
+	 * Marks the pipe's input as given up, as if the thread reading it had
+	 * died: writers waiting for room fail unless the input has been closed.
+	 * Used for modules run on pooled threads, which do not die with them.
+	 * @throws IOException Thrown if something goes wrong
+	 */
+	public void markReadEndDead() throws IOException;
+	
+	/**
+	 * Marks the pipe's output as given up, as if the thread writing it had
+	 * died: readers waiting for data fail unless the output has been closed.
+	 * @throws IOException Thrown if something goes wrong
+	 */
+	public void markWriteEndDead() throws IOException;
+	
 	/**
 	 * Resets the I/O (for re-use after close)
 	 * @throws IOException Thrown if something goes wrong
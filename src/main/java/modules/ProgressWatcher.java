@@ -32,4 +32,8 @@ public class ProgressWatcher {
 		this.processed+=1;
 		this.queued-=1;
 	}
+	public synchronized void count(long amount){
+		this.processed+=amount;
+		this.queued-=amount;
+	}
 }
@@ -0,0 +1,21 @@
+package modules;
+
+/**
+ * Runs every module on a newly created platform thread named after the
+ * module. This is the default scheduler of {@link ModuleNetwork}.
+ */
+public class ThreadPerModuleScheduler implements ModuleScheduler {
+
+	@Override
+	public void execute(Module module, Runnable task) {
+		Thread moduleThread = new Thread(task);
+		moduleThread.setName(module.getName());
+		moduleThread.start();
+	}
+
+	@Override
+	public void shutdown() {
+		// Nothing to release
+	}
+
+}
@@ -0,0 +1,76 @@
+package modules;
+
+import java.lang.reflect.Method;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs every module on its own virtual thread. Since modules spend most of
+ * their time blocked on pipes, this allows for large networks without
+ * tying up a platform thread per module.
+ * 
+ * Virtual threads require Java 21 or newer at runtime, or Java 19 or 20 with
+ * preview features enabled; as the project is compiled for Java 8, they are
+ * created reflectively. On other runtimes this scheduler falls back to one
+ * platform thread per module (see {@link #isVirtual()}).
+ */
+public class VirtualThreadModuleScheduler implements ModuleScheduler {
+
+	// Thread.ofVirtual() and Thread.Builder.unstarted(Runnable), or null if unavailable
+	private static final Method OFVIRTUAL;
+	private static final Method UNSTARTED;
+
+	static {
+		Method ofVirtual = null;
+		Method unstarted = null;
+		try {
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+			unstarted = Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class);
+			// On Java 19 and 20 virtual threads are a preview feature, which
+			// fails here unless enabled
+			ofVirtual.invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+			ofVirtual = null;
+			unstarted = null;
+		}
+		OFVIRTUAL = ofVirtual;
+		UNSTARTED = unstarted;
+	}
+
+	private final ModuleScheduler fallback = new ThreadPerModuleScheduler();
+
+	/**
+	 * Constructor
+	 */
+	public VirtualThreadModuleScheduler() {
+		super();
+		if (!VirtualThreadModuleScheduler.isVirtual())
+			Logger.getLogger(this.getClass().getSimpleName()).log(Level.WARNING,
+					"Virtual threads are not supported by this JVM (" + System.getProperty("java.version")
+							+ "); falling back to one platform thread per module.");
+	}
+
+	/**
+	 * @return True if the runtime supports virtual threads
+	 */
+	public static boolean isVirtual() {
+		return OFVIRTUAL != null;
+	}
+
+	@Override
+	public void execute(Module module, Runnable task) throws Exception {
+		if (!VirtualThreadModuleScheduler.isVirtual()) {
+			this.fallback.execute(module, task);
+			return;
+		}
+		Thread moduleThread = (Thread) UNSTARTED.invoke(OFVIRTUAL.invoke(null), task);
+		moduleThread.setName(module.getName());
+		moduleThread.start();
+	}
+
+	@Override
+	public void shutdown() {
+		// Nothing to release
+	}
+
+}
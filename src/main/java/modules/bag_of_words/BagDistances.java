@@ -0,0 +1,267 @@
+package modules.bag_of_words;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Computes Levenshtein distances between Bags of Words (see
+ * {@link BagOfWordsHelper#levenshteinDistance(Map, Map)}) on bags whose terms
+ * are interned to int ids and kept as sorted arrays, such that the overlap of
+ * two bags is a merge of both arrays.
+ *
+ * For each bag the candidates to compare it with are determined by one of
+ * three strategies: all other bags, the bags sharing at least one term with
+ * it (looked up in an inverted index from terms to bags), or the bags whose
+ * MinHash signatures agree with it in at least one band (locality sensitive
+ * hashing, which may miss some of the bags sharing terms). Bags that are not
+ * candidates are maximally distant or, for MinHash, likely so.
+ */
+public class BagDistances {
+
+	/**
+	 * Strategies to find the bags to compare a bag with.
+	 */
+	public enum Candidates {
+		/** every other bag */
+		ALL,
+		/** the bags sharing at least one term */
+		INVERTED_INDEX,
+		/** the bags with a MinHash band in common */
+		MINHASH
+	}
+
+	private final int[][] bags;
+	private final boolean normalize;
+	private final Candidates candidates;
+
+	// inverted index: the bags of each term are
+	// postings[postingBegins[term]..postingBegins[term+1]]
+	private int[] postingBegins;
+	private int[] postings;
+
+	// MinHash bands: per band the bags sorted by their band hash, and each
+	// bag's position in that order
+	private long[][] bandHashes;
+	private int[][] bandBags;
+	private int[][] bandPositions;
+
+	// marks bags already collected as candidates
+	private final boolean[] marked;
+
+	/**
+	 * Creates distances for bags of words given as term to count maps. The
+	 * counts are ignored.
+	 *
+	 * @param bags
+	 *            The bags of words
+	 * @param normalize
+	 *            Whether to divide each distance by the size of the bigger bag
+	 * @param candidates
+	 *            The strategy to determine the bags compared
+	 * @param minHashBands
+	 *            Amount of bands for {@link Candidates#MINHASH}
+	 * @param minHashRows
+	 *            Amount of hash values per band for {@link Candidates#MINHASH}
+	 */
+	public BagDistances(Collection<? extends Map<String, Integer>> bags, boolean normalize, Candidates candidates,
+			int minHashBands, int minHashRows) {
+		this.bags = intern(bags);
+		this.normalize = normalize;
+		this.candidates = candidates;
+		this.marked = new boolean[this.bags.length];
+
+		if (candidates == Candidates.INVERTED_INDEX) {
+			this.buildIndex();
+		} else if (candidates == Candidates.MINHASH) {
+			if (minHashBands < 1 || minHashRows < 1)
+				throw new IllegalArgumentException("MinHash needs at least one band and row.");
+			this.buildBands(minHashBands, minHashRows);
+		}
+	}
+
+	/*
+	 * Maps each term to an int id and each bag to the sorted array of its
+	 * terms' ids.
+	 */
+	private static int[][] intern(Collection<? extends Map<String, Integer>> bags) {
+		final Map<String, Integer> termIds = new HashMap<String, Integer>();
+		final int[][] result = new int[bags.size()][];
+		int bagNr = 0;
+		for (Map<String, Integer> bag : bags) {
+			final int[] terms = new int[bag.size()];
+			int i = 0;
+			for (String term : bag.keySet()) {
+				Integer id = termIds.get(term);
+				if (id == null) {
+					id = termIds.size();
+					termIds.put(term, id);
+				}
+				terms[i++] = id;
+			}
+			Arrays.sort(terms);
+			result[bagNr++] = terms;
+		}
+		return result;
+	}
+
+	private void buildIndex() {
+		int termAmount = 0;
+		for (int[] bag : this.bags)
+			for (int term : bag)
+				termAmount = Math.max(termAmount, term + 1);
+
+		// count the bags per term, then fill them in
+		this.postingBegins = new int[termAmount + 1];
+		for (int[] bag : this.bags)
+			for (int term : bag)
+				this.postingBegins[term + 1]++;
+		for (int term = 0; term < termAmount; term++)
+			this.postingBegins[term + 1] += this.postingBegins[term];
+		this.postings = new int[this.postingBegins[termAmount]];
+		final int[] fill = Arrays.copyOf(this.postingBegins, termAmount);
+		for (int bagNr = 0; bagNr < this.bags.length; bagNr++)
+			for (int term : this.bags[bagNr])
+				this.postings[fill[term]++] = bagNr;
+	}
+
+	private void buildBands(int bandAmount, int rows) {
+		// one hash function per row of each band
+		final Random random = new Random(bandAmount * 31 + rows);
+		final long[] seeds = new long[bandAmount * rows];
+		for (int i = 0; i < seeds.length; i++)
+			seeds[i] = random.nextLong();
+
+		this.bandHashes = new long[bandAmount][this.bags.length];
+		final long[] signature = new long[rows];
+		for (int bagNr = 0; bagNr < this.bags.length; bagNr++) {
+			for (int band = 0; band < bandAmount; band++) {
+				Arrays.fill(signature, Long.MAX_VALUE);
+				for (int term : this.bags[bagNr])
+					for (int row = 0; row < rows; row++)
+						signature[row] = Math.min(signature[row], mix(term ^ seeds[band * rows + row]));
+				long bandHash = band;
+				for (int row = 0; row < rows; row++)
+					bandHash = mix(bandHash * 31 + signature[row]);
+				this.bandHashes[band][bagNr] = bandHash;
+			}
+		}
+
+		// sort the bags of each band by their hash, so that colliding bags
+		// are neighbours
+		this.bandBags = new int[bandAmount][];
+		this.bandPositions = new int[bandAmount][this.bags.length];
+		for (int band = 0; band < bandAmount; band++) {
+			final long[] hashes = this.bandHashes[band];
+			final Integer[] sorted = new Integer[this.bags.length];
+			for (int bagNr = 0; bagNr < sorted.length; bagNr++)
+				sorted[bagNr] = bagNr;
+			Arrays.sort(sorted, (a, b) -> Long.compare(hashes[a], hashes[b]));
+			this.bandBags[band] = new int[sorted.length];
+			for (int i = 0; i < sorted.length; i++) {
+				this.bandBags[band][i] = sorted[i];
+				this.bandPositions[band][sorted[i]] = i;
+			}
+		}
+	}
+
+	// a 64 bit finaliser (from MurmurHash3) to derive independent hashes
+	private static long mix(long x) {
+		x ^= x >>> 33;
+		x *= 0xff51afd7ed558ccdL;
+		x ^= x >>> 33;
+		x *= 0xc4ceb9fe1a85ec53L;
+		x ^= x >>> 33;
+		return x;
+	}
+
+	/**
+	 * @return The amount of bags
+	 */
+	public int size() {
+		return this.bags.length;
+	}
+
+	/**
+	 * Collects the bags to compare a bag with, not thread safe.
+	 *
+	 * @param bagNr
+	 *            The bag's index
+	 * @param result
+	 *            Receives the candidates' indexes in ascending order, as long
+	 *            as the amount of bags
+	 * @return The amount of candidates
+	 */
+	public int candidates(int bagNr, int[] result) {
+		int amount = 0;
+		switch (this.candidates) {
+		case ALL:
+			for (int other = 0; other < this.bags.length; other++)
+				if (other != bagNr)
+					result[amount++] = other;
+			return amount;
+		case INVERTED_INDEX:
+			for (int term : this.bags[bagNr])
+				for (int i = this.postingBegins[term]; i < this.postingBegins[term + 1]; i++)
+					amount = this.mark(this.postings[i], bagNr, result, amount);
+			break;
+		case MINHASH:
+			for (int band = 0; band < this.bandHashes.length; band++) {
+				final long[] hashes = this.bandHashes[band];
+				final int[] sorted = this.bandBags[band];
+				final long hash = hashes[bagNr];
+				for (int i = this.bandPositions[band][bagNr]; i >= 0 && hashes[sorted[i]] == hash; i--)
+					amount = this.mark(sorted[i], bagNr, result, amount);
+				for (int i = this.bandPositions[band][bagNr] + 1; i < sorted.length && hashes[sorted[i]] == hash; i++)
+					amount = this.mark(sorted[i], bagNr, result, amount);
+			}
+			break;
+		}
+		for (int i = 0; i < amount; i++)
+			this.marked[result[i]] = false;
+		Arrays.sort(result, 0, amount);
+		return amount;
+	}
+
+	private int mark(int other, int bagNr, int[] result, int amount) {
+		if (other != bagNr && !this.marked[other]) {
+			this.marked[other] = true;
+			result[amount++] = other;
+		}
+		return amount;
+	}
+
+	/**
+	 * @param a
+	 *            Index of the first bag
+	 * @param b
+	 *            Index of the second bag
+	 * @return The (normalised) Levenshtein distance of both bags
+	 */
+	public float distance(int a, int b) {
+		final int[] bagA = this.bags[a];
+		final int[] bagB = this.bags[b];
+		int matches = 0;
+		int i = 0;
+		int j = 0;
+		while (i < bagA.length && j < bagB.length) {
+			if (bagA[i] < bagB[j]) {
+				i++;
+			} else if (bagA[i] > bagB[j]) {
+				j++;
+			} else {
+				matches++;
+				i++;
+				j++;
+			}
+		}
+		final int maxSize = Math.max(bagA.length, bagB.length);
+		final float distance = maxSize - matches;
+		if (!this.normalize)
+			return distance;
+		return maxSize == 0 ? 0f : distance / maxSize;
+	}
+
+}
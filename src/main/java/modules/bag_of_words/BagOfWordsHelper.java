@@ -124,6 +124,8 @@ public class BagOfWordsHelper {
 				tfIdf = tf * idf;
 				if (tfIdf < tfIdfMin) {
 					LOGGER.info("Filtering term '" + term + "' (TF-IDF: " + tfIdf + ")");
+				} else {
+					result.put(term, tf);
 				}
 			} else {
 				LOGGER.warning("tf or idf value missing for term: " + term);
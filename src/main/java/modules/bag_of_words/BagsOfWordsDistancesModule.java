@@ -5,11 +5,10 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.logging.Logger;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
 
 import common.parallelization.CallbackReceiver;
 import modules.CharPipe;
@@ -34,8 +33,6 @@ public class BagsOfWordsDistancesModule extends ModuleImpl {
 	}
 
 
-	private static final Logger LOGGER = Logger.getLogger(BagsOfWordsDistancesModule.class.getName());
-
 	// Strings identifying/describing in- and output pipes
 	private final static String INPUT_ID = "json";
 	private final static String OUTPUT_ID = "json";
@@ -45,15 +42,15 @@ public class BagsOfWordsDistancesModule extends ModuleImpl {
 	// Types for deserializing the input and serializing output
 	private final static Type INPUT_TYPE = new TypeToken<TreeMap<Integer, TreeMap<String, Integer>>>() {
 	}.getType();
-	private final static Type OUTPUT_TYPE = new TypeToken<TreeMap<Integer, TreeMap<Integer, Float>>>() {
-	}.getType();
 
 	// Name and description of this module for the User
 	private final static String MODULE_NAME = "BagsOfWordsDistancesModule";
 	private final static String MODULE_DESCRIPTION = "<p>Module to determine the distance between Bags of Words.</p>"
 			+ "<p>Currently supports Levenshtein distance, i.e. output is the number of "
 			+ "substitutions, deletions or additions of words that would be needed to "
-			+ "transform one Bag of Words into another.<p>";
+			+ "transform one Bag of Words into another.<p>"
+			+ "<p>Comparisons may be restricted to bags sharing words (via an inverted index) "
+			+ "or to bags with similar MinHash signatures. Distances are written as they are computed.</p>";
 
 	// Property describing whether the distance should be normalized
 	private final static String PROPERTYKEY_NORMALIZE_DISTANCE = "Normalize distance";
@@ -68,6 +65,30 @@ public class BagsOfWordsDistancesModule extends ModuleImpl {
 	private final static String DEFAULT_TFIDF_MIN = "0.8";
 	private Float tfIdfMin;
 
+	// Property selecting which pairs of bags are compared
+	private final static String PROPERTYKEY_CANDIDATES = "Candidates";
+	private final static String DESCRIPTION_CANDIDATES = "Which bags each bag is compared with: \"all\", \"inverted index\" "
+			+ "(only bags sharing a word, bags without common words are maximally distant and left out) or "
+			+ "\"minhash\" (only bags agreeing in a band of MinHash signatures, approximates \"inverted index\")";
+	private final static String DEFAULT_CANDIDATES = "all";
+	private BagDistances.Candidates candidates = BagDistances.Candidates.ALL;
+
+	// Property for the biggest distance written
+	private final static String PROPERTYKEY_MAX_DISTANCE = "Max distance";
+	private final static String DESCRIPTION_MAX_DISTANCE = "Leaves out distances above this value. Disabled on negative values.";
+	private final static String DEFAULT_MAX_DISTANCE = "-1";
+	private float maxDistance = -1f;
+
+	// Properties shaping the MinHash signatures
+	private final static String PROPERTYKEY_MINHASH_BANDS = "MinHash bands";
+	private final static String DESCRIPTION_MINHASH_BANDS = "Amount of bands of the MinHash signatures, more bands find more similar bags.";
+	private final static String DEFAULT_MINHASH_BANDS = "20";
+	private int minHashBands = 20;
+	private final static String PROPERTYKEY_MINHASH_ROWS = "MinHash rows";
+	private final static String DESCRIPTION_MINHASH_ROWS = "Amount of hash values per band, more rows require bags to be more similar to be compared.";
+	private final static String DEFAULT_MINHASH_ROWS = "3";
+	private int minHashRows = 3;
+
 	public BagsOfWordsDistancesModule(CallbackReceiver callbackReceiver, Properties properties) throws Exception {
 		// Call parent constructor
 		super(callbackReceiver, properties);
@@ -89,29 +110,31 @@ public class BagsOfWordsDistancesModule extends ModuleImpl {
 		this.getPropertyDefaultValues().put(PROPERTYKEY_NORMALIZE_DISTANCE, DEFAUL_NORMALIZE_DISTANCE);
 		this.getPropertyDescriptions().put(PROPERTYKEY_TFIDF_MIN, DESCRIPTION_TFIDF_MIN);
 		this.getPropertyDefaultValues().put(PROPERTYKEY_TFIDF_MIN, DEFAULT_TFIDF_MIN);
+		this.getPropertyDescriptions().put(PROPERTYKEY_CANDIDATES, DESCRIPTION_CANDIDATES);
+		this.getPropertyDefaultValues().put(PROPERTYKEY_CANDIDATES, DEFAULT_CANDIDATES);
+		this.getPropertyDescriptions().put(PROPERTYKEY_MAX_DISTANCE, DESCRIPTION_MAX_DISTANCE);
+		this.getPropertyDefaultValues().put(PROPERTYKEY_MAX_DISTANCE, DEFAULT_MAX_DISTANCE);
+		this.getPropertyDescriptions().put(PROPERTYKEY_MINHASH_BANDS, DESCRIPTION_MINHASH_BANDS);
+		this.getPropertyDefaultValues().put(PROPERTYKEY_MINHASH_BANDS, DEFAULT_MINHASH_BANDS);
+		this.getPropertyDescriptions().put(PROPERTYKEY_MINHASH_ROWS, DESCRIPTION_MINHASH_ROWS);
+		this.getPropertyDefaultValues().put(PROPERTYKEY_MINHASH_ROWS, DEFAULT_MINHASH_ROWS);
 	}
 
 	@Override
 	public boolean process() throws Exception {
 		boolean result = true;
 
-		// read the whole text once
-		final String input = this.readStringFromInputPort(this.getInputPorts().get(INPUT_ID));
-
-		// the output: an empty result map mapping sentence Nrs to a map holding
-		// the distance of this sentence to each other sentence
-		final Map<Integer, Map<Integer, Float>> sentenceNrsToDistances = new TreeMap<Integer, Map<Integer, Float>>();
-
 		try {
 			// deserialize the input
-			final Gson gson = new GsonBuilder().setPrettyPrinting().create();
-			final TreeMap<Integer, Map<String, Integer>> sentenceNrsToBagOfWords = gson.fromJson(input, INPUT_TYPE);
-			final Set<Integer> sentenceNrs = sentenceNrsToBagOfWords.keySet();
+			final Gson gson = new Gson();
+			final TreeMap<Integer, Map<String, Integer>> sentenceNrsToBagOfWords = gson
+					.fromJson(this.getInputPorts().get(INPUT_ID).getInputReader(), INPUT_TYPE);
 
 			// make sure that the bags of words are ready to use
-			if (sentenceNrs.size() == 0) {
+			if (sentenceNrsToBagOfWords == null || sentenceNrsToBagOfWords.size() == 0) {
 				throw new Exception("No bags of words given");
 			}
+			final Set<Integer> sentenceNrs = sentenceNrsToBagOfWords.keySet();
 
 			// if tf-idf filtering is wished for, compute inverse document
 			// frequencies for each term
@@ -138,57 +161,30 @@ public class BagsOfWordsDistancesModule extends ModuleImpl {
 				}
 			}
 
-			// bags that are compared
-			// word => count in sentence
-			Map<String, Integer> thisBag;
-			Map<String, Integer> otherBag;
-
-			// distances that are produced by comparison
-			// sentenceNr => distance
-			Map<Integer, Float> thisDistances;
-			Map<Integer, Float> otherDistances;
-
-			// first loop over sentences to compare
-			for (Integer thisSentence : sentenceNrs) {
-				thisDistances = sentenceNrsToDistances.getOrDefault(thisSentence, new TreeMap<Integer, Float>());
-
-				// second loop over sentences to compare with
-				for (Integer otherSentence : sentenceNrs) {
-					// move on if there is already a distance for this
-					// combination or the sentences are the same
-					if ((thisSentence == otherSentence) || (thisDistances.get(otherSentence) != null)) {
-						continue;
-					}
-					// get bags of words and paranoia check that they exist
-					thisBag = sentenceNrsToBagOfWords.get(thisSentence);
-					otherBag = sentenceNrsToBagOfWords.get(otherSentence);
-					if (thisBag != null && otherBag != null) {
-						// actually compare bags
-						final Float distance;
-						if (this.normalizeDistance) {
-							distance = BagOfWordsHelper.normalizedLevenshteinDistance(thisBag, otherBag);
-						} else {
-							distance = BagOfWordsHelper.levenshteinDistance(thisBag, otherBag);
-						}
-
-						// write distance to both distance maps and write maps
-						// back
-						otherDistances = sentenceNrsToDistances.getOrDefault(otherSentence,
-								new TreeMap<Integer, Float>());
-						thisDistances.put(otherSentence, distance);
-						otherDistances.put(thisSentence, distance);
-						sentenceNrsToDistances.put(thisSentence, thisDistances);
-						sentenceNrsToDistances.put(otherSentence, otherDistances);
-					} else {
-						LOGGER.warning(
-								"Missing Bag of Words for sentence pair: " + thisSentence + ", " + otherSentence);
-					}
-
+			// intern the bags' terms and index them for candidate lookup
+			final Integer[] names = sentenceNrs.toArray(new Integer[sentenceNrs.size()]);
+			final BagDistances distances = new BagDistances(sentenceNrsToBagOfWords.values(), this.normalizeDistance,
+					this.candidates, this.minHashBands, this.minHashRows);
+			sentenceNrsToBagOfWords.clear();
+
+			// write each sentence's distances to its candidates as soon as
+			// they are computed
+			final int[] candidates = new int[names.length];
+			final JsonWriter jsonWriter = new JsonWriter(this.getOutputPorts().get(OUTPUT_ID).getWriter());
+			jsonWriter.setIndent("  ");
+			jsonWriter.beginObject();
+			for (int sentence = 0; sentence < names.length; sentence++) {
+				jsonWriter.name(names[sentence].toString()).beginObject();
+				final int amount = distances.candidates(sentence, candidates);
+				for (int i = 0; i < amount; i++) {
+					final float distance = distances.distance(sentence, candidates[i]);
+					if (this.maxDistance < 0 || distance <= this.maxDistance)
+						jsonWriter.name(names[candidates[i]].toString()).value(Float.valueOf(distance));
 				}
+				jsonWriter.endObject();
 			}
-			// serialize and flush to output
-			final String jsonOut = gson.toJson(sentenceNrsToDistances, OUTPUT_TYPE);
-			this.getOutputPorts().get(OUTPUT_ID).outputToAllCharPipes(jsonOut);
+			jsonWriter.endObject();
+			jsonWriter.flush();
 		} catch (Exception e) {
 			result = false;
 			throw e;
@@ -208,6 +204,24 @@ public class BagsOfWordsDistancesModule extends ModuleImpl {
 					.parseBoolean(this.getProperties().getProperty(PROPERTYKEY_NORMALIZE_DISTANCE));
 			this.tfIdfMin = Float.parseFloat(this.getProperties().getProperty(PROPERTYKEY_TFIDF_MIN));
 		}
+		if (this.getProperties().containsKey(PROPERTYKEY_CANDIDATES)) {
+			final String candidates = this.getProperties().getProperty(PROPERTYKEY_CANDIDATES).trim();
+			if (candidates.equalsIgnoreCase("all")) {
+				this.candidates = BagDistances.Candidates.ALL;
+			} else if (candidates.equalsIgnoreCase("inverted index")) {
+				this.candidates = BagDistances.Candidates.INVERTED_INDEX;
+			} else if (candidates.equalsIgnoreCase("minhash")) {
+				this.candidates = BagDistances.Candidates.MINHASH;
+			} else {
+				throw new Exception("Unknown candidates: " + candidates);
+			}
+		}
+		if (this.getProperties().containsKey(PROPERTYKEY_MAX_DISTANCE))
+			this.maxDistance = Float.parseFloat(this.getProperties().getProperty(PROPERTYKEY_MAX_DISTANCE));
+		if (this.getProperties().containsKey(PROPERTYKEY_MINHASH_BANDS))
+			this.minHashBands = Integer.parseInt(this.getProperties().getProperty(PROPERTYKEY_MINHASH_BANDS));
+		if (this.getProperties().containsKey(PROPERTYKEY_MINHASH_ROWS))
+			this.minHashRows = Integer.parseInt(this.getProperties().getProperty(PROPERTYKEY_MINHASH_ROWS));
 
 		super.applyProperties();
 	}
@@ -1,7 +1,10 @@
 package modules.basic_text_processing;
 
 import java.io.BufferedReader;
+import java.io.Writer;
 import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import base.workbench.ModuleWorkbenchController;
 import common.parallelization.CallbackReceiver;
@@ -30,7 +33,7 @@ public class RegExLineFilterModule extends ModuleImpl {
 	public static final String OUTPUT_NON_MATCHES_ID = "Non-Matches";
 
 	// Variables for the workflow
-	private String regex = null;
+	private Pattern pattern = null;
 
 	public RegExLineFilterModule(CallbackReceiver callbackReceiver, Properties properties) throws Exception {
 		super(callbackReceiver, properties);
@@ -68,26 +71,35 @@ public class RegExLineFilterModule extends ModuleImpl {
 		BufferedReader reader = null;
 		String line = null;
 
-		// Whether a line matches
+		// Whether a line matches, the matcher being reused for all lines
 		boolean lineMatches;
+		Matcher matcher = this.pattern.matcher("");
 
-		// Possible output ports
-		OutputPort matchesOut = this.getOutputPorts().get(OUTPUT_MATCHES_ID);
-		OutputPort nonMatchesOut = this.getOutputPorts().get(OUTPUT_NON_MATCHES_ID);
+		// Possible outputs, buffered to write several lines at once
+		Writer matchesOut = this.getOutputPorts().get(OUTPUT_MATCHES_ID).isConnected()
+				? this.getOutputPorts().get(OUTPUT_MATCHES_ID).getWriter() : null;
+		Writer nonMatchesOut = this.getOutputPorts().get(OUTPUT_NON_MATCHES_ID).isConnected()
+				? this.getOutputPorts().get(OUTPUT_NON_MATCHES_ID).getWriter() : null;
 
 		try {
 			reader = new BufferedReader(super.getInputPorts().get(INPUT_ID).getInputReader());
 
 			while ((line = reader.readLine()) != null) {
-				lineMatches = line.matches(regex);
-
-				if (lineMatches && matchesOut.isConnected()) {
-					matchesOut.outputToAllCharPipes(line + ModuleWorkbenchController.LINEBREAK);
-				} else if (!lineMatches && nonMatchesOut.isConnected()) {
-					nonMatchesOut.outputToAllCharPipes(line + ModuleWorkbenchController.LINEBREAK);
+				lineMatches = matcher.reset(line).matches();
+
+				if (lineMatches && matchesOut != null) {
+					matchesOut.write(line);
+					matchesOut.write(ModuleWorkbenchController.LINEBREAK);
+				} else if (!lineMatches && nonMatchesOut != null) {
+					nonMatchesOut.write(line);
+					nonMatchesOut.write(ModuleWorkbenchController.LINEBREAK);
 				}
 			}
 
+			if (matchesOut != null)
+				matchesOut.flush();
+			if (nonMatchesOut != null)
+				nonMatchesOut.flush();
 		} catch (Exception e) {
 			result = false;
 			throw e;
@@ -107,8 +119,8 @@ public class RegExLineFilterModule extends ModuleImpl {
 		super.setDefaultsIfMissing();
 
 		// Apply own properties
-		this.regex = this.getProperties().getProperty(PROPERTYKEY_REGEX,
-				this.getPropertyDefaultValues().get(PROPERTYKEY_REGEX));
+		this.pattern = Pattern.compile(this.getProperties().getProperty(PROPERTYKEY_REGEX,
+				this.getPropertyDefaultValues().get(PROPERTYKEY_REGEX)));
 
 		// Apply parent object's properties (just the name variable actually)
 		super.applyProperties();
@@ -1,7 +1,14 @@
 package modules.basic_text_processing;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
 import java.util.Properties;
-import java.util.regex.PatternSyntaxException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 import modules.CharPipe;
 import modules.InputPort;
 import modules.ModuleImpl;
@@ -10,6 +17,7 @@ import modules.OutputPort;
 
 import org.apache.commons.lang3.StringEscapeUtils;
 
+import common.StreamingRegExReplacer;
 import common.parallelization.CallbackReceiver;
 
 import base.workbench.ModuleRunner;
@@ -27,15 +35,24 @@ public class RegExReplacementModule extends ModuleImpl {
 	public static final String PROPERTYKEY_REGEX = "regex";
 	public static final String PROPERTYKEY_REPLACEMENT = "replacement";
 	public static final String PROPERTYKEY_UNESCAPE = "unescape";
+	public static final String PROPERTYKEY_MAXMATCHLENGTH = "Max match length";
+	public static final String PROPERTYKEY_LINETHREADS = "Line threads";
 	
 	// Define I/O IDs (must be unique for every input or output)
 	private final String INPUTID = "input";
 	private final String OUTPUTID = "output";
 	
+	// Amount of chars read at once, lines per task if replacing lines in parallel
+	private static final int BUFFERLENGTH = 8192;
+	private static final int LINEBLOCKLENGTH = 1 << 16;
+	private static final int LINESPERTASK = 256;
+	private static final int DEFAULT_MAXMATCHLENGTH = 1024;
+
 	// Local variables
-	private String regex;
-	private String replacement;
 	private boolean unescape;
+	private int maxMatchLength;
+	private int lineThreads;
+	private StreamingRegExReplacer replacer;
 
 	public RegExReplacementModule(CallbackReceiver callbackReceiver,
 			Properties properties) throws Exception {
@@ -50,12 +67,20 @@ public class RegExReplacementModule extends ModuleImpl {
 		this.getPropertyDescriptions().put(PROPERTYKEY_REGEX, "Regular expression to search for");
 		this.getPropertyDescriptions().put(PROPERTYKEY_REPLACEMENT, "Replacement for found strings");
 		this.getPropertyDescriptions().put(PROPERTYKEY_UNESCAPE, "Perform unescape operation on the replacement string before using it [true|false]");
+		this.getPropertyDescriptions().put(PROPERTYKEY_REGEX + " 2", "Further regular expression, replaced in the same pass; 'regex 3' etc. are read likewise. Where several match, the first match in the text is replaced, ties going to the rule numbered lower");
+		this.getPropertyDescriptions().put(PROPERTYKEY_REPLACEMENT + " 2", "Replacement for strings found by 'regex 2'");
+		this.getPropertyDescriptions().put(PROPERTYKEY_MAXMATCHLENGTH, "Length up to which matches spanning the chunks the input is read in are found");
+		this.getPropertyDescriptions().put(PROPERTYKEY_LINETHREADS, "If above 0, every line is replaced on its own (as by sed, '^' and '$' matching at its ends) by this amount of threads; 0 replaces in the input as a whole");
 		
 		// Add property defaults (_should_ be provided for every property)
 		this.getPropertyDefaultValues().put(ModuleImpl.PROPERTYKEY_NAME, "RegEx Replacement Module"); // Property key for module name is defined in parent class
 		this.getPropertyDefaultValues().put(PROPERTYKEY_REGEX, "[aeiu]");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_REPLACEMENT, "o");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_UNESCAPE, "true");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_REGEX + " 2", "");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_REPLACEMENT + " 2", "");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_MAXMATCHLENGTH, String.valueOf(DEFAULT_MAXMATCHLENGTH));
+		this.getPropertyDefaultValues().put(PROPERTYKEY_LINETHREADS, "0");
 		
 		// Define I/O
 		InputPort inputPort = new InputPort(INPUTID, "Plain text character input.", this);
@@ -71,71 +96,189 @@ public class RegExReplacementModule extends ModuleImpl {
 
 	@Override
 	public boolean process() throws Exception {
-		
-		// Variables used for input data
-		int bufferSize = 1024;
-		char[] bufferInput = new char[bufferSize];
-		
-		// Read first chunk of data from both inputs
-		int readCharsInput = this.getInputPorts().get(INPUTID).read(bufferInput, 0, bufferSize);
-		
-		// Loop until no more data can be read from input 1
-		while (readCharsInput != -1){
-			
-			// Check for interrupt signal
-			if (Thread.interrupted()) {
-				this.closeAllOutputs();
-				throw new InterruptedException("Thread has been interrupted.");
-			}
-			
-			// Convert char array to string
-			String inputChunk = new String(bufferInput).substring(0, readCharsInput);
-			// Process data
-			String outputChunk="";
-			try {
-			 outputChunk = inputChunk.replaceAll(this.regex, this.replacement);
+
+		InputPort input = this.getInputPorts().get(INPUTID);
+		Writer output = this.getOutputPorts().get(OUTPUTID).getWriter();
+
+		if (this.lineThreads > 0)
+			this.replaceLines(input, output);
+		else {
+			char[] buffer = new char[BUFFERLENGTH];
+			int readChars = input.read(buffer, 0, buffer.length);
+
+			// Loop until no more data can be read from input
+			while (readChars != -1) {
+
+				// Check for interrupt signal
+				if (Thread.interrupted()) {
+					this.closeAllOutputs();
+					throw new InterruptedException("Thread has been interrupted.");
+				}
+
+				// Write what cannot change with the chunks to come
+				this.replacer.write(buffer, 0, readChars, output);
+				readChars = input.read(buffer, 0, buffer.length);
 			}
-			catch(PatternSyntaxException p) {
-				System.out.println("error pattern:"+p.getMessage()+ " pattern: "+
-						p.getPattern());
-				p.printStackTrace();
-				System.exit(3);
-				
-			};
-			
-			// Write to output
-			this.getOutputPorts().get(OUTPUTID).outputToAllCharPipes(outputChunk);
-			
-			// Read next chunk of data from input
-			readCharsInput = this.getInputPorts().get(INPUTID).read(bufferInput, 0, bufferSize);
+			this.replacer.close(output);
 		}
-		
+
 		// Close outputs (important!)
+		output.flush();
 		this.closeAllOutputs();
-		
+
 		// Done
 		return true;
 	}
-	
+
+	/*
+	 * Replaces in each line on its own, reading blocks of whole lines whose
+	 * lines are replaced in parallel.
+	 */
+	private void replaceLines(InputPort input, Writer output) throws Exception {
+		ForkJoinPool pool = new ForkJoinPool(this.lineThreads);
+		try {
+			char[] block = new char[LINEBLOCKLENGTH];
+			int length = 0;
+			while (true) {
+				if (length == block.length)
+					block = Arrays.copyOf(block, 2 * block.length);
+				int readChars = input.read(block, length, block.length - length);
+				if (readChars == -1)
+					break;
+
+				// Check for interrupt signal
+				if (Thread.interrupted()) {
+					this.closeAllOutputs();
+					throw new InterruptedException("Thread has been interrupted.");
+				}
+
+				length += readChars;
+				int end = length;
+				while (end > 0 && block[end - 1] != '\n')
+					end--;
+				if (end > 0) {
+					this.replaceLines(pool, block, end, output);
+					System.arraycopy(block, end, block, 0, length - end);
+					length -= end;
+				}
+			}
+			// The last line may lack a line break
+			this.replaceLines(pool, block, length, output);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private void replaceLines(ForkJoinPool pool, char[] block, int length, Writer output) throws IOException {
+		if (length == 0)
+			return;
+		// Line starts, followed by the end of the block
+		int lines = 0;
+		int[] starts = new int[16];
+		for (int i = 0; i < length; i = this.lineEnd(block, i, length) + 1) {
+			if (lines + 1 == starts.length)
+				starts = Arrays.copyOf(starts, 2 * starts.length);
+			starts[lines++] = i;
+		}
+		starts[lines] = length;
+
+		String[] parts = new String[(lines + LINESPERTASK - 1) / LINESPERTASK];
+		pool.invoke(new LinesTask(0, parts.length, block, starts, lines, parts));
+		for (String part : parts)
+			output.write(part);
+	}
+
+	private int lineEnd(char[] block, int start, int length) {
+		int end = start;
+		while (end < length && block[end] != '\n')
+			end++;
+		return end;
+	}
+
+	/*
+	 * Halves the range of parts until single parts of LINESPERTASK lines are
+	 * left, each replaced into its own string.
+	 */
+	private class LinesTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int begin;
+		private final int end;
+		private final char[] block;
+		private final int[] starts;
+		private final int lines;
+		private final String[] parts;
+
+		LinesTask(int begin, int end, char[] block, int[] starts, int lines, String[] parts) {
+			this.begin = begin;
+			this.end = end;
+			this.block = block;
+			this.starts = starts;
+			this.lines = lines;
+			this.parts = parts;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.end - this.begin <= 1) {
+				for (int part = this.begin; part < this.end; part++) {
+					StringWriter output = new StringWriter();
+					for (int line = part * LINESPERTASK; line < Math.min(this.lines, (part + 1) * LINESPERTASK); line++) {
+						int lineEnd = lineEnd(this.block, this.starts[line], this.starts[line + 1]);
+						try {
+							replacer.replace(this.block, this.starts[line], lineEnd, output);
+						} catch (IOException e) {
+							// Not thrown by string writers
+							throw new UncheckedIOException(e);
+						}
+						if (lineEnd < this.starts[line + 1])
+							output.write('\n');
+					}
+					this.parts[part] = output.toString();
+				}
+			} else {
+				int middle = (this.begin + this.end) >>> 1;
+				invokeAll(new LinesTask(this.begin, middle, this.block, this.starts, this.lines, this.parts),
+						new LinesTask(middle, this.end, this.block, this.starts, this.lines, this.parts));
+			}
+		}
+	}
+
 	@Override
 	public void applyProperties() throws Exception {
-		
+
 		// Set defaults for properties not yet set
 		super.setDefaultsIfMissing();
-		
+
 		// Apply own properties
-		this.regex = this.getProperties().getProperty(PROPERTYKEY_REGEX, this.getPropertyDefaultValues().get(PROPERTYKEY_REGEX));
-		
 		this.unescape = Boolean.parseBoolean(this.getProperties().getProperty(PROPERTYKEY_UNESCAPE, this.getPropertyDefaultValues().get(PROPERTYKEY_UNESCAPE)));
-		String replacementString = this.getProperties().getProperty(PROPERTYKEY_REPLACEMENT, this.getPropertyDefaultValues().get(PROPERTYKEY_REPLACEMENT));
-		
-		if (this.unescape)
-			this.replacement = StringEscapeUtils.unescapeJava(replacementString);
-		else
-			this.replacement = replacementString;
-		
+		String maxMatchLengthString = this.getProperties().getProperty(PROPERTYKEY_MAXMATCHLENGTH, this.getPropertyDefaultValues().get(PROPERTYKEY_MAXMATCHLENGTH));
+		this.maxMatchLength = maxMatchLengthString != null ? Integer.parseInt(maxMatchLengthString) : DEFAULT_MAXMATCHLENGTH;
+		String lineThreadsString = this.getProperties().getProperty(PROPERTYKEY_LINETHREADS, this.getPropertyDefaultValues().get(PROPERTYKEY_LINETHREADS));
+		if (lineThreadsString != null)
+			this.lineThreads = Integer.parseInt(lineThreadsString);
+
+		// Compile the rules once, further ones being numbered from 2 on
+		this.replacer = new StreamingRegExReplacer(this.maxMatchLength);
+		this.addRule(this.getProperties().getProperty(PROPERTYKEY_REGEX, this.getPropertyDefaultValues().get(PROPERTYKEY_REGEX)),
+				this.getProperties().getProperty(PROPERTYKEY_REPLACEMENT, this.getPropertyDefaultValues().get(PROPERTYKEY_REPLACEMENT)));
+		for (int rule = 2; this.getProperties().containsKey(PROPERTYKEY_REGEX + " " + rule); rule++)
+			this.addRule(this.getProperties().getProperty(PROPERTYKEY_REGEX + " " + rule),
+					this.getProperties().getProperty(PROPERTYKEY_REPLACEMENT + " " + rule, ""));
+
 		// Apply parent object's properties (just the name variable actually)
 		super.applyProperties();
 	}
 
+	private void addRule(String regex, String replacementString) {
+		// Rules left empty are skipped
+		if (regex == null || regex.isEmpty())
+			return;
+		if (this.unescape)
+			this.replacer.addRule(regex, StringEscapeUtils.unescapeJava(replacementString));
+		else
+			this.replacer.addRule(regex, replacementString);
+	}
+
 }
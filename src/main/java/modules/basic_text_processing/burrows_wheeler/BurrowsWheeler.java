@@ -0,0 +1,141 @@
+package modules.basic_text_processing.burrows_wheeler;
+
+/**
+ * Burrows-Wheeler transformation of strings: the last chars of all rotations
+ * of a string in ascending order. The rotations are ordered through a suffix
+ * array of the smallest one, and the string is restored by the LF mapping,
+ * both in linear time and space.
+ */
+public final class BurrowsWheeler {
+
+	private BurrowsWheeler() {
+	}
+
+	/**
+	 * @param str
+	 *            String
+	 * @return The last chars of its rotations in ascending order
+	 */
+	public static String transform(String str) {
+		if (str == null || str.isEmpty())
+			return str;
+		final int n = str.length();
+
+		/*
+		 * The rotations of a Lyndon word (one smaller than its rotations) are
+		 * ordered as its suffixes, so the rotations of the string, which is
+		 * its smallest rotation repeated, are found by sorting the suffixes
+		 * of that rotation.
+		 */
+		final int first = smallestRotation(str);
+		final char[] rotation = new char[n];
+		str.getChars(first, n, rotation, 0);
+		str.getChars(0, first, rotation, n - first);
+		final int period = period(rotation);
+		final int repetitions = n / period;
+
+		final char[] alphabet = SuffixArray.alphabet(rotation, period);
+		final int[] symbols = SuffixArray.symbols(rotation, period, alphabet, period + 1);
+		final int[] suffixArray = SuffixArray.build(symbols, alphabet.length + 1);
+
+		// equal rotations of a repeated word follow each other
+		final char[] last = new char[n];
+		int row = 0;
+		for (int i = 1; i < suffixArray.length; i++) {
+			final int suffix = suffixArray[i];
+			final char c = rotation[suffix == 0 ? period - 1 : suffix - 1];
+			for (int r = 0; r < repetitions; r++)
+				last[row++] = c;
+		}
+		return new String(last);
+	}
+
+	/*
+	 * The start of the smallest rotation, in linear time by comparing two
+	 * candidates and skipping all starts shown not to be the smallest.
+	 */
+	private static int smallestRotation(String str) {
+		final int n = str.length();
+		int i = 0;
+		int j = 1;
+		int k = 0;
+		while (i < n && j < n && k < n) {
+			final char a = str.charAt((i + k) % n);
+			final char b = str.charAt((j + k) % n);
+			if (a == b) {
+				k++;
+				continue;
+			}
+			if (a > b)
+				i += k + 1;
+			else
+				j += k + 1;
+			if (i == j)
+				j++;
+			k = 0;
+		}
+		return Math.min(i, j);
+	}
+
+	/*
+	 * The length of the shortest word the chars are a repetition of.
+	 */
+	private static int period(char[] chars) {
+		final int n = chars.length;
+		// the length of the longest proper prefix ending at each position
+		final int[] border = new int[n];
+		for (int i = 1; i < n; i++) {
+			int length = border[i - 1];
+			while (length > 0 && chars[i] != chars[length])
+				length = border[length - 1];
+			border[i] = chars[i] == chars[length] ? length + 1 : 0;
+		}
+		final int period = n - border[n - 1];
+		return n % period == 0 ? period : n;
+	}
+
+	/**
+	 * Restores the rotation ending with the given char that comes first in
+	 * ascending order, which is the string transformed if the char ends it
+	 * and occurs nowhere else.
+	 *
+	 * @param last
+	 *            The last chars of the rotations in ascending order
+	 * @param endChar
+	 *            Char ending the string
+	 * @return The rotation, null if no rotation ends with the char
+	 */
+	public static String inverse(String last, char endChar) {
+		final int n = last.length();
+		final int row = last.indexOf(endChar);
+		if (row < 0)
+			return null;
+		final int[] lf = lfMapping(last.toCharArray());
+
+		// the row of a rotation leads to the row of the one starting a char earlier
+		final char[] rotation = new char[n];
+		for (int i = n - 1, r = row; i >= 0; i--, r = lf[r])
+			rotation[i] = last.charAt(r);
+		return new String(rotation);
+	}
+
+	/*
+	 * The row each row leads to when its last char is moved to its front:
+	 * the rows starting with a char are in the order of the rows it ends.
+	 */
+	private static int[] lfMapping(char[] last) {
+		final int n = last.length;
+		final char[] alphabet = SuffixArray.alphabet(last, n);
+		final int[] symbols = SuffixArray.symbols(last, n, alphabet, n);
+		final int[] starts = new int[alphabet.length + 2];
+		for (int symbol : symbols)
+			starts[symbol + 1]++;
+		for (int c = 1; c < starts.length; c++)
+			starts[c] += starts[c - 1];
+		final int[] lf = new int[n];
+		for (int i = 0; i < n; i++)
+			lf[i] = starts[symbols[i]]++;
+		return lf;
+	}
+
+}
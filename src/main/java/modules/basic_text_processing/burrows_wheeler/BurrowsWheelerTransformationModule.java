@@ -1,16 +1,15 @@
 package modules.basic_text_processing.burrows_wheeler;
 
-import java.util.Arrays;
 import java.util.Properties;
 import java.util.Scanner;
 
 import base.workbench.ModuleWorkbenchController;
 import common.StringUnescaper;
-import common.StringUtil;
 import common.parallelization.CallbackReceiver;
 import modules.CharPipe;
 import modules.InputPort;
 import modules.ModuleImpl;
+import modules.ObjectPipe;
 import modules.OutputPort;
 
 import base.workbench.ModuleRunner;
@@ -33,6 +32,7 @@ public class BurrowsWheelerTransformationModule extends ModuleImpl {
 	// Define I/O IDs (must be unique for every input or output)
 	private static final String ID_INPUT = "input";
 	private static final String ID_OUTPUT = "output";
+	private static final String ID_FMINDEX = "FM index";
 
 	// Local variables
 	private String inputdelimiter;
@@ -73,10 +73,15 @@ public class BurrowsWheelerTransformationModule extends ModuleImpl {
 		inputPort.addSupportedPipe(CharPipe.class);
 		OutputPort outputPort = new OutputPort(ID_OUTPUT, "output.", this);
 		outputPort.addSupportedPipe(CharPipe.class);
+		OutputPort fmIndexPort = new OutputPort(ID_FMINDEX,
+				"FM index of the text (the segments, or the restored ones if reversing, each followed by the output delimiter), for counting and locating strings in it.",
+				this);
+		fmIndexPort.addSupportedObjectPipe(FMIndex.class);
 
 		// Add I/O ports to instance (don't forget...)
 		super.addInputPort(inputPort);
 		super.addOutputPort(outputPort);
+		super.addOutputPort(fmIndexPort);
 
 	}
 
@@ -87,6 +92,10 @@ public class BurrowsWheelerTransformationModule extends ModuleImpl {
 		Scanner lineScanner = new Scanner(this.getInputPorts().get(ID_INPUT).getInputReader());
 		lineScanner.useDelimiter(this.inputdelimiter);
 
+		// Text to index, if an index is requested
+		OutputPort fmIndexPort = this.getOutputPorts().get(ID_FMINDEX);
+		StringBuilder text = fmIndexPort.hasPipes(ObjectPipe.class) ? new StringBuilder() : null;
+
 		// Data lines input read loop
 		while (lineScanner.hasNext()) {
 
@@ -100,11 +109,13 @@ public class BurrowsWheelerTransformationModule extends ModuleImpl {
 			String segment = lineScanner.next();
 			String output;
 			if (this.reverse)
-				output = this.bwt_reverse(segment, this.stringEndChar);
+				output = BurrowsWheeler.inverse(segment, this.stringEndChar);
 			else
-				output = this.bwt(segment);
+				output = BurrowsWheeler.transform(segment);
 			
 			this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(output+this.outputdelimiter);
+			if (text != null)
+				text.append(this.reverse ? output : segment).append(this.outputdelimiter);
 			
 
 		}
@@ -112,6 +123,9 @@ public class BurrowsWheelerTransformationModule extends ModuleImpl {
 		// Close scanner instance
 		lineScanner.close();
 
+		if (text != null)
+			fmIndexPort.outputToAllObjectPipes(new FMIndex(text));
+
 		// Close outputs (important!)
 		this.closeAllOutputs();
 
@@ -119,52 +133,6 @@ public class BurrowsWheelerTransformationModule extends ModuleImpl {
 		return true;
 	}
 	
-	private String bwt(String str){
-		// Return if input is empty
-		if (str == null || str.isEmpty())
-			return str;
-		
-		// Create table for BWT
-		String[] table = new String[str.length()];
-		table[0] = str;
-		for (int i=1; i<str.length(); i++){
-			table[i] = StringUtil.shift(table[i-1]);
-		}
-		
-		// Sort table
-		Arrays.sort(table);
-		
-		char[] returnValue = new char[str.length()];
-		for (int i=0; i<table.length; i++)
-			returnValue[i] = table[i].charAt(str.length()-1);
-		
-		return new String(returnValue);
-	}
-	
-	private String bwt_reverse(String rts, char stringEndChar){
-		
-		// Create table for BWT
-		String[] table = new String[rts.length()];
-		
-		// Fill and sort table
-		for (int i=0; i<rts.length(); i++){
-			for (int j=0; j<rts.length(); j++)
-				if (table[j] != null)
-					table[j] = rts.charAt(j)+table[j];
-				else
-					table[j] = rts.charAt(j)+"";
-			Arrays.sort(table);
-		}
-		
-		// Determine table row that end with end char
-		for (int i=0; i<rts.length(); i++){
-			if (table[i].charAt(rts.length()-1) == stringEndChar)
-				return table[i];
-		}
-		
-		return null;
-	}
-
 	@Override
 	public void applyProperties() throws Exception {
 
@@ -0,0 +1,159 @@
+package modules.basic_text_processing.burrows_wheeler;
+
+import java.util.Arrays;
+
+/**
+ * Full-text index of a text (Ferragina and Manzini 2000): the
+ * Burrows-Wheeler transformation of the text with a sentinel appended,
+ * counts of each char at every 64th row and the suffix array at every 32nd
+ * text position. Counting the occurrences of a pattern takes time linear in
+ * its length, locating each of them at most 32 steps more.
+ */
+public class FMIndex {
+
+	private static final int CHECKPOINT_INTERVAL = 64;
+	private static final int SAMPLE_INTERVAL = 32;
+
+	private final char[] alphabet;
+	private final int symbolCount;
+	// the last column as symbols, 0 being the sentinel
+	private final char[] last;
+	// rows starting with a symbol smaller than each symbol
+	private final int[] starts;
+	// counts of each symbol before every checkpoint row, row-major
+	private final int[] checkpoints;
+	// rows whose suffix starts at a sampled position, with ranks per word
+	private final long[] sampledRows;
+	private final int[] sampledRanks;
+	// the positions of the sampled rows in the order of the rows
+	private final int[] samples;
+
+	/**
+	 * @param text
+	 *            Text to index
+	 */
+	public FMIndex(CharSequence text) {
+		final int n = text.length();
+		final char[] chars = new char[n];
+		for (int i = 0; i < n; i++)
+			chars[i] = text.charAt(i);
+		this.alphabet = SuffixArray.alphabet(chars, n);
+		if (this.alphabet.length >= Character.MAX_VALUE)
+			throw new IllegalArgumentException("The text uses too many different chars to be indexed.");
+		final int symbolCount = this.alphabet.length + 1;
+		this.symbolCount = symbolCount;
+		final int[] symbols = SuffixArray.symbols(chars, n, this.alphabet, n + 1);
+		final int[] suffixArray = SuffixArray.build(symbols, symbolCount);
+
+		final int rows = n + 1;
+		this.last = new char[rows];
+		this.starts = new int[symbolCount + 1];
+		final int checkpointCount = rows / CHECKPOINT_INTERVAL + 1;
+		this.checkpoints = new int[checkpointCount * symbolCount];
+		this.sampledRows = new long[(rows + 63) >>> 6];
+		this.sampledRanks = new int[this.sampledRows.length + 1];
+		this.samples = new int[n / SAMPLE_INTERVAL + 1];
+		final int[] counts = new int[symbolCount];
+		int sampled = 0;
+		for (int row = 0; row < rows; row++) {
+			if (row % CHECKPOINT_INTERVAL == 0)
+				System.arraycopy(counts, 0, this.checkpoints, row / CHECKPOINT_INTERVAL * symbolCount, symbolCount);
+			final int position = suffixArray[row];
+			final int symbol = position == 0 ? 0 : symbols[position - 1];
+			this.last[row] = (char) symbol;
+			counts[symbol]++;
+			if (position % SAMPLE_INTERVAL == 0) {
+				this.sampledRows[row >>> 6] |= 1L << row;
+				this.samples[sampled++] = position;
+			}
+		}
+		if (rows % CHECKPOINT_INTERVAL == 0)
+			System.arraycopy(counts, 0, this.checkpoints, rows / CHECKPOINT_INTERVAL * symbolCount, symbolCount);
+		for (int c = 0; c < symbolCount; c++)
+			this.starts[c + 1] = this.starts[c] + counts[c];
+		for (int word = 0; word < this.sampledRows.length; word++)
+			this.sampledRanks[word + 1] = this.sampledRanks[word] + Long.bitCount(this.sampledRows[word]);
+	}
+
+	/**
+	 * @return The length of the text
+	 */
+	public int length() {
+		return this.last.length - 1;
+	}
+
+	/**
+	 * @param pattern
+	 *            Pattern to search
+	 * @return The amount of its occurrences in the text
+	 */
+	public int count(CharSequence pattern) {
+		final int[] range = this.range(pattern);
+		return range[1] - range[0];
+	}
+
+	/**
+	 * @param pattern
+	 *            Pattern to search
+	 * @return The positions of its occurrences in the text, in ascending
+	 *         order
+	 */
+	public int[] locate(CharSequence pattern) {
+		final int[] range = this.range(pattern);
+		final int[] positions = new int[range[1] - range[0]];
+		for (int row = range[0]; row < range[1]; row++) {
+			int steps = 0;
+			int current = row;
+			while ((this.sampledRows[current >>> 6] & (1L << current)) == 0) {
+				current = this.lf(current);
+				steps++;
+			}
+			positions[row - range[0]] = this.samples[this.sampledRank(current)] + steps;
+		}
+		Arrays.sort(positions);
+		return positions;
+	}
+
+	/*
+	 * The rows of the suffixes starting with the pattern, found backwards.
+	 */
+	private int[] range(CharSequence pattern) {
+		int begin = 0;
+		int end = this.last.length;
+		for (int i = pattern.length() - 1; i >= 0 && begin < end; i--) {
+			final int symbol = Arrays.binarySearch(this.alphabet, pattern.charAt(i)) + 1;
+			if (symbol <= 0)
+				return new int[] { 0, 0 };
+			begin = this.starts[symbol] + this.occurrences(symbol, begin);
+			end = this.starts[symbol] + this.occurrences(symbol, end);
+		}
+		return new int[] { begin, Math.max(begin, end) };
+	}
+
+	/*
+	 * The row of the suffix starting a char before the one of the row.
+	 */
+	private int lf(int row) {
+		final int symbol = this.last[row];
+		return this.starts[symbol] + this.occurrences(symbol, row);
+	}
+
+	/*
+	 * The amount of the symbol in the last column before the row.
+	 */
+	private int occurrences(int symbol, int row) {
+		final int checkpoint = row / CHECKPOINT_INTERVAL;
+		int count = this.checkpoints[checkpoint * this.symbolCount + symbol];
+		for (int i = checkpoint * CHECKPOINT_INTERVAL; i < row; i++) {
+			if (this.last[i] == symbol)
+				count++;
+		}
+		return count;
+	}
+
+	private int sampledRank(int row) {
+		final int word = row >>> 6;
+		return this.sampledRanks[word] + Long.bitCount(this.sampledRows[word] & ((1L << row) - 1));
+	}
+
+}
@@ -0,0 +1,202 @@
+package modules.basic_text_processing.burrows_wheeler;
+
+import java.util.Arrays;
+
+/**
+ * Builds suffix arrays in linear time by induced sorting (SA-IS, Nong, Zhang
+ * and Chan 2009). Texts are given as symbols, the last being a sentinel
+ * smaller than all others; chars are turned into such symbols by
+ * {@link #alphabet(char[], int)} and {@link #symbols(char[], int, char[], int)}.
+ */
+public final class SuffixArray {
+
+	private static final int EMPTY = -1;
+
+	private SuffixArray() {
+	}
+
+	/**
+	 * @param text
+	 *            Chars
+	 * @param length
+	 *            Amount of chars to consider
+	 * @return The distinct chars of the text in ascending order
+	 */
+	public static char[] alphabet(char[] text, int length) {
+		final char[] sorted = Arrays.copyOf(text, length);
+		Arrays.sort(sorted);
+		int distinct = 0;
+		for (int i = 0; i < length; i++) {
+			if (distinct == 0 || sorted[i] != sorted[distinct - 1])
+				sorted[distinct++] = sorted[i];
+		}
+		return Arrays.copyOf(sorted, distinct);
+	}
+
+	/**
+	 * Turns chars into symbols by their rank in the alphabet, 1 for the
+	 * smallest, leaving room for the sentinel 0.
+	 *
+	 * @param text
+	 *            Chars
+	 * @param length
+	 *            Amount of chars to turn
+	 * @param alphabet
+	 *            Chars of the text in ascending order
+	 * @param symbolsLength
+	 *            Length of the symbol array, at least the amount of chars and
+	 *            filled up with zeros
+	 * @return Symbols
+	 */
+	public static int[] symbols(char[] text, int length, char[] alphabet, int symbolsLength) {
+		final int[] symbols = new int[symbolsLength];
+		if (length >= 1 << 16) {
+			// a table is faster for long texts
+			final int[] ranks = new int[1 << 16];
+			for (int r = 0; r < alphabet.length; r++)
+				ranks[alphabet[r]] = r + 1;
+			for (int i = 0; i < length; i++)
+				symbols[i] = ranks[text[i]];
+		} else {
+			for (int i = 0; i < length; i++)
+				symbols[i] = Arrays.binarySearch(alphabet, text[i]) + 1;
+		}
+		return symbols;
+	}
+
+	/**
+	 * @param text
+	 *            Symbols in [0, alphabetSize), ending with the sentinel 0,
+	 *            which occurs nowhere else
+	 * @param alphabetSize
+	 *            Amount of symbols
+	 * @return The starts of the suffixes in ascending order of the suffixes
+	 */
+	public static int[] build(int[] text, int alphabetSize) {
+		final int[] suffixArray = new int[text.length];
+		build(text, suffixArray, text.length, alphabetSize);
+		return suffixArray;
+	}
+
+	private static void build(int[] s, int[] sa, int n, int k) {
+		if (n == 1) {
+			sa[0] = 0;
+			return;
+		}
+
+		// S-type (true) and L-type suffixes
+		final boolean[] t = new boolean[n];
+		t[n - 1] = true;
+		for (int i = n - 2; i >= 0; i--)
+			t[i] = s[i] < s[i + 1] || (s[i] == s[i + 1] && t[i + 1]);
+		final int[] buckets = new int[k];
+
+		// sort the LMS substrings by inducing from their starts
+		bucketEnds(s, buckets, n, k);
+		Arrays.fill(sa, 0, n, EMPTY);
+		for (int i = 1; i < n; i++) {
+			if (isLms(t, i))
+				sa[--buckets[s[i]]] = i;
+		}
+		induce(s, sa, t, buckets, n, k);
+
+		// name the LMS substrings by their order, equal ones alike
+		int lmsCount = 0;
+		for (int i = 0; i < n; i++) {
+			if (isLms(t, sa[i]))
+				sa[lmsCount++] = sa[i];
+		}
+		Arrays.fill(sa, lmsCount, n, EMPTY);
+		int names = 0;
+		int previous = EMPTY;
+		for (int i = 0; i < lmsCount; i++) {
+			final int position = sa[i];
+			boolean different = false;
+			for (int d = 0; d < n; d++) {
+				if (previous == EMPTY || s[position + d] != s[previous + d] || t[position + d] != t[previous + d]) {
+					different = true;
+					break;
+				} else if (d > 0 && (isLms(t, position + d) || isLms(t, previous + d))) {
+					break;
+				}
+			}
+			if (different) {
+				names++;
+				previous = position;
+			}
+			// LMS positions are two apart at least
+			sa[lmsCount + (position >> 1)] = names - 1;
+		}
+		final int[] reduced = new int[lmsCount];
+		for (int i = lmsCount, j = 0; i < n; i++) {
+			if (sa[i] >= 0)
+				reduced[j++] = sa[i];
+		}
+
+		// sort the LMS suffixes, recursively if their substrings are not unique
+		final int[] reducedSa = new int[lmsCount];
+		if (names < lmsCount) {
+			build(reduced, reducedSa, lmsCount, names);
+		} else {
+			for (int i = 0; i < lmsCount; i++)
+				reducedSa[reduced[i]] = i;
+		}
+
+		// induce the order of all suffixes from the one of the LMS suffixes
+		for (int i = 1, j = 0; i < n; i++) {
+			if (isLms(t, i))
+				reduced[j++] = i;
+		}
+		bucketEnds(s, buckets, n, k);
+		Arrays.fill(sa, 0, n, EMPTY);
+		for (int i = lmsCount - 1; i >= 0; i--) {
+			final int position = reduced[reducedSa[i]];
+			sa[--buckets[s[position]]] = position;
+		}
+		induce(s, sa, t, buckets, n, k);
+	}
+
+	private static boolean isLms(boolean[] t, int i) {
+		return i > 0 && t[i] && !t[i - 1];
+	}
+
+	private static void bucketStarts(int[] s, int[] buckets, int n, int k) {
+		Arrays.fill(buckets, 0, k, 0);
+		for (int i = 0; i < n; i++)
+			buckets[s[i]]++;
+		for (int c = 0, sum = 0; c < k; c++) {
+			sum += buckets[c];
+			buckets[c] = sum - buckets[c];
+		}
+	}
+
+	private static void bucketEnds(int[] s, int[] buckets, int n, int k) {
+		Arrays.fill(buckets, 0, k, 0);
+		for (int i = 0; i < n; i++)
+			buckets[s[i]]++;
+		for (int c = 0, sum = 0; c < k; c++) {
+			sum += buckets[c];
+			buckets[c] = sum;
+		}
+	}
+
+	/*
+	 * Induces the L-type suffixes from left to right, then the S-type ones
+	 * from right to left.
+	 */
+	private static void induce(int[] s, int[] sa, boolean[] t, int[] buckets, int n, int k) {
+		bucketStarts(s, buckets, n, k);
+		for (int i = 0; i < n; i++) {
+			final int j = sa[i] - 1;
+			if (j >= 0 && !t[j])
+				sa[buckets[s[j]]++] = j;
+		}
+		bucketEnds(s, buckets, n, k);
+		for (int i = n - 1; i >= 0; i--) {
+			final int j = sa[i] - 1;
+			if (j >= 0 && t[j])
+				sa[--buckets[s[j]]] = j;
+		}
+	}
+
+}
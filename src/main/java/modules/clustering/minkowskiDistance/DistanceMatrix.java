@@ -0,0 +1,218 @@
+package modules.clustering.minkowskiDistance;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes the pairwise distances of equally long vectors held one after
+ * another in a single array.
+ *
+ * Distances are computed for blocks of rows of the distance matrix at a time,
+ * such that callers can stream the matrix out row by row. Each block is split
+ * into tiles of columns, small enough for the block's and the tile's vectors
+ * to stay in the cache while they are compared, and the tiles are computed in
+ * parallel. If there are fewer tiles than threads, the block's rows are split
+ * up as well.
+ */
+public class DistanceMatrix {
+
+	/**
+	 * The supported distance measures.
+	 */
+	public enum Metric {
+		/** (sum |a_i - b_i|^p)^(1/p), the maximum difference for p = infinity */
+		MINKOWSKI,
+		/** sum |a_i - b_i| */
+		MANHATTAN,
+		/** 1 - cos(a, b) */
+		COSINE
+	}
+
+	// bytes of vectors compared at once per tile
+	private static final int TILE_BYTES = 1 << 17;
+
+	private final double[] vectors;
+	private final int amount;
+	private final int dimensions;
+	private final Metric metric;
+	private final double power;
+
+	// the vectors' euclidean norms for the cosine distance
+	private final double[] norms;
+
+	// amount of vectors per tile
+	private final int tileSize;
+
+	/**
+	 * @param vectors
+	 *            The vectors' values, one vector after the other
+	 * @param amount
+	 *            Amount of vectors
+	 * @param dimensions
+	 *            Length of each vector
+	 * @param metric
+	 *            The distance measure
+	 * @param power
+	 *            The power p of the minkowski distance, ignored by other
+	 *            measures
+	 */
+	public DistanceMatrix(double[] vectors, int amount, int dimensions, Metric metric, double power) {
+		if (vectors.length < (long) amount * dimensions)
+			throw new IllegalArgumentException("Too few values for " + amount + " vectors of length " + dimensions);
+		if (metric == Metric.MINKOWSKI && !(power > 0))
+			throw new IllegalArgumentException("The power must be positive: " + power);
+		this.vectors = vectors;
+		this.amount = amount;
+		this.dimensions = dimensions;
+		this.metric = metric;
+		this.power = metric == Metric.MANHATTAN ? 1d : power;
+		this.tileSize = Math.max(1, TILE_BYTES / (8 * Math.max(1, dimensions)));
+
+		if (metric == Metric.COSINE) {
+			this.norms = new double[amount];
+			for (int i = 0; i < amount; i++)
+				this.norms[i] = Math.sqrt(dot(i, i));
+		} else {
+			this.norms = null;
+		}
+	}
+
+	/**
+	 * @return The amount of vectors
+	 */
+	public int getAmount() {
+		return this.amount;
+	}
+
+	/**
+	 * @param a
+	 *            Index of the first vector
+	 * @param b
+	 *            Index of the second vector
+	 * @return The distance between both vectors
+	 */
+	public double distance(int a, int b) {
+		if (this.metric == Metric.COSINE) {
+			final double norms = this.norms[a] * this.norms[b];
+			if (norms == 0)
+				return this.norms[a] == this.norms[b] ? 0d : 1d;
+			return 1d - dot(a, b) / norms;
+		}
+		final double[] v = this.vectors;
+		final int offsetA = a * this.dimensions;
+		final int offsetB = b * this.dimensions;
+		double result = 0d;
+		if (this.power == 1d) {
+			for (int i = 0; i < this.dimensions; i++)
+				result += Math.abs(v[offsetA + i] - v[offsetB + i]);
+			return result;
+		} else if (this.power == 2d) {
+			for (int i = 0; i < this.dimensions; i++) {
+				final double difference = v[offsetA + i] - v[offsetB + i];
+				result += difference * difference;
+			}
+			return Math.sqrt(result);
+		} else if (this.power == Double.POSITIVE_INFINITY) {
+			for (int i = 0; i < this.dimensions; i++)
+				result = Math.max(result, Math.abs(v[offsetA + i] - v[offsetB + i]));
+			return result;
+		}
+		for (int i = 0; i < this.dimensions; i++)
+			result += Math.pow(Math.abs(v[offsetA + i] - v[offsetB + i]), this.power);
+		return Math.pow(result, 1d / this.power);
+	}
+
+	private double dot(int a, int b) {
+		final double[] v = this.vectors;
+		final int offsetA = a * this.dimensions;
+		final int offsetB = b * this.dimensions;
+		double result = 0d;
+		for (int i = 0; i < this.dimensions; i++)
+			result += v[offsetA + i] * v[offsetB + i];
+		return result;
+	}
+
+	/**
+	 * Computes a block of rows of the distance matrix.
+	 *
+	 * @param begin
+	 *            The block's first row
+	 * @param end
+	 *            The row after the block
+	 * @param upperOnly
+	 *            Whether to compute only the distances right of the diagonal,
+	 *            leaving the other fields untouched
+	 * @param rows
+	 *            Receives the block's rows, from the first row on, each as
+	 *            long as the amount of vectors
+	 * @param pool
+	 *            The pool to compute in
+	 */
+	public void computeRows(int begin, int end, boolean upperOnly, double[][] rows, ForkJoinPool pool) {
+		final int firstTile = upperOnly ? begin / this.tileSize : 0;
+		final int tiles = (this.amount + this.tileSize - 1) / this.tileSize;
+		// with fewer tiles than threads, the rows are split as well
+		final int parallelism = pool.getParallelism();
+		final int tileCount = Math.max(1, tiles - firstTile);
+		final int rowTasks = tileCount >= parallelism ? 1 : (parallelism + tileCount - 1) / tileCount;
+		final int rowsPerTask = Math.max(1, (end - begin + rowTasks - 1) / rowTasks);
+		pool.invoke(new TilesTask(begin, begin, end, rowsPerTask, upperOnly, rows, firstTile, tiles));
+	}
+
+	private class TilesTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		// the block's first row, which rows[0] holds
+		private final int blockBegin;
+		private final int begin;
+		private final int end;
+		private final int rowsPerTask;
+		private final boolean upperOnly;
+		private final double[][] rows;
+		private final int firstTile;
+		private final int endTile;
+
+		TilesTask(int blockBegin, int begin, int end, int rowsPerTask, boolean upperOnly, double[][] rows,
+				int firstTile, int endTile) {
+			this.blockBegin = blockBegin;
+			this.begin = begin;
+			this.end = end;
+			this.rowsPerTask = rowsPerTask;
+			this.upperOnly = upperOnly;
+			this.rows = rows;
+			this.firstTile = firstTile;
+			this.endTile = endTile;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.endTile - this.firstTile > 1) {
+				final int middle = (this.firstTile + this.endTile) >>> 1;
+				invokeAll(this.subtask(this.begin, this.end, this.firstTile, middle),
+						this.subtask(this.begin, this.end, middle, this.endTile));
+				return;
+			}
+			if (this.end - this.begin > this.rowsPerTask) {
+				final int middle = (this.begin + this.end) >>> 1;
+				invokeAll(this.subtask(this.begin, middle, this.firstTile, this.endTile),
+						this.subtask(middle, this.end, this.firstTile, this.endTile));
+				return;
+			}
+			final int tileBegin = this.firstTile * tileSize;
+			final int tileEnd = Math.min(amount, tileBegin + tileSize);
+			for (int row = this.begin; row < this.end; row++) {
+				final double[] distances = this.rows[row - this.blockBegin];
+				for (int col = this.upperOnly ? Math.max(tileBegin, row + 1) : tileBegin; col < tileEnd; col++)
+					distances[col] = row == col ? 0d : distance(row, col);
+			}
+		}
+
+		private TilesTask subtask(int begin, int end, int firstTile, int endTile) {
+			return new TilesTask(this.blockBegin, begin, end, this.rowsPerTask, this.upperOnly, this.rows, firstTile,
+					endTile);
+		}
+
+	}
+
+}
@@ -1,20 +1,21 @@
 package modules.clustering.minkowskiDistance;
 
-import java.util.ArrayList;
+import java.io.BufferedReader;
+import java.io.Writer;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
-import java.util.Scanner;
 import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
 
 import common.StringUnescaper;
-import common.VectorCalculation;
 import common.parallelization.CallbackReceiver;
 import modules.CharPipe;
 import modules.InputPort;
@@ -37,6 +38,13 @@ public class MinkowskiDistanceMatrixModule extends ModuleImpl {
 	public static final String PROPERTYKEY_DELIMITER_INPUT_REGEX = "csv input delimiter regex";
 	public static final String PROPERTYKEY_DELIMITER_OUTPUT_STRING = "csv output delimiter";
 	public static final String PROPERTYKEY_ZEROVALUE = "csv empty value";
+	public static final String PROPERTYKEY_METRIC = "metric";
+	public static final String PROPERTYKEY_POWER = "power";
+	public static final String PROPERTYKEY_SYMMETRIC = "symmetric csv output";
+	public static final String PROPERTYKEY_THREADS = "threads";
+
+	// amount of distances computed at once before they are written
+	private static final int BLOCK_DISTANCES = 1 << 21;
 
 	// Define I/O IDs (must be unique for every input or output)
 	private static final String ID_INPUT = "input";
@@ -47,6 +55,10 @@ public class MinkowskiDistanceMatrixModule extends ModuleImpl {
 	private String inputdelimiter;
 	private String outputdelimiter;
 	private String emptyValue;
+	private DistanceMatrix.Metric metric;
+	private double power;
+	private boolean symmetric;
+	private int threads;
 
 	public MinkowskiDistanceMatrixModule(CallbackReceiver callbackReceiver, Properties properties) throws Exception {
 
@@ -64,6 +76,10 @@ public class MinkowskiDistanceMatrixModule extends ModuleImpl {
 		this.getPropertyDescriptions().put(PROPERTYKEY_INPUTFORMAT, "Format of input [json|csv].");
 		this.getPropertyDescriptions().put(PROPERTYKEY_OUTPUTFORMAT, "Format of output [json|csv].");
 		this.getPropertyDescriptions().put(PROPERTYKEY_ZEROVALUE, "String to insert as empty value into the output (only applicable to CSV output).");
+		this.getPropertyDescriptions().put(PROPERTYKEY_METRIC, "Distance measure [minkowski|manhattan|cosine].");
+		this.getPropertyDescriptions().put(PROPERTYKEY_POWER, "Power p of the minkowski distance (2 is euclidean, Infinity the maximum difference).");
+		this.getPropertyDescriptions().put(PROPERTYKEY_SYMMETRIC, "Write the whole symmetric matrix as CSV; if false only the distances above the diagonal are written, the others are empty values.");
+		this.getPropertyDescriptions().put(PROPERTYKEY_THREADS, "Amount of threads to compute the distances with.");
 
 		// Add property defaults (_should_ be provided for every property)
 		this.getPropertyDefaultValues().put(ModuleImpl.PROPERTYKEY_NAME, "Minkowski Distance Matrix");
@@ -72,6 +88,10 @@ public class MinkowskiDistanceMatrixModule extends ModuleImpl {
 		this.getPropertyDefaultValues().put(PROPERTYKEY_INPUTFORMAT, "csv");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_OUTPUTFORMAT, "csv");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_ZEROVALUE, "0");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_METRIC, "minkowski");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_POWER, "2");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_SYMMETRIC, "true");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_THREADS, Integer.toString(Runtime.getRuntime().availableProcessors()));
 
 		// Define I/O
 		/*
@@ -98,131 +118,127 @@ public class MinkowskiDistanceMatrixModule extends ModuleImpl {
 	@Override
 	public boolean process() throws Exception {
 
-		// JSON parser
-		Gson gson = new GsonBuilder().setPrettyPrinting().create();
-
-		// Minkowski Distance matrix
-		Map<String, Map<String, Double>> minkowskiDistanceMatrix = new TreeMap<String, Map<String, Double>>();
+		// Vectors by name, sorted
+		Map<String, double[]> vectorMap = new TreeMap<String, double[]>();
 
-		Map<String, List<Double>> aberrationValuesMap = null;
-		
 		if (this.inputFormat.equals("csv")){
-			Scanner lineScanner = new Scanner(this.getInputPorts().get(ID_INPUT).getInputReader());
-			lineScanner.useDelimiter("\\R+");
+			BufferedReader reader = new BufferedReader(this.getInputPorts().get(ID_INPUT).getInputReader());
+			Pattern delimiter = Pattern.compile(this.inputdelimiter);
 			
-			aberrationValuesMap = new TreeMap<String, List<Double>>();
+			// Skip the csv header line, each following line is a vector
+			// named by its first field
+			String line = reader.readLine();
+			double[] values = new double[16];
 			
-			// Read csv header line
-			String line = lineScanner.next();
-			String[] headerFields = line.split(this.inputdelimiter);
-			
-			for (int i=1; i<headerFields.length; i++){
-				aberrationValuesMap.put(headerFields[i], new ArrayList<Double>());
-			}
-			
-			while (lineScanner.hasNext()){
-				line = lineScanner.next();
-				
-				String[] lineFields = line.split(this.inputdelimiter);
+			while ((line = reader.readLine()) != null){
+				if (line.isEmpty())
+					continue;
+				String[] lineFields = delimiter.split(line);
 				String lineTag = lineFields[0];
 				if (lineTag.isEmpty())
 					continue;
+				int length = 0;
 				for (int i=1; i<lineFields.length; i++){
 					if (lineFields[i].isEmpty())
 						continue;
-					aberrationValuesMap.get(lineTag).add(Double.parseDouble(lineFields[i]));
+					if (length == values.length)
+						values = Arrays.copyOf(values, length * 2);
+					values[length++] = Double.parseDouble(lineFields[i]);
 				}
-				
+				vectorMap.put(lineTag, Arrays.copyOf(values, length));
 			}
 			
-			lineScanner.close();
+			reader.close();
 		} else if (this.inputFormat.equals("json")){
 		
-		// Read input
-		aberrationValuesMap = gson.fromJson(
-				this.getInputPorts().get(ID_INPUT).getInputReader(), new HashMap<String, List<Double>>().getClass());
+			// Read input
+			Map<String, List<Double>> aberrationValuesMap = new Gson().fromJson(
+					this.getInputPorts().get(ID_INPUT).getInputReader(), new HashMap<String, List<Double>>().getClass());
+			for (Entry<String, List<Double>> entry : aberrationValuesMap.entrySet()) {
+				double[] values = new double[entry.getValue().size()];
+				for (int i=0; i<values.length; i++)
+					values[i] = ((Number) entry.getValue().get(i)).doubleValue();
+				vectorMap.put(entry.getKey(), values);
+			}
 		
 		} else {
 			throw new Exception("Unrecognised input format '"+this.inputFormat+"'.");
 		}
+		
+		if (!this.outputFormat.equals("json") && !this.outputFormat.equals("csv")) {
+			throw new Exception("Unknown output format specified: '"+this.outputFormat+"'. Valid values are 'csv' or 'json'.");
+		}
 
-		/*
-		 * Iterate through map, removing the current item from it and comparing
-		 * it to the remainder (to avoid comparing a pair twice [A-B and B-A] or
-		 * an element to itself).
-		 */
-		Iterator<Entry<String, List<Double>>> types = aberrationValuesMap.entrySet().iterator();
-		while (types.hasNext()) {
-
-			// Remove entry
-			Entry<String, List<Double>> entry = types.next();
-			types.remove();
-
-			// Create result map for current entry
-			Map<String, Double> distanceMap = new HashMap<String, Double>();
-
-			// Add result map to result matrix
-			minkowskiDistanceMatrix.put(entry.getKey(), distanceMap);
-
-			// Second level iteration to compare the current entry with the rest
-			Iterator<Entry<String, List<Double>>> remainingTypes = aberrationValuesMap.entrySet().iterator();
-			while (remainingTypes.hasNext()) {
-
-				Entry<String, List<Double>> comparisonEntry = remainingTypes.next();
-
-				// Calculate distance
-				double distance = VectorCalculation.calculateMinkowskiDistance(entry.getValue(),
-						comparisonEntry.getValue());
-
-				// Store result
-				distanceMap.put(comparisonEntry.getKey(), distance);
-
-			}
-
+		// Copy the vectors into one array
+		String[] names = vectorMap.keySet().toArray(new String[vectorMap.size()]);
+		int dimensions = names.length == 0 ? 0 : vectorMap.get(names[0]).length;
+		double[] vectors = new double[names.length * dimensions];
+		for (int i=0; i<names.length; i++) {
+			double[] values = vectorMap.remove(names[i]);
+			if (values.length != dimensions)
+				throw new Exception("Sets must both be non-null and equal in length.");
+			System.arraycopy(values, 0, vectors, i * dimensions, dimensions);
 		}
+		DistanceMatrix distances = new DistanceMatrix(vectors, names.length, dimensions, this.metric, this.power);
+
+		// Compute the distance matrix block-wise and write it row by row
+		boolean upperOnly = this.outputFormat.equals("json") || !this.symmetric;
+		int blockRows = Math.max(1, Math.min(names.length, BLOCK_DISTANCES / Math.max(1, names.length)));
+		double[][] block = new double[blockRows][names.length];
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, this.threads));
+		Writer writer = this.getOutputPorts().get(ID_OUTPUT).getWriter();
 		
-		// Output
-		if (this.outputFormat.equals("json")) {
-			// Prepare JSON output
-			String jsonOutput = gson.toJson(minkowskiDistanceMatrix);
-
-			// Write output
-			this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(jsonOutput);
-		} else if (this.outputFormat.equals("csv")) {
-			// Write CSV header line
-			this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(this.outputdelimiter);
-			Iterator<String> matrixFirstLevelKeys = minkowskiDistanceMatrix.keySet().iterator();
-			while (matrixFirstLevelKeys.hasNext()){
-				String matrixFirstLevelKey = matrixFirstLevelKeys.next();
-				this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(matrixFirstLevelKey+this.outputdelimiter);
-			}
-			this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes("\n");
-			
-			// Write data lines
-			matrixFirstLevelKeys = minkowskiDistanceMatrix.keySet().iterator();
-			while (matrixFirstLevelKeys.hasNext()){
-				String matrixFirstLevelKey = matrixFirstLevelKeys.next();
-				this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(matrixFirstLevelKey+this.outputdelimiter);
-				Iterator<String> matrixSecondLevelKeys = minkowskiDistanceMatrix.keySet().iterator();
-				while (matrixSecondLevelKeys.hasNext()){
-					String matrixSecondLevelKey = matrixSecondLevelKeys.next();
-					Double value = minkowskiDistanceMatrix.get(matrixFirstLevelKey).get(matrixSecondLevelKey);
-					if (value == null)
-						this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(this.emptyValue+this.outputdelimiter);
-					else
-						this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(value+this.outputdelimiter);
+		try {
+			if (this.outputFormat.equals("json")) {
+				// Each name maps to the distances to the names following it
+				JsonWriter jsonWriter = new JsonWriter(writer);
+				jsonWriter.setIndent("  ");
+				jsonWriter.beginObject();
+				for (int begin = 0; begin < names.length; begin += blockRows) {
+					int end = Math.min(names.length, begin + blockRows);
+					distances.computeRows(begin, end, true, block, pool);
+					for (int row = begin; row < end; row++) {
+						jsonWriter.name(names[row]).beginObject();
+						for (int col = row + 1; col < names.length; col++)
+							jsonWriter.name(names[col]).value(block[row - begin][col]);
+						jsonWriter.endObject();
+					}
 				}
-				this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes("\n");
+				jsonWriter.endObject();
+				jsonWriter.close();
+			} else {
+				// Write CSV header line
+				StringBuilder line = new StringBuilder(this.outputdelimiter);
+				for (String name : names)
+					line.append(name).append(this.outputdelimiter);
+				line.append('\n');
+				writer.append(line);
+				
+				// Write data lines
+				for (int begin = 0; begin < names.length; begin += blockRows) {
+					int end = Math.min(names.length, begin + blockRows);
+					distances.computeRows(begin, end, upperOnly, block, pool);
+					for (int row = begin; row < end; row++) {
+						line.setLength(0);
+						line.append(names[row]).append(this.outputdelimiter);
+						for (int col = 0; col < names.length; col++) {
+							if (upperOnly && col <= row)
+								line.append(this.emptyValue);
+							else
+								line.append(block[row - begin][col]);
+							line.append(this.outputdelimiter);
+						}
+						line.append('\n');
+						writer.append(line);
+					}
+				}
+				writer.close();
 			}
-			
-			
-		} else {
-			throw new Exception("Unknown output format specified: '"+this.outputFormat+"'. Valid values are 'csv' or 'json'.");
+		} finally {
+			pool.shutdown();
+			// Close output port
+			this.closeAllOutputs();
 		}
-		
-
-		// Close output port
-		this.closeAllOutputs();
 
 		return true;
 	}
@@ -243,6 +259,20 @@ public class MinkowskiDistanceMatrixModule extends ModuleImpl {
 				this.getPropertyDefaultValues().get(PROPERTYKEY_INPUTFORMAT));
 		this.outputFormat = this.getProperties().getProperty(PROPERTYKEY_OUTPUTFORMAT,
 				this.getPropertyDefaultValues().get(PROPERTYKEY_OUTPUTFORMAT));
+		String metricValue = this.getProperties().getProperty(PROPERTYKEY_METRIC,
+				this.getPropertyDefaultValues().get(PROPERTYKEY_METRIC));
+		if (metricValue != null)
+			this.metric = DistanceMatrix.Metric.valueOf(metricValue.trim().toUpperCase());
+		String powerValue = this.getProperties().getProperty(PROPERTYKEY_POWER,
+				this.getPropertyDefaultValues().get(PROPERTYKEY_POWER));
+		if (powerValue != null)
+			this.power = Double.parseDouble(powerValue);
+		this.symmetric = Boolean.parseBoolean(this.getProperties().getProperty(PROPERTYKEY_SYMMETRIC,
+				this.getPropertyDefaultValues().get(PROPERTYKEY_SYMMETRIC)));
+		String threadsValue = this.getProperties().getProperty(PROPERTYKEY_THREADS,
+				this.getPropertyDefaultValues().get(PROPERTYKEY_THREADS));
+		if (threadsValue != null)
+			this.threads = Integer.parseInt(threadsValue);
 
 		// Apply parent object's properties (just the name variable actually)
 		super.applyProperties();
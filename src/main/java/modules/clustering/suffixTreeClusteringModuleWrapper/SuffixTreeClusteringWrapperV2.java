@@ -6,6 +6,7 @@ import java.util.List;
 import java.io.BufferedReader;
 import java.io.ObjectInputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 
 //modularization imports:
@@ -14,6 +15,7 @@ import modules.tree_building.suffixTreeClustering.clustering.flat.FlatCluster;
 import modules.tree_building.suffixTreeClustering.clustering.flat.FlatClusterer;
 import modules.tree_building.suffixTreeClustering.clustering.hierarchical.HierarchicalCluster;
 import modules.tree_building.suffixTreeClustering.clustering.hierarchical.HierarchicalClusterer;
+import modules.tree_building.suffixTreeClustering.clustering.hierarchical.SimilarityMeasure;
 import modules.tree_building.suffixTreeClustering.clustering.neighborjoin.NeighborJoining;
 import modules.tree_building.suffixTreeClustering.data.Node;
 import modules.tree_building.suffixTreeClustering.data.Type;
@@ -58,6 +60,18 @@ public class SuffixTreeClusteringWrapperV2 extends ModuleImpl {
 	// this property determines the delimiter to use when parsing csv input
 	public static final String PROPERTYKEY_MATRIX_CSV_DELIM = "matrix input csv delimiter";
 
+	// this property selects the distance between clusters in HAC
+	public static final String PROPERTYKEY_LINKAGE = "HAC linkage";
+
+	// this property selects the format of the HAC hierarchy
+	public static final String PROPERTYKEY_HAC_FORMAT = "HAC output format";
+
+	// this property selects whether NJ prunes its search by sorted rows
+	public static final String PROPERTYKEY_NJ_MODE = "NJ mode";
+
+	// this property sets the amount of quadruples checked for additivity in NJ
+	public static final String PROPERTYKEY_NJ_ADDITIVITY_SAMPLES = "NJ additivity samples";
+
 	// variables:
 
 	// variable for saving the corpus
@@ -78,6 +92,18 @@ public class SuffixTreeClusteringWrapperV2 extends ModuleImpl {
 	// the delimiter used in parsing matrix csv input
 	private String matrixCsvDelimiter;
 
+	// the linkage used in HAC
+	private SimilarityMeasure linkage;
+
+	// whether to output the HAC hierarchy in Newick instead of DOT format
+	private boolean hacNewick;
+
+	// whether NJ prunes its search by sorted rows
+	private boolean njRapid;
+
+	// amount of quadruples checked for additivity in NJ
+	private int njAdditivitySamples;
+
 	// the result of the clustering
 	private String clustResult;
 
@@ -110,12 +136,24 @@ public class SuffixTreeClusteringWrapperV2 extends ModuleImpl {
 		this.getPropertyDescriptions().put(PROPERTYKEY_CORPNAME, "Insert corpus/text name");
 		this.getPropertyDescriptions().put(PROPERTYKEY_MATRIX_CSV_DELIM,
 				"The delimiter to use when reading matrix csv input.");
+		this.getPropertyDescriptions().put(PROPERTYKEY_LINKAGE,
+				"Distance between clusters in HAC: \"single\", \"complete\" or \"average\" link");
+		this.getPropertyDescriptions().put(PROPERTYKEY_HAC_FORMAT,
+				"Format of the HAC hierarchy: \"dot\" (Graphviz) or \"newick\"");
+		this.getPropertyDescriptions().put(PROPERTYKEY_NJ_MODE,
+				"Search of NJ: \"rapid\" (pruned by sorted rows) or \"exact\" (all pairs), both yield the same tree");
+		this.getPropertyDescriptions().put(PROPERTYKEY_NJ_ADDITIVITY_SAMPLES,
+				"Amount of random quadruples of types checked for additivity before NJ, 0 to skip the check");
 
 		// property defaults
 		this.getPropertyDefaultValues().put(ModuleImpl.PROPERTYKEY_NAME, "SuffixTreeClusteringWrapperV2");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_CLUST, "KM");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_CORPNAME, "myCorpus");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_MATRIX_CSV_DELIM, ";");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_LINKAGE, "average");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_HAC_FORMAT, "dot");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_NJ_MODE, "rapid");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_NJ_ADDITIVITY_SAMPLES, "1000");
 
 		// I/O definition
 		InputPort inputPortVec = new InputPort(INPUT_ST_ID, "[byte] deserialized vector after \"SuffixTreeInfoSer\".",
@@ -171,8 +209,12 @@ public class SuffixTreeClusteringWrapperV2 extends ModuleImpl {
 
 			types = new ArrayList<>(matrix.getRowAmount());
 			int idCounter = 0;
+			int[] cols = new int[matrix.getColumnsAmount()];
+			double[] values = new double[matrix.getColumnsAmount()];
 			for (int i = 0; i < matrix.getRowAmount(); i++) {
-				FeatureVector vector = new FeatureVector(matrix.getRow(i));
+				int amount = matrix.getNonZeroValues(i, cols, values);
+				FeatureVector vector = new FeatureVector(matrix.getColumnsAmount(), Arrays.copyOf(cols, amount),
+						Arrays.copyOf(values, amount));
 				Type type = new Type(vector);
 
 				type.setTypeString(matrix.getRowName(i));
@@ -240,6 +282,31 @@ public class SuffixTreeClusteringWrapperV2 extends ModuleImpl {
 				this.getPropertyDefaultValues().get(PROPERTYKEY_CLUST));
 		this.matrixCsvDelimiter = this.getProperties().getProperty(PROPERTYKEY_MATRIX_CSV_DELIM,
 				this.getPropertyDefaultValues().get(PROPERTYKEY_MATRIX_CSV_DELIM));
+		String linkage = this.getProperties().getProperty(PROPERTYKEY_LINKAGE,
+				this.getPropertyDefaultValues().get(PROPERTYKEY_LINKAGE));
+		if (linkage != null) {
+			switch (linkage.trim().toLowerCase()) {
+			case "single":
+				this.linkage = SimilarityMeasure.SINGLE_LINK;
+				break;
+			case "complete":
+				this.linkage = SimilarityMeasure.COMPLETE_LINK;
+				break;
+			case "average":
+				this.linkage = SimilarityMeasure.AVERAGE_LINK;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown linkage: " + linkage);
+			}
+		}
+		this.hacNewick = "newick".equalsIgnoreCase(this.getProperties().getProperty(PROPERTYKEY_HAC_FORMAT,
+				this.getPropertyDefaultValues().get(PROPERTYKEY_HAC_FORMAT)));
+		this.njRapid = !"exact".equalsIgnoreCase(this.getProperties().getProperty(PROPERTYKEY_NJ_MODE,
+				this.getPropertyDefaultValues().get(PROPERTYKEY_NJ_MODE)));
+		String samples = this.getProperties().getProperty(PROPERTYKEY_NJ_ADDITIVITY_SAMPLES,
+				this.getPropertyDefaultValues().get(PROPERTYKEY_NJ_ADDITIVITY_SAMPLES));
+		if (samples != null)
+			this.njAdditivitySamples = Integer.parseInt(samples.trim());
 
 		// Apply parent object's properties (just the name variable actually)
 		super.applyProperties();
@@ -261,14 +328,14 @@ public class SuffixTreeClusteringWrapperV2 extends ModuleImpl {
 
 	private void clusterHierarchical(List<Type> types, String name) {
 		// usage of hierachial clustering
-		HierarchicalClusterer h_analysis = new HierarchicalClusterer(types);
+		HierarchicalClusterer h_analysis = new HierarchicalClusterer(types, this.linkage);
 		// LOGGER.info("Hierarchisches Clustern von " + types.size() + "
 		// Types");
 		h_analysis.analyze();
 		List<HierarchicalCluster> hClusters = h_analysis.getClusters();
 
 		if (hClusters.size() == 1) {
-			this.clustResult = h_analysis.toDot();
+			this.clustResult = this.hacNewick ? h_analysis.toNewick() : h_analysis.toDot();
 
 		} else
 			System.err.println("Hierarchical Clustering didn't come up with exactly 1 cluster!");
@@ -276,7 +343,7 @@ public class SuffixTreeClusteringWrapperV2 extends ModuleImpl {
 
 	private void clusterNeighborJoin(List<Type> types) {
 		// usage of Neighbor Joining
-		NeighborJoining nj = new NeighborJoining(types);
+		NeighborJoining nj = new NeighborJoining(types, this.njRapid, this.njAdditivitySamples);
 		// LOGGER.info("Neighbor Joining Clustern von " + types.size() + "
 		// Types");
 		nj.start();
@@ -0,0 +1,287 @@
+package modules.clustering.treeSimilarityClustering;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import models.CompactTree;
+import models.ExtensibleTreeNode;
+
+/**
+ * Computes the similarity quotient of {@link NodeComparator#vergleiche} without
+ * merging trees. Each tree is compiled once into arrays holding its nodes in
+ * preorder, the children of each node in ascending order of their keys. Two
+ * trees are then compared by walking their children simultaneously, like
+ * merging sorted lists, with one stack of matching nodes per comparison.
+ *
+ * The total of the quotient is the sum of the weighted counters of both trees
+ * and known in advance, while matches can only be found below first-level
+ * children both trees have in common. Their weighted counters bound the
+ * quotient, so that comparisons which cannot exceed a minimum are ended early.
+ *
+ * Trees must be added from one thread; comparisons may run in parallel.
+ */
+public class TreeSimilarity {
+
+	// relative slack of bounds against rounding
+	private static final double BOUND_SLACK = 1e-9;
+
+	private final int maxDepth;
+	private final double levelExponent;
+	private final boolean levelFactorOnMatchesOnly;
+
+	// ids of node keys and values; ids of keys order the children
+	private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+	private final List<Tree> trees = new ArrayList<Tree>();
+
+	/**
+	 * @param maxDepth
+	 *            Deepest level to compare, the children of the roots being level
+	 *            1, &lt;0 for no limit
+	 * @param levelExponent
+	 *            Counters are multiplied by level^levelExponent
+	 * @param levelFactorOnMatchesOnly
+	 *            Whether the level factor applies to matches only and not to
+	 *            the total
+	 */
+	public TreeSimilarity(int maxDepth, double levelExponent, boolean levelFactorOnMatchesOnly) {
+		this.maxDepth = maxDepth;
+		this.levelExponent = levelExponent;
+		this.levelFactorOnMatchesOnly = levelFactorOnMatchesOnly;
+	}
+
+	/**
+	 * Compiles a tree for comparison.
+	 *
+	 * @param root
+	 *            The root of the tree, which itself does not count
+	 * @return The number of the tree
+	 */
+	public int add(ExtensibleTreeNode root) {
+		return this.add(CompactTree.of(root), 0);
+	}
+
+	/**
+	 * Compiles a subtree for comparison.
+	 *
+	 * @param tree
+	 *            The tree
+	 * @param root
+	 *            The root of the subtree, which itself does not count
+	 * @return The number of the subtree
+	 */
+	public int add(CompactTree tree, int root) {
+		// the nodes within the maximum depth, by position in the subtree
+		int size = 0;
+		final int[] depths = new int[tree.getEnd(root) - root];
+		for (int node = root; node < tree.getEnd(root); node++) {
+			final int depth = node == root ? 0 : depths[tree.getParent(node) - root] + 1;
+			depths[node - root] = depth;
+			if (this.maxDepth < 0 || depth <= this.maxDepth)
+				size++;
+		}
+
+		// preorder by a stack, children pushed in descending order of their
+		// key ids so they are visited in ascending order
+		final Tree compiled = new Tree(size);
+		final int[] parents = new int[size];
+		final int[] stack = new int[size];
+		final int[] stackParents = new int[size];
+		int top = 0;
+		stack[top] = root;
+		stackParents[top++] = -1;
+		int index = 0;
+		while (top > 0) {
+			final int node = stack[--top];
+			final int depth = depths[node - root];
+			parents[index] = stackParents[top];
+			compiled.keys[index] = node == root ? -1 : this.id(tree.getKey(node));
+			compiled.values[index] = this.id(tree.getNodeValue(node));
+			compiled.ends[index] = index + 1;
+			if (depth > 0) {
+				final int counter = tree.getNodeCounter(node);
+				final double factor = Math.pow(depth, this.levelExponent);
+				compiled.matchWeights[index] = counter * factor;
+				compiled.total += this.levelFactorOnMatchesOnly ? counter : counter * factor;
+			}
+			compiled.subtreeWeights[index] = compiled.matchWeights[index];
+			if (this.maxDepth < 0 || depth < this.maxDepth) {
+				final int[] children = tree.getChildren(node);
+				final long[] ordered = new long[children.length];
+				for (int c = 0; c < children.length; c++)
+					ordered[c] = (long) this.id(tree.getKey(children[c])) << 32 | c;
+				Arrays.sort(ordered);
+				for (int c = ordered.length - 1; c >= 0; c--) {
+					stack[top] = children[(int) ordered[c]];
+					stackParents[top++] = index;
+				}
+			}
+			index++;
+		}
+		// subtrees end where their last descendant ends
+		for (int i = size - 1; i > 0; i--) {
+			final int parent = parents[i];
+			compiled.ends[parent] = Math.max(compiled.ends[parent], compiled.ends[i]);
+			compiled.subtreeWeights[parent] += compiled.subtreeWeights[i];
+		}
+		this.trees.add(compiled);
+		return this.trees.size() - 1;
+	}
+
+	private int id(String string) {
+		if (string == null)
+			return -1;
+		Integer id = this.dictionary.get(string);
+		if (id == null) {
+			id = this.dictionary.size();
+			this.dictionary.put(string, id);
+		}
+		return id;
+	}
+
+	/**
+	 * @return The amount of trees added
+	 */
+	public int size() {
+		return this.trees.size();
+	}
+
+	/**
+	 * @param a
+	 *            Number of the first tree
+	 * @param b
+	 *            Number of the second tree
+	 * @return A value no similarity of the trees exceeds, NaN if both trees
+	 *         have nothing to count
+	 */
+	public double upperBound(int a, int b) {
+		final Tree treeA = this.trees.get(a);
+		final Tree treeB = this.trees.get(b);
+		final double total = treeA.total + treeB.total;
+		if (total == 0)
+			return Double.NaN;
+		double potential = 0;
+		for (int i = 1, j = 1; i < treeA.ends[0] && j < treeB.ends[0];) {
+			if (treeA.keys[i] == treeB.keys[j]) {
+				potential += treeA.subtreeWeights[i] + treeB.subtreeWeights[j];
+				i = treeA.ends[i];
+				j = treeB.ends[j];
+			} else if (treeA.keys[i] < treeB.keys[j]) {
+				i = treeA.ends[i];
+			} else {
+				j = treeB.ends[j];
+			}
+		}
+		return potential / total * (1 + BOUND_SLACK);
+	}
+
+	/**
+	 * @param a
+	 *            Number of the first tree
+	 * @param b
+	 *            Number of the second tree
+	 * @return The weighted counters of matching nodes divided by those of all
+	 *         nodes of both trees, NaN if there are none
+	 */
+	public double similarity(int a, int b) {
+		return this.similarity(a, b, Double.NEGATIVE_INFINITY);
+	}
+
+	/**
+	 * @param a
+	 *            Number of the first tree
+	 * @param b
+	 *            Number of the second tree
+	 * @param minimum
+	 *            Similarity below which the exact value is of no interest
+	 * @return The similarity if it exceeds the minimum, else the similarity or
+	 *         an upper bound of it not exceeding the minimum, NaN if both trees
+	 *         have nothing to count
+	 */
+	public double similarity(int a, int b, double minimum) {
+		final double bound = this.upperBound(a, b);
+		if (!(bound > minimum))
+			return bound;
+		final Tree treeA = this.trees.get(a);
+		final Tree treeB = this.trees.get(b);
+		final double total = treeA.total + treeB.total;
+		double remaining = bound * total / (1 + BOUND_SLACK);
+		double matches = 0;
+		// each node is matched at most once, so the stack never holds more
+		// pairs than the smaller tree has nodes
+		final int[] stack = new int[2 * Math.min(treeA.ends[0], treeB.ends[0])];
+		for (int i = 1, j = 1; i < treeA.ends[0] && j < treeB.ends[0];) {
+			if (treeA.keys[i] == treeB.keys[j]) {
+				matches += matches(treeA, treeB, i, j, stack);
+				remaining -= treeA.subtreeWeights[i] + treeB.subtreeWeights[j];
+				final double rest = (matches + Math.max(0, remaining)) / total * (1 + BOUND_SLACK);
+				if (rest <= minimum)
+					return rest;
+				i = treeA.ends[i];
+				j = treeB.ends[j];
+			} else if (treeA.keys[i] < treeB.keys[j]) {
+				i = treeA.ends[i];
+			} else {
+				j = treeB.ends[j];
+			}
+		}
+		return matches / total;
+	}
+
+	/*
+	 * The weighted counters of matching nodes at and below nodes i and j, which
+	 * have been reached by the same keys. Pairs of nodes reached by the same
+	 * keys are kept on the given stack rather than recursed into, as trees of
+	 * unlimited depth may be deeper than the call stack allows.
+	 */
+	private static double matches(Tree a, Tree b, int i, int j, int[] stack) {
+		double matches = 0;
+		int top = 0;
+		stack[top++] = i;
+		stack[top++] = j;
+		while (top > 0) {
+			final int nj = stack[--top];
+			final int ni = stack[--top];
+			if (a.values[ni] == b.values[nj])
+				matches += a.matchWeights[ni] + b.matchWeights[nj];
+			for (int ci = ni + 1, cj = nj + 1; ci < a.ends[ni] && cj < b.ends[nj];) {
+				if (a.keys[ci] == b.keys[cj]) {
+					stack[top++] = ci;
+					stack[top++] = cj;
+					ci = a.ends[ci];
+					cj = b.ends[cj];
+				} else if (a.keys[ci] < b.keys[cj]) {
+					ci = a.ends[ci];
+				} else {
+					cj = b.ends[cj];
+				}
+			}
+		}
+		return matches;
+	}
+
+	/*
+	 * A tree in preorder; node 0 is the root.
+	 */
+	private static final class Tree {
+
+		final int[] keys;
+		final int[] values;
+		// index after the last node of each subtree
+		final int[] ends;
+		final double[] matchWeights;
+		final double[] subtreeWeights;
+		double total;
+
+		Tree(int size) {
+			this.keys = new int[size];
+			this.values = new int[size];
+			this.ends = new int[size];
+			this.matchWeights = new double[size];
+			this.subtreeWeights = new double[size];
+		}
+	}
+
+}
@@ -14,17 +14,20 @@ import it.uniroma1.dis.wsngroup.gexf4j.core.impl.StaxGraphWriter;
 import it.uniroma1.dis.wsngroup.gexf4j.core.impl.data.AttributeImpl;
 import it.uniroma1.dis.wsngroup.gexf4j.core.impl.data.AttributeListImpl;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
+import models.CompactTree;
 import models.ExtensibleTreeNode;
 import modules.CharPipe;
 import modules.InputPort;
@@ -34,7 +37,6 @@ import modules.Pipe;
 import modules.ProgressWatcher;
 import modules.ProgressWatcherThread;
 
-import com.google.gson.Gson;
 import common.parallelization.CallbackReceiver;
 
 import base.workbench.ModuleRunner;
@@ -98,9 +100,11 @@ public class TreeSimilarityClusteringModule extends ModuleImpl {
 		InputPort inputPort = new InputPort(ID_INPUT,
 				"ExtensibleTreeNode atomic suffix tree.", this);
 		inputPort.addSupportedPipe(CharPipe.class);
+		inputPort.addSupportedObjectPipe(ExtensibleTreeNode.class);
 		InputPort inputPort2 = new InputPort(ID_INPUT_REVERSED,
 				"(optional) ExtensibleTreeNode reversed atomic suffix tree.", this);
 		inputPort2.addSupportedPipe(CharPipe.class);
+		inputPort2.addSupportedObjectPipe(ExtensibleTreeNode.class);
 		OutputPort outputPort = new OutputPort(ID_OUTPUT,
 				"GEXF graph.", this);
 		outputPort.addSupportedPipe(CharPipe.class);
@@ -117,38 +121,29 @@ public class TreeSimilarityClusteringModule extends ModuleImpl {
 		
 		
 
-		// Instantiate JSON parser
-		Gson gson = new Gson();
-		
 		// Updating status detail
 		this.setStatusDetail("Receiving/parsing input");
 		
 		// Read tree from input & parse it
-		ExtensibleTreeNode rootNode = gson.fromJson(this.getInputPorts().get(ID_INPUT).getInputReader(), ExtensibleTreeNode.class);
+		CompactTree tree = this.readTreeFromInputPort(this.getInputPorts().get(ID_INPUT));
 		
 		// Read reversed tree from input & parse it
-		ExtensibleTreeNode reversedRootNode = null;
+		CompactTree reversedTree = null;
 		if (this.getInputPorts().get(ID_INPUT_REVERSED).isConnected())
-			reversedRootNode = gson.fromJson(this.getInputPorts().get(ID_INPUT_REVERSED).getInputReader(), ExtensibleTreeNode.class);
+			reversedTree = this.readTreeFromInputPort(this.getInputPorts().get(ID_INPUT_REVERSED));
 		
 		// If a second (reversed) suffix tree is present, make sure it contains the same keys
-		if (reversedRootNode != null && !rootNode.getChildNodes().keySet().equals(reversedRootNode.getChildNodes().keySet())){
+		if (reversedTree != null && !childKeys(tree).keySet().equals(childKeys(reversedTree).keySet())){
 			throw new Exception("The second tree does not seem to contain the same key set. However, this is necessary to perform the comparison.");
 		}
 
 		// Map of elements to compare to each other (first degree tree children)
-		Map<String,ExtensibleTreeNode> typeMap = new HashMap<String,ExtensibleTreeNode>();
+		Map<String,Integer> typeMap = new LinkedHashMap<String,Integer>();
 		
 		// Insert child nodes of the root node into a map (and apply node counter filter if set)
-		if (this.minTokenAmount>1){
-			Iterator<Entry<String, ExtensibleTreeNode>> rootChildren = rootNode.getChildNodes().entrySet().iterator();
-			while (rootChildren.hasNext()){
-				Entry<String, ExtensibleTreeNode> node = rootChildren.next();
-				if (node.getValue().getNodeCounter()>=this.minTokenAmount)
-					typeMap.put(node.getKey(), node.getValue());
-			}
-		} else {
-			typeMap.putAll(rootNode.getChildNodes());
+		for (int child = tree.getFirstChild(0); child >= 0; child = tree.getNextSibling(child)){
+			if (this.minTokenAmount<=1 || tree.getNodeCounter(child)>=this.minTokenAmount)
+				typeMap.put(tree.getKey(child), child);
 		}
 		
 		// Instantiate GEXF writer ...
@@ -170,7 +165,7 @@ public class TreeSimilarityClusteringModule extends ModuleImpl {
 		AttributeImpl counterAttrib = new AttributeImpl("0", AttributeType.LONG, "nodeCounter");
 		attrList.add(0, counterAttrib);
 		
-		Iterator<String> nodeAttributeKeys = rootNode.getAttributes().keySet().iterator();
+		Iterator<String> nodeAttributeKeys = tree.getAttributes(0).keySet().iterator();
 		int counter = 1;
 		while(nodeAttributeKeys.hasNext()){
 			String nodeAttribute = nodeAttributeKeys.next();
@@ -195,18 +190,18 @@ public class TreeSimilarityClusteringModule extends ModuleImpl {
 		this.setStatusDetail("Inserting "+typeMap.size()+" nodes into the graph");
 		
 		// Loop over types
-		Iterator<Entry<String, ExtensibleTreeNode>> types = typeMap.entrySet().iterator();
+		Iterator<Entry<String, Integer>> types = typeMap.entrySet().iterator();
 		while (types.hasNext()) {
 
 			// Determine next type to compare
-			Entry<String, ExtensibleTreeNode> type = types.next();
+			Entry<String, Integer> type = types.next();
 
 			// Add to graph
 			Node newNode = graph.createNode();
 			
 			// Apply attributes
 			newNode.setLabel(type.getKey());
-			newNode.getAttributeValues().addValue(counterAttrib, ""+type.getValue().getNodeCounter());
+			newNode.getAttributeValues().addValue(counterAttrib, ""+tree.getNodeCounter(type.getValue()));
 			
 			// Other attributes
 			/*Iterator<Attribute> attributes = attrList.iterator();
@@ -220,9 +215,25 @@ public class TreeSimilarityClusteringModule extends ModuleImpl {
 		}
 		
 
+		/*
+		 * Compile each type's branches once, in the order of the graph nodes
+		 * (and the reversed ones, if present).
+		 */
+		List<String> typeKeys = new ArrayList<String>(typeMap.keySet());
+		TreeSimilarity similarity = new TreeSimilarity(this.maxComparisonDepth, 0d, false);
+		TreeSimilarity reversedSimilarity = null;
+		for (String typeKey : typeKeys)
+			similarity.add(tree, typeMap.get(typeKey));
+		if (reversedTree != null){
+			Map<String,Integer> reversedTypes = childKeys(reversedTree);
+			reversedSimilarity = new TreeSimilarity(this.maxComparisonDepth, 0d, false);
+			for (String typeKey : typeKeys)
+				reversedSimilarity.add(reversedTree, reversedTypes.get(typeKey));
+		}
+
 		// Calculate amount of work that lies ahead
-		int elementsToCompare = typeMap.size();
-		long comparisonsToConduct = (long) ((Math.pow(elementsToCompare, 2)/2)-elementsToCompare);
+		int elementsToCompare = typeKeys.size();
+		long comparisonsToConduct = (long) elementsToCompare * (elementsToCompare - 1) / 2;
 		
 		// Track progress
 		ProgressWatcher progress = new ProgressWatcher(comparisonsToConduct);
@@ -230,50 +241,24 @@ public class TreeSimilarityClusteringModule extends ModuleImpl {
 		progressIndicator.start();
 		
 		/*
-		 *  Compare every type to every other. We will do this by separating one by one
-		 *  from the list and comparing it to the remainder. 
+		 *  Compare every type to every later one, all rows sharing one pool.
+		 *  Each row keeps the partners similar enough and their similarities.
 		 */
+		int[][] partners = new int[elementsToCompare][];
+		float[][] similarities = new float[elementsToCompare][];
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, this.maxParallelThreads));
+		try {
+			pool.invoke(new RowsTask(0, elementsToCompare, similarity, reversedSimilarity, partners, similarities, progress));
+		} finally {
+			pool.shutdown();
+		}
 		
-		// Loop over types again
-		types = typeMap.entrySet().iterator();
-		while(types.hasNext()){
-			
-			// Determine next type to compare
-			Entry<String, ExtensibleTreeNode> type = types.next();
-			// Remove it from list
-			types.remove();
-			
-			// Create executor service
-			ExecutorService executor = Executors.newFixedThreadPool(this.maxParallelThreads);
-			
-			// Map for comparison results
-			final ConcurrentHashMap<String,Double> comparisonResultMap = new ConcurrentHashMap<String,Double>();
-			
-			// Loop over remainder
-			Iterator<Entry<String, ExtensibleTreeNode>> typesRemainder = typeMap.entrySet().iterator();
-			while(typesRemainder.hasNext()){
-				// Determine next type to compare to the previously determined
-				Entry<String, ExtensibleTreeNode> typeToCompareTo = typesRemainder.next();
-				// Run comparison
-				Runnable comparisonProcess;
-				if (reversedRootNode != null){
-					comparisonProcess = new ComparisonProcess(this.maxComparisonDepth, new Double(this.minSimilarity), type.getValue(), typeToCompareTo.getValue(), reversedRootNode.getChildNodes().get(type.getKey()), reversedRootNode.getChildNodes().get(typeToCompareTo.getKey()), comparisonResultMap, progress);
-				} else {
-					comparisonProcess = new ComparisonProcess(this.maxComparisonDepth, new Double(this.minSimilarity), type.getValue(), typeToCompareTo.getValue(), comparisonResultMap, progress);
-				}
-				executor.execute(comparisonProcess);
-			}
-			
-			// Shutdown executor service
-			executor.shutdown();
-			executor.awaitTermination(5000l, TimeUnit.MILLISECONDS);
-			
-			// Put the results into the graph
-			Iterator<Entry<String, Double>> comparisonResults = comparisonResultMap.entrySet().iterator();
-			while(comparisonResults.hasNext()){
-				Entry<String, Double> comparisonResult = comparisonResults.next();
-				Edge edge = graphNodes.get(type.getKey()).connectTo(""+edgeId, "similar", EdgeType.UNDIRECTED, graphNodes.get(comparisonResult.getKey()));
-				edge.setWeight(comparisonResult.getValue().floatValue());
+		// Put the results into the graph
+		for (int i = 0; i < elementsToCompare; i++){
+			Node node = graphNodes.get(typeKeys.get(i));
+			for (int p = 0; p < partners[i].length; p++){
+				Edge edge = node.connectTo(""+edgeId, "similar", EdgeType.UNDIRECTED, graphNodes.get(typeKeys.get(partners[i][p])));
+				edge.setWeight(similarities[i][p]);
 				this.edgeId++;
 			}
 		}
@@ -314,6 +299,93 @@ public class TreeSimilarityClusteringModule extends ModuleImpl {
 		return true;
 	}
 
+	/*
+	 * The children of the root by their keys.
+	 */
+	private static Map<String,Integer> childKeys(CompactTree tree) {
+		Map<String,Integer> children = new HashMap<String,Integer>();
+		for (int child = tree.getFirstChild(0); child >= 0; child = tree.getNextSibling(child))
+			children.put(tree.getKey(child), child);
+		return children;
+	}
+
+	/*
+	 * Compares type i to all later types, pruning those which cannot exceed
+	 * the minimum similarity. With a reversed tree, the mean of both
+	 * similarities counts, so each side is bounded by what the other allows.
+	 */
+	private void compareRow(int i, TreeSimilarity similarity, TreeSimilarity reversedSimilarity, int[][] partners,
+			float[][] similarities, ProgressWatcher progress) {
+		double minimum = this.minSimilarity;
+		int size = similarity.size();
+		int[] rowPartners = new int[size - i - 1];
+		float[] rowSimilarities = new float[size - i - 1];
+		int found = 0;
+		for (int j = i + 1; j < size; j++){
+			double value;
+			if (reversedSimilarity == null){
+				value = similarity.similarity(i, j, minimum);
+			} else {
+				double reversedBound = reversedSimilarity.upperBound(i, j);
+				double forward = similarity.similarity(i, j, 2 * minimum - reversedBound);
+				if (!((forward + reversedBound) / 2d > minimum))
+					continue;
+				value = (forward + reversedSimilarity.similarity(i, j, 2 * minimum - forward)) / 2d;
+			}
+			if (value > minimum){
+				rowPartners[found] = j;
+				rowSimilarities[found] = (float) value;
+				found++;
+			}
+		}
+		partners[i] = Arrays.copyOf(rowPartners, found);
+		similarities[i] = Arrays.copyOf(rowSimilarities, found);
+		progress.count(size - i - 1);
+	}
+
+	/*
+	 * Halves the range of rows until single rows are left. Later rows hold
+	 * fewer comparisons, idle threads steal the remaining halves.
+	 */
+	private class RowsTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int begin;
+		private final int end;
+		private final TreeSimilarity similarity;
+		private final TreeSimilarity reversedSimilarity;
+		private final int[][] partners;
+		private final float[][] similarities;
+		private final ProgressWatcher progress;
+
+		RowsTask(int begin, int end, TreeSimilarity similarity, TreeSimilarity reversedSimilarity, int[][] partners,
+				float[][] similarities, ProgressWatcher progress) {
+			this.begin = begin;
+			this.end = end;
+			this.similarity = similarity;
+			this.reversedSimilarity = reversedSimilarity;
+			this.partners = partners;
+			this.similarities = similarities;
+			this.progress = progress;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.end - this.begin <= 1) {
+				for (int row = this.begin; row < this.end; row++)
+					compareRow(row, this.similarity, this.reversedSimilarity, this.partners, this.similarities,
+							this.progress);
+			} else {
+				final int middle = (this.begin + this.end) >>> 1;
+				invokeAll(new RowsTask(this.begin, middle, this.similarity, this.reversedSimilarity, this.partners,
+						this.similarities, this.progress),
+						new RowsTask(middle, this.end, this.similarity, this.reversedSimilarity, this.partners,
+								this.similarities, this.progress));
+			}
+		}
+	}
+
 	@Override
 	public void applyProperties() throws Exception {
 
@@ -329,9 +401,9 @@ public class TreeSimilarityClusteringModule extends ModuleImpl {
 		this.minDegree = Integer.parseInt(minDegreeString);*/
 		
 		String maxParallelThreadsString = this.getProperties().getProperty(
-				PROPERTYKEY_MINDEGREE,
+				PROPERTYKEY_MAXPARALLELTHREADS,
 				this.getPropertyDefaultValues()
-						.get(PROPERTYKEY_MINDEGREE));
+						.get(PROPERTYKEY_MAXPARALLELTHREADS));
 		if (maxParallelThreadsString != null)
 		this.maxParallelThreads = Integer.parseInt(maxParallelThreadsString);
 		
@@ -1,13 +1,10 @@
 package modules.format_conversion;
 
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.Properties;
-import java.util.Set;
-import java.util.TreeSet;
-
-import com.google.gson.Gson;
 
 import common.parallelization.CallbackReceiver;
+import models.CompactTree;
 import models.ExtensibleTreeNode;
 import modules.CharPipe;
 import modules.InputPort;
@@ -69,6 +66,7 @@ public class ExtensibleTreeNode2CSVModule extends ModuleImpl {
 		InputPort inputPort = new InputPort(ID_INPUT,
 				"ExtensibleTreeNode tree.", this);
 		inputPort.addSupportedPipe(CharPipe.class);
+		inputPort.addSupportedObjectPipe(ExtensibleTreeNode.class);
 		OutputPort outputPort = new OutputPort(ID_OUTPUT,
 				"GEXF graph.", this);
 		outputPort.addSupportedPipe(CharPipe.class);
@@ -84,41 +82,38 @@ public class ExtensibleTreeNode2CSVModule extends ModuleImpl {
 		
 		
 
-		// Instantiate JSON parser
-		Gson gson = new Gson();
-		
-		// Read tree from input & parse it
-		ExtensibleTreeNode rootNode = gson.fromJson(this.getInputPorts().get(ID_INPUT).getInputReader(), ExtensibleTreeNode.class);
+		// Read tree from input (parse it if necessary)
+		CompactTree tree = this.readTreeFromInputPort(this.getInputPorts().get(ID_INPUT));
 		
-		// Compile set of all nodes of the tree
-		Set<ExtensibleTreeNode> allNodes = new TreeSet<ExtensibleTreeNode>();
-		this.addNodesToSet(rootNode, allNodes);
+		// Order all nodes of the tree by value (and position)
+		Integer[] allNodes = new Integer[tree.size()];
+		for (int node=0; node<allNodes.length; node++)
+			allNodes[node] = node;
+		Arrays.sort(allNodes, (a, b) -> {
+			int byValue = String.valueOf(tree.getNodeValue(a)).compareTo(String.valueOf(tree.getNodeValue(b)));
+			return byValue != 0 ? byValue : Integer.compare(a, b);
+		});
 		
 		// Start CSV header
 		this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(this.csvdelimiter);
 		
-		// Iterate over node set a first time to construct the CSV header
-		Iterator<ExtensibleTreeNode> nodes = allNodes.iterator();
-		while (nodes.hasNext()){
-			this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(nodes.next().getNodeValue()+this.csvdelimiter);
+		// Iterate over nodes a first time to construct the CSV header
+		for (int node : allNodes){
+			this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(tree.getNodeValue(node)+this.csvdelimiter);
 		}
 		this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes("\n");
 		
-		// Iterate over node set a second time to write out the CSV data lines
-		nodes = allNodes.iterator();
-		while (nodes.hasNext()) {
-			ExtensibleTreeNode lineNode = nodes.next();
-			this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(lineNode.getNodeValue() + this.csvdelimiter);
+		// Iterate over nodes a second time to write out the CSV data lines
+		for (int lineNode : allNodes) {
+			this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(tree.getNodeValue(lineNode) + this.csvdelimiter);
 			
 			// Iterate over the nodes yet again to write the actual data fields
-			Iterator<ExtensibleTreeNode> fieldNodes = allNodes.iterator();
-			while (fieldNodes.hasNext()){
-				ExtensibleTreeNode fieldNode = fieldNodes.next();
+			for (int fieldNode : allNodes){
 				// Determine whether this field node is a child of the current line node
-				if (lineNode.getChildNodes().containsValue(fieldNode)){
+				if (tree.getParent(fieldNode) == lineNode){
 					// Output binary or calculated transition probability
 					if (this.calculateProbabilities){
-						Double probability = new Double(fieldNode.getNodeCounter())/new Double(lineNode.getNodeCounter());
+						Double probability = new Double(tree.getNodeCounter(fieldNode))/new Double(tree.getNodeCounter(lineNode));
 						this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(probability+this.csvdelimiter);
 					} else {
 						this.getOutputPorts().get(ID_OUTPUT).outputToAllCharPipes(1+this.csvdelimiter);
@@ -137,22 +132,6 @@ public class ExtensibleTreeNode2CSVModule extends ModuleImpl {
 		// Done
 		return true;
 	}
-	
-	/**
-	 * Adds the specified node and its descendants to the given set.
-	 * @param node Node to add (including descendants)
-	 * @param nodeSet Set to add to
-	 */
-	private void addNodesToSet(ExtensibleTreeNode node, Set<ExtensibleTreeNode> nodeSet){
-		
-		// Add node (duh!)
-		nodeSet.add(node);
-		
-		// Iterate over child nodes and recurse
-		Iterator<ExtensibleTreeNode> children = node.getChildNodes().values().iterator();
-		while (children.hasNext())
-			this.addNodesToSet(children.next(), nodeSet);
-	}
 
 	@Override
 	public void applyProperties() throws Exception {
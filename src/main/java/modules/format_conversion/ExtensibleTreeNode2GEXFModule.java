@@ -17,6 +17,7 @@ import java.util.Calendar;
 import java.util.Iterator;
 import java.util.Properties;
 
+import models.CompactTree;
 import models.ExtensibleTreeNode;
 import modules.CharPipe;
 import modules.InputPort;
@@ -24,7 +25,6 @@ import modules.ModuleImpl;
 import modules.OutputPort;
 import modules.Pipe;
 
-import com.google.gson.Gson;
 import common.parallelization.CallbackReceiver;
 
 import base.workbench.ModuleRunner;
@@ -87,6 +87,7 @@ public class ExtensibleTreeNode2GEXFModule extends ModuleImpl {
 		InputPort inputPort = new InputPort(ID_INPUT,
 				"ExtensibleTreeNode tree.", this);
 		inputPort.addSupportedPipe(CharPipe.class);
+		inputPort.addSupportedObjectPipe(ExtensibleTreeNode.class);
 		OutputPort outputPort = new OutputPort(ID_OUTPUT,
 				"GEXF graph.", this);
 		outputPort.addSupportedPipe(CharPipe.class);
@@ -102,11 +103,8 @@ public class ExtensibleTreeNode2GEXFModule extends ModuleImpl {
 		
 		
 
-		// Instantiate JSON parser
-		Gson gson = new Gson();
-		
-		// Read tree from input & parse it
-		ExtensibleTreeNode rootNode = gson.fromJson(this.getInputPorts().get(ID_INPUT).getInputReader(), ExtensibleTreeNode.class);
+		// Read tree from input (parse it if necessary)
+		CompactTree tree = this.readTreeFromInputPort(this.getInputPorts().get(ID_INPUT));
 
 		// Instantiate GEXF writer
 		Gexf gexf = new GexfImpl();
@@ -125,7 +123,7 @@ public class ExtensibleTreeNode2GEXFModule extends ModuleImpl {
 		AttributeImpl counterAttrib = new AttributeImpl("0", AttributeType.STRING, "nodeCounter");
 		attrList.add(0, counterAttrib);
 		
-		Iterator<String> nodeAttributeKeys = rootNode.getAttributes().keySet().iterator();
+		Iterator<String> nodeAttributeKeys = tree.getAttributes(0).keySet().iterator();
 		int counter = 1;
 		while(nodeAttributeKeys.hasNext()){
 			String nodeAttribute = nodeAttributeKeys.next();
@@ -135,7 +133,7 @@ public class ExtensibleTreeNode2GEXFModule extends ModuleImpl {
 		
 		// Iterate through tree
 		edgeId = 0;
-		this.convertToGEXF(rootNode, graph, null, attrList, "^");
+		this.convertToGEXF(tree, graph, attrList);
 		
 		StaxGraphWriter graphWriter = new StaxGraphWriter();
 		
@@ -157,33 +155,34 @@ public class ExtensibleTreeNode2GEXFModule extends ModuleImpl {
 	}
 	
 	/**
-	 * Recursively converts an ExtensibleTreeNode and its children into GEXF, adding them to the specified GEXF graph.
-	 * @param node ExtensibleTreeNode node
+	 * Converts a tree into GEXF, adding its nodes to the specified GEXF graph.
+	 * Nodes are visited in preorder, so that every parent has been added
+	 * before its children.
+	 * @param tree Tree
 	 * @param graph GEXF graph
-	 * @param gexfParentNode GEXF parent node
 	 * @param attrList List of attributes to include
 	 */
-	private void convertToGEXF(ExtensibleTreeNode node, Graph graph, Node gexfParentNode, AttributeList attrList, String childLabel){
-		
-		Node gexfNode = graph.createNode();
-		gexfNode.setLabel(childLabel);
-		gexfNode.setSize(1);
-		
-		if (gexfParentNode != null){
-			gexfParentNode.connectTo(""+edgeId, "child", EdgeType.DIRECTED, gexfNode);
-			edgeId++;
-		}
+	private void convertToGEXF(CompactTree tree, Graph graph, AttributeList attrList){
 		
-		gexfNode.getAttributeValues().addValue(attrList.get(0),""+node.getNodeCounter());
-		for (int i=1; i<attrList.size(); i++){
-			if (node.getAttributes().get(attrList.get(i)) != null)
-				gexfNode.getAttributeValues().addValue(attrList.get(i),node.getAttributes().get(attrList.get(i)).toString());
-		}
-		
-		Iterator<String> childLabels = node.getChildNodes().keySet().iterator();
-		while (childLabels.hasNext()){
-			String label = childLabels.next();
-			this.convertToGEXF(node.getChildNodes().get(label), graph, gexfNode, attrList, label);
+		Node[] gexfNodes = new Node[tree.size()];
+		for (int node=0; node<tree.size(); node++){
+			
+			Node gexfNode = graph.createNode();
+			gexfNode.setLabel(node == 0 ? "^" : tree.getKey(node));
+			gexfNode.setSize(1);
+			gexfNodes[node] = gexfNode;
+			
+			if (node > 0){
+				gexfNodes[tree.getParent(node)].connectTo(""+edgeId, "child", EdgeType.DIRECTED, gexfNode);
+				edgeId++;
+			}
+			
+			gexfNode.getAttributeValues().addValue(attrList.get(0),""+tree.getNodeCounter(node));
+			for (int i=1; i<attrList.size(); i++){
+				Object value = tree.getAttributes(node).get(attrList.get(i).getTitle());
+				if (value != null)
+					gexfNode.getAttributeValues().addValue(attrList.get(i),value.toString());
+			}
 		}
 		
 	}
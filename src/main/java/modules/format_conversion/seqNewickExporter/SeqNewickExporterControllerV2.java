@@ -4,7 +4,7 @@ import java.util.Properties;
 import java.util.Map.Entry;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.io.PipedReader;
+import java.io.Reader;
 
 import modules.CharPipe;
 import modules.InputPort;
@@ -79,7 +79,7 @@ public class SeqNewickExporterControllerV2 extends ModuleImpl {
 	
 	//setters:
 		
-	public void setGson(PipedReader reader) {
+	public void setGson(Reader reader) {
 		
 		gson = new Gson();
 		mainNode = gson.fromJson(reader, SeqNewickNodeV2.class);
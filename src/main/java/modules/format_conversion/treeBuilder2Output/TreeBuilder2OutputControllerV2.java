@@ -1,6 +1,6 @@
 package modules.format_conversion.treeBuilder2Output;
 
-import java.io.PipedReader;
+import java.io.Reader;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Properties;
@@ -83,7 +83,7 @@ public class TreeBuilder2OutputControllerV2 extends ModuleImpl {
 	
 	//setters:
 	
-	public void setGson(PipedReader reader) {
+	public void setGson(Reader reader) {
 		gson = new Gson();
 		mainNode = gson.fromJson(reader, SeqNewickNodeV2.class);
 	}
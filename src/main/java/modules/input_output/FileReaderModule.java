@@ -1,11 +1,17 @@
 package modules.input_output;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
 import java.text.Normalizer;
 import java.text.Normalizer.Form;
 import java.util.Properties;
@@ -25,14 +31,17 @@ public class FileReaderModule extends ModuleImpl {
 	public static final String PROPERTYKEY_ENCODING = "Encoding";
 	public static final String PROPERTYKEY_BUFFERLENGTH = "Buffer length";
 	public static final String PROPERTYKEY_NORMALIZE = "Normalize Unicode";
+	public static final String PROPERTYKEY_GZIPTHREADS = "GZIP threads";
 
 	// Local variables
+	private static final int MIN_BUFFERLENGTH = 16;
 	private final String OUTPUTID = "output";
 	private File file;
 	private boolean useGzip = false;
 	private String encoding;
 	private int bufferLength = 8192;
 	private boolean normalizeUtf = true;
+	private int gzipThreads = 1;
 
 	public FileReaderModule(CallbackReceiver callbackReceiver,
 			Properties properties) throws Exception {
@@ -47,6 +56,8 @@ public class FileReaderModule extends ModuleImpl {
 		OutputPort outputPort = new OutputPort(OUTPUTID, "Byte or character output.", this);
 		outputPort.addSupportedPipe(CharPipe.class);
 		outputPort.addSupportedPipe(BytePipe.class);
+		// Char output is written through outputToAllCharPipes() only, so all receivers can share one buffer
+		outputPort.setBroadcast(true);
 		super.addOutputPort(outputPort);
 
 		// Add description for properties
@@ -61,6 +72,8 @@ public class FileReaderModule extends ModuleImpl {
 				"Length of the I/O buffer");
 		this.getPropertyDescriptions().put(PROPERTYKEY_NORMALIZE,
 				"Normalize Unicode input text to composed form (see http://unicode.org/reports/tr15/). Only valid for char pipe output. [true|false]");
+		this.getPropertyDescriptions().put(PROPERTYKEY_GZIPTHREADS,
+				"Amount of threads inflating a GZIP file whose members state their size, as those written by bgzip do; other files are inflated by one thread");
 
 		// Add default values
 		this.getPropertyDefaultValues().put(ModuleImpl.PROPERTYKEY_NAME,
@@ -71,6 +84,7 @@ public class FileReaderModule extends ModuleImpl {
 		this.getPropertyDefaultValues().put(PROPERTYKEY_ENCODING, "UTF-8");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_BUFFERLENGTH, "8192");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_NORMALIZE, "true");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_GZIPTHREADS, "1");
 
 		// Add module description
 		this.setDescription("Reads contents from a file. Can handle GZIP compression.");
@@ -82,110 +96,167 @@ public class FileReaderModule extends ModuleImpl {
 	@Override
 	public boolean process() throws Exception {
 
+		OutputPort outputPort = this.getOutputPorts().get(OUTPUTID);
+		boolean toBytes = outputPort.hasPipes(BytePipe.class);
+		boolean toChars = outputPort.hasPipes(CharPipe.class) && this.encoding != null && !this.encoding.isEmpty();
+		if (!toBytes && !toChars)
+			throw new Exception("Sorry, but I could not write to any output (please connect a module to my output, else I am of little use).");
+
 		/*
-		 * write to both output channels (stream/writer)
+		 * Read the file once: each chunk read is written to the byte pipes
+		 * and decoded for the char pipes.
 		 */
-		boolean wroteToStream = false;
+		ReadableByteChannel channel = this.openChannel();
 		try {
-			// Instantiate a new input stream
-			InputStream fileInputStream = new FileInputStream(this.file);
-
-			// Use GZIP if requested
-			if (this.useGzip)
-				fileInputStream = new GZIPInputStream(fileInputStream);
-
-			// Define input buffer
-			byte[] buffer = new byte[this.bufferLength];
+			// Room for more than an incomplete character or the chars held back
+			byte[] buffer = new byte[Math.max(MIN_BUFFERLENGTH, this.bufferLength)];
+			ByteBuffer bytes = ByteBuffer.wrap(buffer);
+			CharsetDecoder decoder = null;
+			CharBuffer chars = null;
+			if (toChars) {
+				// Replace malformed input as InputStreamReader does
+				decoder = Charset.forName(this.encoding).newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+						.onUnmappableCharacter(CodingErrorAction.REPLACE);
+				chars = CharBuffer.allocate(buffer.length);
+			}
 
-			// Read file data into buffer and write to outputstream
-			int readBytes = fileInputStream.read(buffer);
-			while (readBytes != -1) {
+			boolean endOfInput = false;
+			while (!endOfInput) {
 
 				// Auf Unterbrechersignal pruefen
 				if (Thread.interrupted()) {
-					fileInputStream.close();
 					this.closeAllOutputs();
-					throw new InterruptedException(
-							"Thread has been interrupted.");
+					throw new InterruptedException("Thread has been interrupted.");
 				}
 
-				this.getOutputPorts().get(OUTPUTID).outputToAllBytePipes(buffer, 0, readBytes);
-				readBytes = fileInputStream.read(buffer);
+				int position = bytes.position();
+				int readBytes = channel.read(bytes);
+				endOfInput = readBytes < 0;
+				if (toBytes && readBytes > 0)
+					outputPort.outputToAllBytePipes(buffer, position, readBytes);
+
+				if (toChars) {
+					bytes.flip();
+					this.decode(decoder, bytes, chars, endOfInput);
+					// Keep bytes of a character not yet complete
+					bytes.compact();
+				} else
+					bytes.clear();
 			}
 
-			// close relevant I/O instances
-			fileInputStream.close();
-			wroteToStream = true;
-		} catch (IOException e) {
-			/*
-			 * The inputstream does not seem to be connected or another
-			 * I/O-error occurred
-			 */
+			if (toChars) {
+				while (decoder.flush(chars).isOverflow())
+					this.outputChars(chars, true, false);
+				this.outputChars(chars, false, true);
+			}
+		} finally {
+			channel.close();
 		}
 
-		boolean wroteToChars = false;
-		try {
-			// Instantiate a new input stream
-			InputStream fileInputStream = new FileInputStream(this.file);
-
-			// Use GZIP if requested
-			if (this.useGzip)
-				fileInputStream = new GZIPInputStream(fileInputStream);
-
-			// Instantiate input reader if an encoding has been set
-			Reader fileReader = null;
-			if (this.encoding != null && !this.encoding.isEmpty()) {
-				fileReader = new InputStreamReader(fileInputStream, encoding);
-
-				// Define input buffer
-				char[] buffer = new char[this.bufferLength];
-
-				// Read file data into buffer and output to writer
-				int readChars = fileReader.read(buffer);
-				while (readChars != -1) {
-
-					// Auf Unterbrechersignal pruefen
-					if (Thread.interrupted()) {
-						fileReader.close();
-						fileInputStream.close();
-						this.closeAllOutputs();
-						throw new InterruptedException(
-								"Thread has been interrupted.");
-					}
-					
-					// Check if we need to normalize the input's UTF encoding
-					if (this.normalizeUtf){
-						String normalized = Normalizer.normalize(String.valueOf(buffer, 0, readChars), Form.NFC);
-						// Output normalized string
-						this.getOutputPorts().get(OUTPUTID).outputToAllCharPipes(normalized);
-					} else
-						// Output the char buffer unchanged
-						this.getOutputPorts().get(OUTPUTID).outputToAllCharPipes(buffer, 0, readChars);
-					
-					// Read next batch of characters
-					readChars = fileReader.read(buffer);
-				}
+		outputPort.close();
 
-				// close relevant I/O instances
-				fileReader.close();
-			}
+		// Success
+		return true;
+	}
+
+	private ReadableByteChannel openChannel() throws IOException {
+		FileChannel fileChannel = FileChannel.open(this.file.toPath(), StandardOpenOption.READ);
+		if (!this.useGzip)
+			return fileChannel;
+		return Channels.newChannel(this.openGzipStream(fileChannel));
+	}
 
-			// close relevant I/O instances
-			fileInputStream.close();
-		} catch (IOException e) {
-			/*
-			 * The inputstream does not seem to be connected or another
-			 * I/O-error occurred
-			 */
+	/**
+	 * Opens the stream inflating the file, which is inflated in parallel if
+	 * more than one GZIP thread is set.
+	 * 
+	 * @param fileChannel
+	 *            Channel of the GZIP file
+	 * @return Stream of the inflated bytes
+	 * @throws IOException
+	 *             If the file cannot be read
+	 */
+	protected InputStream openGzipStream(FileChannel fileChannel) throws IOException {
+		// Members of files written by bgzip can be inflated in parallel
+		if (this.gzipThreads > 1)
+			return new ParallelGzipInputStream(fileChannel, this.gzipThreads);
+		return new GZIPInputStream(Channels.newInputStream(fileChannel), this.bufferLength);
+	}
+
+	/*
+	 * Decodes all bytes given, outputting the chars whenever the buffer is
+	 * full.
+	 */
+	private void decode(CharsetDecoder decoder, ByteBuffer bytes, CharBuffer chars, boolean endOfInput)
+			throws IOException {
+		while (decoder.decode(bytes, chars, endOfInput).isOverflow())
+			this.outputChars(chars, true, false);
+		this.outputChars(chars, false, false);
+	}
+
+	/*
+	 * Outputs the chars decoded, normalized if requested, and leaves those
+	 * that might still compose with chars to come at the start of the buffer,
+	 * unless the buffer is full of them or no chars follow.
+	 */
+	private void outputChars(CharBuffer chars, boolean full, boolean last) throws IOException {
+		chars.flip();
+		int length = chars.limit();
+		int boundary = length;
+		if (this.normalizeUtf && !last) {
+			boundary = lastStarter(chars.array(), length);
+			// A sequence filling the whole buffer cannot be held back
+			if (boundary == 0 && full)
+				boundary = length;
 		}
-		
-		this.getOutputPorts().get(OUTPUTID).close();
+		if (boundary > 0) {
+			OutputPort outputPort = this.getOutputPorts().get(OUTPUTID);
+			CharSequence output = chars.subSequence(0, boundary);
+			if (this.normalizeUtf && !Normalizer.isNormalized(output, Form.NFC))
+				outputPort.outputToAllCharPipes(Normalizer.normalize(output, Form.NFC));
+			else
+				outputPort.outputToAllCharPipes(chars.array(), 0, boundary);
+		}
+		chars.position(boundary);
+		chars.compact();
+	}
 
-		if (!wroteToStream && !wroteToChars)
-			throw new Exception("Sorry, but I could not write to any output (please connect a module to my output, else I am of little use).");
+	/**
+	 * Finds the start of the last character that composes with neither the
+	 * characters before it nor any before its end. Normalizing the text up to
+	 * there gives the same as normalizing it with the text that follows.
+	 *
+	 * @param chars
+	 *            Text
+	 * @param length
+	 *            Length of the text
+	 * @return The index of the character, 0 if there is none
+	 */
+	private static int lastStarter(char[] chars, int length) {
+		for (int i = length - 1; i > 0; i--) {
+			int codePoint = chars[i];
+			if (Character.isLowSurrogate(chars[i]) && Character.isHighSurrogate(chars[i - 1]))
+				codePoint = Character.toCodePoint(chars[--i], chars[i + 1]);
+			if (i > 0 && isStarter(codePoint))
+				return i;
+		}
+		return 0;
+	}
 
-		// Success
-		return true;
+	private static boolean isStarter(int codePoint) {
+		// Hangul vowels and trailing consonants compose with the syllable before
+		if (codePoint >= 0x1160 && codePoint <= 0x11FF)
+			return false;
+		if (codePoint <= Character.MAX_VALUE && Character.isSurrogate((char) codePoint))
+			return false;
+		switch (Character.getType(codePoint)) {
+		case Character.NON_SPACING_MARK:
+		case Character.COMBINING_SPACING_MARK:
+		case Character.ENCLOSING_MARK:
+			return false;
+		default:
+			return true;
+		}
 	}
 
 	@Override
@@ -204,6 +275,13 @@ public class FileReaderModule extends ModuleImpl {
 		if (this.getProperties().containsKey(PROPERTYKEY_BUFFERLENGTH))
 			this.bufferLength = Integer.parseInt(this.getProperties()
 					.getProperty(PROPERTYKEY_BUFFERLENGTH));
+		if (this.getProperties().containsKey(PROPERTYKEY_GZIPTHREADS)) {
+			int gzipThreads = Integer.parseInt(this.getProperties()
+					.getProperty(PROPERTYKEY_GZIPTHREADS));
+			if (gzipThreads < 1)
+				throw new IllegalArgumentException("The amount of GZIP threads must be at least 1: " + gzipThreads);
+			this.gzipThreads = gzipThreads;
+		}
 		if (this.getProperties().containsKey(PROPERTYKEY_NORMALIZE))
 			this.normalizeUtf = Boolean.parseBoolean(this.getProperties()
 					.getProperty(PROPERTYKEY_NORMALIZE));
@@ -0,0 +1,228 @@
+package modules.input_output;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Inflates a GZIP file consisting of several members with several threads.
+ * Members can only be found without inflating the ones before if they state
+ * their compressed size, as members written by bgzip (BGZF) do in their extra
+ * field. From the first member that does not on, the file is inflated
+ * sequentially, so that any GZIP file can be read.
+ *
+ * Members are inflated a few ahead of the reader, in the order of the file.
+ */
+public class ParallelGzipInputStream extends InputStream {
+
+	private static final int MAGIC = 0x8b1f;
+	private static final int METHOD_DEFLATE = 8;
+	private static final int FLAG_HEADERCRC = 2;
+	private static final int FLAG_EXTRA = 4;
+	private static final int FLAG_NAME = 8;
+	private static final int FLAG_COMMENT = 16;
+	private static final int HEADER_LENGTH = 10;
+	private static final int TRAILER_LENGTH = 8;
+
+	private final FileChannel channel;
+	private final ExecutorService executor;
+	private final int membersAhead;
+	private final Deque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+	private final byte[] single = new byte[1];
+
+	// position of the next member to schedule
+	private long position;
+	private boolean exhausted;
+	// the rest of the file, once a member does not state its size
+	private InputStream sequential;
+
+	private byte[] current = new byte[0];
+	private int offset;
+	private int limit;
+
+	/**
+	 * @param channel
+	 *            Channel of the GZIP file, read from its current position and
+	 *            closed with the stream
+	 * @param threads
+	 *            Amount of threads inflating members
+	 * @throws IOException
+	 *             If the channel cannot be read
+	 */
+	public ParallelGzipInputStream(FileChannel channel, int threads) throws IOException {
+		this.channel = channel;
+		this.position = channel.position();
+		this.executor = Executors.newFixedThreadPool(Math.max(1, threads));
+		this.membersAhead = 4 * Math.max(1, threads);
+	}
+
+	@Override
+	public int read() throws IOException {
+		return this.read(this.single, 0, 1) < 0 ? -1 : this.single[0] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		if (length == 0)
+			return 0;
+		while (this.offset == this.limit) {
+			if (!this.next())
+				return -1;
+		}
+		final int amount = Math.min(length, this.limit - this.offset);
+		System.arraycopy(this.current, this.offset, buffer, offset, amount);
+		this.offset += amount;
+		return amount;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.executor.shutdownNow();
+		if (this.sequential != null)
+			this.sequential.close();
+		this.channel.close();
+	}
+
+	/*
+	 * Makes the next inflated data current, returns false at the end.
+	 */
+	private boolean next() throws IOException {
+		this.schedule();
+		if (!this.pending.isEmpty()) {
+			try {
+				this.current = this.pending.poll().get();
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException("Interrupted while inflating.");
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException)
+					throw (IOException) e.getCause();
+				throw new IOException(e.getCause());
+			}
+			this.offset = 0;
+			this.limit = this.current.length;
+			return true;
+		}
+		if (this.sequential == null)
+			return false;
+		if (this.current.length == 0)
+			this.current = new byte[1 << 16];
+		final int read = this.sequential.read(this.current);
+		if (read < 0)
+			return false;
+		this.offset = 0;
+		this.limit = read;
+		return true;
+	}
+
+	private void schedule() throws IOException {
+		while (!this.exhausted && this.sequential == null && this.pending.size() < this.membersAhead) {
+			final int size = this.memberSize();
+			if (size == 0) {
+				this.exhausted = true;
+			} else if (size < 0) {
+				// inflated sequentially once the members scheduled are read
+				this.channel.position(this.position);
+				this.sequential = new GZIPInputStream(Channels.newInputStream(this.channel), 1 << 16);
+			} else {
+				final byte[] member = new byte[size];
+				this.readFully(ByteBuffer.wrap(member), this.position);
+				this.position += size;
+				this.pending.add(this.executor.submit(() -> inflate(member)));
+			}
+		}
+	}
+
+	/*
+	 * The size of the member at the current position as stated in its BSIZE
+	 * subfield, 0 at the end of the file, -1 if it states none.
+	 */
+	private int memberSize() throws IOException {
+		final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH + 2).order(ByteOrder.LITTLE_ENDIAN);
+		if (this.readFully(header, this.position) == 0)
+			return 0;
+		if (header.position() < header.capacity() || (header.getShort(0) & 0xffff) != MAGIC
+				|| header.get(2) != METHOD_DEFLATE || (header.get(3) & FLAG_EXTRA) == 0)
+			return -1;
+		final int extraLength = header.getShort(HEADER_LENGTH) & 0xffff;
+		final ByteBuffer extra = ByteBuffer.allocate(extraLength).order(ByteOrder.LITTLE_ENDIAN);
+		this.readFully(extra, this.position + header.capacity());
+		for (int i = 0; i + 4 <= extra.position();) {
+			final int length = extra.getShort(i + 2) & 0xffff;
+			if (extra.get(i) == 'B' && extra.get(i + 1) == 'C' && length == 2 && i + 6 <= extra.position())
+				return (extra.getShort(i + 4) & 0xffff) + 1;
+			i += 4 + length;
+		}
+		return -1;
+	}
+
+	private int readFully(ByteBuffer buffer, long position) throws IOException {
+		int total = 0;
+		while (buffer.hasRemaining()) {
+			final int read = this.channel.read(buffer, position + total);
+			if (read < 0)
+				break;
+			total += read;
+		}
+		return total;
+	}
+
+	private static byte[] inflate(byte[] member) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.wrap(member).order(ByteOrder.LITTLE_ENDIAN);
+		final int flags = member[3];
+		int start = HEADER_LENGTH;
+		if ((flags & FLAG_EXTRA) != 0)
+			start += 2 + (buffer.getShort(start) & 0xffff);
+		if ((flags & FLAG_NAME) != 0)
+			while (member[start++] != 0)
+				;
+		if ((flags & FLAG_COMMENT) != 0)
+			while (member[start++] != 0)
+				;
+		if ((flags & FLAG_HEADERCRC) != 0)
+			start += 2;
+		final int end = member.length - TRAILER_LENGTH;
+		if (start > end)
+			throw new ZipException("Truncated GZIP member");
+		final int crc = buffer.getInt(end);
+		final int size = buffer.getInt(end + 4);
+		final byte[] inflated = new byte[size];
+		if (size > 0) {
+			final Inflater inflater = new Inflater(true);
+			try {
+				inflater.setInput(member, start, end - start);
+				int length = 0;
+				while (length < size) {
+					final int read = inflater.inflate(inflated, length, size - length);
+					if (read == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()))
+						throw new ZipException("Truncated GZIP member");
+					length += read;
+				}
+			} catch (DataFormatException e) {
+				throw new ZipException(e.getMessage());
+			} finally {
+				inflater.end();
+			}
+		}
+		final CRC32 check = new CRC32();
+		check.update(inflated);
+		if ((int) check.getValue() != crc)
+			throw new ZipException("Corrupt GZIP member (CRC mismatch)");
+		return inflated;
+	}
+
+}
@@ -1,7 +1,6 @@
 package modules.lfgroups;
 
 import java.io.BufferedReader;
-import java.io.PipedReader;
 import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -97,8 +96,8 @@ public class LFGroupBuildingModule extends ModuleImpl {
 		final OutputPort out = this.getOutputPorts().get(OUTPUT_ID);
 
 		boolean result = true;
-		PipedReader successorsMatrixReader = null;
-		PipedReader pairListReader = null;
+		Reader successorsMatrixReader = null;
+		Reader pairListReader = null;
 
 		try {
 			// read the successors matrix from input
@@ -0,0 +1,157 @@
+package modules.matrix;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import models.NamedFieldMatrix;
+
+/**
+ * Computes the Hamming distances (amounts of differing values) between the
+ * rows of a {@link NamedFieldMatrix}.
+ *
+ * Presence matrices, i.e. those with a single non-zero value, are packed
+ * into one bitset per row, such that the distance between two rows is the
+ * amount of bits set in their exclusive or, 64 columns at a time. Other
+ * matrices are compared value by value.
+ *
+ * Distances are computed for blocks of rows, in parallel per row, so that
+ * callers can output them without holding the whole distance matrix.
+ */
+public class HammingDistances {
+
+	// rows of a block computed by a single task
+	private static final int ROWS_PER_TASK = 4;
+
+	private final NamedFieldMatrix matrix;
+	private final int rows;
+
+	// the packed rows one after another, null if not packed
+	private final long[] bits;
+	private final int words;
+
+	/**
+	 * @param matrix
+	 *            The matrix to compare the rows of
+	 */
+	public HammingDistances(NamedFieldMatrix matrix) {
+		this.matrix = matrix;
+		this.rows = matrix.getRowAmount();
+		this.words = (matrix.getColumnsAmount() + 63) >>> 6;
+
+		final int[] cols = new int[matrix.getColumnsAmount()];
+		final double[] values = new double[matrix.getColumnsAmount()];
+		this.bits = isPresenceMatrix(matrix, cols, values) ? this.pack(cols, values) : null;
+	}
+
+	/*
+	 * Checks whether all of the matrix' non-zero values are equal.
+	 */
+	private static boolean isPresenceMatrix(NamedFieldMatrix matrix, int[] cols, double[] values) {
+		boolean found = false;
+		double presence = 0;
+		for (int row = 0; row < matrix.getRowAmount(); row++) {
+			final int amount = matrix.getNonZeroValues(row, cols, values);
+			for (int i = 0; i < amount; i++) {
+				if (!found) {
+					presence = values[i];
+					found = true;
+				} else if (Double.compare(presence, values[i]) != 0) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private long[] pack(int[] cols, double[] values) {
+		final long[] bits = new long[this.rows * this.words];
+		for (int row = 0; row < this.rows; row++) {
+			final int offset = row * this.words;
+			final int amount = this.matrix.getNonZeroValues(row, cols, values);
+			for (int i = 0; i < amount; i++)
+				bits[offset + (cols[i] >>> 6)] |= 1L << cols[i];
+		}
+		return bits;
+	}
+
+	/**
+	 * @return Whether the rows are compared as bitsets.
+	 */
+	public boolean isPacked() {
+		return this.bits != null;
+	}
+
+	/**
+	 * Computes the distances of one row to all rows.
+	 *
+	 * @param row
+	 *            The row's index
+	 * @param distances
+	 *            Receives the distance to each row, as long as the amount of
+	 *            rows
+	 */
+	public void computeRow(int row, int[] distances) {
+		if (this.bits == null) {
+			for (int other = 0; other < this.rows; other++)
+				distances[other] = other == row ? 0 : this.matrix.getHammingDistanceForRows(row, other);
+			return;
+		}
+		final long[] bits = this.bits;
+		final int words = this.words;
+		final int offset = row * words;
+		for (int other = 0, otherOffset = 0; other < this.rows; other++, otherOffset += words) {
+			int distance = 0;
+			for (int w = 0; w < words; w++)
+				distance += Long.bitCount(bits[offset + w] ^ bits[otherOffset + w]);
+			distances[other] = distance;
+		}
+	}
+
+	/**
+	 * Computes the distances of a block of rows to all rows in parallel.
+	 *
+	 * @param begin
+	 *            The first row of the block
+	 * @param end
+	 *            The row after the block
+	 * @param distances
+	 *            Receives the distances of each row of the block, from the
+	 *            first row on, each as long as the amount of rows
+	 * @param pool
+	 *            The pool to compute in
+	 */
+	public void computeRows(int begin, int end, int[][] distances, ForkJoinPool pool) {
+		pool.invoke(new RowsTask(begin, begin, end, distances));
+	}
+
+	private class RowsTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int blockBegin;
+		private final int begin;
+		private final int end;
+		private final int[][] distances;
+
+		RowsTask(int blockBegin, int begin, int end, int[][] distances) {
+			this.blockBegin = blockBegin;
+			this.begin = begin;
+			this.end = end;
+			this.distances = distances;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.end - this.begin <= ROWS_PER_TASK) {
+				for (int row = this.begin; row < this.end; row++)
+					computeRow(row, this.distances[row - this.blockBegin]);
+			} else {
+				final int middle = (this.begin + this.end) >>> 1;
+				invokeAll(new RowsTask(this.blockBegin, this.begin, middle, this.distances),
+						new RowsTask(this.blockBegin, middle, this.end, this.distances));
+			}
+		}
+
+	}
+
+}
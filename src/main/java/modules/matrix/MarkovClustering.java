@@ -0,0 +1,508 @@
+package modules.matrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Markov clustering on a sparse, square matrix of non-negative values whose
+ * rows are the outgoing edges of the graph's nodes (the rows' values are
+ * normalised to sum up to 1).
+ *
+ * Each iteration inflates the rows, raising their values to the power of the
+ * inflation parameter and normalising them again, then expands the matrix by
+ * multiplying it with itself. Products are computed row by row in parallel.
+ * After each product every row is pruned: values below a threshold are
+ * dropped and at most a fixed amount of the biggest values is kept, so the
+ * matrix stays sparse. Values that inflation pushes below the threshold are
+ * dropped as well. The iterations stop as soon as the matrix' chaos falls
+ * below a limit: the biggest difference between a row's maximum and the sum
+ * of its squared values, which is zero once all non-zero values within each
+ * row are equal.
+ *
+ * The matrix is kept as one pair of arrays holding columns and values per
+ * row, the columns are unordered.
+ */
+public class MarkovClustering {
+
+	// amount of rows a thread takes at once
+	private static final int CHUNKSIZE = 64;
+
+	private final int size;
+	private final int expansion;
+	private final double inflation;
+	private final double pruneThreshold;
+	private final int maxRowEntries;
+	private final double maxChaos;
+
+	// per row: columns and values of the non-zero fields, and their amount
+	private int[][] cols;
+	private double[][] values;
+	private int[] sizes;
+
+	private double chaos = Double.NaN;
+
+	/**
+	 * @param size
+	 *            Amount of rows and columns
+	 * @param expansion
+	 *            Power the matrix is raised to in the expansion step, >= 1
+	 * @param inflation
+	 *            Exponent in the inflation step, > 0
+	 * @param pruneThreshold
+	 *            Values below this are dropped after expansion (0 to keep all)
+	 * @param maxRowEntries
+	 *            Maximum amount of values kept per row after expansion (0 to
+	 *            keep all)
+	 * @param maxChaos
+	 *            The iterations stop once the chaos is at most this value
+	 */
+	public MarkovClustering(int size, int expansion, double inflation, double pruneThreshold, int maxRowEntries,
+			double maxChaos) {
+		if (expansion < 1)
+			throw new IllegalArgumentException("The expansion must be at least 1: " + expansion);
+		if (!(inflation > 0))
+			throw new IllegalArgumentException("The inflation must be positive: " + inflation);
+		this.size = size;
+		this.expansion = expansion;
+		this.inflation = inflation;
+		this.pruneThreshold = pruneThreshold;
+		this.maxRowEntries = maxRowEntries > 0 ? maxRowEntries : Integer.MAX_VALUE;
+		this.maxChaos = maxChaos;
+		this.cols = new int[size][];
+		this.values = new double[size][];
+		this.sizes = new int[size];
+		Arrays.fill(this.cols, new int[0]);
+		Arrays.fill(this.values, new double[0]);
+	}
+
+	/**
+	 * @return Amount of rows and columns
+	 */
+	public int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Sets the row's values, the columns have to be distinct.
+	 *
+	 * @param row
+	 *            Index of the row
+	 * @param cols
+	 *            Columns of the values
+	 * @param values
+	 *            The values
+	 * @param amount
+	 *            Amount of values to take from the arrays
+	 */
+	public void setRow(int row, int[] cols, double[] values, int amount) {
+		this.cols[row] = Arrays.copyOf(cols, amount);
+		this.values[row] = Arrays.copyOf(values, amount);
+		this.sizes[row] = amount;
+	}
+
+	/**
+	 * Copies the row's non-zero values in ascending order of their columns.
+	 *
+	 * @param row
+	 *            Index of the row
+	 * @param cols
+	 *            Receives the columns, as long as the amount of columns
+	 * @param values
+	 *            Receives the values, as long as the amount of columns
+	 * @return The amount of values copied
+	 */
+	public int getRow(int row, int[] cols, double[] values) {
+		final int amount = this.sizes[row];
+		final long[] order = new long[amount];
+		for (int i = 0; i < amount; i++)
+			order[i] = ((long) this.cols[row][i] << 32) | i;
+		Arrays.sort(order);
+		int result = 0;
+		for (int i = 0; i < amount; i++) {
+			final int index = (int) order[i];
+			if (this.values[row][index] != 0) {
+				cols[result] = this.cols[row][index];
+				values[result++] = this.values[row][index];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return The chaos after the last inflation, NaN if none happened yet
+	 */
+	public double getChaos() {
+		return this.chaos;
+	}
+
+	/**
+	 * Runs the clustering until the chaos is small enough.
+	 *
+	 * @param maxIterations
+	 *            Maximum amount of iterations
+	 * @param threads
+	 *            Amount of threads to compute with
+	 * @return The amount of iterations run
+	 * @throws InterruptedException
+	 *             If interrupted while waiting for the threads
+	 * @throws ExecutionException
+	 *             If computing a row fails
+	 */
+	public int run(int maxIterations, int threads) throws InterruptedException, ExecutionException {
+		final Workspace[] workspaces = new Workspace[Math.max(1, threads)];
+		for (int i = 0; i < workspaces.length; i++)
+			workspaces[i] = new Workspace(this.size);
+		final ExecutorService executor = workspaces.length > 1 ? Executors.newFixedThreadPool(workspaces.length) : null;
+
+		try {
+			for (int iteration = 0; iteration < maxIterations; iteration++) {
+				this.forAllRows(new Inflation(), workspaces, executor);
+				this.chaos = 0;
+				for (Workspace workspace : workspaces) {
+					this.chaos = Math.max(this.chaos, workspace.chaos);
+					workspace.chaos = 0;
+				}
+				// rows of equal values do not mean convergence before the
+				// first expansion
+				if (iteration > 0 && this.chaos <= this.maxChaos)
+					return iteration + 1;
+
+				final int[][] factorCols = this.cols;
+				final double[][] factorValues = this.values;
+				final int[] factorSizes = this.sizes;
+				for (int i = 1; i < this.expansion; i++)
+					this.forAllRows(new Expansion(factorCols, factorValues, factorSizes), workspaces, executor);
+			}
+			return maxIterations;
+		} finally {
+			if (executor != null)
+				executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Determines the clusters as the connected components of the graph given
+	 * by the matrix' non-zero values. After convergence each of them consists
+	 * of an attractor and the nodes flowing to it, for matrices that did not
+	 * converge they may be bigger.
+	 *
+	 * @return The clusters' row indexes, in ascending order within each
+	 *         cluster and by their first index
+	 */
+	public int[][] getClusters() {
+		final int[] parents = new int[this.size];
+		for (int i = 0; i < this.size; i++)
+			parents[i] = i;
+		for (int row = 0; row < this.size; row++) {
+			for (int i = 0; i < this.sizes[row]; i++) {
+				if (this.values[row][i] == 0)
+					continue;
+				final int root1 = find(parents, row);
+				final int root2 = find(parents, this.cols[row][i]);
+				// the smaller index becomes the root
+				if (root1 < root2)
+					parents[root2] = root1;
+				else
+					parents[root1] = root2;
+			}
+		}
+
+		// count the members of each cluster
+		final int[] clusterNrs = new int[this.size];
+		final List<int[]> clusters = new ArrayList<int[]>();
+		final List<Integer> clusterSizes = new ArrayList<Integer>();
+		for (int i = 0; i < this.size; i++) {
+			final int root = find(parents, i);
+			if (root == i) {
+				clusterNrs[i] = clusterSizes.size();
+				clusterSizes.add(0);
+			}
+			clusterSizes.set(clusterNrs[root], clusterSizes.get(clusterNrs[root]) + 1);
+		}
+		for (int size : clusterSizes)
+			clusters.add(new int[size]);
+		final int[] fill = new int[clusters.size()];
+		for (int i = 0; i < this.size; i++) {
+			final int clusterNr = clusterNrs[find(parents, i)];
+			clusters.get(clusterNr)[fill[clusterNr]++] = i;
+		}
+		return clusters.toArray(new int[clusters.size()][]);
+	}
+
+	private static int find(int[] parents, int i) {
+		while (parents[i] != i) {
+			parents[i] = parents[parents[i]];
+			i = parents[i];
+		}
+		return i;
+	}
+
+	/*
+	 * Lets the available threads process chunks of rows until all rows are
+	 * done, each thread using its own workspace.
+	 */
+	private void forAllRows(final RowOperation operation, Workspace[] workspaces, ExecutorService executor)
+			throws InterruptedException, ExecutionException {
+		final AtomicInteger nextRow = new AtomicInteger();
+		if (executor == null) {
+			for (int row = 0; row < this.size; row++)
+				operation.process(row, workspaces[0]);
+		} else {
+			final List<Future<Void>> futures = new ArrayList<Future<Void>>(workspaces.length);
+			for (final Workspace workspace : workspaces) {
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() {
+						int begin;
+						while ((begin = nextRow.getAndAdd(CHUNKSIZE)) < size) {
+							final int end = Math.min(begin + CHUNKSIZE, size);
+							for (int row = begin; row < end; row++)
+								operation.process(row, workspace);
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures)
+				future.get();
+		}
+		operation.finish();
+	}
+
+	private interface RowOperation {
+		void process(int row, Workspace workspace);
+
+		void finish();
+	}
+
+	/*
+	 * Raises the row's values to the power of the inflation parameter and
+	 * normalises them, drops the values that became negligible and notes the
+	 * row's chaos in the workspace.
+	 */
+	private class Inflation implements RowOperation {
+
+		@Override
+		public void process(int row, Workspace workspace) {
+			final int[] rowCols = cols[row];
+			final double[] rowValues = values[row];
+			final int rowSize = sizes[row];
+			double sum = 0;
+			double max = 0;
+			for (int i = 0; i < rowSize; i++) {
+				final double value = inflation == 2d ? rowValues[i] * rowValues[i] : Math.pow(rowValues[i], inflation);
+				rowValues[i] = value;
+				sum += value;
+				max = Math.max(max, value);
+			}
+			if (sum == 0)
+				return;
+
+			// prune, but keep the biggest values
+			int kept = 0;
+			double keptSum = 0;
+			for (int i = 0; i < rowSize; i++) {
+				if (rowValues[i] / sum >= pruneThreshold || rowValues[i] == max) {
+					rowCols[kept] = rowCols[i];
+					rowValues[kept++] = rowValues[i];
+					keptSum += rowValues[i];
+				}
+			}
+			sizes[row] = kept;
+
+			double sumOfSquares = 0;
+			for (int i = 0; i < kept; i++) {
+				rowValues[i] /= keptSum;
+				sumOfSquares += rowValues[i] * rowValues[i];
+			}
+			// zero iff all non-zero values of the row are equal
+			workspace.chaos = Math.max(workspace.chaos, max / keptSum - sumOfSquares);
+		}
+
+		@Override
+		public void finish() {
+		}
+
+	}
+
+	/*
+	 * Multiplies each row with the factor and prunes the result.
+	 */
+	private class Expansion implements RowOperation {
+
+		private final int[][] factorCols;
+		private final double[][] factorValues;
+		private final int[] factorSizes;
+
+		private final int[][] resultCols = new int[size][];
+		private final double[][] resultValues = new double[size][];
+		private final int[] resultSizes = new int[size];
+
+		Expansion(int[][] factorCols, double[][] factorValues, int[] factorSizes) {
+			this.factorCols = factorCols;
+			this.factorValues = factorValues;
+			this.factorSizes = factorSizes;
+		}
+
+		@Override
+		public void process(int row, Workspace workspace) {
+			final double[] sums = workspace.sums;
+			final int[] touched = workspace.touched;
+			int touchedAmount = 0;
+
+			// add up the rows of the factor weighted by this row's values
+			double total = 0;
+			for (int i = 0; i < sizes[row]; i++) {
+				final int k = cols[row][i];
+				final double value = values[row][i];
+				if (value == 0)
+					continue;
+				total += value;
+				final int[] kCols = this.factorCols[k];
+				final double[] kValues = this.factorValues[k];
+				for (int j = 0; j < this.factorSizes[k]; j++) {
+					final double product = value * kValues[j];
+					if (product == 0)
+						continue;
+					final int col = kCols[j];
+					if (sums[col] == 0)
+						touched[touchedAmount++] = col;
+					sums[col] += product;
+				}
+			}
+
+			// prune values below the threshold, but keep the biggest one
+			int kept = 0;
+			double max = 0;
+			int maxCol = -1;
+			for (int i = 0; i < touchedAmount; i++) {
+				final int col = touched[i];
+				final double value = sums[col];
+				if (value > max) {
+					max = value;
+					maxCol = col;
+				}
+				if (value >= pruneThreshold) {
+					touched[kept++] = col;
+				} else {
+					sums[col] = 0;
+				}
+			}
+			if (kept == 0 && maxCol >= 0) {
+				touched[kept++] = maxCol;
+				sums[maxCol] = max;
+			}
+
+			// select the biggest values if there are too many
+			double minKept = 0;
+			int minKeptAmount = kept;
+			if (kept > maxRowEntries) {
+				final double[] selection = workspace.selection;
+				for (int i = 0; i < kept; i++)
+					selection[i] = sums[touched[i]];
+				minKept = select(selection, kept, kept - maxRowEntries);
+				// of the values equal to the smallest one kept, keep only
+				// as many as fit
+				minKeptAmount = maxRowEntries;
+				for (int i = 0; i < kept; i++)
+					if (sums[touched[i]] > minKept)
+						minKeptAmount--;
+			}
+
+			// copy the result, scaled to the row's previous total
+			int resultSize = 0;
+			for (int i = 0; i < kept; i++) {
+				if (sums[touched[i]] > minKept || (sums[touched[i]] == minKept && minKeptAmount-- > 0))
+					resultSize++;
+				else
+					sums[touched[i]] = -sums[touched[i]];
+			}
+			final int[] rowCols = new int[resultSize];
+			final double[] rowValues = new double[resultSize];
+			double resultSum = 0;
+			int index = 0;
+			for (int i = 0; i < kept; i++) {
+				final int col = touched[i];
+				if (sums[col] > 0) {
+					rowCols[index] = col;
+					rowValues[index++] = sums[col];
+					resultSum += sums[col];
+				}
+				sums[col] = 0;
+			}
+			if (resultSum > 0 && resultSum != total) {
+				final double scale = total / resultSum;
+				for (int i = 0; i < resultSize; i++)
+					rowValues[i] *= scale;
+			}
+			this.resultCols[row] = rowCols;
+			this.resultValues[row] = rowValues;
+			this.resultSizes[row] = resultSize;
+		}
+
+		@Override
+		public void finish() {
+			cols = this.resultCols;
+			values = this.resultValues;
+			sizes = this.resultSizes;
+		}
+
+	}
+
+	/*
+	 * Returns the value that would be at the index if the first amount values
+	 * were sorted in ascending order, reordering them.
+	 */
+	static double select(double[] values, int amount, int index) {
+		int left = 0;
+		int right = amount - 1;
+		while (left < right) {
+			final double pivot = values[(left + right) >>> 1];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (values[i] < pivot)
+					i++;
+				while (values[j] > pivot)
+					j--;
+				if (i <= j) {
+					final double tmp = values[i];
+					values[i++] = values[j];
+					values[j--] = tmp;
+				}
+			}
+			if (index <= j)
+				right = j;
+			else if (index >= i)
+				left = i;
+			else
+				return values[index];
+		}
+		return values[index];
+	}
+
+	/*
+	 * Per thread arrays to accumulate a row of a product in, the sums are kept
+	 * zero outside of the computation of a row.
+	 */
+	private static class Workspace {
+		final double[] sums;
+		final int[] touched;
+		final double[] selection;
+		double chaos = 0;
+
+		Workspace(int size) {
+			this.sums = new double[size];
+			this.touched = new int[size];
+			this.selection = new double[size];
+		}
+	}
+
+}
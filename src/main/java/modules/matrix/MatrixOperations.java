@@ -9,8 +9,9 @@ import modules.ModuleImpl;
 import modules.OutputPort;
 
 // Java imports.
-import java.io.BufferedReader;
+import java.io.Writer;
 import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Logger;
 
 /**
@@ -30,12 +31,16 @@ public class MatrixOperations extends ModuleImpl {
 	private static final String PROPERTYKEY_DELIMITER = "Delimiter character"; 
 	//private static final String PROPETYKEY_QUOTES = "Quote character";
 	private static final String PROPERTYKEY_OUT_DELIMITER = "Delimiter used for the output";
+	private static final String PROPERTYKEY_THREADS = "Threads";
 	
 	// I/O ports.
 	
 	private static final String ID_INPUT="Input";
 	private static final String ID_OUTPUT="Output";
 	
+	// Amount of distances calculated at once before they are written.
+	private static final int BLOCK_DISTANCES = 1 << 22;
+	
 	// Variables.
 	
 	// Save the properties in these private variables.
@@ -43,19 +48,12 @@ public class MatrixOperations extends ModuleImpl {
 	// private String quotes;
 	private String outputDelimiter;
 	
+	private int threads;
+	
 	// Save the input matrix named field matrix.
 	
 	private NamedFieldMatrix matrix;
 	
-	// Save the calculated distance matrix as two dimensional double array.
-	private int[][] hamMatrix;
-	
-	// Save the column names as string array.
-	private String[] colNames;
-	
-	// Save the row names as string array.
-	private String[] rowNames;
-	
 	// Constructors.
 	
 	public MatrixOperations(CallbackReceiver callbackReceiver, Properties properties) throws Exception {
@@ -78,11 +76,13 @@ public class MatrixOperations extends ModuleImpl {
 		this.getPropertyDescriptions().put(PROPERTYKEY_DELIMITER, "ASCII character used to delimit each column.");
 		//this.getPropertyDescriptions().put(PROPETYKEY_QUOTES, "ASCII character used to signal usage of quotations.");
 		this.getPropertyDescriptions().put(PROPERTYKEY_OUT_DELIMITER, "<p>Specifies the delimiter used in the CSV<br />table for the output file.</p>");
+		this.getPropertyDescriptions().put(PROPERTYKEY_THREADS, "Amount of threads to calculate the distances with.");
 		
 		// Add property defaults (_should_ be provided for every property)
 		this.getPropertyDefaultValues().put(PROPERTYKEY_DELIMITER, ",");
 		//this.getPropertyDefaultValues().put(PROPETYKEY_QUOTES, "\"");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_OUT_DELIMITER, ";");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_THREADS, Integer.toString(Runtime.getRuntime().availableProcessors()));
 		
 		// Define I/O
 		/*
@@ -111,107 +111,71 @@ public class MatrixOperations extends ModuleImpl {
 	@Override
 	public boolean process() throws Exception {
 		
+		ForkJoinPool pool = null;
 		try {
-			BufferedReader reader = new BufferedReader(getInputPorts().get(ID_INPUT).getInputReader());
-
-			String line;
-			
 			LOGGER.info("Starting to fill the matrix.");
-						
-			String wholeCsv = "";
-			
-			// Read csv information line wise.
-			while ((line = reader.readLine()) != null) {
-								
-				wholeCsv += line + "\n";
-				
-			}
 
-			this.matrix = NamedFieldMatrix.parseCSV(wholeCsv, this.delimiter);
-			
-			// After the matrix is filled the String wholeCsv is obsolete.
-			wholeCsv = null;
+			// The matrix is read directly from the input.
+			this.matrix = NamedFieldMatrix.parseCSV(getInputPorts().get(ID_INPUT).getInputReader(), this.delimiter);
 			
 			LOGGER.info("Matrix filled.");
 			
-			// Initialize the matrix holding the hamming distance values.
-			this.hamMatrix = new int [this.matrix.getRowAmount()][this.matrix.getColumnsAmount()];
-
-			
-			LOGGER.info("Starting to calculate Hamming distances.");
-			// Calculate the Hamming distances line-wise and save the result in form of 
-			// a distance matrix.
-			// Attention we start with the second row, since the first is the header line.
-			for (int i = 0; i < this.matrix.getRowAmount() - 1 ; i ++) {
-				for (int j = i + 1; j < this.matrix.getRowAmount(); j ++) {
-					if (! (i == j) ) {
-						this.hamMatrix[i][j] = this.matrix.getHammingDistanceForRows(i, j);
-						// Mirror the matrix.
-						this.hamMatrix[j][i] = this.hamMatrix[i][j];
-					} else {
-						this.hamMatrix[i][j] = 0;
-					}
-				}
-			}
-			
-			LOGGER.info("Hamming distances calculated.");
-			
-			// Save the header line for the Hamming distance matrix.
-			this.colNames = new String[this.matrix.getColumnsAmount()];
-			
-			for (int i = 0; i < this.colNames.length; i ++) {
-				this.colNames[i] = this.matrix.getColumnName(i);
-			}
-						
-			// Save the rowNames for the Hamming distance matrix.
-			this.rowNames = new String[this.matrix.getRowAmount()];
-			
-			for (int i = 0; i < this.rowNames.length; i ++) {
-				this.rowNames[i] = this.matrix.getRowName(i);
-			}
-			
 			OutputPort hamOut = getOutputPorts().get(ID_OUTPUT);
 
 			if (hamOut.isConnected()) {
-				// Write an initial empty field.
-				hamOut.outputToAllCharPipes(this.outputDelimiter);
-				
-				for (int i = 0; i < this.matrix.getRowAmount(); i ++) {
-					if (i < this.matrix.getRowAmount() - 1)
-						hamOut.outputToAllCharPipes(this.colNames[i] + this.outputDelimiter);
-					else
-						// Avoid printing the last ";".
-						hamOut.outputToAllCharPipes(this.colNames[i]);
+				final int rows = this.matrix.getRowAmount();
+				final HammingDistances distances = new HammingDistances(this.matrix);
+				pool = new ForkJoinPool(Math.max(1, this.threads));
+
+				LOGGER.info("Starting to calculate Hamming distances" + (distances.isPacked() ? " on bitsets." : "."));
+
+				final Writer writer = hamOut.getWriter();
+				final StringBuilder line = new StringBuilder();
+
+				// Write the header line: an initial empty field and the row
+				// names, as the distance matrix is symmetric.
+				for (int i = 0; i < rows; i ++) {
+					line.append(this.outputDelimiter).append(this.matrix.getRowName(i));
+				}
+				line.append('\n');
+				writer.append(line);
+
+				// Calculate the distances block-wise and write each block's
+				// lines, so that the whole distance matrix is never held.
+				final int blockRows = Math.max(1, Math.min(rows, BLOCK_DISTANCES / Math.max(1, rows)));
+				final int[][] block = new int[blockRows][rows];
+				for (int begin = 0; begin < rows; begin += blockRows) {
+					final int end = Math.min(rows, begin + blockRows);
+					distances.computeRows(begin, end, block, pool);
+					for (int row = begin; row < end; row ++) {
+						line.setLength(0);
+						appendCsvLine(line, row, block[row - begin]);
+						writer.append(line);
+					}
 				}
-				
-				hamOut.outputToAllCharPipes("\n");
-				for (int i = 0; i < this.matrix.getRowAmount(); i ++)
-					hamOut.outputToAllCharPipes(toCsvLine(i));
+				writer.close();
+
+				LOGGER.info("Hamming distances calculated.");
 			}
 			
 		} catch (Exception e) {
 			e.getMessage();
 			e.printStackTrace();
 		} finally {
+			if (pool != null)
+				pool.shutdown();
 			this.closeAllOutputs();
 		}
 
 		return true;
 	}
 	
-	private String toCsvLine(int row) {
-		
-		String out = this.rowNames[row] + this.outputDelimiter;
-		for (int i = 0; i < this.matrix.getColumnsAmount(); i ++) {
-			// Avoid printing ";" as last character before new line.
-			if (i < this.matrix.getColumnsAmount() - 1 )
-				out += this.hamMatrix[row][i] + this.outputDelimiter ;
-			else 
-				out += this.hamMatrix[row][i];
+	private void appendCsvLine(StringBuilder out, int row, int[] distances) {
+		out.append(this.matrix.getRowName(row));
+		for (int i = 0; i < distances.length; i ++) {
+			out.append(this.outputDelimiter).append(distances[i]);
 		}
-		out += "\n";
-		return out;
-		
+		out.append('\n');
 	}
 	
 	@Override
@@ -224,6 +188,9 @@ public class MatrixOperations extends ModuleImpl {
 		this.delimiter = this.getProperties().getProperty(PROPERTYKEY_DELIMITER, this.getPropertyDefaultValues().get(PROPERTYKEY_DELIMITER));
 		// this.quotes = this.getProperties().getProperty(PROPETYKEY_QUOTES, this.getPropertyDefaultValues().get(PROPETYKEY_QUOTES));
 		this.outputDelimiter = this.getProperties().getProperty(PROPERTYKEY_OUT_DELIMITER, this.getPropertyDefaultValues().get(PROPERTYKEY_OUT_DELIMITER)); 
+		String threadsValue = this.getProperties().getProperty(PROPERTYKEY_THREADS, this.getPropertyDefaultValues().get(PROPERTYKEY_THREADS));
+		if (threadsValue != null)
+			this.threads = Integer.parseInt(threadsValue);
 		
 		// Apply parent object's properties.
 		super.applyProperties();
@@ -1,10 +1,10 @@
 package modules.matrix;
 
-import java.io.PipedReader;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.Properties;
 import java.util.logging.Logger;
 
-import Jama.Matrix;
 import common.parallelization.CallbackReceiver;
 import models.NamedFieldMatrix;
 import modules.CharPipe;
@@ -29,15 +29,24 @@ public class MclModule extends ModuleImpl {
 	public static final String PROPERTYKEY_R = "r";
 	public static final String PROPERTYKEY_ITERATIONS = "iterations";
 	public static final String PROPERTYKEY_CSV_DELIMITER = "csv delimiter";
+	public static final String PROPERTYKEY_PRUNE_THRESHOLD = "prune threshold";
+	public static final String PROPERTYKEY_MAX_ROW_ENTRIES = "max row entries";
+	public static final String PROPERTYKEY_MAX_CHAOS = "max chaos";
+	public static final String PROPERTYKEY_THREADS = "threads";
 
 	// Define I/O IDs (must be unique for every input or output)
 	private static final String ID_INPUT = "input matrix";
 	private static final String ID_OUTPUT = "output matrix";
+	private static final String ID_CLUSTERS = "clusters";
 
 	private int iterations;
 	private int l;
 	private double r;
 	private String csvDelimiter;
+	private double pruneThreshold;
+	private int maxRowEntries;
+	private double maxChaos;
+	private int threads;
 
 	public MclModule(CallbackReceiver callbackReceiver, Properties properties) throws Exception {
 
@@ -45,15 +54,23 @@ public class MclModule extends ModuleImpl {
 		super(callbackReceiver, properties);
 
 		// Add module description
-		this.setDescription("Takes a matrix and runs a fixed number of iterations of markov clustering on it.");
+		this.setDescription(
+				"Takes a matrix and runs markov clustering on it until it converges or a maximum number of iterations is reached.");
 
 		// Add property descriptions (obligatory for every property!)
 		// TODO: Write proper descriptions
 		this.getPropertyDescriptions().put(PROPERTYKEY_ITERATIONS,
-				"How often to iterate the inflation and deflation steps.");
+				"Maximum of how often to iterate the inflation and expansion steps.");
 		this.getPropertyDescriptions().put(PROPERTYKEY_L, "Amount of matrix multiplications per iteration, int >= 1.");
 		this.getPropertyDescriptions().put(PROPERTYKEY_R, "Exponent in the inflation step, double >= 1.");
 		this.getPropertyDescriptions().put(PROPERTYKEY_CSV_DELIMITER, "Delimiter of the input csv cells.");
+		this.getPropertyDescriptions().put(PROPERTYKEY_PRUNE_THRESHOLD,
+				"Values below this are removed from a row after each expansion, double >= 0.");
+		this.getPropertyDescriptions().put(PROPERTYKEY_MAX_ROW_ENTRIES,
+				"Maximum amount of values kept per row after each expansion, 0 for no limit.");
+		this.getPropertyDescriptions().put(PROPERTYKEY_MAX_CHAOS,
+				"The iterations stop once the chaos (the biggest difference between a row's maximum and it's sum of squares) is at most this value.");
+		this.getPropertyDescriptions().put(PROPERTYKEY_THREADS, "Amount of threads to compute the matrix products with.");
 
 		// Add property defaults (_should_ be provided for every property)
 		this.getPropertyDefaultValues().put(ModuleImpl.PROPERTYKEY_NAME, "Markov Clustering Module");
@@ -61,6 +78,11 @@ public class MclModule extends ModuleImpl {
 		this.getPropertyDefaultValues().put(PROPERTYKEY_L, "2");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_R, "2.0");
 		this.getPropertyDefaultValues().put(PROPERTYKEY_CSV_DELIMITER, ";");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_PRUNE_THRESHOLD, "0.0001");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_MAX_ROW_ENTRIES, "500");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_MAX_CHAOS, "0.0001");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_THREADS,
+				Integer.toString(Runtime.getRuntime().availableProcessors()));
 
 		// Define I/O
 		InputPort inputPort = new InputPort(ID_INPUT,
@@ -68,10 +90,14 @@ public class MclModule extends ModuleImpl {
 		inputPort.addSupportedPipe(CharPipe.class);
 		OutputPort outputPort = new OutputPort(ID_OUTPUT, "[text/csv] Matrix clustered.", this);
 		outputPort.addSupportedPipe(CharPipe.class);
+		OutputPort clustersPort = new OutputPort(ID_CLUSTERS,
+				"[text/plain] One cluster per line, its members' row names separated by the csv delimiter.", this);
+		clustersPort.addSupportedPipe(CharPipe.class);
 
 		// Add I/O ports to instance (don't forget...)
 		super.addInputPort(inputPort);
 		super.addOutputPort(outputPort);
+		super.addOutputPort(clustersPort);
 
 	}
 
@@ -79,7 +105,7 @@ public class MclModule extends ModuleImpl {
 	public boolean process() throws Exception {
 
 		boolean result = true;
-		PipedReader inputReader = null;
+		Reader inputReader = null;
 
 		try {
 			inputReader = this.getInputPorts().get(ID_INPUT).getInputReader();
@@ -87,28 +113,56 @@ public class MclModule extends ModuleImpl {
 			// read the input into a NamedFieldMatrix
 			final NamedFieldMatrix nfMatrix = NamedFieldMatrix.parseCSV(inputReader, this.csvDelimiter);
 
-			// The JAMA matrix is initialised from the named field matrix'
-			// values and will operate on them directly, avoiding some
-			// duplication of memory or copying of values.
-			// This is ok because the mcl algorithm changes fields' values
-			// but not their location, such that the mapping of array fields to
-			// column and row names in the named field matrix stays intact.
-			Matrix matrix = new Matrix(nfMatrix.getValues());
+			final int size = nfMatrix.getRowAmount();
+			if (size != nfMatrix.getColumnsAmount()) {
+				throw new IllegalArgumentException("The x and y dimensions of the matrix must agree: "
+						+ nfMatrix.getColumnsAmount() + "/" + size);
+			}
+
+			// Row i and column i refer to the same node. Only the non-zero
+			// values are handed to the clustering.
+			final MarkovClustering mcl = new MarkovClustering(size, this.l, this.r, this.pruneThreshold,
+					this.maxRowEntries, this.maxChaos);
+			final int[] cols = new int[size];
+			final double[] values = new double[size];
+			for (int row = 0; row < size; row++) {
+				mcl.setRow(row, cols, values, nfMatrix.getNonZeroValues(row, cols, values));
+			}
 			LOGGER.info("Input matrix read successfully, starting mcl.");
 
-			// run the algorithm as many times as specified by the user
-			for (int i = 0; i < this.iterations; i++) {
-				matrix = mcl(matrix, this.l, this.r);
+			final int iterationsRun = mcl.run(this.iterations, this.threads);
+			LOGGER.info("Finished mcl after " + iterationsRun + " iterations, chaos: " + mcl.getChaos());
+
+			// write the resulting matrix with the input's row and column names
+			if (this.getOutputPorts().get(ID_OUTPUT).isConnected()) {
+				final NamedFieldMatrix resultMatrix = new NamedFieldMatrix(true);
+				for (int i = 0; i < size; i++) {
+					resultMatrix.addValue(nfMatrix.getRowName(i), nfMatrix.getColumnName(i), 0d);
+				}
+				for (int row = 0; row < size; row++) {
+					final int amount = mcl.getRow(row, cols, values);
+					for (int i = 0; i < amount; i++) {
+						resultMatrix.setValue(row, cols[i], values[i]);
+					}
+				}
+				resultMatrix.setDelimiter(this.csvDelimiter);
+				final Writer writer = this.getOutputPorts().get(ID_OUTPUT).getWriter();
+				resultMatrix.writeCsv(writer);
+				writer.close();
 			}
 
-			// Set the named fields matrix' values to the ones given by mcl
-			// and write them to the output port
-			nfMatrix.setValues(matrix.getArray());
-			OutputPort out = this.getOutputPorts().get(ID_OUTPUT);
-			nfMatrix.setDelimiter(this.csvDelimiter);
-			out.outputToAllCharPipes(nfMatrix.csvHeader());
-			for (int i = 0; i < nfMatrix.getRowAmount(); i++) {
-				out.outputToAllCharPipes(nfMatrix.csvLine(i));
+			// write the clusters one per line
+			if (this.getOutputPorts().get(ID_CLUSTERS).isConnected()) {
+				final Writer writer = this.getOutputPorts().get(ID_CLUSTERS).getWriter();
+				for (int[] cluster : mcl.getClusters()) {
+					for (int i = 0; i < cluster.length; i++) {
+						if (i > 0)
+							writer.write(this.csvDelimiter);
+						writer.write(nfMatrix.getRowName(cluster[i]));
+					}
+					writer.write('\n');
+				}
+				writer.close();
 			}
 		} catch (Exception e) {
 			result = false;
@@ -124,47 +178,6 @@ public class MclModule extends ModuleImpl {
 		return result;
 	}
 
-	// The main routine altering as well as returning the transformed matrix.
-	private Matrix mcl(Matrix A, int l, double r) {
-		A = gamma(A, r);
-		A = power(A, l);
-
-		return A;
-	}
-
-	// The inflation step of MCL boosts big matrix entries in contrast to small
-	// ones, such that clusters can form
-	public Matrix gamma(Matrix A, double r) {
-
-		for (int i = 0; i < A.getRowDimension(); i++) {
-			double denom = 0;
-
-			for (int k = 0; k < A.getColumnDimension(); k++) {
-				denom = denom + Math.pow(A.get(i, k), r);
-			}
-
-			if (denom != 0) {
-				for (int j = 0; j < A.getColumnDimension(); j++) {
-					A.set(i, j, Math.pow(A.get(i, j), r) / denom);
-				}
-			}
-		}
-
-		return A;
-	}
-
-	// alters and returns the input matrix by multiplying it l-1 times with
-	// itself.
-	private Matrix power(Matrix A, int l) {
-		Matrix B = A.copy();
-
-		for (int i = 1; i < l; i++) {
-			A = A.times(B);
-		}
-
-		return A;
-	}
-
 	@Override
 	public void applyProperties() throws Exception {
 		// Set defaults for properties not yet set
@@ -183,6 +196,18 @@ public class MclModule extends ModuleImpl {
 		if (this.getProperties().getProperty(PROPERTYKEY_CSV_DELIMITER) != null) {
 			this.csvDelimiter = this.getProperties().getProperty(PROPERTYKEY_CSV_DELIMITER);
 		}
+		if (this.getProperties().getProperty(PROPERTYKEY_PRUNE_THRESHOLD) != null) {
+			this.pruneThreshold = Double.parseDouble(this.getProperties().getProperty(PROPERTYKEY_PRUNE_THRESHOLD));
+		}
+		if (this.getProperties().getProperty(PROPERTYKEY_MAX_ROW_ENTRIES) != null) {
+			this.maxRowEntries = Integer.parseInt(this.getProperties().getProperty(PROPERTYKEY_MAX_ROW_ENTRIES));
+		}
+		if (this.getProperties().getProperty(PROPERTYKEY_MAX_CHAOS) != null) {
+			this.maxChaos = Double.parseDouble(this.getProperties().getProperty(PROPERTYKEY_MAX_CHAOS));
+		}
+		if (this.getProperties().getProperty(PROPERTYKEY_THREADS) != null) {
+			this.threads = Integer.parseInt(this.getProperties().getProperty(PROPERTYKEY_THREADS));
+		}
 
 		// Apply parent object's properties (just the name variable actually)
 		super.applyProperties();
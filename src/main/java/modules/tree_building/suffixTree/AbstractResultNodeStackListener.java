@@ -20,6 +20,13 @@ public abstract class AbstractResultNodeStackListener implements ITreeWalkerList
 	// while iterating the tree keeps track of the current path's length
 	private int pathLength = 0;
 
+	// numbers the leaves in the order they are encountered, such that the
+	// leaves below each node can be looked up when it is processed
+	private LeafIndex leafIndex;
+
+	// the node the walk started on (-1 before the walk started)
+	private int startNodeNr = -1;
+
 	/**
 	 * An initialiser for subclasses to setup all necessary variables.
 	 * 
@@ -30,6 +37,31 @@ public abstract class AbstractResultNodeStackListener implements ITreeWalkerList
 		this.tree = tree;
 		this.nodes = new Stack<Node>();
 		this.edges = new Stack<String>();
+		this.leafIndex = new LeafIndex(tree);
+	}
+
+	/**
+	 * An initialiser for subclasses that are able to fork (see
+	 * {@link IMergeableTreeWalkerListener}). The new listener takes over the
+	 * path walked by the given one. As the leaves of the subtree walked by the
+	 * fork would otherwise be numbered independently, the whole tree's leaves
+	 * are indexed at once and the index is shared by all forks.
+	 * 
+	 * @param parent
+	 *            the listener to fork
+	 */
+	protected AbstractResultNodeStackListener(AbstractResultNodeStackListener parent) {
+		if (!parent.leafIndex.isComplete()) {
+			parent.leafIndex = LeafIndex.build(parent.tree, parent.startNodeNr);
+		}
+		this.tree = parent.tree;
+		this.nodes = new Stack<Node>();
+		this.nodes.addAll(parent.nodes);
+		this.edges = new Stack<String>();
+		this.edges.addAll(parent.edges);
+		this.pathLength = parent.pathLength;
+		this.leafIndex = parent.leafIndex;
+		this.startNodeNr = parent.startNodeNr;
 	}
 
 	/**
@@ -44,7 +76,11 @@ public abstract class AbstractResultNodeStackListener implements ITreeWalkerList
 	 */
 	@Override
 	public void entryaction(int nodeNr, int level) throws IOException {
+		if (nodes.isEmpty()) {
+			startNodeNr = nodeNr;
+		}
 		nodes.push(tree.getNode(nodeNr));
+		leafIndex.enter(nodeNr);
 
 		final String edge = tree.edgeString(nodeNr);
 
@@ -55,16 +91,15 @@ public abstract class AbstractResultNodeStackListener implements ITreeWalkerList
 
 	/**
 	 * On the exit action the node on top of the stack is removed from the stack
-	 * and given to the child class for processing. Also, the leaf nodes below
-	 * this node are given to the parent, such that they are present when the
-	 * parent is the current node and need's to be processed.
+	 * and given to the child class for processing. As all nodes below it have
+	 * been visited at this point, the range of it's leaves in the leaf index is
+	 * complete.
 	 */
 	@Override
 	public void exitaction(int nodeNr, int level) throws IOException {
 		// get the current node, it's parent is on top of the stack after
 		// removing the current node
 		final Node node = nodes.pop();
-		final Node parent;
 
 		// invariant check, compare the stacked node to the one given by nodeNr
 		// and complain if they do not equal.
@@ -72,23 +107,11 @@ public abstract class AbstractResultNodeStackListener implements ITreeWalkerList
 			throw new IllegalStateException("Differing nodes encountered on tree listener.");
 		}
 
-		// let the child class do it's work
+		// number the node if it is a leaf, then let the child class do it's
+		// work
+		leafIndex.exit(nodeNr, node.isTerminal());
 		process(nodeNr, Collections.unmodifiableList(nodes), pathLength, level);
 
-		if (nodeNr != tree.getRoot()) {
-			parent = nodes.peek();
-
-			// propagate leaf nodes from this node to the parent if any are
-			// present
-			parent.getLeaves().addAll(node.getLeaves());
-
-			// if the node is itself a terminal node, it is noted in the
-			// parent's leaves as well
-			if (node.isTerminal()) {
-				parent.getLeaves().add(node);
-			}
-		}
-
 		// fully reverse the entry actions effects
 		final String edge = edges.pop();
 		this.pathLength -= edge.length();
@@ -99,6 +122,33 @@ public abstract class AbstractResultNodeStackListener implements ITreeWalkerList
 		return Collections.unmodifiableList(nodes);
 	}
 
+	/**
+	 * Exposes the leaves of the nodes processed so far to the child class. The
+	 * leaves of a node (or the node itself, if it is terminal) are those in the
+	 * range from {@link LeafIndex#getFirstLeaf(int)} to
+	 * {@link LeafIndex#getEndLeaf(int)}.
+	 * 
+	 * @return The leaf index
+	 */
+	protected LeafIndex getLeafIndex() {
+		return leafIndex;
+	}
+
+	/**
+	 * Replaces the leaf index filled while walking by a complete one of the
+	 * tree below the start node (see {@link LeafIndex#build(BaseSuffixTree, int)}),
+	 * such that forks share it instead of building another. To be called
+	 * before the walk.
+	 * 
+	 * @param leafIndex
+	 *            The complete leaf index
+	 */
+	public void setLeafIndex(LeafIndex leafIndex) {
+		if (!leafIndex.isComplete())
+			throw new IllegalArgumentException("The leaf index is not complete.");
+		this.leafIndex = leafIndex;
+	}
+
 	// exposes the stack of edges to the child class read-only
 	// TODO This should be needed soon. But make sure it really is used.
 	protected List<String> getEdges() {
@@ -14,7 +14,7 @@ public class BaseSuffixTree {
 	// Expose .oo to the package read-only
 	protected static final int oo = Integer.MAX_VALUE / 2;
 	int position=-1;
-	Node[] nodes;
+	final NodeStorage nodes;
 	char[] text;
 	int root, currentNode, needSuffixLink, remainder;
 
@@ -34,21 +34,57 @@ public class BaseSuffixTree {
 	private NodePositionEnd end;
 	
 	public BaseSuffixTree(int length) {
-		nodes = new Node[2 * length + 2];
+		this(length, false);
+	}
+	
+	/**
+	 * @param length Length of the input; if unknown, an estimate may be given
+	 * as the text and node arrays grow as needed
+	 * @param compact If true, the nodes are kept in primitive arrays (see
+	 * {@link CompactNodeStorage}) instead of one object per node
+	 */
+	public BaseSuffixTree(int length, boolean compact) {
+		if (compact)
+			nodes = new CompactNodeStorage(this, length + length / 2 + 2);
+		else
+			nodes = new ObjectNodeStorage(this, 2 * length + 1);
 		text = new char[length];
 		root = active_node = newNode(-1, -1, 0, NO_TYPE_CONTEXT);
 		
 		textBegins = new ArrayList<Integer>();
 	}
 	
+	/**
+	 * Constructor for a tree whose nodes have been built before (see
+	 * {@link SuffixTreeFile}). No text is kept in the tree's array, subclasses
+	 * provide it by overriding {@link #charAt(int)} and
+	 * {@link #textString(int, int)}. Such a tree cannot be extended.
+	 * 
+	 * @param nodes Storage holding the nodes
+	 * @param nodeAmount Amount of nodes
+	 * @param root Number of the root node
+	 * @param textLength Length of the whole input
+	 * @param typeContext Number of the last type context
+	 * @param textBegins Beginnings of the single texts in the whole input
+	 */
+	BaseSuffixTree(NodeStorage nodes, int nodeAmount, int root, int textLength, int typeContext, List<Integer> textBegins) {
+		this.nodes = nodes;
+		this.text = new char[0];
+		this.currentNode = nodeAmount;
+		this.root = this.active_node = root;
+		this.position = textLength - 1;
+		this.currentTypeContext = typeContext;
+		this.textBegins = new ArrayList<Integer>(textBegins);
+	}
+	
 	int newNode(int start, int end, int nrText, int typeContextNr) {
-		nodes[++currentNode] = new Node(start, end, nrText, typeContextNr, this);
+		nodes.newNode(++currentNode, start, end, nrText, typeContextNr);
 		return currentNode;
 	}
 
 	private void addSuffixLink(int node) {
 		if (needSuffixLink > 0)
-			nodes[needSuffixLink].link = node;
+			nodes.setLink(needSuffixLink, node);
 		needSuffixLink = node;
 	}
 
@@ -57,14 +93,20 @@ public class BaseSuffixTree {
 	}
 
 	boolean walkDown(int next) {
-		if (active_length >= nodes[next].edgeLength(this)) {
-			active_edge += nodes[next].edgeLength(this);
-			active_length -= nodes[next].edgeLength(this);
+		final int edgeLength = edgeLength(next);
+		if (active_length >= edgeLength) {
+			active_edge += edgeLength;
+			active_length -= edgeLength;
 			active_node = next;
 			return true;
 		}
 		return false;
 	}
+	
+	// return the edge length of a node by node number
+	int edgeLength(int node) {
+		return Math.min(nodes.getEnd(node), position + 1) - nodes.getStart(node);
+	}
 
 	// if end of text is reached ('$') and last suffix is implicitly contained in previously built suffix
 	// tree (e.g. given two texts aaabxy$aaazxy$, last suffix is xy$, here the (existing) suffixes
@@ -76,32 +118,47 @@ public class BaseSuffixTree {
 		for (int i=position-remainder+1;i<=position;i++){
 			pos=i;
 			while (pos<=position) {
-				if (!nodes[next].next.containsKey(this.text[pos]))  {
+				int child = nodes.getChild(next, this.text[pos]);
+				if (child == NodeStorage.NO_NODE)  {
 					throw new IllegalStateException("addRemaining Error");
 				}
 				else {
-					next = nodes[next].next.get(this.text[pos]);
-					pos+=nodes[next].edgeLength(this);
+					next = child;
+					pos+=edgeLength(next);
 				}
 			
 			}// while
-			if (nodes[next].isTerminal()){
-				nodes[next].addPos(pos-nodes[next].edgeLength(this), BaseSuffixTree.oo, textNr, currentTypeContext, this);
+			if (nodes.isTerminal(next)){
+				nodes.addPosition(next, pos-edgeLength(next), BaseSuffixTree.oo, textNr, currentTypeContext);
 			}
 			next=this.root;
 		}// for
 	}
 
+	// Appends a char to the text without adding its suffixes to the tree
+	void appendText(char ch) {
+		if (++position == this.text.length)
+			this.text = Arrays.copyOf(this.text, this.text.length + (this.text.length >> 1) + 16);
+		this.text[position] = ch;
+	}
+
+	// Shrinks the text array to the length of the text added so far
+	void trimText() {
+		if (this.text.length != position + 1)
+			this.text = Arrays.copyOf(this.text, position + 1);
+	}
+
 	public void addChar(char ch, int nrText) throws Exception {
-		this.text[++position] = ch;
+		this.appendText(ch);
 		needSuffixLink = -1;
 		remainder++;
 		while (remainder > 0) {
 			if (active_length == 0)
 				active_edge = position;
-			if (!nodes[active_node].next.containsKey(active_edge())) {
+			int next = nodes.getChild(active_node, active_edge());
+			if (next == NodeStorage.NO_NODE) {
 				int leaf = newNode(position, oo, nrText, currentTypeContext);
-				nodes[active_node].next.put(active_edge(), leaf);
+				nodes.setChild(active_node, active_edge(), leaf);
 				addSuffixLink(active_node);  
 				/* rule 2:
 				If we create a new internal node OR make an inserter from an internal node, 
@@ -109,7 +166,6 @@ public class BaseSuffixTree {
 				then we link the previous SUCH node with THIS one through a suffix link.
 				*/
 			} else {
-				int next = nodes[active_node].next.get(active_edge());
 				if (walkDown(next)) {
 					continue; /* observation 2:
 						If at some point active_length is greater or equal to the length of 
@@ -117,10 +173,10 @@ public class BaseSuffixTree {
 						until edge_length is not strictly greater than active_length.
 					*/
 				}
-				if (this.text[nodes[next].getStart(0) + active_length] == ch) { 
+				if (this.text[nodes.getStart(next) + active_length] == ch) { 
 					// end of text, for further texts in GST
 					if (ch=='$') {
-						if (nodes[next].isTerminal()){
+						if (nodes.isTerminal(next)){
 							addRemaining(nrText);
 						}// if  ..isTerminal
 						else {
@@ -142,14 +198,14 @@ public class BaseSuffixTree {
 
 					break;
 				}
-				int split = newNode(nodes[next].getStart(0), nodes[next].getStart(0) + active_length, nrText, currentTypeContext);
-				nodes[active_node].next.put(active_edge(), split);
+				int split = newNode(nodes.getStart(next), nodes.getStart(next) + active_length, nrText, currentTypeContext);
+				nodes.setChild(active_node, active_edge(), split);
 
 				int leaf = newNode(position, oo, nrText, currentTypeContext);
-				nodes[split].next.put(ch, leaf);
-				nodes[next].updateStartPositions(active_length);
+				nodes.setChild(split, ch, leaf);
+				nodes.shiftStartPositions(next, active_length);
 
-				nodes[split].next.put(this.text[nodes[next].getStart(0)], next);
+				nodes.setChild(split, this.text[nodes.getStart(next)], next);
 				addSuffixLink(split); 
 				/* rule 2:
 				 If we create a new internal node OR make an inserter from an internal node, 
@@ -170,7 +226,7 @@ public class BaseSuffixTree {
 				active_length--;
 				active_edge = position - remainder + 1;
 			} else
-				active_node = nodes[active_node].link > 0 ? nodes[active_node].link : root; 
+				active_node = nodes.getLink(active_node) > 0 ? nodes.getLink(active_node) : root; 
 				/*rule 3:
 				After an insert from the active node which is not the root node, 
 				we must follow the suffix link and set the active node to the node it points to. 
@@ -180,24 +236,34 @@ public class BaseSuffixTree {
 		}// while remainder
 	}// addChar
 
+	// return the char of the whole input at the given index
+	char charAt(int index) {
+		return this.text[index];
+	}
+	
+	// return the chars of the whole input in [begin, end) as a string
+	String textString(int begin, int end) {
+		return new String(this.text, begin, end - begin);
+	}
+
 	// get the edge string of a node by node number
 	public String edgeString(int node) {
-		return edgeString(nodes[node]);
+		return edgeString(getNode(node));
 	}
 	
 	// get the edge string of a node
 	public String edgeString(Node node) {
-		if (node == getNode(getRoot())) {
+		if (node.equals(getNode(getRoot()))) {
 			return "";
 		}
 
 		int end=node.getEnd(0);
 		if (end==oo) {
 			for (end=node.getStart(0);end<=oo;end++) {
-				if (this.text[end]=='$') {end++; break;}
+				if (this.charAt(end)=='$') {end++; break;}
 			}
 		}
-		return new String(Arrays.copyOfRange(this.text, node.getStart(0), Math.min(position + 1,end)));
+		return textString(node.getStart(0), Math.min(position + 1,end));
 	}
 	
 
@@ -215,19 +281,19 @@ public class BaseSuffixTree {
 		int localActiveEdge=0;int i=0;
 		for (i=0;i<nextText.length();i++){
 			// find edge
-			if (nodes[node].next.containsKey(nextText.charAt(i))){
-				int child_node = this.nodes[node].next.get(nextText.charAt(i));
+			int child_node = nodes.getChild(node, nextText.charAt(i));
+			if (child_node != NodeStorage.NO_NODE){
 				localActiveEdge=0;
 				// compare edge
 				int pos=i+1;// pos is index for position in nextText
-				for (int j=this.nodes[child_node].getStart(0)+1;j<this.nodes[child_node].getEnd(0);j++){
+				for (int j=this.nodes.getStart(child_node)+1;j<this.nodes.getEnd(child_node);j++){
 					if (this.text[j]==nextText.charAt(pos)) {
 						pos++;
 						localActiveEdge++;
 					}
 					else {
-						setActivePoint(node,this.nodes[child_node].getStart(0),
-								j-this.nodes[child_node].getStart(0));
+						setActivePoint(node,this.nodes.getStart(child_node),
+								j-this.nodes.getStart(child_node));
 						return pos;
 					};
 					
@@ -240,7 +306,7 @@ public class BaseSuffixTree {
 				return i;
 			}
 		} // for
-		setActivePoint(node,nodes[node].getStart(0),localActiveEdge);
+		setActivePoint(node,nodes.getStart(node),localActiveEdge);
 		return i;
 	} // longestPath
 	
@@ -251,32 +317,32 @@ public class BaseSuffixTree {
 		}
 
 		boolean result = true;
-		Integer current = node;
+		int current = node;
 
 		// variables for the edge string currently compared
 		int start = 0;
 		int length = 0;
 		int pos = 0;
 		if(current != root) {
-			start = nodes[current].getStart(0);
-			length = nodes[current].edgeLength(this);
+			start = nodes.getStart(current);
+			length = edgeLength(current);
 		}
 
 		for(int i = 0; i < pattern.length(); i++) {
 			// do we have to jump to the next node?
 			if (pos == length) {
-				current = nodes[current].getNext(pattern.charAt(i));
+				current = nodes.getChild(current, pattern.charAt(i));
 				// no node found for the next char
-				if (current == null) {
+				if (current == NodeStorage.NO_NODE) {
 					result = false;
 					break;
 				}
-				start = nodes[current].getStart(0);
-				length = nodes[current].edgeLength(this);
+				start = nodes.getStart(current);
+				length = edgeLength(current);
 				pos = 0;
 			}
 			// actual comparison
-			if(pattern.charAt(i) != text[start + pos]) {
+			if(pattern.charAt(i) != charAt(start + pos)) {
 				result = false;
 				break;
 			}
@@ -298,11 +364,12 @@ public class BaseSuffixTree {
 	
 	// return the node corresponding to nodeNr
 	public Node getNode(int nodeNr) {
-		try {
-			return this.nodes[nodeNr];
-		} catch (ArrayIndexOutOfBoundsException e) {
-			return null;
-		}
+		return this.nodes.getNode(nodeNr);
+	}
+	
+	// return the node numbers of the children of a node, ordered by the first char of their edges
+	public int[] getChildren(int nodeNr) {
+		return this.nodes.getChildren(nodeNr);
 	}
 	
 	// return the number of nodes in the tree
@@ -317,7 +384,7 @@ public class BaseSuffixTree {
 	
 	// return the whole input as a string, do not expose the underlying char[]
 	public String getText() {
-		return new String(text);
+		return textString(0, position + 1);
 	}
 	
 	/**
@@ -389,7 +456,7 @@ public class BaseSuffixTree {
 	public String getInputText(int textNr) {
 		final int begin = getTextBegin(textNr);
 		final int end = getTextEnd(textNr) + 1;
-		return new String(Arrays.copyOfRange(text, begin, end));
+		return textString(begin, end);
 	}
 	
 	/**
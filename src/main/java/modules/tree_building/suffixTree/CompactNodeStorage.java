@@ -0,0 +1,451 @@
+package modules.tree_building.suffixTree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Keeps the nodes of a suffix tree in primitive arrays indexed by node number
+ * (struct of arrays). Children are kept as a sorted first-child/next-sibling
+ * list, the first position of each node is stored inline and any further
+ * positions (only terminal nodes reached by several texts have them) go to a
+ * separate packed position store. This needs about 34 bytes per node.
+ *
+ * {@link Node} objects handed out by {@link #getNode(int)} are views backed
+ * by the arrays. Views of the same node are equal, and the data fields meant
+ * for clients (the path length) are kept by this storage, so they behave
+ * like the objects of {@link ObjectNodeStorage}.
+ */
+public class CompactNodeStorage extends NodeStorage {
+
+	private final BaseSuffixTree tree;
+
+	// Amount of nodes (node numbers run from 1 to nodeAmount)
+	private int nodeAmount = 0;
+
+	// Node data, indexed by node number
+	private int[] starts;
+	private int[] ends;
+	private int[] textNrs;
+	private int[] typeContextNrs;
+	private int[] links;
+	private int[] firstChildren;
+	private int[] nextSiblings;
+	private char[] edgeBegins;
+	// Index of the node's last position in the position store (-1 if it has only one)
+	private int[] morePositions;
+
+	// Packed store for the second and following positions of nodes, chained by index
+	// into a ring (the last position links back to the second) so appending is cheap
+	private int positionAmount = 0;
+	private int[] positionStarts = new int[0];
+	private int[] positionEnds = new int[0];
+	private int[] positionTextNrs = new int[0];
+	private int[] positionTypeContextNrs = new int[0];
+	private int[] nextPositions = new int[0];
+
+	// Open ends of leaves are shared per text; they are referenced as SHAREDEND + index,
+	// far below any real end (the root's end is -1)
+	private static final int SHAREDEND = Integer.MIN_VALUE;
+	private static final int SHAREDENDLIMIT = Integer.MIN_VALUE / 2;
+	private final List<NodePositionEnd> sharedEnds = new ArrayList<NodePositionEnd>();
+
+	// Client data field of the node views, allocated on demand (volatile as
+	// listeners walking subtrees in parallel may be the first to set it)
+	private volatile int[] pathLengths = null;
+
+	/**
+	 * Constructor
+	 *
+	 * @param tree
+	 *            The tree the nodes belong to
+	 * @param capacity
+	 *            Initial amount of nodes to allocate room for; the arrays grow
+	 *            if more are needed
+	 */
+	public CompactNodeStorage(BaseSuffixTree tree, int capacity) {
+		this.tree = tree;
+		this.allocate(Math.max(capacity, 1) + 1);
+	}
+
+	private void allocate(int size) {
+		this.starts = this.resize(this.starts, size);
+		this.ends = this.resize(this.ends, size);
+		this.textNrs = this.resize(this.textNrs, size);
+		this.typeContextNrs = this.resize(this.typeContextNrs, size);
+		this.links = this.resize(this.links, size);
+		this.firstChildren = this.resize(this.firstChildren, size);
+		this.nextSiblings = this.resize(this.nextSiblings, size);
+		this.morePositions = this.resize(this.morePositions, size);
+		this.edgeBegins = this.edgeBegins == null ? new char[size] : Arrays.copyOf(this.edgeBegins, size);
+		if (this.pathLengths != null)
+			this.pathLengths = this.resize(this.pathLengths, size);
+	}
+
+	private int[] resize(int[] array, int size) {
+		return array == null ? new int[size] : Arrays.copyOf(array, size);
+	}
+
+	/**
+	 * @return The amount of nodes room is currently allocated for
+	 */
+	public int getCapacity() {
+		return this.starts.length - 1;
+	}
+
+	/*
+	 * Ends
+	 */
+
+	// Encodes an end value, sharing open ends with the other leaves of the current text
+	private int encodeEnd(int end) {
+		if (end != BaseSuffixTree.oo || this.tree.getEnd() == null)
+			return end;
+		int last = this.sharedEnds.size() - 1;
+		if (last < 0 || this.sharedEnds.get(last) != this.tree.getEnd()) {
+			this.sharedEnds.add(this.tree.getEnd());
+			last++;
+		}
+		return SHAREDEND + last;
+	}
+
+	private int decodeEnd(int end) {
+		return end < SHAREDENDLIMIT ? this.sharedEnds.get(end - SHAREDEND).val : end;
+	}
+
+	/*
+	 * NodeStorage
+	 */
+
+	@Override
+	void newNode(int nodeNr, int start, int end, int textNr, int typeContextNr) {
+		if (nodeNr >= this.starts.length)
+			this.allocate(Math.max(nodeNr + 1, this.starts.length + (this.starts.length >> 1)));
+		this.starts[nodeNr] = start;
+		this.ends[nodeNr] = this.encodeEnd(end);
+		this.textNrs[nodeNr] = textNr;
+		this.typeContextNrs[nodeNr] = typeContextNr;
+		this.morePositions[nodeNr] = -1;
+		this.nodeAmount = nodeNr;
+	}
+
+	@Override
+	int getChild(int nodeNr, char edgeBegin) {
+		int childNr = this.firstChildren[nodeNr];
+		while (childNr != NO_NODE && this.edgeBegins[childNr] < edgeBegin)
+			childNr = this.nextSiblings[childNr];
+		if (childNr != NO_NODE && this.edgeBegins[childNr] == edgeBegin)
+			return childNr;
+		return NO_NODE;
+	}
+
+	@Override
+	void setChild(int nodeNr, char edgeBegin, int childNr) {
+		this.edgeBegins[childNr] = edgeBegin;
+
+		// Find the position within the sorted sibling list
+		int previousNr = NO_NODE;
+		int siblingNr = this.firstChildren[nodeNr];
+		while (siblingNr != NO_NODE && this.edgeBegins[siblingNr] < edgeBegin) {
+			previousNr = siblingNr;
+			siblingNr = this.nextSiblings[siblingNr];
+		}
+
+		// Replace a child with the same edge begin, otherwise insert
+		if (siblingNr == childNr)
+			return;
+		if (siblingNr != NO_NODE && this.edgeBegins[siblingNr] == edgeBegin)
+			this.nextSiblings[childNr] = this.nextSiblings[siblingNr];
+		else
+			this.nextSiblings[childNr] = siblingNr;
+		if (previousNr == NO_NODE)
+			this.firstChildren[nodeNr] = childNr;
+		else
+			this.nextSiblings[previousNr] = childNr;
+	}
+
+	@Override
+	int[] getChildren(int nodeNr) {
+		int amount = 0;
+		for (int childNr = this.firstChildren[nodeNr]; childNr != NO_NODE; childNr = this.nextSiblings[childNr])
+			amount++;
+		int[] children = new int[amount];
+		int i = 0;
+		for (int childNr = this.firstChildren[nodeNr]; childNr != NO_NODE; childNr = this.nextSiblings[childNr])
+			children[i++] = childNr;
+		return children;
+	}
+
+	@Override
+	boolean isTerminal(int nodeNr) {
+		return this.firstChildren[nodeNr] == NO_NODE;
+	}
+
+	@Override
+	int getLink(int nodeNr) {
+		return this.links[nodeNr];
+	}
+
+	@Override
+	void setLink(int nodeNr, int linkNr) {
+		this.links[nodeNr] = linkNr;
+	}
+
+	@Override
+	int getStart(int nodeNr) {
+		return this.starts[nodeNr];
+	}
+
+	@Override
+	int getEnd(int nodeNr) {
+		return this.decodeEnd(this.ends[nodeNr]);
+	}
+
+	@Override
+	void addPosition(int nodeNr, int start, int end, int textNr, int typeContextNr) {
+		// make sure that the position added is never equal to the last position set
+		int last = this.morePositions[nodeNr];
+		boolean equal = last < 0
+				? this.starts[nodeNr] == start && this.getEnd(nodeNr) == end && this.textNrs[nodeNr] == textNr
+				: this.positionStarts[last] == start && this.decodeEnd(this.positionEnds[last]) == end
+						&& this.positionTextNrs[last] == textNr;
+		if (equal) {
+			throw new IllegalStateException("addPos equal entry start: " + start + " end: " + end + " textNr: " + textNr);
+		}
+
+		if (this.positionAmount == this.positionStarts.length) {
+			int size = Math.max(16, this.positionAmount + (this.positionAmount >> 1));
+			this.positionStarts = Arrays.copyOf(this.positionStarts, size);
+			this.positionEnds = Arrays.copyOf(this.positionEnds, size);
+			this.positionTextNrs = Arrays.copyOf(this.positionTextNrs, size);
+			this.positionTypeContextNrs = Arrays.copyOf(this.positionTypeContextNrs, size);
+			this.nextPositions = Arrays.copyOf(this.nextPositions, size);
+		}
+		int index = this.positionAmount++;
+		this.positionStarts[index] = start;
+		this.positionEnds[index] = this.encodeEnd(end);
+		this.positionTextNrs[index] = textNr;
+		this.positionTypeContextNrs[index] = typeContextNr;
+
+		// Append to the node's ring of positions
+		if (last < 0) {
+			this.nextPositions[index] = index;
+		} else {
+			this.nextPositions[index] = this.nextPositions[last];
+			this.nextPositions[last] = index;
+		}
+		this.morePositions[nodeNr] = index;
+	}
+
+	// Index of the node's second position in the position store (-1 if none)
+	private int firstPosition(int nodeNr) {
+		int last = this.morePositions[nodeNr];
+		return last < 0 ? -1 : this.nextPositions[last];
+	}
+
+	// Index of the position following the given one (-1 if it is the node's last)
+	private int nextPosition(int nodeNr, int index) {
+		return index == this.morePositions[nodeNr] ? -1 : this.nextPositions[index];
+	}
+
+	@Override
+	void shiftStartPositions(int nodeNr, int amount) {
+		this.starts[nodeNr] += amount;
+		for (int index = this.firstPosition(nodeNr); index >= 0; index = this.nextPosition(nodeNr, index))
+			this.positionStarts[index] += amount;
+	}
+
+	@Override
+	Node getNode(int nodeNr) {
+		if (nodeNr < 1 || nodeNr > this.nodeAmount)
+			return null;
+		return new CompactNode(nodeNr);
+	}
+
+	/*
+	 * Positions
+	 */
+
+	int getPositionsAmount(int nodeNr) {
+		int amount = 1;
+		for (int index = this.firstPosition(nodeNr); index >= 0; index = this.nextPosition(nodeNr, index))
+			amount++;
+		return amount;
+	}
+
+	// Index of the given position (> 0) of a node within the position store
+	private int positionIndex(int nodeNr, int position) {
+		int index = this.firstPosition(nodeNr);
+		for (int i = 1; i < position && index >= 0; i++)
+			index = this.nextPosition(nodeNr, index);
+		if (index < 0)
+			throw new IndexOutOfBoundsException("Index: " + position);
+		return index;
+	}
+
+	int getStart(int nodeNr, int position) {
+		if (position == 0)
+			return this.starts[nodeNr];
+		return this.positionStarts[this.positionIndex(nodeNr, position)];
+	}
+
+	int getEnd(int nodeNr, int position) {
+		if (position == 0)
+			return this.decodeEnd(this.ends[nodeNr]);
+		return this.decodeEnd(this.positionEnds[this.positionIndex(nodeNr, position)]);
+	}
+
+	int getTextNr(int nodeNr, int position) {
+		if (position == 0)
+			return this.textNrs[nodeNr];
+		return this.positionTextNrs[this.positionIndex(nodeNr, position)];
+	}
+
+	int getTypeContextNr(int nodeNr, int position) {
+		if (position == 0)
+			return this.typeContextNrs[nodeNr];
+		return this.positionTypeContextNrs[this.positionIndex(nodeNr, position)];
+	}
+
+	/*
+	 * Client data
+	 */
+
+	void setPathLength(int nodeNr, int length) {
+		int[] pathLengths = this.pathLengths;
+		if (pathLengths == null) {
+			synchronized (this) {
+				pathLengths = this.pathLengths;
+				if (pathLengths == null) {
+					pathLengths = new int[this.starts.length];
+					Arrays.fill(pathLengths, -1);
+					this.pathLengths = pathLengths;
+				}
+			}
+		}
+		pathLengths[nodeNr] = length;
+	}
+
+	int getPathLength(int nodeNr) {
+		final int[] pathLengths = this.pathLengths;
+		return pathLengths == null ? -1 : pathLengths[nodeNr];
+	}
+
+	/**
+	 * View on a node of this storage.
+	 */
+	private class CompactNode extends Node {
+
+		private final int nodeNr;
+
+		private CompactNode(int nodeNr) {
+			super();
+			this.nodeNr = nodeNr;
+		}
+
+		@Override
+		public boolean isTerminal() {
+			return CompactNodeStorage.this.isTerminal(this.nodeNr);
+		}
+
+		@Override
+		void addPos(int start, int end, int textNr, int typeContext, BaseSuffixTree tree) {
+			CompactNodeStorage.this.addPosition(this.nodeNr, start, end, textNr, typeContext);
+		}
+
+		@Override
+		public int getStart(int pos) {
+			return CompactNodeStorage.this.getStart(this.nodeNr, pos);
+		}
+
+		@Override
+		public int getEnd(int pos) {
+			return CompactNodeStorage.this.getEnd(this.nodeNr, pos);
+		}
+
+		@Override
+		public int getTextNr(int pos) {
+			return CompactNodeStorage.this.getTextNr(this.nodeNr, pos);
+		}
+
+		@Override
+		public int getTypeContext(int pos) {
+			return CompactNodeStorage.this.getTypeContextNr(this.nodeNr, pos);
+		}
+
+		@Override
+		void updateStartPositions(int active_length) {
+			CompactNodeStorage.this.shiftStartPositions(this.nodeNr, active_length);
+		}
+
+		@Override
+		public int getPositionsAmount() {
+			return CompactNodeStorage.this.getPositionsAmount(this.nodeNr);
+		}
+
+		@Override
+		public int edgeLength(BaseSuffixTree tree) {
+			return tree.edgeLength(this.nodeNr);
+		}
+
+		@Override
+		public Set<Character> getEdgeBegins() {
+			Set<Character> edgeBegins = new TreeSet<Character>();
+			for (int childNr : CompactNodeStorage.this.getChildren(this.nodeNr))
+				edgeBegins.add(CompactNodeStorage.this.edgeBegins[childNr]);
+			return edgeBegins;
+		}
+
+		@Override
+		public Integer getNext(char edgeBegin) {
+			int childNr = CompactNodeStorage.this.getChild(this.nodeNr, edgeBegin);
+			return childNr == NO_NODE ? null : childNr;
+		}
+
+		@Override
+		public List<NodePosition> getPositions() {
+			CompactNodeStorage storage = CompactNodeStorage.this;
+			List<NodePosition> positions = new ArrayList<NodePosition>(this.getPositionsAmount());
+			positions.add(new NodePosition(storage.starts[this.nodeNr], new NodePositionEnd(storage.getEnd(this.nodeNr)),
+					storage.textNrs[this.nodeNr], storage.typeContextNrs[this.nodeNr]));
+			for (int index = storage.firstPosition(this.nodeNr); index >= 0; index = storage.nextPosition(this.nodeNr, index))
+				positions.add(new NodePosition(storage.positionStarts[index],
+						new NodePositionEnd(storage.decodeEnd(storage.positionEnds[index])), storage.positionTextNrs[index],
+						storage.positionTypeContextNrs[index]));
+			return Collections.unmodifiableList(positions);
+		}
+
+		@Override
+		public void setPathLength(int length) {
+			CompactNodeStorage.this.setPathLength(this.nodeNr, length);
+		}
+
+		@Override
+		public int getPathLength() {
+			return CompactNodeStorage.this.getPathLength(this.nodeNr);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.nodeNr;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof CompactNode))
+				return false;
+			CompactNode other = (CompactNode) obj;
+			return this.nodeNr == other.nodeNr && this.storage() == other.storage();
+		}
+
+		private CompactNodeStorage storage() {
+			return CompactNodeStorage.this;
+		}
+	}
+
+}
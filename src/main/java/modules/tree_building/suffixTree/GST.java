@@ -10,16 +10,42 @@ public class GST {
 	// class should not be instantiated
 	private GST() {};
 	
-	//jr
-	private static int findChar(String str, int start, char wanted) {
-		for (int i = start; i < str.length(); i++) {
-			if (str.charAt(i) == wanted)
-				return i;
+	// Initial size of the tree's arrays if the length of the input is not known
+	public static final int DEFAULTSIZEHINT = 4096;
+
+	// Reads the input text by text (up to and including the terminating '$'). Lines are
+	// joined as before: a line ending with '$' is appended directly, others after a blank.
+	private static class TextReader {
+
+		private final BufferedReader in;
+		private final StringBuilder text = new StringBuilder();
+		private String line = null;
+		private int index = 0;
+		private boolean firstLine = true;
+
+		TextReader(BufferedReader in) {
+			this.in = in;
 		}
-		return -1;
-	}
 
-	// 
+		// returns the next text or null if the input is exhausted
+		String readText() throws IOException {
+			this.text.setLength(0);
+			while (true) {
+				if (this.line == null || this.index >= this.line.length()) {
+					this.line = this.in.readLine();
+					this.index = 0;
+					if (this.line == null) break;
+					if (this.line.isEmpty()) continue;
+					if (!this.firstLine && this.line.charAt(this.line.length() - 1) != '$') this.text.append(' ');
+					this.firstLine = false;
+				}
+				char c = this.line.charAt(this.index++);
+				this.text.append(c);
+				if (c == '$') break;
+			}
+			return this.text.length() == 0 ? null : this.text.toString();
+		}
+	}
 	
 	public static SuffixTree buildGSTTEST(BufferedReader in, List<Integer> typeContextEndIndices) throws Exception {
 		//JR test 16-09-29
@@ -46,22 +72,26 @@ public class GST {
 	}
 	
 	public static SuffixTree buildGST(BufferedReader in, List<Integer> typeContextEndIndices) throws Exception {
+		return buildGST(in, typeContextEndIndices, false);
+	}
+	
+	// Builds a GST; if compact is true, the nodes are kept in primitive arrays (see CompactNodeStorage),
+	// which needs a fraction of the memory of the default representation.
+	public static SuffixTree buildGST(BufferedReader in, List<Integer> typeContextEndIndices, boolean compact) throws Exception {
+		return buildGST(in, typeContextEndIndices, compact, DEFAULTSIZEHINT);
+	}
+	
+	// Builds a GST while reading the input text by text, i.e. the whole input is never held in memory
+	// apart from the tree's own text array. sizeHint is the expected length of the input in chars;
+	// the tree's arrays grow if it is exceeded, so a good estimate merely saves copying.
+	public static SuffixTree buildGST(BufferedReader in, List<Integer> typeContextEndIndices, boolean compact, int sizeHint) throws Exception {
 		//JR test 16-09-29
 		System.out.println("SuffixTree");
 		
 		int nrText = 0;
-		 
-		String line,inText="",nextinText;		
-	   // BufferedReader in = new BufferedReader(inputReader);
-	    inText=in.readLine();
-	    while ((line=in.readLine())!=null) {
-	    	System.out.println("buildGST: "+line);
-	    	if(line.charAt(line.length()-1)=='$')inText=inText+line; else inText=inText+" "+line;
-	    }
-	    in.close();
-	    
-	   
-		SuffixTree st = new SuffixTree(inText.length());
+		
+		TextReader texts = new TextReader(in);
+		SuffixTree st = new SuffixTree(Math.max(sizeHint, 1), compact);
 		NodePositionEnd oo = st.newEnd();// end value for leaves; is changed if final '$' is reached
 									  // generate new st.OO for next text
 
@@ -75,23 +105,29 @@ public class GST {
 	    	st.incrementTypeContext();
 	    }
 		
-		for (int i = 0; i < inText.length(); i++) {
-			//JR test 16-09-29
-			//System.out.print(inText.charAt(i));
-			st.addChar(inText.charAt(i), nrText);
+		// position of the current text in the whole input and amount of its chars already in st.text
+		int textBegin = 0;
+		int offset = 0;
+		String inText = texts.readText();
+		while (inText != null) {
+			for (int i = offset; i < inText.length(); i++) {
+				st.addChar(inText.charAt(i), nrText);
+			}
+			int textEnd = textBegin + inText.length();
+			String nextinText = texts.readText();
+			
 			// while loop as completely repeated texts are possible
-			while(inText.charAt(i) == '$') {
-				//JR test  16-09-29
-				//System.out.println();
+			while (inText.charAt(inText.length() - 1) == '$') {
+				offset = 0;
 				// set value for end in leaves
-				oo.val=i+1;
+				oo.val = textEnd;
 				// generate new element for next text
 				oo = st.newEnd();
 
 				nrText++;
 				// note the beginning of the whole next text in the tree
-				if (i != inText.length() - 1) {
-					st.setTextBegin(nrText, i + 1);
+				if (nextinText != null) {
+					st.setTextBegin(nrText, textEnd);
 				}
 
 				// Handle incrementing of type contexts if provided
@@ -99,29 +135,33 @@ public class GST {
 					incrementTypeContexts(st, typeContextEndIndices, nrText);
 				}
 
-				int end = findChar(inText, i + 1, '$');
-				// inText end not reached
-				if (end > i) {
-					nextinText = inText.substring(i + 1, end + 1);
-					int res=st.longestPath(nextinText,st.root);
-					st.remainder=res; // see addChar, remainder corresponds 
-					//					 to longest length of label to implicit node
-					// chars from inText must be copied to st.text (=array of char) for identical longest path
-					for (int j=i+1;j<=i+res;j++)st.text[++st.position]=inText.charAt(j);
-					// print out for control
-					i=i+res;
-					
-					// res must be greater 0; otherwise endless while loop
-					if((res!=0)&& (inText.charAt(i)=='$')) {
+				// input end reached or the last text is not terminated
+				if (nextinText == null || nextinText.charAt(nextinText.length() - 1) != '$') break;
+				
+				int res=st.longestPath(nextinText,st.root);
+				st.remainder=res; // see addChar, remainder corresponds 
+				//					 to longest length of label to implicit node
+				// chars from nextinText must be copied to st.text (=array of char) for identical longest path
+				for (int j = 0; j < res; j++) st.appendText(nextinText.charAt(j));
+				offset = res;
+				
+				// res must be greater 0; otherwise endless while loop
+				if ((res != 0) && (nextinText.charAt(res - 1) == '$')) {
 					// next text is completely contained in suffix tree (i.e. it is a complete repeat of a
 					// precedent text). In this case, addChar won't be called
-						st.addRemaining(nrText);
-					}else break;
-
-				} else break;// if end > i; inText end reached
+					st.addRemaining(nrText);
+					inText = nextinText;
+					textBegin = textEnd;
+					textEnd = textBegin + inText.length();
+					nextinText = texts.readText();
+				} else break;
 			}// while
 
-		}// for (int i = 0; i < inText.length(); i++)
+			inText = nextinText;
+			textBegin = textEnd;
+		}// while (inText != null)
+		in.close();
+		st.trimText();
 		
 		if(typeContextEndIndices != null && !typeContextEndIndices.isEmpty()) {
 			throw new IllegalStateException(
@@ -0,0 +1,46 @@
+package modules.tree_building.suffixTree;
+
+/**
+ * A listener whose work can be split up between subtrees, such that
+ * {@link TreeWalker#walkParallel(int, BaseSuffixTree, IMergeableTreeWalkerListener)}
+ * is able to walk the subtrees concurrently.
+ *
+ * The walker forks the listener on entering a node whose subtree is split,
+ * lets each fork walk one of the node's children and merges the forks back in
+ * the order of the children before the node is exited. Thereby, the merged
+ * results should be the same as if the listener had walked the tree alone.
+ *
+ * @param <L>
+ *            The implementing class
+ */
+public interface IMergeableTreeWalkerListener<L extends IMergeableTreeWalkerListener<L>> extends ITreeWalkerListener {
+
+	/**
+	 * Creates a listener to walk a subtree of the current node. The fork has
+	 * no results of it's own yet, but the same view of the path to the current
+	 * node as this listener.
+	 *
+	 * @return The new listener
+	 */
+	L fork();
+
+	/**
+	 * Adds the results of a fork after it has walked it's subtree.
+	 *
+	 * @param fork
+	 *            A listener created by {@link #fork()}
+	 */
+	void merge(L fork);
+
+	/**
+	 * Offers the listener the index of all leaves below the start node, which
+	 * the walker builds before the walk, such that the listener need not build
+	 * one itself. Listeners that do not look up leaves ignore it.
+	 *
+	 * @param leafIndex
+	 *            The complete leaf index
+	 */
+	default void setLeafIndex(LeafIndex leafIndex) {
+	}
+
+}
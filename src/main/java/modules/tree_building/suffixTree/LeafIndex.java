@@ -0,0 +1,186 @@
+package modules.tree_building.suffixTree;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Numbers the terminal nodes (leaves) of a suffix tree in depth-first order.
+ * Thereby the leaves below any node form a contiguous range of leaf numbers,
+ * so a single packed array of leaf node numbers and two ints per node suffice
+ * to find all leaves of every node, instead of a set of leaves per node.
+ *
+ * The range of a terminal node only contains the node itself.
+ *
+ * The amounts of positions of the leaves are summed up in the same order, so
+ * that the positions of all leaves below a node are counted in constant time.
+ *
+ * The index is filled while walking the tree depth-first by calling
+ * {@link #enter(int)} and {@link #exit(int, boolean)} for each node (see
+ * {@link AbstractResultNodeStackListener}), or at once by
+ * {@link #build(BaseSuffixTree, int)}. An index built at once is complete and
+ * ignores further calls to {@link #enter(int)} and {@link #exit(int, boolean)},
+ * so it may be shared by listeners walking parts of the tree concurrently.
+ */
+public class LeafIndex {
+
+	private final BaseSuffixTree tree;
+
+	// The node numbers of all leaves in depth-first order
+	private int[] leaves;
+	private int leafAmount = 0;
+
+	// The amount of positions of the leaves before each leaf number, i.e. one
+	// more element than there are leaves
+	private int[] positionSums;
+
+	// The range [firstLeaf, endLeaf) of every node, indexed by node number
+	private final int[] firstLeaves;
+	private final int[] endLeaves;
+
+	// Set once the whole tree below the start node has been indexed
+	private boolean complete = false;
+
+	/**
+	 * Constructor
+	 *
+	 * @param tree
+	 *            The tree whose leaves are indexed
+	 */
+	public LeafIndex(BaseSuffixTree tree) {
+		this.firstLeaves = new int[tree.getNodeAmount() + 1];
+		this.endLeaves = new int[tree.getNodeAmount() + 1];
+		this.leaves = new int[Math.max(16, tree.getNodeAmount() / 2)];
+		this.positionSums = new int[this.leaves.length + 1];
+		this.tree = tree;
+	}
+
+	/**
+	 * Indexes all leaves below the given node.
+	 *
+	 * @param tree
+	 *            The tree whose leaves are indexed
+	 * @param startNodeNr
+	 *            The node to start with (usually the root)
+	 * @return The filled index
+	 */
+	public static LeafIndex build(final BaseSuffixTree tree, int startNodeNr) {
+		final LeafIndex index = new LeafIndex(tree);
+		try {
+			TreeWalker.walk(startNodeNr, tree, new ITreeWalkerListener() {
+				@Override
+				public void entryaction(int nodeNr, int level) {
+					index.enter(nodeNr);
+				}
+
+				@Override
+				public void exitaction(int nodeNr, int level) {
+					index.exit(nodeNr, tree.nodes.isTerminal(nodeNr));
+				}
+			});
+		} catch (IOException e) {
+			// not thrown by the listener above
+			throw new IllegalStateException(e);
+		}
+		index.complete = true;
+		return index;
+	}
+
+	/**
+	 * Notes that the walk enters the given node.
+	 *
+	 * @param nodeNr
+	 *            The node entered
+	 */
+	public void enter(int nodeNr) {
+		if (this.complete)
+			return;
+		this.firstLeaves[nodeNr] = this.leafAmount;
+	}
+
+	/**
+	 * Notes that the walk leaves the given node, i.e. all leaves below it have
+	 * been numbered.
+	 *
+	 * @param nodeNr
+	 *            The node left
+	 * @param terminal
+	 *            Whether the node is a terminal node
+	 */
+	public void exit(int nodeNr, boolean terminal) {
+		if (this.complete)
+			return;
+		if (terminal) {
+			if (this.leafAmount == this.leaves.length) {
+				this.leaves = Arrays.copyOf(this.leaves, this.leafAmount + (this.leafAmount >> 1));
+				this.positionSums = Arrays.copyOf(this.positionSums, this.leaves.length + 1);
+			}
+			this.positionSums[this.leafAmount + 1] = this.positionSums[this.leafAmount]
+					+ this.tree.getNode(nodeNr).getPositionsAmount();
+			this.leaves[this.leafAmount++] = nodeNr;
+		}
+		this.endLeaves[nodeNr] = this.leafAmount;
+	}
+
+	/**
+	 * @param nodeNr
+	 *            The node number
+	 * @return The number of the node's first leaf
+	 */
+	public int getFirstLeaf(int nodeNr) {
+		return this.firstLeaves[nodeNr];
+	}
+
+	/**
+	 * @param nodeNr
+	 *            The node number
+	 * @return The number following the node's last leaf
+	 */
+	public int getEndLeaf(int nodeNr) {
+		return this.endLeaves[nodeNr];
+	}
+
+	/**
+	 * @param nodeNr
+	 *            The node number
+	 * @return The amount of leaves below the node (one for a terminal node)
+	 */
+	public int getLeafAmount(int nodeNr) {
+		return this.endLeaves[nodeNr] - this.firstLeaves[nodeNr];
+	}
+
+	/**
+	 * @param nodeNr
+	 *            The node number
+	 * @return The amount of positions of all leaves below the node (its own
+	 *         positions for a terminal node)
+	 */
+	public int getPositionsAmount(int nodeNr) {
+		return this.positionSums[this.endLeaves[nodeNr]] - this.positionSums[this.firstLeaves[nodeNr]];
+	}
+
+	/**
+	 * @param leafNr
+	 *            The number of a leaf
+	 * @return The node number of the leaf
+	 */
+	public int getLeaf(int leafNr) {
+		if (leafNr >= this.leafAmount)
+			throw new IndexOutOfBoundsException("Leaf: " + leafNr + ", leaves: " + this.leafAmount);
+		return this.leaves[leafNr];
+	}
+
+	/**
+	 * @return True if the index was built at once
+	 */
+	public boolean isComplete() {
+		return this.complete;
+	}
+
+	/**
+	 * @return The amount of leaves numbered so far
+	 */
+	public int getLeafAmount() {
+		return this.leafAmount;
+	}
+
+}
@@ -0,0 +1,93 @@
+package modules.tree_building.suffixTree;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only section of a file mapped to memory, accessed as an array of
+ * ints or chars. A single mapping is limited to 2 GB, so larger sections are
+ * mapped in chunks.
+ *
+ * @see SuffixTreeFile
+ */
+class MappedArray {
+
+	// Chunks of 1 GB; a multiple of every element size, so no element spans
+	// two chunks
+	private static final int CHUNKSHIFT = 30;
+	private static final long CHUNKMASK = (1L << CHUNKSHIFT) - 1;
+
+	private final MappedByteBuffer[] chunks;
+
+	/**
+	 * Maps a section of the given file.
+	 *
+	 * @param channel
+	 *            The file's channel (it may be closed afterwards)
+	 * @param offset
+	 *            Offset of the section in bytes
+	 * @param size
+	 *            Size of the section in bytes
+	 * @throws IOException
+	 *             If the section cannot be mapped
+	 */
+	MappedArray(FileChannel channel, long offset, long size) throws IOException {
+		this.chunks = new MappedByteBuffer[(int) ((size + CHUNKMASK) >>> CHUNKSHIFT)];
+		for (int i = 0; i < this.chunks.length; i++) {
+			final long chunkOffset = (long) i << CHUNKSHIFT;
+			this.chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + chunkOffset,
+					Math.min(size - chunkOffset, 1L << CHUNKSHIFT));
+		}
+	}
+
+	/**
+	 * @param index
+	 *            Index of an int within the section
+	 * @return The int
+	 */
+	int getInt(long index) {
+		final long position = index << 2;
+		return this.chunks[(int) (position >>> CHUNKSHIFT)].getInt((int) (position & CHUNKMASK));
+	}
+
+	/**
+	 * @param index
+	 *            Index of a char within the section
+	 * @return The char
+	 */
+	char getChar(long index) {
+		final long position = index << 1;
+		return this.chunks[(int) (position >>> CHUNKSHIFT)].getChar((int) (position & CHUNKMASK));
+	}
+
+	/**
+	 * Copies a range of chars in bulk.
+	 *
+	 * @param index
+	 *            Index of the first char within the section
+	 * @param target
+	 *            Array to copy the chars to
+	 * @param offset
+	 *            Offset within the target array
+	 * @param length
+	 *            Amount of chars to copy
+	 */
+	void getChars(long index, char[] target, int offset, int length) {
+		while (length > 0) {
+			final long position = index << 1;
+			// duplicate, as the position of a shared buffer must not change
+			final ByteBuffer chunk = this.chunks[(int) (position >>> CHUNKSHIFT)].duplicate();
+			chunk.position((int) (position & CHUNKMASK));
+			final CharBuffer chars = chunk.asCharBuffer();
+			final int amount = Math.min(length, chars.remaining());
+			chars.get(target, offset, amount);
+			index += amount;
+			offset += amount;
+			length -= amount;
+		}
+	}
+
+}
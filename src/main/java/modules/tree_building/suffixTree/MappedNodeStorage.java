@@ -0,0 +1,299 @@
+package modules.tree_building.suffixTree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Read-only node storage backed by the sections of a suffix tree file mapped
+ * to memory (see {@link SuffixTreeFile} for the layout). Nothing is read
+ * when the storage is created, the nodes are read from the mapped sections
+ * when accessed, so huge trees are opened at once and only the parts
+ * actually visited are paged in.
+ *
+ * As with {@link CompactNodeStorage}, {@link Node} objects handed out by
+ * {@link #getNode(int)} are views, and the path lengths set by clients are
+ * kept in memory by this storage.
+ */
+public class MappedNodeStorage extends NodeStorage {
+
+	private final int nodeAmount;
+
+	// Node records, a record per node number and one after the last node,
+	// such that the children and positions of node n end where those of
+	// node n + 1 begin
+	private final MappedArray nodes;
+
+	// The children of all nodes ordered by parent and edge begin
+	private final MappedArray children;
+
+	// The second and following positions of all nodes ordered by node
+	private final MappedArray positions;
+
+	// Client data field of the node views, allocated on demand
+	private volatile int[] pathLengths = null;
+
+	MappedNodeStorage(int nodeAmount, MappedArray nodes, MappedArray children, MappedArray positions) {
+		this.nodeAmount = nodeAmount;
+		this.nodes = nodes;
+		this.children = children;
+		this.positions = positions;
+	}
+
+	private int field(int nodeNr, int field) {
+		return this.nodes.getInt((long) nodeNr * SuffixTreeFile.NODEFIELDS + field);
+	}
+
+	private int position(int index, int field) {
+		return this.positions.getInt((long) index * SuffixTreeFile.POSITIONFIELDS + field);
+	}
+
+	private char edgeBegin(int nodeNr) {
+		return (char) this.field(nodeNr, SuffixTreeFile.EDGEBEGIN);
+	}
+
+	/*
+	 * NodeStorage
+	 */
+
+	@Override
+	void newNode(int nodeNr, int start, int end, int textNr, int typeContextNr) {
+		throw new UnsupportedOperationException("The nodes of a mapped tree cannot be changed.");
+	}
+
+	@Override
+	int getChild(int nodeNr, char edgeBegin) {
+		// binary search on the children, they are ordered by edge begin
+		int low = this.field(nodeNr, SuffixTreeFile.CHILDREN);
+		int high = this.field(nodeNr + 1, SuffixTreeFile.CHILDREN) - 1;
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			final int childNr = this.children.getInt(middle);
+			final char childEdgeBegin = this.edgeBegin(childNr);
+			if (childEdgeBegin < edgeBegin)
+				low = middle + 1;
+			else if (childEdgeBegin > edgeBegin)
+				high = middle - 1;
+			else
+				return childNr;
+		}
+		return NO_NODE;
+	}
+
+	@Override
+	void setChild(int nodeNr, char edgeBegin, int childNr) {
+		throw new UnsupportedOperationException("The nodes of a mapped tree cannot be changed.");
+	}
+
+	@Override
+	int[] getChildren(int nodeNr) {
+		final int first = this.field(nodeNr, SuffixTreeFile.CHILDREN);
+		final int[] childNrs = new int[this.field(nodeNr + 1, SuffixTreeFile.CHILDREN) - first];
+		for (int i = 0; i < childNrs.length; i++)
+			childNrs[i] = this.children.getInt(first + i);
+		return childNrs;
+	}
+
+	@Override
+	boolean isTerminal(int nodeNr) {
+		return this.field(nodeNr, SuffixTreeFile.CHILDREN) == this.field(nodeNr + 1, SuffixTreeFile.CHILDREN);
+	}
+
+	@Override
+	int getLink(int nodeNr) {
+		return this.field(nodeNr, SuffixTreeFile.LINK);
+	}
+
+	@Override
+	void setLink(int nodeNr, int linkNr) {
+		throw new UnsupportedOperationException("The nodes of a mapped tree cannot be changed.");
+	}
+
+	@Override
+	int getStart(int nodeNr) {
+		return this.field(nodeNr, SuffixTreeFile.START);
+	}
+
+	@Override
+	int getEnd(int nodeNr) {
+		return this.field(nodeNr, SuffixTreeFile.END);
+	}
+
+	@Override
+	void addPosition(int nodeNr, int start, int end, int textNr, int typeContextNr) {
+		throw new UnsupportedOperationException("The nodes of a mapped tree cannot be changed.");
+	}
+
+	@Override
+	void shiftStartPositions(int nodeNr, int amount) {
+		throw new UnsupportedOperationException("The nodes of a mapped tree cannot be changed.");
+	}
+
+	@Override
+	Node getNode(int nodeNr) {
+		if (nodeNr < 1 || nodeNr > this.nodeAmount)
+			return null;
+		return new MappedNode(nodeNr);
+	}
+
+	/*
+	 * Positions
+	 */
+
+	int getPositionsAmount(int nodeNr) {
+		return 1 + this.field(nodeNr + 1, SuffixTreeFile.POSITIONS) - this.field(nodeNr, SuffixTreeFile.POSITIONS);
+	}
+
+	// Reads a field of the given position of a node, position 0 is kept in
+	// the node's record
+	private int positionField(int nodeNr, int position, int nodeField, int positionField) {
+		if (position == 0)
+			return this.field(nodeNr, nodeField);
+		if (position < 0 || position >= this.getPositionsAmount(nodeNr))
+			throw new IndexOutOfBoundsException("Index: " + position);
+		return this.position(this.field(nodeNr, SuffixTreeFile.POSITIONS) + position - 1, positionField);
+	}
+
+	/*
+	 * Client data
+	 */
+
+	void setPathLength(int nodeNr, int length) {
+		int[] pathLengths = this.pathLengths;
+		if (pathLengths == null) {
+			synchronized (this) {
+				pathLengths = this.pathLengths;
+				if (pathLengths == null) {
+					pathLengths = new int[this.nodeAmount + 1];
+					Arrays.fill(pathLengths, -1);
+					this.pathLengths = pathLengths;
+				}
+			}
+		}
+		pathLengths[nodeNr] = length;
+	}
+
+	int getPathLength(int nodeNr) {
+		final int[] pathLengths = this.pathLengths;
+		return pathLengths == null ? -1 : pathLengths[nodeNr];
+	}
+
+	/**
+	 * View on a node of this storage.
+	 */
+	private class MappedNode extends Node {
+
+		private final int nodeNr;
+
+		private MappedNode(int nodeNr) {
+			super();
+			this.nodeNr = nodeNr;
+		}
+
+		@Override
+		public boolean isTerminal() {
+			return MappedNodeStorage.this.isTerminal(this.nodeNr);
+		}
+
+		@Override
+		void addPos(int start, int end, int textNr, int typeContext, BaseSuffixTree tree) {
+			MappedNodeStorage.this.addPosition(this.nodeNr, start, end, textNr, typeContext);
+		}
+
+		@Override
+		public int getStart(int pos) {
+			return MappedNodeStorage.this.positionField(this.nodeNr, pos, SuffixTreeFile.START,
+					SuffixTreeFile.POSITIONSTART);
+		}
+
+		@Override
+		public int getEnd(int pos) {
+			return MappedNodeStorage.this.positionField(this.nodeNr, pos, SuffixTreeFile.END,
+					SuffixTreeFile.POSITIONEND);
+		}
+
+		@Override
+		public int getTextNr(int pos) {
+			return MappedNodeStorage.this.positionField(this.nodeNr, pos, SuffixTreeFile.TEXTNR,
+					SuffixTreeFile.POSITIONTEXTNR);
+		}
+
+		@Override
+		public int getTypeContext(int pos) {
+			return MappedNodeStorage.this.positionField(this.nodeNr, pos, SuffixTreeFile.TYPECONTEXTNR,
+					SuffixTreeFile.POSITIONTYPECONTEXTNR);
+		}
+
+		@Override
+		void updateStartPositions(int active_length) {
+			MappedNodeStorage.this.shiftStartPositions(this.nodeNr, active_length);
+		}
+
+		@Override
+		public int getPositionsAmount() {
+			return MappedNodeStorage.this.getPositionsAmount(this.nodeNr);
+		}
+
+		@Override
+		public int edgeLength(BaseSuffixTree tree) {
+			return tree.edgeLength(this.nodeNr);
+		}
+
+		@Override
+		public Set<Character> getEdgeBegins() {
+			Set<Character> edgeBegins = new TreeSet<Character>();
+			for (int childNr : MappedNodeStorage.this.getChildren(this.nodeNr))
+				edgeBegins.add(MappedNodeStorage.this.edgeBegin(childNr));
+			return edgeBegins;
+		}
+
+		@Override
+		public Integer getNext(char edgeBegin) {
+			int childNr = MappedNodeStorage.this.getChild(this.nodeNr, edgeBegin);
+			return childNr == NO_NODE ? null : childNr;
+		}
+
+		@Override
+		public List<NodePosition> getPositions() {
+			final int amount = this.getPositionsAmount();
+			final List<NodePosition> positions = new ArrayList<NodePosition>(amount);
+			for (int pos = 0; pos < amount; pos++)
+				positions.add(new NodePosition(this.getStart(pos), new NodePositionEnd(this.getEnd(pos)),
+						this.getTextNr(pos), this.getTypeContext(pos)));
+			return Collections.unmodifiableList(positions);
+		}
+
+		@Override
+		public void setPathLength(int length) {
+			MappedNodeStorage.this.setPathLength(this.nodeNr, length);
+		}
+
+		@Override
+		public int getPathLength() {
+			return MappedNodeStorage.this.getPathLength(this.nodeNr);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.nodeNr;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof MappedNode))
+				return false;
+			MappedNode other = (MappedNode) obj;
+			return this.nodeNr == other.nodeNr && this.storage() == other.storage();
+		}
+
+		private MappedNodeStorage storage() {
+			return MappedNodeStorage.this;
+		}
+	}
+
+}
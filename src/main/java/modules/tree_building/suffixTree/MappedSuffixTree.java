@@ -0,0 +1,53 @@
+package modules.tree_building.suffixTree;
+
+import java.util.List;
+
+/**
+ * A suffix tree opened from a file by {@link SuffixTreeFile#map(java.io.File)}.
+ * Both the nodes and the text are read from the mapped file, so the tree can
+ * be searched and walked, but not extended.
+ */
+class MappedSuffixTree extends SuffixTree {
+
+	private final MappedArray mappedText;
+	// the whole text, decoded when first asked for; the tree cannot change
+	private volatile String text = null;
+
+	MappedSuffixTree(MappedNodeStorage nodes, MappedArray text, int nodeAmount, int root, int textLength,
+			int typeContext, List<Integer> textBegins) {
+		super(nodes, nodeAmount, root, textLength, typeContext, textBegins);
+		this.mappedText = text;
+	}
+
+	@Override
+	public void addChar(char ch, int nrText) {
+		throw new UnsupportedOperationException("A mapped tree cannot be extended.");
+	}
+
+	@Override
+	char charAt(int index) {
+		if (index < 0 || index > this.position)
+			throw new ArrayIndexOutOfBoundsException(index);
+		return this.mappedText.getChar(index);
+	}
+
+	@Override
+	String textString(int begin, int end) {
+		if (begin < 0 || end > this.position + 1 || begin > end)
+			throw new ArrayIndexOutOfBoundsException("Range: [" + begin + ", " + end + ")");
+		final char[] chars = new char[end - begin];
+		this.mappedText.getChars(begin, chars, 0, chars.length);
+		return new String(chars);
+	}
+
+	@Override
+	public String getText() {
+		String text = this.text;
+		if (text == null) {
+			text = super.getText();
+			this.text = text;
+		}
+		return text;
+	}
+
+}
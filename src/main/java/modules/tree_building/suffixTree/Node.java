@@ -2,7 +2,6 @@ package modules.tree_building.suffixTree;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeMap;
@@ -22,12 +21,7 @@ public class Node {
 	private List<NodePosition> positions;
 	
 	// the edges to the next nodes (represented by a node nr in the tree)
-	TreeMap<Character, Integer> next = new TreeMap<Character, Integer>();
-	
-	// A data field that may be used by clients to link a node to all it's leaf nodes.
-	// This field is never used in the construction of the suffix tree and can
-	// be ignored for the simple purpose of building and using a suffix tree in a normal way.
-	private Set<Node> leaves = new HashSet<Node>();
+	TreeMap<Character, Integer> next;
 	
 	// A data field that may be used to set the length of the path up to this node.
 	// This field is never used in the construction of the suffix tree and can
@@ -37,9 +31,14 @@ public class Node {
 	// cstr
 	public Node(int start, int end, int nr, int typeContextNr, BaseSuffixTree tree) {
 		this.positions=new ArrayList<NodePosition>(1);
+		this.next = new TreeMap<Character, Integer>();
 		this.addPos(start, end, nr, typeContextNr, tree);
 	}// Node
 	
+	// cstr for subclasses that keep the node's data elsewhere (see CompactNodeStorage)
+	protected Node() {
+	}
+	
 	public boolean isTerminal() {
 		return ((this.next==null) || (this.next.size()==0));
 	}
@@ -138,13 +137,6 @@ public class Node {
 		return Collections.unmodifiableList(this.positions);
 	}
 	
-	/**
-	 * @return The leaves set for this node or an empty set if none were set.
-	 */
-	public Set<Node> getLeaves() {
-		return this.leaves;
-	}
-	
 	/**
 	 * Set the path length up to this node to the specified value.
 	 * @param length path length
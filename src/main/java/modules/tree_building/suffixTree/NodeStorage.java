@@ -0,0 +1,146 @@
+package modules.tree_building.suffixTree;
+
+/**
+ * Storage backend for the nodes of a {@link BaseSuffixTree}. The suffix tree
+ * algorithm only addresses nodes by their number and accesses them through
+ * this class, so that the representation of the nodes can be exchanged.
+ * 
+ * Node numbers start at 1; the number 0 is used to denote "no node" (e.g. a
+ * missing child or suffix link).
+ * 
+ * Two implementations exist: {@link ObjectNodeStorage} keeps a {@link Node}
+ * object per node, {@link CompactNodeStorage} keeps all nodes in primitive
+ * arrays and creates {@link Node} objects merely as views on demand. A tree
+ * written to a file is read by the read-only {@link MappedNodeStorage}.
+ */
+public abstract class NodeStorage {
+
+	// Denotes a missing node
+	public static final int NO_NODE = 0;
+
+	/**
+	 * Creates a new node with a single position.
+	 * 
+	 * @param nodeNr
+	 *            The number of the new node (always one larger than the
+	 *            number of the node created last)
+	 * @param start
+	 *            Start of the node's edge in the tree's text
+	 * @param end
+	 *            End (exclusive) of the node's edge, {@link BaseSuffixTree#oo}
+	 *            for leaves whose end is still open
+	 * @param textNr
+	 *            The number of the text the position belongs to
+	 * @param typeContextNr
+	 *            The type context of the position
+	 */
+	abstract void newNode(int nodeNr, int start, int end, int textNr, int typeContextNr);
+
+	/**
+	 * Returns the child reached by the edge beginning with the given char.
+	 * 
+	 * @param nodeNr
+	 *            Parent node
+	 * @param edgeBegin
+	 *            First char of the edge
+	 * @return Child node or {@link #NO_NODE}
+	 */
+	abstract int getChild(int nodeNr, char edgeBegin);
+
+	/**
+	 * Sets (or replaces) the child reached by the edge beginning with the
+	 * given char.
+	 * 
+	 * @param nodeNr
+	 *            Parent node
+	 * @param edgeBegin
+	 *            First char of the edge
+	 * @param childNr
+	 *            Child node
+	 */
+	abstract void setChild(int nodeNr, char edgeBegin, int childNr);
+
+	/**
+	 * @param nodeNr
+	 *            Node
+	 * @return The node's children ordered by the first char of their edges
+	 */
+	abstract int[] getChildren(int nodeNr);
+
+	/**
+	 * @param nodeNr
+	 *            Node
+	 * @return True if the node has no children
+	 */
+	abstract boolean isTerminal(int nodeNr);
+
+	/**
+	 * @param nodeNr
+	 *            Node
+	 * @return The node's suffix link or {@link #NO_NODE}
+	 */
+	abstract int getLink(int nodeNr);
+
+	/**
+	 * @param nodeNr
+	 *            Node
+	 * @param linkNr
+	 *            Target of the node's suffix link
+	 */
+	abstract void setLink(int nodeNr, int linkNr);
+
+	/**
+	 * @param nodeNr
+	 *            Node
+	 * @return Start of the node's edge (i.e. of its first position)
+	 */
+	abstract int getStart(int nodeNr);
+
+	/**
+	 * @param nodeNr
+	 *            Node
+	 * @return End (exclusive) of the node's edge (i.e. of its first
+	 *         position)
+	 */
+	abstract int getEnd(int nodeNr);
+
+	/**
+	 * Adds another position to a node. Used for terminal nodes that are
+	 * reached by suffixes of several texts.
+	 * 
+	 * @param nodeNr
+	 *            Node
+	 * @param start
+	 *            Start of the position
+	 * @param end
+	 *            End (exclusive) of the position
+	 * @param textNr
+	 *            The number of the text the position belongs to
+	 * @param typeContextNr
+	 *            The type context of the position
+	 */
+	abstract void addPosition(int nodeNr, int start, int end, int textNr, int typeContextNr);
+
+	/**
+	 * Moves all start positions of a node by the given amount (used when the
+	 * node's edge is split).
+	 * 
+	 * @param nodeNr
+	 *            Node
+	 * @param amount
+	 *            Amount to add to the start positions
+	 */
+	abstract void shiftStartPositions(int nodeNr, int amount);
+
+	/**
+	 * Returns a {@link Node} for the given node number. Depending on the
+	 * implementation this is either the node itself or a view on it, so
+	 * clients should compare nodes by {@link Object#equals(Object)}.
+	 * 
+	 * @param nodeNr
+	 *            Node
+	 * @return Node or null if there is no such node
+	 */
+	abstract Node getNode(int nodeNr);
+
+}
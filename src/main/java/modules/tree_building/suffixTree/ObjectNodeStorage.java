@@ -0,0 +1,100 @@
+package modules.tree_building.suffixTree;
+
+import java.util.Arrays;
+
+/**
+ * Keeps every node of a suffix tree as a {@link Node} object. Simple and
+ * flexible, but each node carries its own child map, position list and leaf
+ * set, so this needs a few hundred bytes per node.
+ */
+public class ObjectNodeStorage extends NodeStorage {
+
+	private final BaseSuffixTree tree;
+	private Node[] nodes;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param tree
+	 *            The tree the nodes belong to
+	 * @param capacity
+	 *            Initial amount of nodes to allocate room for; the array
+	 *            grows if more are needed
+	 */
+	public ObjectNodeStorage(BaseSuffixTree tree, int capacity) {
+		this.tree = tree;
+		this.nodes = new Node[capacity + 1];
+	}
+
+	@Override
+	void newNode(int nodeNr, int start, int end, int textNr, int typeContextNr) {
+		if (nodeNr >= this.nodes.length)
+			this.nodes = Arrays.copyOf(this.nodes, Math.max(nodeNr + 1, this.nodes.length + (this.nodes.length >> 1)));
+		this.nodes[nodeNr] = new Node(start, end, textNr, typeContextNr, this.tree);
+	}
+
+	@Override
+	int getChild(int nodeNr, char edgeBegin) {
+		Integer childNr = this.nodes[nodeNr].next.get(edgeBegin);
+		return childNr == null ? NO_NODE : childNr;
+	}
+
+	@Override
+	void setChild(int nodeNr, char edgeBegin, int childNr) {
+		this.nodes[nodeNr].next.put(edgeBegin, childNr);
+	}
+
+	@Override
+	int[] getChildren(int nodeNr) {
+		int[] children = new int[this.nodes[nodeNr].next.size()];
+		int i = 0;
+		for (int childNr : this.nodes[nodeNr].next.values())
+			children[i++] = childNr;
+		return children;
+	}
+
+	@Override
+	boolean isTerminal(int nodeNr) {
+		return this.nodes[nodeNr].isTerminal();
+	}
+
+	@Override
+	int getLink(int nodeNr) {
+		return this.nodes[nodeNr].link;
+	}
+
+	@Override
+	void setLink(int nodeNr, int linkNr) {
+		this.nodes[nodeNr].link = linkNr;
+	}
+
+	@Override
+	int getStart(int nodeNr) {
+		return this.nodes[nodeNr].getStart(0);
+	}
+
+	@Override
+	int getEnd(int nodeNr) {
+		return this.nodes[nodeNr].getEnd(0);
+	}
+
+	@Override
+	void addPosition(int nodeNr, int start, int end, int textNr, int typeContextNr) {
+		this.nodes[nodeNr].addPos(start, end, textNr, typeContextNr, this.tree);
+	}
+
+	@Override
+	void shiftStartPositions(int nodeNr, int amount) {
+		this.nodes[nodeNr].updateStartPositions(amount);
+	}
+
+	@Override
+	Node getNode(int nodeNr) {
+		try {
+			return this.nodes[nodeNr];
+		} catch (ArrayIndexOutOfBoundsException e) {
+			return null;
+		}
+	}
+
+}
@@ -5,7 +5,7 @@ import java.util.TreeSet;
 
 import modules.tree_building.suffixTree.BaseSuffixTree;
 
-public class ResultLabelListListener implements ITreeWalkerListener {
+public class ResultLabelListListener implements IMergeableTreeWalkerListener<ResultLabelListListener> {
 	
 	private final BaseSuffixTree suffixTree;
 	
@@ -16,6 +16,16 @@ public class ResultLabelListListener implements ITreeWalkerListener {
 		this.labels = new TreeSet<String>();
 	}
 
+	@Override
+	public ResultLabelListListener fork() {
+		return new ResultLabelListListener(this.suffixTree);
+	}
+
+	@Override
+	public void merge(ResultLabelListListener fork) {
+		this.labels.addAll(fork.labels);
+	}
+
 	@Override
 	public void entryaction(int nodeNr, int level) {
 		if (nodeNr != this.suffixTree.getRoot()) {
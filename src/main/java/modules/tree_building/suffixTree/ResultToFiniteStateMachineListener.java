@@ -129,8 +129,8 @@ public class ResultToFiniteStateMachineListener implements ITreeWalkerListener {
 
 			// generate Suffix Element, add it to the network and link to it
 			// from the transition
-			int suffixStart = this.tree.nodes[childNodeNr].getStart(0);
-			int suffixEnd = this.tree.nodes[childNodeNr].getEnd(0);
+			int suffixStart = this.tree.getNode(childNodeNr).getStart(0);
+			int suffixEnd = this.tree.getNode(childNodeNr).getEnd(0);
 			SuffixElement suffixElement = new SuffixElement(suffixStart, suffixEnd);
 			int posInSuffixes = this.tn.addSuffixElement(suffixElement);
 			transition.toSuffixElement = posInSuffixes;
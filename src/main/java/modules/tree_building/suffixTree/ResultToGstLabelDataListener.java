@@ -6,7 +6,8 @@ import java.util.TreeMap;
 
 import models.GstLabelData;
 
-public class ResultToGstLabelDataListener extends AbstractResultNodeStackListener {
+public class ResultToGstLabelDataListener extends AbstractResultNodeStackListener
+		implements IMergeableTreeWalkerListener<ResultToGstLabelDataListener> {
 
 	// the tree that will be iterated on with this listener
 	private final BaseSuffixTree tree;
@@ -22,6 +23,36 @@ public class ResultToGstLabelDataListener extends AbstractResultNodeStackListene
 		this.labelsToData = new TreeMap<String, GstLabelData>();
 	}
 
+	// constructor for forks, see fork()
+	private ResultToGstLabelDataListener(ResultToGstLabelDataListener parent) {
+		super(parent);
+
+		this.tree = parent.tree;
+		this.labelsToData = new TreeMap<String, GstLabelData>();
+	}
+
+	@Override
+	public ResultToGstLabelDataListener fork() {
+		return new ResultToGstLabelDataListener(this);
+	}
+
+	/**
+	 * Adds the label data collected by the fork. The data of labels known to
+	 * both listeners is appended, such that the order of occurrences is the
+	 * same as if the fork's subtree had been walked by this listener.
+	 */
+	@Override
+	public void merge(ResultToGstLabelDataListener fork) {
+		for (Map.Entry<String, GstLabelData> entry : fork.labelsToData.entrySet()) {
+			final GstLabelData data = labelsToData.get(entry.getKey());
+			if (data == null) {
+				labelsToData.put(entry.getKey(), entry.getValue());
+			} else {
+				data.merge(entry.getValue());
+			}
+		}
+	}
+
 	@Override
 	public void process(int nodeNr, List<Node> path, int pathLength, int level) {
 		// ignore the root node as it does not have any label
@@ -41,7 +72,11 @@ public class ResultToGstLabelDataListener extends AbstractResultNodeStackListene
 		data.setLabel(label);
 		data.getLevels().add(level);
 		data.getChildCounts().add(node.getEdgeBegins().size());
-		data.getLeafCounts().add(node.getLeaves().size());
+		// only the leaves below the node are counted, a leaf does not count
+		// itself
+		final LeafIndex leaves = getLeafIndex();
+		final boolean terminal = node.isTerminal();
+		data.getLeafCounts().add(terminal ? 0 : leaves.getLeafAmount(nodeNr));
 
 		// The parent node is the last node on the path to this node. use it to
 		// get the count of siblings for this node (other edges from the
@@ -54,11 +89,7 @@ public class ResultToGstLabelDataListener extends AbstractResultNodeStackListene
 
 		// The amount of occurrences is equal to the amount of positions for
 		// all leaves below the current node
-		int occurrenceCount = 0;
-		for (Node leaf : node.getLeaves()) {
-			occurrenceCount += leaf.getPositions().size();
-		}
-		data.getOccurenceCounts().add(occurrenceCount);
+		data.getOccurenceCounts().add(terminal ? 0 : leaves.getPositionsAmount(nodeNr));
 
 		// push the data back to the collection
 		labelsToData.put(label, data);
@@ -1,11 +1,7 @@
 package modules.tree_building.suffixTree;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.UnsupportedEncodingException;
 import java.util.List;
-import java.util.logging.Logger;
 
 import com.google.gson.stream.JsonWriter;
 
@@ -13,34 +9,40 @@ import modules.OutputPort;
 
 public class ResultToJsonListener extends AbstractResultNodeStackListener {
 
-	private static final Logger LOGGER = Logger.getLogger(ResultToJsonListener.class.getName());
-
-	private static final String ENCODING = java.nio.charset.StandardCharsets.UTF_8.name();
-
-	// the OutputPort to write to
-	private final OutputPort outputPort;
-
 	// the suffix tree this will work on
 	private final BaseSuffixTree tree;
 
-	// variables needed internally to write the Json representation
-	private final ByteArrayOutputStream outputStream;
-	private JsonWriter writer;
+	// variables needed internally to write the Json representation, the
+	// writer's output is buffered and handed on to the output port each time
+	// flushInterval nodes have been written
+	private final JsonWriter writer;
+	private final int flushInterval;
+	private int nodesWritten = 0;
 	private boolean wroteBegin = false;
 
 	public ResultToJsonListener(BaseSuffixTree suffixTree, OutputPort outputPort) {
+		this(suffixTree, outputPort, 1);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param suffixTree
+	 *            The tree to write
+	 * @param outputPort
+	 *            The port to write to
+	 * @param flushInterval
+	 *            The output is handed on to the port's pipes each time this
+	 *            amount of nodes has been written (and when the buffer is
+	 *            full)
+	 */
+	public ResultToJsonListener(BaseSuffixTree suffixTree, OutputPort outputPort, int flushInterval) {
 		super(suffixTree);
 
 		this.tree = suffixTree;
-		this.outputPort = outputPort;
-
-		this.outputStream = new ByteArrayOutputStream();
-		try {
-			this.writer = new JsonWriter(new OutputStreamWriter(this.outputStream, ENCODING));
-		} catch (UnsupportedEncodingException e) {
-			LOGGER.severe("Encoding " + ENCODING + "not supported.");
-			e.printStackTrace();
-		}
+		this.flushInterval = flushInterval;
+
+		this.writer = new JsonWriter(outputPort.getWriter());
 		this.writer.setIndent("  ");
 	}
 
@@ -64,31 +66,26 @@ public class ResultToJsonListener extends AbstractResultNodeStackListener {
 
 		// write patternInfo Objects: Information about the whole input pattern
 		// that the current label appeared in, as given by the node's leaves
-		// positions
+		// positions (if the node is itself a leaf node, these are it's own
+		// positions)
 		writer.name("patternInfos").beginArray();
-		for (Node leaf : node.getLeaves()) {
+		final LeafIndex leaves = getLeafIndex();
+		for (int i = leaves.getFirstLeaf(nodeNr); i < leaves.getEndLeaf(nodeNr); i++) {
+			final Node leaf = tree.getNode(leaves.getLeaf(i));
 			for (NodePosition position : leaf.getPositions()) {
 				writePatternInfo(leaf, position);
 				frequency += 1;
 			}
 		}
-
-		// if the node is itself a leaf node, further patternInfos are written
-		// for it's positions
-		if (node.isTerminal()) {
-			for (NodePosition position : node.getPositions()) {
-				writePatternInfo(node, position);
-				frequency += 1;
-			}
-		}
 		writer.endArray();
 
 		writer.name("frequency").value(frequency);
 
-		// end writing of the NodeRepresentation and flush everything to the
-		// output port
+		// end writing of the NodeRepresentation and regularly flush
+		// everything to the output port
 		writer.endObject();
-		this.flushOutput();
+		if (flushInterval > 0 && ++nodesWritten % flushInterval == 0)
+			writer.flush();
 	}
 
 	private void writePatternInfo(Node leaf, NodePosition position) throws IOException {
@@ -116,13 +113,8 @@ public class ResultToJsonListener extends AbstractResultNodeStackListener {
 		this.writer.endArray();
 		this.writer.endObject();
 
-		// write everything out
-		this.flushOutput();
-
-		// close all opened streams and ports
-		this.outputStream.close();
+		// write everything out, closing the writer closes the output port
 		this.writer.close();
-		this.outputPort.close();
 	}
 
 	/**
@@ -143,22 +135,8 @@ public class ResultToJsonListener extends AbstractResultNodeStackListener {
 		writer.name("nodeCount").value(tree.getNodeAmount());
 		writer.name("nodes");
 		writer.beginArray();
-		flushOutput();
 
 		wroteBegin = true;
 	}
 
-	/**
-	 * used internally to output changes in the writer's stream to the
-	 * outputPort
-	 * 
-	 * @throws IOException
-	 */
-	private void flushOutput() throws IOException {
-		writer.flush();
-		final String jsonOut = outputStream.toString(ENCODING);
-		outputPort.outputToAllCharPipes(jsonOut);
-		outputStream.reset();
-	}
-
 }
@@ -12,12 +12,34 @@ public class ResultToXmlListener extends AbstractResultNodeStackListener {
 
 	private boolean wroteHeader = false;
 
+	// the writer is flushed each time this amount of nodes has been written
+	// (never if not positive)
+	private final int flushInterval;
+	private int nodesWritten = 0;
+
 	public ResultToXmlListener(BaseSuffixTree tree, XmlPrintWriter writer) {
+		this(tree, writer, 0);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param tree
+	 *            The tree to write
+	 * @param writer
+	 *            The writer to write to
+	 * @param flushInterval
+	 *            The writer is flushed each time this amount of nodes has been
+	 *            written, such that readers of the output do not have to wait
+	 *            for the whole tree (never if not positive)
+	 */
+	public ResultToXmlListener(BaseSuffixTree tree, XmlPrintWriter writer, int flushInterval) {
 		// call parent constructor to setup and handle the node stack
 		super(tree);
 
 		this.tree = tree;
 		this.out = writer;
+		this.flushInterval = flushInterval;
 	}
 
 	/**
@@ -64,24 +86,17 @@ public class ResultToXmlListener extends AbstractResultNodeStackListener {
 
 		// write <patternInfo>-Tags: Information about the whole input pattern
 		// that the current label appeared in, as given by the node's leaves
-		// positions
-		for (Node leaf : node.getLeaves()) {
+		// positions (if the node is itself a leaf node, these are it's own
+		// positions)
+		final LeafIndex leaves = getLeafIndex();
+		for (int i = leaves.getFirstLeaf(nodeNr); i < leaves.getEndLeaf(nodeNr); i++) {
+			final Node leaf = tree.getNode(leaves.getLeaf(i));
 			for (NodePosition position : leaf.getPositions()) {
 				writePatternInfo(leaf, position);
 				frequency += 1;
 			}
 		}
 
-		// if the node is itself a leaf node, further patternInfos are written
-		// for it's
-		// positions
-		if (node.isTerminal()) {
-			for (NodePosition position : node.getPositions()) {
-				writePatternInfo(node, position);
-				frequency += 1;
-			}
-		}
-
 		// closing: </type>
 		out.printTag("type", false, 2, true);
 
@@ -92,6 +107,9 @@ public class ResultToXmlListener extends AbstractResultNodeStackListener {
 
 		// closing: </node>
 		out.printTag("node", false, 1, true);
+
+		if (flushInterval > 0 && ++nodesWritten % flushInterval == 0)
+			out.flush();
 	}
 
 	private void writePatternInfo(Node leaf, NodePosition position) {
@@ -1,6 +1,7 @@
 package modules.tree_building.suffixTree;
 
 import java.io.PrintWriter;
+import java.util.List;
 
 // SuffixTree extends BaseSuffixTree which contains the proper Ukkonen Generalized SuffixTree algorithm.
 // Here print methods are added
@@ -9,6 +10,14 @@ public class SuffixTree extends BaseSuffixTree {
 	public SuffixTree(int length) {
 		super(length);
 	}
+	
+	public SuffixTree(int length, boolean compact) {
+		super(length, compact);
+	}
+	
+	SuffixTree(NodeStorage nodes, int nodeAmount, int root, int textLength, int typeContext, List<Integer> textBegins) {
+		super(nodes, nodeAmount, root, textLength, typeContext, textBegins);
+	}
 
 
 //-------------------------------------printTree-------------------------------------------------------------
@@ -30,45 +39,45 @@ public class SuffixTree extends BaseSuffixTree {
 	}
 
 	private void printLeaves(int x, final PrintWriter out) {
-		if (nodes[x].next.size() == 0){
+		if (nodes.isTerminal(x)){
 			String positionlabel="";
-			for (int i = 0 ; i< nodes[x].getPositionsAmount() ; i++) {
+			for (int i = 0 ; i< getNode(x).getPositionsAmount() ; i++) {
 				// textNr
-				positionlabel += "\n " + nodes[x].getTextNr(i) + " " +
+				positionlabel += "\n " + getNode(x).getTextNr(i) + " " +
 				// anf
-				nodes[x].getStart(i) + " " +	
+				getNode(x).getStart(i) + " " +	
 				// end
-				nodes[x].getEnd(i);
+				getNode(x).getEnd(i);
 			}
 			out.println("\tnode" + x + " [label=\""+x /* +"\" */ + positionlabel +"\",shape=circle]");
 		}
 			
 		else 
-			for (int child : nodes[x].next.values())
+			for (int child : nodes.getChildren(x))
 				printLeaves(child, out);
 		
 	}
 
 	private void printInternalNodes(int x, final PrintWriter out) {
-		if (x != root && nodes[x].next.size() > 0)
+		if (x != root && !nodes.isTerminal(x))
 			out.println("\tnode" + x
 					+ " [label=\""+x+"\",style=filled,fillcolor=lightgrey,shape=circle,width=.07,height=.07]");
 
-		for (int child : nodes[x].next.values())
+		for (int child : nodes.getChildren(x))
 			printInternalNodes(child, out);
 	}
 
 	private void printEdges(int x, final PrintWriter out) {
-		for (int child : nodes[x].next.values()) {
+		for (int child : nodes.getChildren(x)) {
 			out.println("\tnode" + x + " -> node" + child + "[label=\"" + edgeString(child) + "\",weight=3]");
 			printEdges(child, out);
 		}
 	}
 
 	private void printSLinks(int x, final PrintWriter out) {
-		if (nodes[x].link > 0)
-			out.println("\tnode" + x + " -> node" + nodes[x].link + " [label=\"\",weight=1,style=dotted]");
-		for (int child : nodes[x].next.values())
+		if (nodes.getLink(x) > 0)
+			out.println("\tnode" + x + " -> node" + nodes.getLink(x) + " [label=\"\",weight=1,style=dotted]");
+		for (int child : nodes.getChildren(x))
 			printSLinks(child, out);
 	}
 
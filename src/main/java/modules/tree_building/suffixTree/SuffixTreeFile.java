@@ -0,0 +1,265 @@
+package modules.tree_building.suffixTree;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes suffix trees to a compact binary format and opens such files again
+ * by mapping them to memory, such that a tree built once can be reused
+ * without reading the input and building the tree again.
+ *
+ * All values are big-endian ints, except for the text's chars. The file
+ * consists of the following sections:
+ * <ol>
+ * <li>Header: magic number, version, amount of nodes, root node number,
+ * length of the text, last type context number, amount of text begins,
+ * amount of children, amount of additional positions</li>
+ * <li>Text: the whole input, padded to an even amount of chars</li>
+ * <li>Text begins</li>
+ * <li>Nodes: a record per node number from 0 (unused) to the amount of nodes
+ * plus one (only marking the end of the last node's children and positions),
+ * see the field constants</li>
+ * <li>Children: the children of all nodes, ordered by parent and by the first
+ * char of their edges</li>
+ * <li>Positions: a record per position of all nodes except for their first
+ * positions (kept in the node records), ordered by node</li>
+ * </ol>
+ */
+public class SuffixTreeFile {
+
+	private static final int MAGIC = 0x47535446; // "GSTF"
+	private static final int VERSION = 1;
+	private static final int HEADERFIELDS = 9;
+
+	// Fields of the node records
+	static final int START = 0;
+	static final int END = 1;
+	static final int TEXTNR = 2;
+	static final int TYPECONTEXTNR = 3;
+	static final int LINK = 4;
+	static final int EDGEBEGIN = 5;
+	// Index of the node's first child in the children section
+	static final int CHILDREN = 6;
+	// Index of the node's second position in the positions section
+	static final int POSITIONS = 7;
+	static final int NODEFIELDS = 8;
+
+	// Fields of the position records
+	static final int POSITIONSTART = 0;
+	static final int POSITIONEND = 1;
+	static final int POSITIONTEXTNR = 2;
+	static final int POSITIONTYPECONTEXTNR = 3;
+	static final int POSITIONFIELDS = 4;
+
+	// Size of the buffer used when writing
+	private static final int BUFFERSIZE = 1 << 16;
+
+	// this is only used statically and never instantiated
+	private SuffixTreeFile() {
+	}
+
+	/**
+	 * Writes the tree to the given file.
+	 *
+	 * @param tree
+	 *            The tree to write
+	 * @param file
+	 *            The file to write to
+	 * @throws IOException
+	 *             on error
+	 */
+	public static void write(BaseSuffixTree tree, File file) throws IOException {
+		try (OutputStream out = new FileOutputStream(file)) {
+			write(tree, out);
+		}
+	}
+
+	/**
+	 * Writes the tree to the given stream. The stream is not closed.
+	 *
+	 * @param tree
+	 *            The tree to write
+	 * @param out
+	 *            The stream to write to
+	 * @throws IOException
+	 *             on error
+	 */
+	public static void write(BaseSuffixTree tree, OutputStream out) throws IOException {
+		final int nodeAmount = tree.getNodeAmount();
+		final int textLength = tree.position + 1;
+
+		// the amounts of children and additional positions are needed for the
+		// header
+		int childAmount = 0;
+		int positionAmount = 0;
+		for (int nodeNr = 1; nodeNr <= nodeAmount; nodeNr++) {
+			childAmount += tree.getChildren(nodeNr).length;
+			positionAmount += tree.getNode(nodeNr).getPositionsAmount() - 1;
+		}
+
+		final SectionWriter writer = new SectionWriter(out);
+		writer.putInt(MAGIC);
+		writer.putInt(VERSION);
+		writer.putInt(nodeAmount);
+		writer.putInt(tree.getRoot());
+		writer.putInt(textLength);
+		writer.putInt(tree.getCurrentTypeContext());
+		writer.putInt(tree.textNrsAmount());
+		writer.putInt(childAmount);
+		writer.putInt(positionAmount);
+
+		for (int i = 0; i < textLength; i++)
+			writer.putChar(tree.charAt(i));
+		if (textLength % 2 != 0)
+			writer.putChar('\0');
+
+		for (int textNr = 0; textNr < tree.textNrsAmount(); textNr++)
+			writer.putInt(tree.getTextBegin(textNr));
+
+		// the node records, the children and positions of each node start
+		// where those of the previous node end
+		writer.putEmptyRecord(0, 0);
+		childAmount = 0;
+		positionAmount = 0;
+		for (int nodeNr = 1; nodeNr <= nodeAmount; nodeNr++) {
+			final NodePosition first = tree.getNode(nodeNr).getPositions().get(0);
+			writer.putInt(first.getStart());
+			writer.putInt(first.getEnd());
+			writer.putInt(first.getTextNr());
+			writer.putInt(first.getTypeContextNr());
+			writer.putInt(tree.nodes.getLink(nodeNr));
+			writer.putInt(nodeNr == tree.getRoot() ? 0 : tree.charAt(first.getStart()));
+			writer.putInt(childAmount);
+			writer.putInt(positionAmount);
+			childAmount += tree.getChildren(nodeNr).length;
+			positionAmount += tree.getNode(nodeNr).getPositionsAmount() - 1;
+		}
+		writer.putEmptyRecord(childAmount, positionAmount);
+
+		for (int nodeNr = 1; nodeNr <= nodeAmount; nodeNr++) {
+			for (int childNr : tree.getChildren(nodeNr))
+				writer.putInt(childNr);
+		}
+
+		for (int nodeNr = 1; nodeNr <= nodeAmount; nodeNr++) {
+			final List<NodePosition> positions = tree.getNode(nodeNr).getPositions();
+			for (int i = 1; i < positions.size(); i++) {
+				final NodePosition position = positions.get(i);
+				writer.putInt(position.getStart());
+				writer.putInt(position.getEnd());
+				writer.putInt(position.getTextNr());
+				writer.putInt(position.getTypeContextNr());
+			}
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Opens a tree written by {@link #write(BaseSuffixTree, File)} by mapping
+	 * the file to memory. Nodes and text are read from the file on access, so
+	 * this takes about the same time regardless of the tree's size. The tree
+	 * returned is read-only.
+	 *
+	 * @param file
+	 *            The file to open
+	 * @return The tree
+	 * @throws IOException
+	 *             If the file cannot be read or is not a suffix tree file
+	 */
+	public static SuffixTree map(File file) throws IOException {
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+				FileChannel channel = randomAccessFile.getChannel()) {
+			final ByteBuffer header = ByteBuffer.allocate(HEADERFIELDS * 4);
+			while (header.hasRemaining() && channel.read(header) >= 0)
+				;
+			header.flip();
+			if (header.remaining() < HEADERFIELDS * 4 || header.getInt() != MAGIC)
+				throw new IOException("Not a suffix tree file: " + file);
+			final int version = header.getInt();
+			if (version != VERSION)
+				throw new IOException("Unsupported suffix tree file version " + version + ": " + file);
+			final int nodeAmount = header.getInt();
+			final int root = header.getInt();
+			final int textLength = header.getInt();
+			final int typeContext = header.getInt();
+			final int textBeginsAmount = header.getInt();
+			final int childAmount = header.getInt();
+			final int positionAmount = header.getInt();
+
+			// offsets and sizes of the sections in bytes
+			final long textOffset = HEADERFIELDS * 4L;
+			final long textBeginsOffset = textOffset + (textLength + textLength % 2L) * 2;
+			final long nodesOffset = textBeginsOffset + textBeginsAmount * 4L;
+			final long childrenOffset = nodesOffset + (nodeAmount + 2L) * NODEFIELDS * 4;
+			final long positionsOffset = childrenOffset + childAmount * 4L;
+			final long size = positionsOffset + (long) positionAmount * POSITIONFIELDS * 4;
+			if (channel.size() != size)
+				throw new IOException("Suffix tree file has " + channel.size() + " bytes instead of " + size + ": " + file);
+
+			final MappedArray text = new MappedArray(channel, textOffset, textBeginsOffset - textOffset);
+			final MappedArray textBeginsArray = new MappedArray(channel, textBeginsOffset, nodesOffset - textBeginsOffset);
+			final List<Integer> textBegins = new ArrayList<Integer>(textBeginsAmount);
+			for (int textNr = 0; textNr < textBeginsAmount; textNr++)
+				textBegins.add(textBeginsArray.getInt(textNr));
+
+			final MappedNodeStorage nodes = new MappedNodeStorage(nodeAmount,
+					new MappedArray(channel, nodesOffset, childrenOffset - nodesOffset),
+					new MappedArray(channel, childrenOffset, positionsOffset - childrenOffset),
+					new MappedArray(channel, positionsOffset, size - positionsOffset));
+			// the mappings stay valid after the channel is closed
+			return new MappedSuffixTree(nodes, text, nodeAmount, root, textLength, typeContext, textBegins);
+		}
+	}
+
+	/**
+	 * Buffers the big-endian values written and passes them on to a stream.
+	 */
+	private static class SectionWriter {
+
+		private final OutputStream out;
+		private final ByteBuffer buffer = ByteBuffer.allocate(BUFFERSIZE);
+
+		SectionWriter(OutputStream out) {
+			this.out = out;
+		}
+
+		void putInt(int value) throws IOException {
+			if (this.buffer.remaining() < 4)
+				this.flush();
+			this.buffer.putInt(value);
+		}
+
+		void putChar(char value) throws IOException {
+			if (this.buffer.remaining() < 2)
+				this.flush();
+			this.buffer.putChar(value);
+		}
+
+		// writes a node record without a node, just marking where the
+		// children and positions of the following node begin
+		void putEmptyRecord(int children, int positions) throws IOException {
+			for (int field = 0; field < NODEFIELDS; field++) {
+				if (field == CHILDREN)
+					this.putInt(children);
+				else if (field == POSITIONS)
+					this.putInt(positions);
+				else
+					this.putInt(0);
+			}
+		}
+
+		void flush() throws IOException {
+			this.out.write(this.buffer.array(), 0, this.buffer.position());
+			this.buffer.clear();
+			this.out.flush();
+		}
+	}
+
+}
@@ -1,19 +1,29 @@
 package modules.tree_building.suffixTree;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import modules.tree_building.suffixTree.BaseSuffixTree;;
 
 public class TreeWalker {
 
+	// The amount of subtrees per thread a parallel walk aims at; more subtrees
+	// balance the load better but have to be forked and merged
+	private static final int SUBTREESPERTHREAD = 16;
+
 	// this is only used statically and never instantiated
 	private TreeWalker() {
 	}
 
 	/**
-	 * Walks the tree's nodes recursively (depth-first) and executes the
-	 * listener's actions for each node.
-	 * 
+	 * Walks the tree's nodes depth-first and executes the listener's actions
+	 * for each node.
+	 *
 	 * @param startNodeNr
 	 *            The start with
 	 * @param suffixTree
@@ -27,24 +37,157 @@ public class TreeWalker {
 	}
 
 	/**
-	 * Walks the tree's nodes recursively (depth-first) and executes the
-	 * listener's actions for each node.
+	 * Walks the tree's nodes depth-first and executes the listener's actions
+	 * for each node. An explicit stack is used instead of recursion, so the
+	 * depth of the tree is not limited by the thread's stack size.
 	 * @param startNodeNr The start with
 	 * @param suffixTree The SuffixTree to walk on
 	 * @param listener The listener defining the actions to take on each node
-	 * @param level level
+	 * @param level level of the start node
 	 * @throws IOException on error
 	 */
-	
 	private static void walk(int startNodeNr, BaseSuffixTree suffixTree, ITreeWalkerListener listener, int level)
 			throws IOException {
+		// the nodes on the current path, their children and the index of the
+		// next child to visit for each of them
+		int[] nodes = new int[64];
+		int[][] children = new int[64][];
+		int[] childIndices = new int[64];
+		int depth = 0;
+
+		nodes[0] = startNodeNr;
+		children[0] = suffixTree.getChildren(startNodeNr);
 		listener.entryaction(startNodeNr, level);
 
-		for (int childNodeNr : suffixTree.nodes[startNodeNr].next.values()) {
-			walk(childNodeNr, suffixTree, listener, level + 1);
+		while (depth >= 0) {
+			if (childIndices[depth] < children[depth].length) {
+				final int childNodeNr = children[depth][childIndices[depth]++];
+				if (++depth == nodes.length) {
+					nodes = Arrays.copyOf(nodes, depth * 2);
+					children = Arrays.copyOf(children, depth * 2);
+					childIndices = Arrays.copyOf(childIndices, depth * 2);
+				}
+				nodes[depth] = childNodeNr;
+				children[depth] = suffixTree.getChildren(childNodeNr);
+				childIndices[depth] = 0;
+				listener.entryaction(childNodeNr, level + depth);
+			} else {
+				listener.exitaction(nodes[depth], level + depth);
+				children[depth] = null;
+				depth--;
+			}
 		}
+	}
+
+	/**
+	 * Walks the tree's nodes depth-first in the common fork-join pool, see
+	 * {@link #walkParallel(int, BaseSuffixTree, IMergeableTreeWalkerListener, ForkJoinPool)}.
+	 *
+	 * @param startNodeNr
+	 *            The start with
+	 * @param suffixTree
+	 *            The SuffixTree to walk on
+	 * @param listener
+	 *            The listener defining the actions to take on each node, it
+	 *            holds the results of the whole walk afterwards
+	 * @param <L>
+	 *            The listener's type
+	 * @throws IOException
+	 *             on error
+	 */
+	public static <L extends IMergeableTreeWalkerListener<L>> void walkParallel(int startNodeNr, BaseSuffixTree suffixTree,
+			L listener) throws IOException {
+		walkParallel(startNodeNr, suffixTree, listener, ForkJoinPool.commonPool());
+	}
 
-		listener.exitaction(startNodeNr, level);
+	/**
+	 * Walks the tree's nodes depth-first, splitting the work into subtrees
+	 * that are walked concurrently by forks of the listener. The start node is
+	 * always split into it's children, nodes below it only if their subtree
+	 * holds a large share of the tree's leaves. The forks are merged in the
+	 * order of the children, so the results are the same as those of
+	 * {@link #walk(int, BaseSuffixTree, ITreeWalkerListener)}.
+	 *
+	 * @param startNodeNr
+	 *            The start with
+	 * @param suffixTree
+	 *            The SuffixTree to walk on
+	 * @param listener
+	 *            The listener defining the actions to take on each node, it
+	 *            holds the results of the whole walk afterwards
+	 * @param pool
+	 *            The pool to walk the subtrees in
+	 * @param <L>
+	 *            The listener's type
+	 * @throws IOException
+	 *             on error
+	 */
+	public static <L extends IMergeableTreeWalkerListener<L>> void walkParallel(int startNodeNr, BaseSuffixTree suffixTree,
+			L listener, ForkJoinPool pool) throws IOException {
+		// the amount of leaves below a node serves as an estimate of the work
+		// its subtree takes
+		final LeafIndex leafIndex = LeafIndex.build(suffixTree, startNodeNr);
+		final int splitSize = Math.max(1, leafIndex.getLeafAmount() / (pool.getParallelism() * SUBTREESPERTHREAD));
+		listener.setLeafIndex(leafIndex);
+		try {
+			pool.invoke(new SubtreeWalk<L>(suffixTree, leafIndex, splitSize, startNodeNr, 0, listener, true));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Walks the subtree of a single node with a single listener, either by
+	 * itself or by splitting it up further.
+	 */
+	private static class SubtreeWalk<L extends IMergeableTreeWalkerListener<L>> extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final BaseSuffixTree suffixTree;
+		private final LeafIndex leafIndex;
+		private final int splitSize;
+		private final int nodeNr;
+		private final int level;
+		private final L listener;
+		private final boolean split;
+
+		SubtreeWalk(BaseSuffixTree suffixTree, LeafIndex leafIndex, int splitSize, int nodeNr, int level, L listener,
+				boolean split) {
+			this.suffixTree = suffixTree;
+			this.leafIndex = leafIndex;
+			this.splitSize = splitSize;
+			this.nodeNr = nodeNr;
+			this.level = level;
+			this.listener = listener;
+			this.split = split;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				if (!this.split && this.leafIndex.getLeafAmount(this.nodeNr) <= this.splitSize) {
+					walk(this.nodeNr, this.suffixTree, this.listener, this.level);
+					return;
+				}
+
+				this.listener.entryaction(this.nodeNr, this.level);
+				// all forks are created before any of them walks, so they all
+				// see the listener in the state of having entered this node
+				final List<SubtreeWalk<L>> subtreeWalks = new ArrayList<SubtreeWalk<L>>();
+				for (int childNodeNr : this.suffixTree.getChildren(this.nodeNr)) {
+					subtreeWalks.add(new SubtreeWalk<L>(this.suffixTree, this.leafIndex, this.splitSize, childNodeNr,
+							this.level + 1, this.listener.fork(), false));
+				}
+				invokeAll(subtreeWalks);
+				for (SubtreeWalk<L> subtreeWalk : subtreeWalks) {
+					this.listener.merge(subtreeWalk.listener);
+				}
+				this.listener.exitaction(this.nodeNr, this.level);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
 	}
 
 }
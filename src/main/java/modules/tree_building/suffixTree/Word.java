@@ -38,9 +38,9 @@ public class Word {
 			end=resultToMorphListener.tree.getNode(node).getEnd(0);
 			for(int pos=start;pos<end;pos++){
 				  //System.out.print(r.tree.text[pos]);
-				  if(resultToMorphListener.inverted) sb.insert(0, resultToMorphListener.tree.text[pos]);
+				  if(resultToMorphListener.inverted) sb.insert(0, resultToMorphListener.tree.charAt(pos));
 				  else
-				  sb.append(resultToMorphListener.tree.text[pos]);
+				  sb.append(resultToMorphListener.tree.charAt(pos));
 				  branchPosition++;
 			}
 			//System.out.print(" ");
@@ -1,9 +1,10 @@
 package modules.tree_building.suffixTreeClustering.clustering.flat;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
 
 import modules.tree_building.suffixTreeClustering.data.Type;
 
@@ -13,7 +14,7 @@ import modules.tree_building.suffixTreeClustering.data.Type;
  * @author Fabian Steeg (fsteeg)
  */
 public class FlatCluster implements Iterable<Type> {
-	Set<Type> documents = new CopyOnWriteArraySet<Type>();
+	Set<Type> documents = new LinkedHashSet<Type>();
 	private Type medoid = null;
 
 	public FlatCluster(final Type document) {
@@ -65,56 +66,19 @@ public class FlatCluster implements Iterable<Type> {
 
 	/*
 	 * Sog. package-private API (in Java die default-Sichtbarkeit), d.h. nur vom
-	 * eigenen Package aus sichtbar. Das documents-Attribut ist hier package
-	 * private. Die Manipulation eines clusters ist so nur innerhalb des Package
-	 * möglich. Der Cluster der als Ergebnis zurückgegeben wird ist so nicht
-	 * mehr manipulierbar. Die Veränderung des Clusters ist so hinter der public
-	 * API weggekapselt.
+	 * eigenen Package aus sichtbar. Ein Cluster wird so nur innerhalb des
+	 * Package erzeugt, der Cluster der als Ergebnis zurückgegeben wird ist
+	 * nicht mehr manipulierbar.
 	 */
 
 	/**
-	 * Recompute the medoid of this cluster based on its members
+	 * @param medoid
+	 *            The medoid of the cluster
+	 * @param documents
+	 *            The documents of the cluster
 	 */
-	void recomputeMedoid() {
-		/*
-		 * Der Schwerpunkt eines Clusters: Das Element mit der geringsten
-		 * durchschnittlichen Entfernung, d.h. der größten Ähnlichkeit, zu allen
-		 * anderen Elementen im Cluster.
-		 */
-		Double maxMean = Double.NEGATIVE_INFINITY;
-		Type maxType = null;
-		for (Type iDoc : documents) {
-			Double simSum = 0d;
-			for (Type jDoc : documents) {
-				/*
-				 * i ist der aktuelle Kandidat: wir messen die Ähnlichkeit von i
-				 * zu allen j, der i mit der höchsten durchschnittlichen
-				 * Ähnlichkeit gewinnt.
-				 */
-				if (!iDoc.equals(jDoc)) {
-					/* jeder Paar i,j Ähnlichkeit berechnen: */
-					Double sim = iDoc.getVector().similarity(jDoc.getVector());
-					/* Ähnlichkeit aufsummieren: */
-					simSum += sim;
-				}
-			}
-			/* Die durchschnittliche Ähnlichkeit von i zu allen anderen: */
-			Double meanSim = simSum / getDocuments().size() - 1;
-			if (meanSim > maxMean) {
-				maxMean = meanSim;
-				/* i ist der beste Schwerpunkt bisher: */
-				maxType = iDoc;
-			}
-		}
-		if (maxType != null) {
-			/*
-			 * Hier fehlte im Eifer der schon überzogenen letzten Minuten im
-			 * Seminar das kleine Wörtchen "return", so dass trotz Ergebnis
-			 * immer null zurückgegeben wurde, ansonsten war es soweit komplett.
-			 */
-			this.medoid = maxType;
-		} else {
-			throw new IllegalStateException("No max found!");
-		}
+	FlatCluster(final Type medoid, final Collection<Type> documents) {
+		this.medoid = medoid;
+		this.documents.addAll(documents);
 	}
 }
@@ -1,26 +1,25 @@
 package modules.tree_building.suffixTreeClustering.clustering.flat;
 
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 
 import modules.tree_building.suffixTreeClustering.data.Type;
 
 /**
- * Simple flat k-means clustering.
+ * Simple flat k-medoids clustering, see {@link KMedoids}.
  * 
  * @author Fabian Steeg (fsteeg)
  */
 public final class FlatClusterer {
 
+	/** Seed of the initial medoids, so that results are reproducible */
+	public static final long DEFAULT_SEED = 0;
+
 	private List<FlatCluster> clusters;
-	private List<Type> documents;
+	private KMedoids.Result result;
+	private final KMedoids kMedoids;
+	private final long seed;
 
 	/**
 	 * K-Means clustering of the given documents, as part of the given corpus
@@ -29,18 +28,19 @@ public final class FlatClusterer {
 	 *            The documents to cluster
 	 */
 	public FlatClusterer(final List<Type> documents) {
-		/*
-		 * Da wir beim iterieren über die Cluster diese manipulieren (wir
-		 * verschieben die Elemente in den passendsten Cluster), muessen wir
-		 * eine List-Implementierung benutzen, die das unterstützt (die
-		 * Alternative wäre das Anlegen neuer Listen und sowas), wie etwa
-		 * CopyOnWriteArrayList, die (wie der umständliche Name sagt), das
-		 * zugrunde liegende Array bei Schreibe-Operationen kopiert, was sich
-		 * nachteilig auf die Performance auswirkt, wenn man nicht viel iteriert
-		 * und wenig schreibt:
-		 */
-		clusters = new CopyOnWriteArrayList<FlatCluster>();
-		this.documents = documents;
+		this(documents, DEFAULT_SEED);
+	}
+
+	/**
+	 * @param documents
+	 *            The documents to cluster
+	 * @param seed
+	 *            Seed of the initial medoids
+	 */
+	public FlatClusterer(final List<Type> documents, final long seed) {
+		this.clusters = Collections.emptyList();
+		this.kMedoids = new KMedoids(documents);
+		this.seed = seed;
 	}
 
 	/**
@@ -49,129 +49,64 @@ public final class FlatClusterer {
 	 * @param k
 	 *            The number of clusters to partition the documents into
 	 * @param iterations
-	 *            The number of iterations
+	 *            The maximum number of iterations, fewer are run once the
+	 *            clusters do not change anymore
 	 * @return The k clusters
 	 */
 	public List<FlatCluster> analyse(final int k, final int iterations) {
-		Collections.shuffle(documents);
-		// Initiale Mittelpunkte: k zufällige Dokumente
-		for (int i = 0; i < k; i++) {
-			FlatCluster cluster = new FlatCluster(documents.get(i));
-			clusters.add(cluster);
-		}
-		/* Zu Beginn bilden alle Dokumente einen Cluster: */
-		clusters.get(0).documents.addAll(documents);
 		System.out.println(String.format(
-				"%s-means clustering with %s iterations... ", k, iterations));
-		for (int i = 0; i < iterations; i++) {
-			/* In jeder iteration stellen wir die Cluster neu ein: */
-			this.clusters = recompute(clusters);
-			/* Eine simple Form von Fortschrittsanzeige: */
-			System.out.print(String.format("%1.2f ", getPurity()));
-		}
+				"%s-medoids clustering with up to %s iterations... ", k, iterations));
+		this.result = kMedoids.run(k, iterations, seed + k);
+		this.clusters = result.getClusters();
 		System.out.println(String.format(
-				"Purity for k=%s: %1.2f, clusters: %s", k, getPurity(),
-				toString()));
+				"Purity for k=%s after %s iterations: %1.2f, clusters: %s", k,
+				result.getIterations(), getPurity(), toString()));
 		return this.clusters;
 	}
 
-	private List<FlatCluster> recompute(final List<FlatCluster> clusters) {
-		List<FlatCluster> result = new CopyOnWriteArrayList<FlatCluster>(
-				clusters);
-		/* Wir betrachten jedes Dokument in jedem Cluster: */
-		// TODO: Is document really the correct term here? Should it not be type instead?
-		for (FlatCluster currentCluster : result) {
-			for (Type document : currentCluster) {
-				/*
-				 * Und suchen zu diesem den passendsten Cluster, d.h. den
-				 * Cluster, dessen Schwerpunkt-Dokument dem Dokument am
-				 * ähnlichsten, d.h. im Vektorraum am nächsten ist:
-				 */
-				Double min = Double.POSITIVE_INFINITY;
-				FlatCluster nearest = null;
-				/* Ähnlichsten Mittelpunkt suchen: */
-				for (FlatCluster clusterToCompare : clusters) {
-					Type center = clusterToCompare.getMedoid();
-					Double distance = document.getVector().distance(
-							center.getVector());
-					if (distance < min) {
-						min = distance;
-						nearest = clusterToCompare;
-					}
-				}
-				if (nearest != null) {
-					/*
-					 * Wenn ein solcher ähnlichster Schwerpunkt gefunden wurde,
-					 * entfernen wir das aktuelle Dokument aus seinem, d.h.
-					 * diesem Cluster, und fügen es in den Cluster ein, dessen
-					 * Mittelpunkt gewonnen hatte:
-					 */
-					// TODO: hier stimmt was nicht, Dokumente kommen doppelt
-					// vor... Set verwenden?
-					currentCluster.documents.remove(document);
-					nearest.documents.add(document);
-					/*
-					 * (und damit wir hier diese Sache so machen können müssen
-					 * die Listen CopyOnWriteArrayList sein)
-					 */
-				}
-			}
-			/*
-			 * Nach der Neuberechnung des aktuellen Clusters setzen wir seinen
-			 * Medoid neu fest:
-			 */
-			currentCluster.recomputeMedoid();
-		}
-		return result;
-	}
-
 	/**
-	 * Multiple clusterings for different values of k.
+	 * Multiple clusterings for different values of k, run in parallel.
 	 * 
 	 * @param clusterStart
 	 *            The minimum k cluster count
 	 * @param clusterEnd
 	 *            The maximum k cluster count
 	 * @param iterations
-	 *            The number of iterations to use when clustering with each k
+	 *            The maximum number of iterations when clustering with each k
 	 * @return The clusters for each different k between clusterStart and
-	 *         clusterEnd (inclusive)
+	 *         clusterEnd (inclusive), in ascending order of k
 	 */
 	public List<List<FlatCluster>> analyse(final int clusterStart,
 			final int clusterEnd, final int iterations) {
-		final List<List<FlatCluster>> clustersForKs = new CopyOnWriteArrayList<List<FlatCluster>>();
+		final List<List<FlatCluster>> clustersForKs = new ArrayList<List<FlatCluster>>();
 		/*
-		 * Wir lassen die verschiedenen, völlig unabhängigen Versuchsaufbauten,
-		 * nämlich mit unterschiedlicher Clusterzahl (und leicht einbaubar
-		 * unterschiedlich vielen Iterationen) parallel laufen. Hier können wir
-		 * parallele Durchführung der verschiedenen Aufbauten einstellen. Ist
-		 * auf 1 gestellt um einfacher die Ausgabe interpretieren zu können und
-		 * fürs Debuggen. In Produktionscode würde man so einen Wert z.B. in
-		 * eine Properties-Datei auslagern.
+		 * Die verschiedenen, völlig unabhängigen Versuchsaufbauten mit
+		 * unterschiedlicher Clusterzahl laufen parallel, jeder mit eigenem
+		 * Zustand:
 		 */
-		ExecutorService exec = Executors.newFixedThreadPool(clusterEnd
-				- clusterStart); // threads
-		for (int i = clusterStart; i <= clusterEnd; i++) {
-			final int k = i;
-			exec.execute(new Runnable() {
-				public void run() {
-					FlatClusterer c = new FlatClusterer(documents);
-					clusters = c.analyse(k, iterations);
-					/* Wir sammeln die Ergebnisse für jedes k: */
-					clustersForKs.add(clusters);
-				}
-			});
-		}
-		exec.shutdown();
-		try {
-			/** Basically no timeout */
-			exec.awaitTermination(Integer.MAX_VALUE, TimeUnit.SECONDS);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+		for (KMedoids.Result resultForK : sweep(clusterStart, clusterEnd, iterations)) {
+			clustersForKs.add(resultForK.getClusters());
 		}
 		return clustersForKs;
 	}
 
+	/**
+	 * Multiple clusterings for different values of k, run in parallel, with
+	 * their purity and silhouette.
+	 * 
+	 * @param clusterStart
+	 *            The minimum k cluster count
+	 * @param clusterEnd
+	 *            The maximum k cluster count
+	 * @param iterations
+	 *            The maximum number of iterations when clustering with each k
+	 * @return The clusterings in ascending order of k
+	 */
+	public List<KMedoids.Result> sweep(final int clusterStart,
+			final int clusterEnd, final int iterations) {
+		return kMedoids.sweep(clusterStart, clusterEnd, iterations, seed);
+	}
+
 	/**
 	 * @return The purity of the clusters
 	 */
@@ -183,40 +118,15 @@ public final class FlatClusterer {
 		 * Ein Wert von 1 heißt dabei maximale Purity: Jeder Cluster enthält nur
 		 * eine Art von Element.
 		 */
-		int maxSum = 0;
-		int sum = 0;
-		for (FlatCluster currentCluster : clusters) {
-			/*
-			 * Dazu müssen wir erstmal schauen, was denn die häufigste Art von
-			 * Element in jedem Cluster ist, d.h. wir betrachten zunächst jedes
-			 * Document im Cluster und zählen wie oft es vorkommt:
-			 */
-			Map<String, Integer> frequencies = new HashMap<String, Integer>();
-			for (Type document : currentCluster) {
-				Integer f = frequencies.get(document.toString());
-				if (f == null) {
-					f = 0;
-				}
-				frequencies.put(document.toString(), f + 1);
-			}
-			/*
-			 * Dann schauen wir uns alle Häufigkeiten an und wählen die höchste:
-			 */
-			Collection<Integer> values = frequencies.values();
-			int max = 0;
-			for (Integer integer : values) {
-				max = Math.max(integer, max);
-				/* Die Gesamtsumme zählen wir immer: */
-				sum += integer;
-			}
-			/*
-			 * Zur Summe der maximalen Häufigkeiten addieren wir nur die
-			 * Häufigkeit des Häufigsten
-			 */
-			maxSum += max;
-		}
-		Float result = maxSum / (float) sum;
-		return result;
+		return result == null ? Float.NaN : (float) result.getPurity();
+	}
+
+	/**
+	 * @return The mean silhouette of the documents, see
+	 *         {@link KMedoids.Result#getSilhouette()}
+	 */
+	public Double getSilhouette() {
+		return result == null ? Double.NaN : result.getSilhouette();
 	}
 
 	/**
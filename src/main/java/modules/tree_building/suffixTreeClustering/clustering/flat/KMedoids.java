@@ -0,0 +1,399 @@
+package modules.tree_building.suffixTreeClustering.clustering.flat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import modules.tree_building.suffixTreeClustering.data.Type;
+import modules.tree_building.suffixTreeClustering.features.FeatureVector;
+
+/**
+ * K-medoids clustering of documents. The first medoids are chosen as in
+ * k-means++: each one with a probability proportional to the squared distance
+ * to the nearest medoid chosen before. Then documents are assigned to their
+ * nearest medoid, in parallel, and each cluster's medoid becomes the member
+ * most similar to the others, until the assignment does not change anymore.
+ *
+ * Clusters are kept as an array of cluster numbers, one per document. The
+ * medoid is found in linear time: with u the unit vectors of the members and
+ * U their sum, the similarity of member i to the others is u_i * U - 1. U is
+ * kept sparse, over the indexes at which any member is non-zero.
+ *
+ * Runs do not share any state, so different k may be run in parallel.
+ */
+public final class KMedoids {
+
+	// differences of summed similarities regarded as rounding, per member
+	private static final double SIMILARITY_TOLERANCE = 1e-12;
+
+	private final List<Type> documents;
+	private final FeatureVector[] vectors;
+	// documents with equal strings count as the same kind in the purity
+	private final int[] labels;
+
+	/**
+	 * @param documents
+	 *            The documents to cluster, all of them with vectors of the
+	 *            same length
+	 */
+	public KMedoids(final List<Type> documents) {
+		this.documents = new ArrayList<Type>(documents);
+		this.vectors = new FeatureVector[documents.size()];
+		this.labels = new int[documents.size()];
+		final Map<String, Integer> labelNumbers = new HashMap<String, Integer>();
+		for (int i = 0; i < this.vectors.length; i++) {
+			this.vectors[i] = documents.get(i).getVector();
+			final Integer label = labelNumbers.putIfAbsent(documents.get(i).getString(), labelNumbers.size());
+			this.labels[i] = label == null ? labelNumbers.size() - 1 : label;
+		}
+	}
+
+	/**
+	 * Clusters the documents for each k from kStart to kEnd in parallel.
+	 *
+	 * @param kStart
+	 *            The minimum cluster count
+	 * @param kEnd
+	 *            The maximum cluster count (inclusive)
+	 * @param iterations
+	 *            The maximum number of iterations of each clustering
+	 * @param seed
+	 *            Seed of the initial medoids, the clustering into k clusters
+	 *            uses seed + k
+	 * @return The clusterings in ascending order of k
+	 */
+	public List<Result> sweep(final int kStart, final int kEnd, final int iterations, final long seed) {
+		return IntStream.rangeClosed(kStart, kEnd).parallel().mapToObj(k -> this.run(k, iterations, seed + k))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Clusters the documents into k clusters.
+	 *
+	 * @param k
+	 *            The number of clusters, between 1 and the number of documents
+	 * @param iterations
+	 *            The maximum number of iterations
+	 * @param seed
+	 *            Seed of the initial medoids
+	 * @return The clustering
+	 */
+	public Result run(final int k, final int iterations, final long seed) {
+		if (k < 1 || k > this.vectors.length)
+			throw new IllegalArgumentException(
+					String.format("Cannot cluster %s documents into %s clusters", this.vectors.length, k));
+		final int[] medoids = this.initialMedoids(k, new Random(seed));
+		final int[] assignment = new int[this.vectors.length];
+		Arrays.fill(assignment, -1);
+		this.assign(medoids, assignment);
+		int iteration = 0;
+		while (iteration < iterations) {
+			iteration++;
+			if (!this.updateMedoids(medoids, assignment) || !this.assign(medoids, assignment))
+				break;
+		}
+		return new Result(k, medoids, assignment, iteration);
+	}
+
+	/*
+	 * k-means++ seeding.
+	 */
+	private int[] initialMedoids(final int k, final Random random) {
+		final int n = this.vectors.length;
+		final int[] medoids = new int[k];
+		// squared distance of each document to its nearest medoid
+		final double[] nearest = new double[n];
+		Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+		medoids[0] = random.nextInt(n);
+		for (int m = 1; m < k; m++) {
+			final FeatureVector medoid = this.vectors[medoids[m - 1]];
+			IntStream.range(0, n).parallel().forEach(i -> {
+				final double distance = this.vectors[i].distance(medoid);
+				nearest[i] = Math.min(nearest[i], distance * distance);
+			});
+			double sum = 0;
+			for (double d : nearest)
+				sum += d;
+			int chosen = -1;
+			if (sum > 0) {
+				double target = random.nextDouble() * sum;
+				for (int i = 0; i < n && chosen < 0; i++) {
+					target -= nearest[i];
+					if (target < 0 && nearest[i] > 0)
+						chosen = i;
+				}
+			}
+			if (chosen < 0) {
+				// rounding, or all documents coincide with medoids: take the
+				// first document not chosen yet
+				final boolean[] taken = new boolean[n];
+				for (int j = 0; j < m; j++)
+					taken[medoids[j]] = true;
+				chosen = 0;
+				while (taken[chosen])
+					chosen++;
+			}
+			medoids[m] = chosen;
+		}
+		return medoids;
+	}
+
+	/*
+	 * Assigns each document to its nearest medoid, the first one on ties.
+	 * Returns whether any assignment changed.
+	 */
+	private boolean assign(final int[] medoids, final int[] assignment) {
+		final FeatureVector[] centers = new FeatureVector[medoids.length];
+		for (int c = 0; c < medoids.length; c++)
+			centers[c] = this.vectors[medoids[c]];
+		return IntStream.range(0, this.vectors.length).parallel().map(i -> {
+			final FeatureVector vector = this.vectors[i];
+			double min = Double.POSITIVE_INFINITY;
+			int nearest = 0;
+			for (int c = 0; c < centers.length; c++) {
+				final double distance = vector.distance(centers[c]);
+				if (distance < min) {
+					min = distance;
+					nearest = c;
+				}
+			}
+			if (assignment[i] == nearest)
+				return 0;
+			assignment[i] = nearest;
+			return 1;
+		}).sum() > 0;
+	}
+
+	/*
+	 * Makes each cluster's member with the highest sum of cosine similarities
+	 * to the others its medoid; on ties the current medoid, else the first
+	 * such member. Empty clusters keep their medoid. Returns whether any
+	 * medoid changed.
+	 */
+	private boolean updateMedoids(final int[] medoids, final int[] assignment) {
+		final int k = medoids.length;
+		final int[][] members = this.members(k, assignment);
+		return IntStream.range(0, k).parallel().map(c -> {
+			if (members[c].length == 0)
+				return 0;
+			final int[] keys = this.nonZeroIndexes(members[c]);
+			final double[] sum = new double[keys.length];
+			for (int i : members[c]) {
+				final double norm = this.vectors[i].norm();
+				if (norm == 0)
+					continue;
+				final int[] indexes = this.vectors[i].getNonZeroIndexes();
+				final double[] values = this.vectors[i].getNonZeroValues();
+				for (int v = 0; v < indexes.length; v++)
+					sum[Arrays.binarySearch(keys, indexes[v])] += values[v] / norm;
+			}
+			double max = Double.NEGATIVE_INFINITY;
+			double current = Double.NEGATIVE_INFINITY;
+			int medoid = medoids[c];
+			for (int i : members[c]) {
+				final double norm = this.vectors[i].norm();
+				double similarity = 0;
+				if (norm != 0) {
+					final int[] indexes = this.vectors[i].getNonZeroIndexes();
+					final double[] values = this.vectors[i].getNonZeroValues();
+					for (int v = 0; v < indexes.length; v++)
+						similarity += values[v] / norm * sum[Arrays.binarySearch(keys, indexes[v])];
+					// without the similarity to itself
+					similarity -= 1;
+				}
+				if (i == medoids[c])
+					current = similarity;
+				if (similarity > max) {
+					max = similarity;
+					medoid = i;
+				}
+			}
+			// the medoid stays on ties up to rounding, so clusters settle
+			if (medoid == medoids[c] || current >= max - SIMILARITY_TOLERANCE * members[c].length)
+				return 0;
+			medoids[c] = medoid;
+			return 1;
+		}).sum() > 0;
+	}
+
+	// the indexes at which any of the documents is non-zero, ascending
+	private int[] nonZeroIndexes(final int[] documents) {
+		int amount = 0;
+		for (int i : documents)
+			amount += this.vectors[i].getNonZeroIndexes().length;
+		final int[] indexes = new int[amount];
+		amount = 0;
+		for (int i : documents) {
+			final int[] nonZero = this.vectors[i].getNonZeroIndexes();
+			System.arraycopy(nonZero, 0, indexes, amount, nonZero.length);
+			amount += nonZero.length;
+		}
+		Arrays.sort(indexes);
+		int distinct = 0;
+		for (int v = 0; v < indexes.length; v++)
+			if (distinct == 0 || indexes[v] != indexes[distinct - 1])
+				indexes[distinct++] = indexes[v];
+		return Arrays.copyOf(indexes, distinct);
+	}
+
+	// the documents of each cluster in ascending order
+	private int[][] members(final int k, final int[] assignment) {
+		final int[] sizes = new int[k];
+		for (int c : assignment)
+			sizes[c]++;
+		final int[][] members = new int[k][];
+		for (int c = 0; c < k; c++)
+			members[c] = new int[sizes[c]];
+		Arrays.fill(sizes, 0);
+		for (int i = 0; i < assignment.length; i++)
+			members[assignment[i]][sizes[assignment[i]]++] = i;
+		return members;
+	}
+
+	/**
+	 * The clustering into k clusters.
+	 */
+	public final class Result {
+
+		private final int k;
+		private final int[] medoids;
+		private final int[] assignment;
+		private final int iterations;
+		private final double purity;
+		// computed on demand, as it compares all pairs of documents
+		private double silhouette = Double.NaN;
+
+		private Result(int k, int[] medoids, int[] assignment, int iterations) {
+			this.k = k;
+			this.medoids = medoids;
+			this.assignment = assignment;
+			this.iterations = iterations;
+			this.purity = this.computePurity();
+		}
+
+		/**
+		 * @return The number of clusters
+		 */
+		public int getK() {
+			return this.k;
+		}
+
+		/**
+		 * @return The number of iterations run until the assignment did not
+		 *         change or the maximum was reached
+		 */
+		public int getIterations() {
+			return this.iterations;
+		}
+
+		/**
+		 * @param cluster
+		 *            Number of the cluster
+		 * @return Index of the cluster's medoid among the documents
+		 */
+		public int getMedoid(int cluster) {
+			return this.medoids[cluster];
+		}
+
+		/**
+		 * @param document
+		 *            Index of the document
+		 * @return Number of the document's cluster
+		 */
+		public int getCluster(int document) {
+			return this.assignment[document];
+		}
+
+		/**
+		 * @return The share of documents of the most frequent kind in their
+		 *         cluster, 1 meaning each cluster holds a single kind
+		 */
+		public double getPurity() {
+			return this.purity;
+		}
+
+		/**
+		 * @return The mean silhouette of the documents, between -1 and 1; a
+		 *         document's silhouette compares the mean distance to the
+		 *         members of its cluster with that to the nearest other
+		 *         cluster, documents alone in their cluster count as 0
+		 */
+		public synchronized double getSilhouette() {
+			if (Double.isNaN(this.silhouette))
+				this.silhouette = this.computeSilhouette();
+			return this.silhouette;
+		}
+
+		/**
+		 * @return The clusters, empty ones left out
+		 */
+		public List<FlatCluster> getClusters() {
+			final int[][] members = KMedoids.this.members(this.k, this.assignment);
+			final List<FlatCluster> clusters = new ArrayList<FlatCluster>();
+			for (int c = 0; c < this.k; c++) {
+				if (members[c].length == 0)
+					continue;
+				final List<Type> clustered = new ArrayList<Type>(members[c].length);
+				for (int i : members[c])
+					clustered.add(KMedoids.this.documents.get(i));
+				clusters.add(new FlatCluster(KMedoids.this.documents.get(this.medoids[c]), clustered));
+			}
+			return clusters;
+		}
+
+		private double computePurity() {
+			final int n = this.assignment.length;
+			// documents sorted by cluster, then label
+			final long[] keys = new long[n];
+			for (int i = 0; i < n; i++)
+				keys[i] = (long) this.assignment[i] << 32 | KMedoids.this.labels[i];
+			Arrays.sort(keys);
+			int maxSum = 0;
+			int max = 0;
+			for (int i = 0, run = 0; i < n; i++) {
+				run = i > 0 && keys[i] == keys[i - 1] ? run + 1 : 1;
+				max = Math.max(max, run);
+				if (i == n - 1 || keys[i + 1] >>> 32 != keys[i] >>> 32) {
+					maxSum += max;
+					max = 0;
+				}
+			}
+			return n == 0 ? Double.NaN : maxSum / (double) n;
+		}
+
+		private double computeSilhouette() {
+			final int n = this.assignment.length;
+			final int[] sizes = new int[this.k];
+			for (int c : this.assignment)
+				sizes[c]++;
+			final FeatureVector[] vectors = KMedoids.this.vectors;
+			final double sum = IntStream.range(0, n).parallel().mapToDouble(i -> {
+				final int own = this.assignment[i];
+				if (sizes[own] < 2)
+					return 0;
+				final double[] distances = new double[this.k];
+				for (int j = 0; j < n; j++) {
+					if (j != i)
+						distances[this.assignment[j]] += vectors[i].distance(vectors[j]);
+				}
+				final double a = distances[own] / (sizes[own] - 1);
+				double b = Double.POSITIVE_INFINITY;
+				for (int c = 0; c < this.k; c++) {
+					if (c != own && sizes[c] > 0)
+						b = Math.min(b, distances[c] / sizes[c]);
+				}
+				if (b == Double.POSITIVE_INFINITY)
+					return 0;
+				final double max = Math.max(a, b);
+				return max == 0 ? 0 : (b - a) / max;
+			}).sum();
+			return n == 0 ? Double.NaN : sum / n;
+		}
+	}
+
+}
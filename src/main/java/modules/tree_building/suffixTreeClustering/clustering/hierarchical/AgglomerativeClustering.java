@@ -0,0 +1,245 @@
+package modules.tree_building.suffixTreeClustering.clustering.hierarchical;
+
+import java.util.Arrays;
+
+/**
+ * Agglomerative clustering on a condensed distance matrix, i.e. the distances
+ * above the diagonal row by row in a single array.
+ *
+ * Clusters are merged following nearest neighbor chains: starting from any
+ * cluster, the chain is extended by the nearest neighbor of its last cluster
+ * until two clusters are each other's nearest neighbors, which are merged.
+ * The distances of the merged cluster to the others are derived from those
+ * of its parts by the Lance-Williams formula of the linkage. This takes
+ * quadratic time for the single, complete and average linkage, which are all
+ * reducible, and yields the same hierarchy as always merging the globally
+ * nearest clusters, up to ties.
+ */
+public class AgglomerativeClustering {
+
+	private final int size;
+	private final double[] distances;
+	private final SimilarityMeasure measure;
+
+	// the merges in ascending order of distance; merge k creates cluster
+	// size + k, clusters below size are the initial elements
+	private final int[] left;
+	private final int[] right;
+	private final double[] heights;
+
+	/**
+	 * @param size
+	 *            Amount of elements
+	 * @param measure
+	 *            The linkage
+	 */
+	public AgglomerativeClustering(int size, SimilarityMeasure measure) {
+		if ((long) size * (size - 1) / 2 > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Too many elements for a condensed distance matrix: " + size);
+		this.size = size;
+		this.distances = new double[(int) Math.max(0, (long) size * (size - 1) / 2)];
+		this.measure = measure;
+		this.left = new int[Math.max(0, size - 1)];
+		this.right = new int[Math.max(0, size - 1)];
+		this.heights = new double[Math.max(0, size - 1)];
+	}
+
+	// index of the distance between i and j in the condensed matrix, i < j
+	private int index(int i, int j) {
+		return (int) ((long) i * (2 * this.size - i - 1) / 2) + j - i - 1;
+	}
+
+	/**
+	 * Sets the distance between two elements, before {@link #run()}. May be
+	 * called concurrently for different pairs.
+	 *
+	 * @param i
+	 *            Index of the first element
+	 * @param j
+	 *            Index of the second element, different from i
+	 * @param distance
+	 *            The distance
+	 */
+	public void setDistance(int i, int j, double distance) {
+		this.distances[i < j ? this.index(i, j) : this.index(j, i)] = distance;
+	}
+
+	/**
+	 * @return The amount of elements
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Merges the elements into a single cluster. Consumes the distances.
+	 */
+	public void run() {
+		final int n = this.size;
+		final double[] d = this.distances;
+		final boolean[] active = new boolean[n];
+		Arrays.fill(active, true);
+		// amount of elements of the cluster in each slot
+		final int[] members = new int[n];
+		Arrays.fill(members, 1);
+		final int[] chain = new int[n];
+		int chainLength = 0;
+
+		// the merges by slots, a cluster lives on in the slot of its second
+		// part
+		final int[] slotsA = new int[Math.max(0, n - 1)];
+		final int[] slotsB = new int[Math.max(0, n - 1)];
+		final double[] slotHeights = new double[Math.max(0, n - 1)];
+
+		int firstActive = 0;
+		for (int merge = 0; merge < n - 1; merge++) {
+			if (chainLength == 0) {
+				while (!active[firstActive])
+					firstActive++;
+				chain[chainLength++] = firstActive;
+			}
+
+			// extend the chain until its last two clusters are reciprocal
+			// nearest neighbors
+			int a;
+			int b;
+			double min;
+			while (true) {
+				a = chain[chainLength - 1];
+				b = chainLength > 1 ? chain[chainLength - 2] : -1;
+				// prefer the previous cluster on ties, so the chain ends
+				min = b >= 0 ? d[a < b ? this.index(a, b) : this.index(b, a)] : Double.POSITIVE_INFINITY;
+				int nearest = b;
+				// the column of a above the diagonal, then its row
+				for (int x = 0, i = a - 1; x < a; i += n - x - 2, x++) {
+					if (active[x] && d[i] < min) {
+						min = d[i];
+						nearest = x;
+					}
+				}
+				for (int x = a + 1, i = a + 1 < n ? this.index(a, a + 1) : 0; x < n; x++, i++) {
+					if (active[x] && d[i] < min) {
+						min = d[i];
+						nearest = x;
+					}
+				}
+				if (nearest == b && b >= 0)
+					break;
+				if (nearest < 0) {
+					// no finite distance left, merge with any cluster
+					nearest = this.otherActive(active, a);
+				}
+				chain[chainLength++] = nearest;
+			}
+			chainLength -= 2;
+
+			slotsA[merge] = a;
+			slotsB[merge] = b;
+			slotHeights[merge] = min;
+
+			// the merged cluster takes the place of b
+			active[a] = false;
+			for (int x = 0, ia = a - 1, ib = b - 1; x < n; x++) {
+				// ia and ib follow the column of a and b, then their rows
+				if (active[x] && x != b)
+					d[ib] = this.update(d[ia], d[ib], members[a], members[b]);
+				ia += x < a ? n - x - 2 : 1;
+				ib += x < b ? n - x - 2 : 1;
+			}
+			members[b] += members[a];
+		}
+
+		this.sortMerges(slotsA, slotsB, slotHeights);
+	}
+
+	private int otherActive(boolean[] active, int a) {
+		int x = 0;
+		while (x == a || !active[x])
+			x++;
+		return x;
+	}
+
+	// Lance-Williams update of the distance to the union of a and b
+	private double update(double da, double db, int membersA, int membersB) {
+		switch (this.measure) {
+		case SINGLE_LINK:
+			return Math.min(da, db);
+		case COMPLETE_LINK:
+			return Math.max(da, db);
+		case AVERAGE_LINK:
+			return (membersA * da + membersB * db) / (membersA + membersB);
+		default:
+			throw new RuntimeException("invalid similarity measure");
+		}
+	}
+
+	/*
+	 * Orders the merges by their distance and names the clusters by the
+	 * merges creating them, tracking the cluster of each element.
+	 */
+	private void sortMerges(int[] slotsA, int[] slotsB, double[] slotHeights) {
+		final int merges = slotHeights.length;
+		final Integer[] order = new Integer[merges];
+		for (int i = 0; i < merges; i++)
+			order[i] = i;
+		// stable, so merges of equal distance keep the order they were made in
+		Arrays.sort(order, (x, y) -> Double.compare(slotHeights[x], slotHeights[y]));
+
+		final int[] parent = new int[2 * this.size];
+		for (int i = 0; i < parent.length; i++)
+			parent[i] = i;
+		for (int k = 0; k < merges; k++) {
+			final int merge = order[k];
+			final int clusterA = find(parent, slotsA[merge]);
+			final int clusterB = find(parent, slotsB[merge]);
+			this.left[k] = Math.min(clusterA, clusterB);
+			this.right[k] = Math.max(clusterA, clusterB);
+			this.heights[k] = slotHeights[merge];
+			parent[clusterA] = parent[clusterB] = this.size + k;
+		}
+	}
+
+	private static int find(int[] parent, int x) {
+		while (parent[x] != x) {
+			parent[x] = parent[parent[x]];
+			x = parent[x];
+		}
+		return x;
+	}
+
+	/**
+	 * @return The amount of merges, one less than the amount of elements
+	 */
+	public int getMergeAmount() {
+		return this.heights.length;
+	}
+
+	/**
+	 * @param merge
+	 *            Index of the merge, merges ascend by distance
+	 * @return The first cluster merged, an element if below {@link #size()},
+	 *         else the cluster created by merge (result - size)
+	 */
+	public int getLeft(int merge) {
+		return this.left[merge];
+	}
+
+	/**
+	 * @param merge
+	 *            Index of the merge, merges ascend by distance
+	 * @return The second cluster merged, numbered like {@link #getLeft(int)}
+	 */
+	public int getRight(int merge) {
+		return this.right[merge];
+	}
+
+	/**
+	 * @param merge
+	 *            Index of the merge, merges ascend by distance
+	 * @return The linkage distance of the merged clusters
+	 */
+	public double getHeight(int merge) {
+		return this.heights[merge];
+	}
+
+}
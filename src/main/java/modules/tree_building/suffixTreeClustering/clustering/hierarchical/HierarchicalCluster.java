@@ -1,5 +1,7 @@
 package modules.tree_building.suffixTreeClustering.clustering.hierarchical;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -12,17 +14,21 @@ public class HierarchicalCluster {
 	private int age;
 	private static int nextAge;
 
-	private List<Type> allTypes = new LinkedList<Type>();
+	// collected from the children when first requested
+	private List<Type> allTypes;
 
 	private HierarchicalCluster left;
 	private HierarchicalCluster right;
 	private Set<String> topics;
+	// the distance at which the children were merged
+	private double distance;
 
 	/**
 	 * Constructor for a Cluster.
 	 * @param t - Type (Document) to be assigned to that cluster.
 	 */
 	public HierarchicalCluster(Type t) {
+		allTypes = new LinkedList<Type>();
 		allTypes.add(t);
 		this.setAge(nextAge++);
 		this.topics = new HashSet<String>();
@@ -34,14 +40,20 @@ public class HierarchicalCluster {
 	 * @param right - 'right' child
 	 */
 	public HierarchicalCluster(HierarchicalCluster left, HierarchicalCluster right) {
+		this(left, right, 0d);
+	}
+
+	/**
+	 * Constructor. Builds Cluster containing 2 other clusters as children.
+	 * @param left - 'left' child
+	 * @param right - 'right' child
+	 * @param distance - distance between the children
+	 */
+	public HierarchicalCluster(HierarchicalCluster left, HierarchicalCluster right, double distance) {
 		this.left = left;
 		this.right = right;
-		allTypes.addAll(left.allTypes);
-		allTypes.addAll(right.allTypes);
+		this.distance = distance;
 		this.setAge(nextAge++);
-		this.topics = new HashSet<String>();
-		this.topics.addAll(left.topics);
-		this.topics.addAll(right.topics);
 	}
 
 	public HierarchicalCluster getLeftChild() {
@@ -53,9 +65,46 @@ public class HierarchicalCluster {
 	}
 
 	public List<Type> getAllTypes() {
+		if (allTypes == null) {
+			allTypes = new LinkedList<Type>();
+			for (HierarchicalCluster leaf : leaves()) {
+				allTypes.addAll(leaf.allTypes);
+			}
+		}
 		return allTypes;
 	}
 
+	/**
+	 * @return the distance at which the children were merged, 0 for a
+	 *         cluster of a single type
+	 */
+	public double getDistance() {
+		return distance;
+	}
+
+	/*
+	 * The clusters without children below this one, from left to right.
+	 * Iterative, since hierarchies may be as deep as they have types.
+	 */
+	private List<HierarchicalCluster> leaves() {
+		List<HierarchicalCluster> result = new LinkedList<HierarchicalCluster>();
+		Deque<HierarchicalCluster> stack = new ArrayDeque<HierarchicalCluster>();
+		stack.push(this);
+		while (!stack.isEmpty()) {
+			HierarchicalCluster cluster = stack.pop();
+			if (cluster.left == null && cluster.right == null) {
+				result.add(cluster);
+			}
+			if (cluster.right != null) {
+				stack.push(cluster.right);
+			}
+			if (cluster.left != null) {
+				stack.push(cluster.left);
+			}
+		}
+		return result;
+	}
+
 	@Override
 	public String toString() {
 		StringBuffer sb = new StringBuffer();
@@ -66,7 +115,7 @@ public class HierarchicalCluster {
 	}
 
 	public void addTopic(String topic) {
-		this.topics.add(topic);
+		this.getTopics().add(topic);
 	}
 
 	public int getAge() {
@@ -78,6 +127,12 @@ public class HierarchicalCluster {
 	}
 
 	public Set<String> getTopics() {
+		if (topics == null) {
+			topics = new HashSet<String>();
+			for (HierarchicalCluster leaf : leaves()) {
+				topics.addAll(leaf.getTopics());
+			}
+		}
 		return topics;
 	}
 }
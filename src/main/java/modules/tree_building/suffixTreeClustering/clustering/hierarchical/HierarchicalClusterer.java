@@ -1,20 +1,24 @@
 package modules.tree_building.suffixTreeClustering.clustering.hierarchical;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Deque;
 import java.util.List;
-import java.util.Map;
+import java.util.stream.IntStream;
 
 import modules.tree_building.suffixTreeClustering.data.Type;
+import modules.tree_building.suffixTreeClustering.features.FeatureVector;
 
+/**
+ * Agglomerative hierarchical clustering of types by the euclidian distance of
+ * their vectors, see {@link AgglomerativeClustering}.
+ */
 public class HierarchicalClusterer {
 
 	private List<Type> documents;
 	private List<HierarchicalCluster> clusters;
 	int N; // number of Types/Documents
-	private int currentNumberOfClusters;
 	private SimilarityMeasure s;
-	private Map<TypePair, Double> vectorDistances;
 
 	/**
 	 * Constructor. Initializes documents to cluster and similarity measure.
@@ -23,147 +27,68 @@ public class HierarchicalClusterer {
 	 *            - List of documents to cluster.
 	 */
 	public HierarchicalClusterer(List<Type> types) {
+		this(types, SimilarityMeasure.AVERAGE_LINK);
+	}
+
+	/**
+	 * Constructor. Initializes documents to cluster and similarity measure.
+	 * 
+	 * @param types
+	 *            - List of documents to cluster.
+	 * @param measure
+	 *            - linkage determining the distance between clusters
+	 */
+	public HierarchicalClusterer(List<Type> types, SimilarityMeasure measure) {
 		this.documents = types;
 		N = this.documents.size();
 		this.clusters = new ArrayList<HierarchicalCluster>();
 
-		s = SimilarityMeasure.AVERAGE_LINK;
+		s = measure;
 	}
 
 	/**
 	 * Hierarchical Clustering.
 	 */
 	public void analyze() {
-
-		this.vectorDistances = new HashMap<TypePair, Double>();
-
 		/*
 		 * in the beginning, each document constitutes 1 cluster
 		 */
+		HierarchicalCluster[] nodes = new HierarchicalCluster[Math.max(0, 2 * N - 1)];
 		for (int i = 0; i < N; i++) {
 			Type type = documents.get(i);
 			HierarchicalCluster cluster = new HierarchicalCluster(type);
 			// set cluster topic
 			cluster.addTopic(type.getString());
-			clusters.add(cluster);
+			nodes[i] = cluster;
 		}
-		currentNumberOfClusters = clusters.size();
-
-		cluster();
-	}
-
-	/*
-	 * Clustering Method. As long as more than 1 Cluster is left (halting
-	 * criterion), combine nearest (according to similarity measure) clusters.
-	 */
-	private void cluster() {
-		while (currentNumberOfClusters > 1) {
-			if (currentNumberOfClusters == documents.size()) {
-				getVectorDistances();
-			}
 
-			combineNearestCluster();
-
-			currentNumberOfClusters--;
+		/*
+		 * combine nearest clusters until only 1 cluster is left
+		 */
+		AgglomerativeClustering engine = new AgglomerativeClustering(N, s);
+		getVectorDistances(engine);
+		engine.run();
+		for (int k = 0; k < engine.getMergeAmount(); k++) {
+			nodes[N + k] = new HierarchicalCluster(nodes[engine.getLeft(k)], nodes[engine.getRight(k)],
+					engine.getHeight(k));
 		}
-	}
 
-	/*
-	 * Set up vector distances to be used for clustering.
-	 */
-	private void getVectorDistances() {
-		for (int i = 0; i < documents.size() - 1; i++) {
-			for (int j = i + 1; j < documents.size(); j++) {
-				Type type1 = documents.get(i);
-				Type type2 = documents.get(j);
-				Double dist = type1.getVector().distance(type2.getVector());
-				TypePair pair = new TypePair(type1, type2);
-				Double put = vectorDistances.put(pair, dist);
-				if (put != null) {
-					System.err.println("Map already contained key " + pair);
-				}
-			}
+		clusters.clear();
+		if (N > 0) {
+			clusters.add(nodes[nodes.length - 1]);
 		}
 	}
 
 	/*
-	 * Combine the 2 nearest clusters. Add combined cluster to set of clusters
-	 * and delete the 2 clusters.
+	 * Set up vector distances to be used for clustering, one row per task.
 	 */
-	private void combineNearestCluster() {
-		Double smallestClusterDist = Double.POSITIVE_INFINITY;
-		int c1 = 0;
-		int c2 = 0;
-		for (int i = 0; i < clusters.size() - 1; i++) {
-			HierarchicalCluster cluster1 = clusters.get(i);
-			for (int j = i + 1; j < clusters.size(); j++) {
-				HierarchicalCluster cluster2 = clusters.get(j);
-				Double clusterDist = getClusterDistance(cluster1, cluster2);
-				if (clusterDist < smallestClusterDist) {
-					smallestClusterDist = clusterDist;
-					c1 = i;
-					c2 = j;
-				}
+	private void getVectorDistances(final AgglomerativeClustering engine) {
+		IntStream.range(0, N - 1).parallel().forEach(i -> {
+			FeatureVector vector = documents.get(i).getVector();
+			for (int j = i + 1; j < N; j++) {
+				engine.setDistance(i, j, vector.distance(documents.get(j).getVector()));
 			}
-		}
-		System.out.println("combine: " + clusters.get(c1) + " and "
-				+ clusters.get(c2));
-		HierarchicalCluster newCluster = new HierarchicalCluster(
-				clusters.get(c1), clusters.get(c2));
-		clusters.remove(c2);
-		clusters.set(c1, newCluster);
-	}
-
-	/*
-	 * Calculate the cluster distance between 2 clusters according to given
-	 * similarity measure.
-	 */
-	private Double getClusterDistance(HierarchicalCluster c1,
-			HierarchicalCluster c2) {
-		List<Type> vecsInC1 = c1.getAllTypes();
-		List<Type> vecsInc2 = c2.getAllTypes();
-		Double minDist = Double.POSITIVE_INFINITY;
-		Double maxDist = 0d;
-		Double averageDist = 0d;
-
-		for (int i = 0; i < vecsInC1.size(); i++) {
-			Type vecID1 = vecsInC1.get(i);
-			for (int j = 0; j < vecsInc2.size(); j++) {
-				Type vecID2 = vecsInc2.get(j);
-				Double dist = 0d;
-				TypePair pair;
-
-				if (vecID2.getID() < vecID1.getID()) {
-					pair = new TypePair(vecID2, vecID1);
-				} else {
-					pair = new TypePair(vecID1, vecID2);
-				}
-
-				if (!vectorDistances.containsKey(pair))
-					System.out.println("VectorDistances does not contain key "
-							+ pair);
-
-				dist = vectorDistances.get(pair);
-				averageDist += dist;
-				if (dist < minDist) {
-					minDist = dist;
-				}
-				if (dist > maxDist) {
-					maxDist = dist;
-				}
-			}
-		}
-		switch (s) {
-		case SINGLE_LINK:
-			return minDist;
-		case COMPLETE_LINK:
-			return maxDist;
-		case AVERAGE_LINK:
-			averageDist /= (vecsInC1.size() + vecsInc2.size());
-			return averageDist;
-		default:
-			throw new RuntimeException("invalid similarity measure");
-		}
+		});
 	}
 
 	/**
@@ -178,26 +103,97 @@ public class HierarchicalClusterer {
 
 	private static String clusterToDot(HierarchicalCluster cluster,
 			StringBuilder builder) {
-		if (cluster != null) { // Pre-order: 1. root
-			int clusterID = cluster.getAge();
+		// Pre-order: 1. root, 2. left, 3. right; iterative, since hierarchies
+		// may be as deep as they have types. The stack holds clusters to
+		// visit and edges to write.
+		Deque<Object> stack = new ArrayDeque<Object>();
+		if (cluster != null) {
+			stack.push(cluster);
+		}
+		while (!stack.isEmpty()) {
+			Object next = stack.pop();
+			if (next instanceof String) {
+				builder.append((String) next);
+				continue;
+			}
+			HierarchicalCluster current = (HierarchicalCluster) next;
+			int clusterID = current.getAge();
 
 			builder.append(String.format(clusterID + "[label = \"%s\"];",
-					cluster.getTopics()/* .iterator().next() */));
+					current.getTopics()/* .iterator().next() */));
 
-			if (cluster.getLeftChild() != null) {
-				builder.append(String.format("%s -> %s;\n", clusterID, cluster
+			if (current.getRightChild() != null) {
+				stack.push(current.getRightChild());
+				stack.push(String.format("%s -> %s;\n", clusterID, current
+						.getRightChild().getAge()));
+			}
+			if (current.getLeftChild() != null) {
+				stack.push(current.getLeftChild());
+				stack.push(String.format("%s -> %s;\n", clusterID, current
 						.getLeftChild().getAge()));
 			}
-			clusterToDot(cluster.getLeftChild(), builder); // 2. left
-			if (cluster.getRightChild() != null) {
-				builder.append(String.format("%s -> %s;\n", clusterID, cluster
-						.getRightChild().getAge()));
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * @return The hierarchy in Newick format, labelled by the types' strings
+	 *         and with the merge distances as branch lengths
+	 */
+	public String toNewick() {
+		StringBuilder builder = new StringBuilder();
+		if (!this.clusters.isEmpty()) {
+			HierarchicalCluster root = this.clusters.get(0);
+			// iterative, the stack holds clusters to write and the text
+			// following them
+			Deque<Object> stack = new ArrayDeque<Object>();
+			stack.push(root);
+			while (!stack.isEmpty()) {
+				Object next = stack.pop();
+				if (next instanceof String) {
+					builder.append((String) next);
+					continue;
+				}
+				HierarchicalCluster current = (HierarchicalCluster) next;
+				if (current.getLeftChild() == null || current.getRightChild() == null) {
+					appendNewickLabel(builder, current.getAllTypes().get(0).getString());
+					continue;
+				}
+				builder.append('(');
+				stack.push(")");
+				stack.push(branchLength(current, current.getRightChild()));
+				stack.push(current.getRightChild());
+				stack.push(branchLength(current, current.getLeftChild()) + ",");
+				stack.push(current.getLeftChild());
 			}
-			clusterToDot(cluster.getRightChild(), builder); // 3. right
+			builder.append(';');
 		}
 		return builder.toString();
 	}
 
+	private static String branchLength(HierarchicalCluster parent, HierarchicalCluster child) {
+		return ":" + Math.max(0d, parent.getDistance() - child.getDistance());
+	}
+
+	/*
+	 * Labels with characters of the Newick syntax are quoted, doubling the
+	 * quotes within.
+	 */
+	private static void appendNewickLabel(StringBuilder builder, String label) {
+		if (label == null) {
+			return;
+		}
+		boolean quote = false;
+		for (int i = 0; i < label.length() && !quote; i++) {
+			quote = "()[]':;, \t\n\r".indexOf(label.charAt(i)) >= 0;
+		}
+		if (quote) {
+			builder.append('\'').append(label.replace("'", "''")).append('\'');
+		} else {
+			builder.append(label);
+		}
+	}
+
 	/**
 	 * Get the Clustering result.
 	 * 
@@ -1,6 +1,8 @@
 package modules.tree_building.suffixTreeClustering.clustering.neighborjoin;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -15,6 +17,7 @@ public class NJNode {
 	private List<NJNode> children;
 	private String label;
 	private double branchLength;
+	// the documents below inner nodes are collected on demand
 	private Set<Type> clusteredDocuments;
 	private Map<String, NJNode> childrenMap;
 
@@ -31,7 +34,6 @@ public class NJNode {
 		setParent(parent);
 		children = new ArrayList<>();
 		this.childrenMap = new HashMap<String, NJNode>();
-		this.clusteredDocuments = new TreeSet<>();
 		setLabel(label);
 	}
 
@@ -64,6 +66,18 @@ public class NJNode {
 	}
 
 	public Set<Type> getClusteredDocuments() {
+		if (clusteredDocuments == null) {
+			clusteredDocuments = new TreeSet<>();
+			Deque<NJNode> stack = new ArrayDeque<>(children);
+			while (!stack.isEmpty()) {
+				NJNode node = stack.pop();
+				if (node.clusteredDocuments != null) {
+					clusteredDocuments.addAll(node.clusteredDocuments);
+				} else {
+					stack.addAll(node.children);
+				}
+			}
+		}
 		return clusteredDocuments;
 	}
 
@@ -91,6 +105,6 @@ public class NJNode {
 	}
 
 	public void addDocuments(Set<Type> documents) {
-		this.clusteredDocuments.addAll(documents);
+		this.getClusteredDocuments().addAll(documents);
 	}
 }
\ No newline at end of file
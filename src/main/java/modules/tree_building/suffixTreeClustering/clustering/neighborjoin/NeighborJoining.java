@@ -1,276 +1,116 @@
 package modules.tree_building.suffixTreeClustering.clustering.neighborjoin;
 
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
-import java.util.Map;
+import java.util.Random;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
 import modules.tree_building.suffixTreeClustering.data.Type;
 
 public class NeighborJoining {
 
 	private static final String LOG_TAG = NeighborJoining.class.getSimpleName();
+
+	// default amount of quadruples checked for additivity
+	public static final int DEFAULT_ADDITIVITY_SAMPLES = 1000;
+
+	// relative difference of sums still regarded as additive
+	private static final double ADDITIVITY_TOLERANCE = 1e-6;
+
 	private Logger logger;
 
 	private List<Type> documents;
-	private double[][] distanceMatrix;
-	private int numCluster;
-	private Map<Integer, String> aliasNames;
-	private int[] alias; // merkt sich die urspruenglichen Indizes aus der
-	// Distanzmatrix
-	private double[] r; // Netto-Divergenzen
-	private int newIndex;
+	private RapidNeighborJoining engine;
+	private boolean rapid;
 
 	private NJNode root;
-	private int best_i;
-	private int best_j;
-	private int aliasBesti;
 
 	public NeighborJoining(List<Type> types) {
+		this(types, true, DEFAULT_ADDITIVITY_SAMPLES);
+	}
+
+	/**
+	 * @param types
+	 *            The types to join, at least 3
+	 * @param rapid
+	 *            Whether to prune the search for the next pair by sorted rows,
+	 *            which yields the same tree as comparing all pairs
+	 * @param additivitySamples
+	 *            Amount of random quadruples checked for additivity, 0 to skip
+	 *            the check
+	 */
+	public NeighborJoining(List<Type> types, boolean rapid, int additivitySamples) {
 		this.logger = Logger.getLogger(LOG_TAG);
 
+		if (types.size() < 3) {
+			throw new IllegalArgumentException("ZU WENIGE TAXA IN DER MATRIX!");
+		}
 		this.documents = types;
+		this.rapid = rapid;
+		this.engine = new RapidNeighborJoining(types.size());
 		createDistanceMatrix();
 
-		if (distanceMatrix.length < 3) {
-			throw new IllegalArgumentException("ZU WENIGE TAXA IN DER MATRIX!");
-		}
-		if (!isSymmetric(distanceMatrix)) {
-			throw new IllegalArgumentException("MATRIX IST UNSYMMETRISCH!");
-		}
-		if (!isAdditive(distanceMatrix)) {
-			// throw new IllegalArgumentException("MATRIX IST NICHT ADDITIV!");
+		if (additivitySamples > 0
+				&& !engine.isAdditive(additivitySamples, new Random(types.size()), ADDITIVITY_TOLERANCE)) {
 			logger.warning("Matrix ist nicht additiv");
 		}
 
-		this.numCluster = distanceMatrix.length;
-		this.aliasNames = new HashMap<>();
-
-		newIndex = 1;
-
-		init();
-	}
-
-	private void init() {
-		logger.info("Init NJ...");
-
 		this.root = new NJNode(null, "root");
-
-		for (int i = 0; i < numCluster; i++) {
-			NJNode newTaxon = new NJNode(root, documents.get(i));
-			aliasNames.put(i, documents.get(i).getString());
-			root.addChild(newTaxon);
-		}
-
-		alias = new int[numCluster];
-		for (int i = 0; i < numCluster; i++) {
-			alias[i] = i;
-		}
-
-		r = new double[numCluster];
-	}
-
-	
-	private boolean isAdditive(double[][] matrix) {
-		boolean holds = false;
-		for (int i = 0; i < matrix.length; i++) {
-			for (int j = 0; j < matrix.length; j++) {
-				for (int k = 0; k < matrix.length; k++) {
-					for (int l = 0; l < matrix.length; l++) {
-						if (i != j && i != k && i != l && j != k && j != l
-								&& k != l) {
-							holds = isSame(matrix[i][k] + matrix[j][l], 
-									matrix[i][l] + matrix[j][k]) 
-									&& isGreaterOrEqual(matrix[i][k] + matrix[j][l], 
-											matrix[i][j] + matrix[k][l]);
-							if (!holds)
-								return false;
-						}
-					}
-				}
-			}
-		}
-		return true;
-	}
-
-	private boolean isGreaterOrEqual(double d1, double d2) {
-		return Double.compare(d1, d2) == 0;
-	}
-
-	private boolean isSame(double d1, double d2) {
-		return Double.compare(d1, d2) >= 0;
-	}
-
-	private boolean isSymmetric(double[][] matrix) {
-		if (matrix.length != matrix[0].length) {
-			System.err.println("Matrix is not symmetric!");
-			return false;
-		} else {
-			for (int i = 0; i < matrix.length; i++) {
-				for (int j = 0; j < matrix[i].length; j++) {
-					if (!(matrix[i][j] == (matrix[j][i]))) {
-						System.out
-								.printf("Values of matrix[%s][%s]=%s and matrix[%s][%s]=%s are not the same",
-										i, j, matrix[i][j], j, i, matrix[j][i]);
-						return false;
-					}
-					if (i == j && !(matrix[i][j] == (new Double(0.0)))) {
-						System.out.printf(
-								"Value of matrix[%s][%s]=%s is not 0", i, j,
-								matrix[i][j]);
-						return false;
-					}
-				}
-			}
-		}
-		return true;
 	}
 
 	public void start() {
 		logger.info("Start NJ...");
 
-		while (true) {
-			findNextPair();
-			newBranchLengths();
-			if (numCluster == 3) {
-				break;
-			}
-			join();
-		}
-
-		finish();
-	}
-
-	private void findNextPair() {
-		// r_i = sum(d_ij) / (N-2) for all j=1 to N
-		for (int i = 0; i < numCluster; i++) {
-			r[i] = 0.0f;
-			for (int j = 0; j < numCluster; j++) {
-				r[i] += getDistance(i, j);
-			}
-			r[i] /= (numCluster - 2);
-		}
-
-		best_i = 0;
-		best_j = 0;
-
-		double min = Double.POSITIVE_INFINITY;
-
-		// calculate M and simultaniously, store the cell with smallest value
-		for (int i = 0; i < numCluster - 1; i++) {
-			for (int j = i + 1; j < numCluster; j++) {
-				// M_ij = D_ij - r_i - r_j
-				double M_ij = getDistance(i, j) - r[i] - r[j];
-
-				if (M_ij < min) {
-					// if there are multiple smallest values, the first pair
-					// will be stored...
-					min = M_ij;
-					best_i = i;
-					best_j = j;
-				}
-			}
-		}
-
-		aliasBesti = alias[best_i];
-	}
-
-	private double getDistance(int i, int j) {
-		return distanceMatrix[alias[i]][alias[j]];
-	}
-
-	private void newBranchLengths() {
-		// nodes to be joined
-		NJNode child1 = root.getChildByName(aliasNames.get(alias[best_i]));
-		NJNode child2 = root.getChildByName(aliasNames.get(alias[best_j]));
-
-		// new branch lengths
-		double dij = getDistance(best_i, best_j);
-		// L_iu = (D_ij/2) + ((r_i - r_j) / 2)
-		double liu = ((dij) / 2) + ((r[best_i] - r[best_j]) / 2);
-		double lju = ((dij) - liu);
-
-		child1.setBranchLength(liu);
-		child2.setBranchLength(lju);
-	}
+		engine.run(rapid);
 
-	private void join() {
-		// Update distances
-		for (int k = 0; k < numCluster; k++) {
-			if (k != best_i && k != best_j) {
-				int ak = alias[k];
-				distanceMatrix[ak][aliasBesti] = distanceMatrix[aliasBesti][ak] = updatedDistance(
-						best_i, best_j, k);
-			}
+		// leaves first, then the nodes "U_i" in the order of their joins
+		final int n = documents.size();
+		final NJNode[] nodes = new NJNode[n + engine.getJoinAmount()];
+		for (int i = 0; i < n; i++) {
+			nodes[i] = new NJNode(root, documents.get(i));
 		}
-		distanceMatrix[aliasBesti][aliasBesti] = 0.0;
-
-		joinChilds(this.root, best_i, best_j);
-
-		// Update alias
-		for (int i = best_j; i < numCluster - 1; i++) {
-			alias[i] = alias[i + 1];
+		for (int join = 0; join < engine.getJoinAmount(); join++) {
+			NJNode newNode = new NJNode(root, "U" + (join + 1));
+			joinChild(newNode, nodes[engine.getJoinedA(join)], engine.getLengthA(join));
+			joinChild(newNode, nodes[engine.getJoinedB(join)], engine.getLengthB(join));
+			nodes[n + join] = newNode;
 		}
 
-		numCluster--;
-	}
-
-	private void joinChilds(NJNode root, int n1, int n2) {
-		if (n1 == n2) {
-			throw new IllegalArgumentException("CHILDREN MUST BE DIFFERENT");
+		// the last three clusters hang at the root, in the order of their
+		// creation
+		final Integer[] last = { 0, 1, 2 };
+		Arrays.sort(last, (a, b) -> Integer.compare(engine.getLastCluster(a), engine.getLastCluster(b)));
+		for (int i : last) {
+			joinChild(root, nodes[engine.getLastCluster(i)], engine.getLastLength(i));
 		}
 
-		// create new Node "U_i" with the root node as parent
-		// joined nodes will be its children
-		String newName = "U" + (newIndex++);
-		NJNode newNode = new NJNode(root, newName);
-
-		// nodes to be joined
-		NJNode child1 = root.getChildByName(aliasNames.get(alias[best_i]));
-		NJNode child2 = root.getChildByName(aliasNames.get(alias[best_j]));
-
-		// reset structure
-		newNode.addChild(child1);
-		newNode.addChild(child2);
-		newNode.addDocuments(child1.getClusteredDocuments());
-		newNode.addDocuments(child2.getClusteredDocuments());
-		child1.setParent(newNode);
-		child2.setParent(newNode);
-
-		root.removeChild(child1);
-		root.removeChild(child2);
-		root.addChild(newNode);
-
-		aliasNames.put(aliasBesti, newName);
-	}
-
-	private double updatedDistance(int i, int j, int k) {
-		// new distances of taxa:
-		// D_xU = D_ix + D_jx - D_ij
-		return (getDistance(k, i) + getDistance(k, j) - getDistance(i, j)) / 2.0;
+		engine = null;
 	}
 
-	private void finish() {
-		getRoot().getChild(best_j).setBranchLength(
-				updatedDistance(best_i, best_j, 2));
-
-		distanceMatrix = null;
+	private void joinChild(NJNode parent, NJNode child, double branchLength) {
+		child.setParent(parent);
+		child.setBranchLength(branchLength);
+		parent.addChild(child);
 	}
 
+	/*
+	 * Distances are symmetric, each pair is computed once, one row per task.
+	 */
 	private void createDistanceMatrix() {
-		double[][] temp = new double[documents.size()][documents.size()];
-
-		for (int i = 0; i < temp.length; i++) {
-			for (int j = 0; j < temp.length; j++) {
-				temp[i][j] = computeDistance(documents.get(i), documents.get(j));
+		final int n = documents.size();
+		IntStream.range(0, n - 1).parallel().forEach(i -> {
+			Type type = documents.get(i);
+			for (int j = i + 1; j < n; j++) {
+				engine.setDistance(i, j, computeDistance(type, documents.get(j)));
 			}
-		}
-		this.distanceMatrix = temp;
+		});
 	}
 
-	private Double computeDistance(Type type1, Type type2) {
-		Double distance = type1.getVector().distance(type2.getVector());
-		return distance;
+	private double computeDistance(Type type1, Type type2) {
+		return type1.getVector().distance(type2.getVector());
 	}
 
 	public NJNode getRoot() {
@@ -278,40 +118,41 @@ public class NeighborJoining {
 	}
 
 	public void printTree() {
-		System.out.println("graph NJTree {");
-		if (root.getChildren().isEmpty()) {
-			System.out.println(root.getLabel() + ";");
-		} else {
-			for (NJNode child : root.getChildren()) {
-				System.out.print(root.getLabel() + " -- ");
-				printSubTree(child);
-			}
-		}
-		System.out.println("}");
+		System.out.print(getTree());
 	}
-	
+
+	/**
+	 * @return A Graphviz DOT representation of the tree
+	 */
 	public String getTree() {
-		String njResult = "";
-		njResult += "graph NJTree {";
+		StringBuilder builder = new StringBuilder();
+		builder.append("graph NJTree {\n");
 		if (root.getChildren().isEmpty()) {
-			njResult += root.getLabel() + ";";
+			builder.append(root.getLabel()).append(";\n");
 		} else {
-			for (NJNode child : root.getChildren()) {
-				njResult += root.getLabel() + " -- ";
-				printSubTree(child);
+			// iterative, as trees of many types may be deeper than the stack
+			// allows to recurse; an edge is followed by its child's subtree
+			Deque<Object> stack = new ArrayDeque<>();
+			for (int i = root.getChildren().size() - 1; i >= 0; i--) {
+				stack.push(root.getChildren().get(i));
+				stack.push(root.getLabel() + " -- ");
+			}
+			while (!stack.isEmpty()) {
+				Object next = stack.pop();
+				if (next instanceof String) {
+					builder.append((String) next);
+					continue;
+				}
+				NJNode node = (NJNode) next;
+				builder.append(node.getLabel()).append("[label = ").append(node.getBranchLength()).append("];\n");
+				for (int i = node.getChildren().size() - 1; i >= 0; i--) {
+					stack.push("\n");
+					stack.push(node.getChildren().get(i));
+					stack.push(node.getLabel() + " -- ");
+				}
 			}
 		}
-		njResult +="}";
-		return njResult;
-	}
-
-	private void printSubTree(NJNode node) {
-		System.out.println(node.getLabel() + "[label = "
-				+ node.getBranchLength() + "];");
-		for (NJNode child : node.getChildren()) {
-			System.out.print(node.getLabel() + " -- ");
-			printSubTree(child);
-			System.out.println();
-		}
+		builder.append("}\n");
+		return builder.toString();
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,499 @@
+package modules.tree_building.suffixTreeClustering.clustering.neighborjoin;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Neighbor joining on a condensed distance matrix, i.e. the distances above
+ * the diagonal row by row in a single array. A joined cluster takes the place
+ * of the first of its parts.
+ *
+ * Each step joins the pair of clusters i, j with the smallest value of
+ * Q_ij = D_ij - r_i - r_j, r_i being the sum of the distances of i divided by
+ * the amount of clusters minus 2. Rows are searched in parallel. In the rapid
+ * mode (following RapidNJ) each row keeps its nearest clusters in ascending
+ * order of distance. Since no r exceeds the largest one, a row's search stops
+ * as soon as D_ij - r_i - max(r) exceeds the best Q found, and the distance
+ * of the last kept cluster bounds those of all others. Only rows where that
+ * bound does not suffice are scanned completely, which also refreshes their
+ * nearest clusters, keeping twice as many as before. Pairs with a cluster joined after the row was sorted are
+ * found in the row of the newer cluster.
+ */
+public class RapidNeighborJoining {
+
+	// amount of nearest clusters kept per row in the rapid mode
+	private static final int ROW_CANDIDATES = 64;
+
+	// rows searched by one task
+	private static final int ROWS_PER_TASK = 64;
+
+	private final int size;
+	private final double[] distances;
+
+	// per join: the clusters joined and their branch lengths; join k creates
+	// cluster size + k, clusters below size are the initial elements
+	private final int[] joinedA;
+	private final int[] joinedB;
+	private final double[] lengthsA;
+	private final double[] lengthsB;
+
+	// the three clusters left in the end and their branch lengths
+	private final int[] lastClusters = new int[3];
+	private final double[] lastLengths = new double[3];
+
+	// state while running
+	private boolean[] active;
+	private int[] clusterOfSlot;
+	private int[] slotOfCluster;
+	private double[] sums;
+	private double[] r;
+	private double maxR;
+	private int[][] rowCandidates;
+	private int[] rowCandidateAmounts;
+	private double[] rowBounds;
+
+	/**
+	 * @param size
+	 *            Amount of elements, at least 3
+	 */
+	public RapidNeighborJoining(int size) {
+		if (size < 3)
+			throw new IllegalArgumentException("Neighbor joining needs at least 3 elements, got " + size);
+		if ((long) size * (size - 1) / 2 > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Too many elements for a condensed distance matrix: " + size);
+		this.size = size;
+		this.distances = new double[(int) ((long) size * (size - 1) / 2)];
+		this.joinedA = new int[size - 3];
+		this.joinedB = new int[size - 3];
+		this.lengthsA = new double[size - 3];
+		this.lengthsB = new double[size - 3];
+	}
+
+	// index of the distance between i and j in the condensed matrix, i < j
+	private int index(int i, int j) {
+		return (int) ((long) i * (2 * this.size - i - 1) / 2) + j - i - 1;
+	}
+
+	private double distance(int i, int j) {
+		return this.distances[i < j ? this.index(i, j) : this.index(j, i)];
+	}
+
+	/**
+	 * Sets the distance between two elements, before {@link #run(boolean)}.
+	 * May be called concurrently for different pairs.
+	 *
+	 * @param i
+	 *            Index of the first element
+	 * @param j
+	 *            Index of the second element, different from i
+	 * @param distance
+	 *            The distance
+	 */
+	public void setDistance(int i, int j, double distance) {
+		this.distances[i < j ? this.index(i, j) : this.index(j, i)] = distance;
+	}
+
+	/**
+	 * Checks the four point condition on random quadruples of elements: of the
+	 * sums D_ij + D_kl, D_ik + D_jl and D_il + D_jk, the two largest must be
+	 * equal for the distances to be those of a tree.
+	 *
+	 * @param samples
+	 *            Amount of quadruples to check
+	 * @param random
+	 *            Source of the quadruples
+	 * @param tolerance
+	 *            Difference allowed relative to the largest sum
+	 * @return whether all sampled quadruples are additive
+	 */
+	public boolean isAdditive(int samples, Random random, double tolerance) {
+		if (this.size < 4)
+			return true;
+		final double[] sums = new double[3];
+		for (int sample = 0; sample < samples; sample++) {
+			final int i = random.nextInt(this.size);
+			int j, k, l;
+			do {
+				j = random.nextInt(this.size);
+			} while (j == i);
+			do {
+				k = random.nextInt(this.size);
+			} while (k == i || k == j);
+			do {
+				l = random.nextInt(this.size);
+			} while (l == i || l == j || l == k);
+			sums[0] = this.distance(i, j) + this.distance(k, l);
+			sums[1] = this.distance(i, k) + this.distance(j, l);
+			sums[2] = this.distance(i, l) + this.distance(j, k);
+			Arrays.sort(sums);
+			if (sums[2] - sums[1] > tolerance * Math.max(1d, Math.abs(sums[2])))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Joins the elements into a tree. Consumes the distances.
+	 *
+	 * @param rapid
+	 *            Whether to prune the search by sorted rows, else every pair
+	 *            is compared in every step
+	 */
+	public void run(boolean rapid) {
+		final int n = this.size;
+		this.active = new boolean[n];
+		Arrays.fill(this.active, true);
+		this.clusterOfSlot = new int[n];
+		this.slotOfCluster = new int[2 * n];
+		Arrays.fill(this.slotOfCluster, -1);
+		for (int i = 0; i < n; i++)
+			this.clusterOfSlot[i] = this.slotOfCluster[i] = i;
+		this.sums = new double[n];
+		for (int i = 0; i < n; i++)
+			for (int j = i + 1, index = this.index(i, i + 1 < n ? i + 1 : i); j < n; j++, index++) {
+				this.sums[i] += this.distances[index];
+				this.sums[j] += this.distances[index];
+			}
+		this.r = new double[n];
+		if (rapid) {
+			this.rowCandidates = new int[n][];
+			this.rowCandidateAmounts = new int[n];
+			// no row is sorted yet, so none may be pruned
+			this.rowBounds = new double[n];
+			Arrays.fill(this.rowBounds, Double.NEGATIVE_INFINITY);
+		}
+
+		int clusters = n;
+		for (int join = 0; clusters > 3; join++, clusters--) {
+			this.updateR(clusters);
+			final Best best = this.search(rapid);
+			final int a = best.i;
+			final int b = best.j;
+			final double dab = this.distance(a, b);
+			this.joinedA[join] = this.clusterOfSlot[a];
+			this.joinedB[join] = this.clusterOfSlot[b];
+			this.lengthsA[join] = dab / 2 + (this.r[a] - this.r[b]) / 2;
+			this.lengthsB[join] = dab - this.lengthsA[join];
+
+			// the joined cluster takes the place of a
+			this.active[b] = false;
+			this.slotOfCluster[this.clusterOfSlot[a]] = -1;
+			this.slotOfCluster[this.clusterOfSlot[b]] = -1;
+			this.clusterOfSlot[a] = n + join;
+			this.slotOfCluster[n + join] = a;
+			double sum = 0;
+			for (int x = 0; x < n; x++) {
+				if (!this.active[x] || x == a)
+					continue;
+				final int ia = x < a ? this.index(x, a) : this.index(a, x);
+				final double dxa = this.distances[ia];
+				final double dxb = this.distance(x, b);
+				final double dxu = (dxa + dxb - dab) / 2;
+				this.distances[ia] = dxu;
+				this.sums[x] += dxu - dxa - dxb;
+				sum += dxu;
+			}
+			this.sums[a] = sum;
+			if (rapid) {
+				this.rowCandidateAmounts[a] = 0;
+				this.rowBounds[a] = Double.NEGATIVE_INFINITY;
+			}
+		}
+
+		// the last three clusters are joined in the center
+		this.updateR(3);
+		final Best best = this.search(false);
+		int third = 0;
+		while (!this.active[third] || third == best.i || third == best.j)
+			third++;
+		final double dij = this.distance(best.i, best.j);
+		this.lastClusters[0] = this.clusterOfSlot[best.i];
+		this.lastClusters[1] = this.clusterOfSlot[best.j];
+		this.lastClusters[2] = this.clusterOfSlot[third];
+		this.lastLengths[0] = dij / 2 + (this.r[best.i] - this.r[best.j]) / 2;
+		this.lastLengths[1] = dij - this.lastLengths[0];
+		this.lastLengths[2] = (this.distance(best.i, third) + this.distance(best.j, third) - dij) / 2;
+
+		this.active = null;
+		this.sums = null;
+		this.r = null;
+		this.rowCandidates = null;
+		this.rowCandidateAmounts = null;
+		this.rowBounds = null;
+	}
+
+	private void updateR(int clusters) {
+		this.maxR = Double.NEGATIVE_INFINITY;
+		for (int x = 0; x < this.size; x++) {
+			if (this.active[x]) {
+				this.r[x] = this.sums[x] / (clusters - 2);
+				this.maxR = Math.max(this.maxR, this.r[x]);
+			}
+		}
+	}
+
+	/*
+	 * The pair with the smallest Q, the first pair in row order on ties.
+	 */
+	private Best search(final boolean rapid) {
+		// in the rapid mode, the nearest cluster of each row provides a bound
+		// shared by all tasks
+		double seed = Double.POSITIVE_INFINITY;
+		if (rapid) {
+			for (int i = 0; i < this.size; i++) {
+				if (!this.active[i])
+					continue;
+				for (int c = 0; c < this.rowCandidateAmounts[i]; c++) {
+					final int j = this.slotOfCluster[this.rowCandidates[i][c]];
+					if (j >= 0) {
+						seed = Math.min(seed, this.distance(i, j) - this.r[i] - this.r[j]);
+						break;
+					}
+				}
+			}
+		}
+		final double bound = seed;
+		final int tasks = (this.size + ROWS_PER_TASK - 1) / ROWS_PER_TASK;
+		return IntStream.range(0, tasks).parallel().mapToObj(task -> {
+			final Best best = new Best(bound);
+			final int end = Math.min(this.size, (task + 1) * ROWS_PER_TASK);
+			for (int i = task * ROWS_PER_TASK; i < end; i++) {
+				if (!this.active[i])
+					continue;
+				if (rapid)
+					this.searchSortedRow(i, best);
+				else
+					this.searchRow(i, best);
+			}
+			return best;
+		}).reduce(new Best(bound), Best::min);
+	}
+
+	// compares the pairs of row i with the clusters in the following rows
+	private void searchRow(int i, Best best) {
+		final double ri = this.r[i];
+		for (int j = i + 1, index = i + 1 < this.size ? this.index(i, i + 1) : 0; j < this.size; j++, index++) {
+			if (this.active[j])
+				best.offer(this.distances[index] - ri - this.r[j], i, j);
+		}
+	}
+
+	private void searchSortedRow(int i, Best best) {
+		final double ri = this.r[i];
+		final int[] candidates = this.rowCandidates[i];
+		for (int c = 0; c < this.rowCandidateAmounts[i]; c++) {
+			final int j = this.slotOfCluster[candidates[c]];
+			if (j < 0)
+				continue;
+			final double dij = this.distance(i, j);
+			// no other cluster of this row can do better
+			if (dij - ri - this.maxR > best.q)
+				return;
+			best.offer(dij - ri - this.r[j], i, j);
+		}
+		if (this.rowBounds[i] - ri - this.maxR > best.q)
+			return;
+
+		// the bound does not suffice, compare all clusters and keep twice as
+		// many nearest of them as before
+		final int kept = Math.min(this.size - 1, Math.max(ROW_CANDIDATES, candidates == null ? 0 : 2 * candidates.length));
+		final Heap nearest = new Heap(kept);
+		for (int j = 0; j < this.size; j++) {
+			if (!this.active[j] || j == i)
+				continue;
+			final double dij = this.distance(i, j);
+			best.offer(dij - ri - this.r[j], i, j);
+			nearest.offer(dij, this.clusterOfSlot[j]);
+		}
+		// with all clusters kept, pairs of clusters joined later are found in
+		// their own rows
+		this.rowBounds[i] = nearest.isFull() ? nearest.max() : Double.POSITIVE_INFINITY;
+		if (candidates == null || candidates.length < kept)
+			this.rowCandidates[i] = new int[nearest.isFull() ? kept : nearest.size()];
+		this.rowCandidateAmounts[i] = nearest.drainAscending(this.rowCandidates[i]);
+	}
+
+	/**
+	 * @return The amount of joins before the last three clusters remain
+	 */
+	public int getJoinAmount() {
+		return this.joinedA.length;
+	}
+
+	/**
+	 * @param join
+	 *            Index of the join
+	 * @return The first cluster joined, an element if below the amount of
+	 *         elements, else the cluster created by join (result - size)
+	 */
+	public int getJoinedA(int join) {
+		return this.joinedA[join];
+	}
+
+	/**
+	 * @param join
+	 *            Index of the join
+	 * @return The second cluster joined, numbered like {@link #getJoinedA(int)}
+	 */
+	public int getJoinedB(int join) {
+		return this.joinedB[join];
+	}
+
+	/**
+	 * @param join
+	 *            Index of the join
+	 * @return The length of the branch to the first cluster joined
+	 */
+	public double getLengthA(int join) {
+		return this.lengthsA[join];
+	}
+
+	/**
+	 * @param join
+	 *            Index of the join
+	 * @return The length of the branch to the second cluster joined
+	 */
+	public double getLengthB(int join) {
+		return this.lengthsB[join];
+	}
+
+	/**
+	 * @param i
+	 *            0, 1 or 2
+	 * @return One of the three clusters joined in the center of the tree
+	 */
+	public int getLastCluster(int i) {
+		return this.lastClusters[i];
+	}
+
+	/**
+	 * @param i
+	 *            0, 1 or 2
+	 * @return The length of the branch to the last cluster i
+	 */
+	public double getLastLength(int i) {
+		return this.lastLengths[i];
+	}
+
+	/*
+	 * The best pair found by a search.
+	 */
+	private static final class Best {
+
+		double q;
+		int i = -1;
+		int j = -1;
+
+		// starts from a value of Q some pair is known to reach
+		Best(double q) {
+			this.q = q;
+		}
+
+		void offer(double q, int i, int j) {
+			if (j < i) {
+				final int swap = i;
+				i = j;
+				j = swap;
+			}
+			if (q < this.q || (q == this.q && this.before(i, j))) {
+				this.q = q;
+				this.i = i;
+				this.j = j;
+			}
+		}
+
+		private boolean before(int i, int j) {
+			return this.i < 0 || i < this.i || (i == this.i && j < this.j);
+		}
+
+		static Best min(Best a, Best b) {
+			if (b.i < 0)
+				return a;
+			if (a.i < 0 || b.q < a.q || (b.q == a.q && a.before(b.i, b.j)))
+				return b;
+			return a;
+		}
+	}
+
+	/*
+	 * A bounded max heap keeping the clusters of the smallest distances.
+	 */
+	private static final class Heap {
+
+		private final double[] keys;
+		private final int[] values;
+		private int amount = 0;
+
+		Heap(int capacity) {
+			this.keys = new double[capacity];
+			this.values = new int[capacity];
+		}
+
+		int size() {
+			return this.amount;
+		}
+
+		boolean isFull() {
+			return this.amount == this.keys.length;
+		}
+
+		double max() {
+			return this.keys[0];
+		}
+
+		void offer(double key, int value) {
+			if (this.amount < this.keys.length) {
+				int child = this.amount++;
+				while (child > 0) {
+					final int parent = (child - 1) >>> 1;
+					if (this.keys[parent] >= key)
+						break;
+					this.keys[child] = this.keys[parent];
+					this.values[child] = this.values[parent];
+					child = parent;
+				}
+				this.keys[child] = key;
+				this.values[child] = value;
+			} else if (key < this.keys[0]) {
+				this.siftDown(key, value, this.amount);
+			}
+		}
+
+		// places key at the root and restores the heap of the given amount
+		private void siftDown(double key, int value, int amount) {
+			int parent = 0;
+			while (true) {
+				int child = 2 * parent + 1;
+				if (child >= amount)
+					break;
+				if (child + 1 < amount && this.keys[child + 1] > this.keys[child])
+					child++;
+				if (this.keys[child] <= key)
+					break;
+				this.keys[parent] = this.keys[child];
+				this.values[parent] = this.values[child];
+				parent = child;
+			}
+			this.keys[parent] = key;
+			this.values[parent] = value;
+		}
+
+		/*
+		 * Writes the values in ascending order of their keys. The heap is
+		 * unusable afterwards.
+		 */
+		int drainAscending(int[] result) {
+			for (int last = this.amount - 1; last > 0; last--) {
+				final double key = this.keys[last];
+				final int value = this.values[last];
+				this.keys[last] = this.keys[0];
+				this.values[last] = this.values[0];
+				this.siftDown(key, value, last);
+			}
+			System.arraycopy(this.values, 0, result, 0, this.amount);
+			return this.amount;
+		}
+	}
+
+}
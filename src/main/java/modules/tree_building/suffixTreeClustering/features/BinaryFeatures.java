@@ -1,7 +1,6 @@
 package modules.tree_building.suffixTreeClustering.features;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 import modules.tree_building.suffixTreeClustering.data.Node;
 import modules.tree_building.suffixTreeClustering.data.Type;
@@ -40,21 +39,20 @@ public final class BinaryFeatures {
 	 * @return FeatureVector
 	 */
 	public FeatureVector vector() {
-		// Ein Vektor für dieses Dokument ist...
-		List<Double> values = new ArrayList<Double>();
-		// ...für jeden Term im Vokabular... (=jeder Knoten im SuffixTree)
-		List<Node> terms = corpus.getNodes();
-
-		for (Node node : terms) {
-			// der boolesche Wert des Terms: hat Knoten besucht oder nicht
-			boolean value = value(node);
-			if (value) {
-				values.add(1.0);
-			} else
-				values.add(0.0);
+		// Ein Vektor für dieses Dokument hat für jeden Term im Vokabular (=jeder
+		// Knoten im SuffixTree) einen Wert, aber nur die vom Dokument besuchten
+		// Knoten haben den Wert 1
+		int[][] frequencies = corpus.getNodeFrequencies(document);
+		int[] indexes = new int[frequencies[0].length];
+		int amount = 0;
+		for (int i = 0; i < frequencies[0].length; i++) {
+			if (frequencies[1][i] > 0) {
+				indexes[amount++] = frequencies[0][i];
+			}
 		}
-
-		return new FeatureVector(values.toArray(new Double[values.size()]));
+		double[] values = new double[amount];
+		Arrays.fill(values, 1.0);
+		return new FeatureVector(corpus.getNodes().size(), Arrays.copyOf(indexes, amount), values);
 	}
 
 	/**
@@ -6,38 +6,121 @@ import java.io.Serializable;
 /**
  * Class representing a Document Vector. A vector is initialized with vector
  * values (e.g. tf-idf weights)
- * 
+ *
+ * Only the non-zero values are stored, together with their indexes in
+ * ascending order, since a document visits few of the nodes of a suffix tree.
+ * Dot products, distances and norms are computed by merging the indexes of
+ * two vectors.
+ *
  * @author neumannm
  */
 public final class FeatureVector implements Serializable {
 
-	private static final long serialVersionUID = 4735812009246952588L;
-	private Double[] features;
+	private static final long serialVersionUID = -2283570281379315286L;
+	private final int length;
+	private final int[] indexes;
+	private final double[] values;
+	// the euclidian length, computed on demand
+	private transient double norm;
+	private transient boolean normComputed;
 
 	@Override
 	public String toString() {
 		return String.format("%s with %s values", getClass().getSimpleName(),
-				features.length);
+				length);
 	}
 
 	/**
 	 * Initialize Feature Vector.
-	 * 
+	 *
 	 * @param values Values
 	 */
 	public FeatureVector(final Double[] values) {
-		this.features = values;
+		this.length = values.length;
+		int nonZero = 0;
+		for (Double value : values) {
+			if (value != 0)
+				nonZero++;
+		}
+		this.indexes = new int[nonZero];
+		this.values = new double[nonZero];
+		for (int i = 0, j = 0; i < values.length; i++) {
+			if (values[i] != 0) {
+				this.indexes[j] = i;
+				this.values[j++] = values[i];
+			}
+		}
 	}
-	
+
 	public FeatureVector(final double[] values) {
-		this.features = new Double[values.length];
-		for (int i = 0; i < values.length; i++) {
-			this.features[i] = values[i];
+		this.length = values.length;
+		int nonZero = 0;
+		for (double value : values) {
+			if (value != 0)
+				nonZero++;
+		}
+		this.indexes = new int[nonZero];
+		this.values = new double[nonZero];
+		for (int i = 0, j = 0; i < values.length; i++) {
+			if (values[i] != 0) {
+				this.indexes[j] = i;
+				this.values[j++] = values[i];
+			}
 		}
 	}
 
+	/**
+	 * Initialize a Feature Vector from its non-zero values. The arrays are
+	 * used as they are.
+	 *
+	 * @param length
+	 *            - amount of values including zeros
+	 * @param indexes
+	 *            - the indexes of the values in strictly ascending order
+	 * @param values
+	 *            - the values, none of which may be zero
+	 */
+	public FeatureVector(final int length, final int[] indexes, final double[] values) {
+		if (indexes.length != values.length) {
+			throw new IllegalArgumentException(
+					"Got " + indexes.length + " indexes for " + values.length + " values");
+		}
+		for (int i = 0; i < indexes.length; i++) {
+			if (indexes[i] < 0 || indexes[i] >= length || (i > 0 && indexes[i] <= indexes[i - 1])) {
+				throw new IllegalArgumentException("Indexes must ascend within the vector's length");
+			}
+		}
+		this.length = length;
+		this.indexes = indexes;
+		this.values = values;
+	}
+
+	/**
+	 * @return all values including zeros
+	 */
 	public Double[] getValues() {
-		return features;
+		Double[] result = new Double[length];
+		Arrays.fill(result, 0d);
+		for (int i = 0; i < indexes.length; i++) {
+			result[indexes[i]] = values[i];
+		}
+		return result;
+	}
+
+	/**
+	 * @return the indexes of the non-zero values in ascending order, not to
+	 *         be modified
+	 */
+	public int[] getNonZeroIndexes() {
+		return indexes;
+	}
+
+	/**
+	 * @return the non-zero values in the order of their indexes, not to be
+	 *         modified
+	 */
+	public double[] getNonZeroValues() {
+		return values;
 	}
 
 	@Override
@@ -46,17 +129,18 @@ public final class FeatureVector implements Serializable {
 			return false;
 		}
 		FeatureVector that = (FeatureVector) obj;
-		return Arrays.equals(this.features, that.features);
+		return this.length == that.length && Arrays.equals(this.indexes, that.indexes)
+				&& Arrays.equals(this.values, that.values);
 	}
 
 	@Override
 	public int hashCode() {
-		return Arrays.hashCode(features);
+		return 31 * (31 * length + Arrays.hashCode(indexes)) + Arrays.hashCode(values);
 	}
 
 	/**
 	 * Calculates and returns Euclidian Distance from this vector to another.
-	 * 
+	 *
 	 * @param other
 	 *            - the other feature vector.
 	 * @return float value of Euclidian Distance
@@ -68,7 +152,7 @@ public final class FeatureVector implements Serializable {
 		 * vergleichenden Vektoren müssen gleich lang sein, sonst stimmt
 		 * irgendwas überhaupt nicht:
 		 */
-		if (this.features.length != other.features.length) {
+		if (this.length != other.length) {
 			throw new UncomparableVectorsException(this, other);
 		}
 
@@ -77,7 +161,7 @@ public final class FeatureVector implements Serializable {
 		 */
 		double dist = (float) Math.sqrt(sumOfSquares(other));
 
-		if (new Double(dist).isNaN()) {
+		if (Double.isNaN(dist)) {
 			throw new IllegalStateException(
 					"Distance computed by sum of squares of the two vectors is not a number");
 		}
@@ -85,21 +169,30 @@ public final class FeatureVector implements Serializable {
 	}
 
 	/*
-	 * Calculates sum of squares (for Euclidian Distance).
+	 * Calculates sum of squares (for Euclidian Distance), values missing in
+	 * one of the vectors are zero.
 	 */
 	private double sumOfSquares(FeatureVector other) {
 		double sum = 0;
-		for (int i = 0; i < this.features.length; i++) {
-			double difference = this.features[i] - other.features[i];
-			double square = Math.pow(difference, 2);
-			sum += square;
+		int i = 0;
+		int j = 0;
+		while (i < this.indexes.length || j < other.indexes.length) {
+			double difference;
+			if (j == other.indexes.length || (i < this.indexes.length && this.indexes[i] < other.indexes[j])) {
+				difference = this.values[i++];
+			} else if (i == this.indexes.length || this.indexes[i] > other.indexes[j]) {
+				difference = other.values[j++];
+			} else {
+				difference = this.values[i++] - other.values[j++];
+			}
+			sum += difference * difference;
 		}
 		return sum;
 	}
 
 	/**
 	 * Calculates and returns Cosine-similarity between this vector and another.
-	 * 
+	 *
 	 * @param other
 	 *            - the other feature vector.
 	 * @return Double value of Cosine-similarity
@@ -111,11 +204,11 @@ public final class FeatureVector implements Serializable {
 		 * vergleichenden Vektoren müssen gleich lang sein, sonst stimmt
 		 * irgendwas überhaupt nicht:
 		 */
-		if (this.features.length != other.features.length) {
+		if (this.length != other.length) {
 			throw new UncomparableVectorsException(this, other);
 		}
 		double dotProduct = dot(other);
-		double euclidianLengthProduct = euc(other);
+		double euclidianLengthProduct = this.norm() * other.norm();
 		/*
 		 * Da die Winkel zwischen Vektoren in einem rein positiven
 		 * Koordinatensystem maximal 90 Grad betragen, ist die
@@ -136,7 +229,7 @@ public final class FeatureVector implements Serializable {
 					+ dist;
 			throw new IllegalStateException(message);
 		}
-		if (new Double(dist).isNaN()) {
+		if (Double.isNaN(dist)) {
 			throw new IllegalStateException(
 					String.format(
 							"Distance computed by devision of dot product %s and euclidian distance %s is not a number",
@@ -145,40 +238,45 @@ public final class FeatureVector implements Serializable {
 		return dist;
 	}
 
-	private double euc(FeatureVector query) {
-
-		double sum1 = 0;
-		double sum2 = 0;
-		/*
-		 * Euklidische Länge: Wurzel aus der Summe der quadrierten Elemente
-		 * eines der Vektoren:
-		 */
-		for (Double f : features) {
-			sum1 += Math.pow(f, 2);
-		}
-		for (Double f : query.features) {
-			sum2 += Math.pow(f, 2);
+	/**
+	 * Euklidische Länge: Wurzel aus der Summe der quadrierten Elemente des
+	 * Vektors.
+	 *
+	 * @return the euclidian length of this vector
+	 */
+	public double norm() {
+		if (!normComputed) {
+			double sum = 0;
+			for (double value : values) {
+				sum += value * value;
+			}
+			norm = Math.sqrt(sum);
+			normComputed = true;
 		}
-		/*
-		 * Wir wollen das Produkt der euklidischen Längen der zwei Vektoren
-		 * (|V(d1)| |V(d2)|)
-		 */
-		return (double) (Math.sqrt(sum1) * Math.sqrt(sum2));
+		return norm;
 	}
 
 	private double dot(FeatureVector query) {
 		/*
 		 * Das dot Produkt ist die Summe der Produkte der korrespondierenden
-		 * Vektor-Werte:
+		 * Vektor-Werte, nur die in beiden Vektoren vorhandenen tragen bei:
 		 */
-		float sum = 0;
-		for (int i = 0; i < features.length; i++) {
-			sum += (features[i] * query.features[i]);
+		double sum = 0;
+		int i = 0;
+		int j = 0;
+		while (i < indexes.length && j < query.indexes.length) {
+			if (indexes[i] < query.indexes[j]) {
+				i++;
+			} else if (indexes[i] > query.indexes[j]) {
+				j++;
+			} else {
+				sum += values[i++] * query.values[j++];
+			}
 		}
 		return sum;
 	}
 
 	public Integer getLength() {
-		return this.features.length;
+		return this.length;
 	}
 }
@@ -1,6 +1,6 @@
 package modules.tree_building.suffixTreeClustering.features;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import modules.tree_building.suffixTreeClustering.data.Node;
@@ -44,18 +44,26 @@ public final class TfDfFeatures {
 	 */
 	public FeatureVector vector() {
 		// Ein Vektor für dieses Dokument ist...
-		List<Double> values = new ArrayList<Double>();
 		// ...für jeden Term im Vokabular... (=jeder Knoten im SuffixTree)
 		List<Node> terms = corpus.getNodes();
+		// ...der TF-DF-Wert des Terms, der nur für vom Dokument besuchte
+		// Knoten nicht 0 ist
+		int[][] frequencies = corpus.getNodeFrequencies(document);
+		int[] indexes = new int[frequencies[0].length];
+		double[] values = new double[frequencies[0].length];
+		int amount = 0;
 
 		boolean ok = false;
-		for (Node node : terms) {
-			// der tf-idf-Wert des Terms:
-			Double tfdf = tfDf(node);
-			if (tfdf > 0) {
+		for (int i = 0; i < frequencies[0].length; i++) {
+			Node node = terms.get(frequencies[0][i]);
+			double tfDf = tfDf(frequencies[1][i], node.getDF());
+			if (tfDf > 0) {
 				ok = true;
 			}
-			values.add(tfdf);
+			if (tfDf != 0) {
+				indexes[amount] = frequencies[0][i];
+				values[amount++] = tfDf;
+			}
 		}
 		if (!ok) {
 			// FIXME is this OK?
@@ -64,7 +72,7 @@ public final class TfDfFeatures {
 			System.out.println(warning);
 			throw new IllegalStateException(warning);
 		}
-		return new FeatureVector(values.toArray(new Double[values.size()]));
+		return new FeatureVector(terms.size(), Arrays.copyOf(indexes, amount), Arrays.copyOf(values, amount));
 	}
 
 	/**
@@ -83,6 +91,15 @@ public final class TfDfFeatures {
 		// df(n) = Anzahl verschiedener Dokumente, die den Knoten durchlaufen
 		// haben
 		Integer df = node.getDF();
+
+		return tfDf(tf, df);
+	}
+
+	/*
+	 * Calculate tf-df from the number of visits of this document and the
+	 * number of documents visiting the node.
+	 */
+	private double tfDf(int tf, Integer df) {
 		df = df == null ? 0 : df;
 
 		double wf = 1 + Math.log(tf);
@@ -1,6 +1,6 @@
 package modules.tree_building.suffixTreeClustering.features;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import modules.tree_building.suffixTreeClustering.data.Node;
@@ -43,19 +43,26 @@ public final class TfIdfFeatures {
 	 */
 	public FeatureVector vector() {
 		// Ein Vektor für dieses Dokument ist...
-		List<Double> values = new ArrayList<Double>();
 		// ...für jeden Term im Vokabular... (=jeder Knoten im SuffixTree)
 		List<Node> terms = corpus.getNodes();
+		// ...der TF-IDF-Wert des Terms, der nur für vom Dokument besuchte
+		// Knoten nicht 0 ist
+		int[][] frequencies = corpus.getNodeFrequencies(document);
+		int[] indexes = new int[frequencies[0].length];
+		double[] values = new double[frequencies[0].length];
+		int amount = 0;
 
-		
 		boolean ok = false;
-		for (Node node : terms) {
-			// der tf-idf-Wert des Terms:
-			Double tfIdf = tfIdf(node);
-			if (tfIdf > 0 && !(tfIdf.isNaN())) {
+		for (int i = 0; i < frequencies[0].length; i++) {
+			Node node = terms.get(frequencies[0][i]);
+			double tfIdf = tfIdf(frequencies[1][i], node.getDF());
+			if (tfIdf > 0 && !Double.isNaN(tfIdf)) {
 				ok = true;
 			}
-			values.add(tfIdf);
+			if (tfIdf != 0) {
+				indexes[amount] = frequencies[0][i];
+				values[amount++] = tfIdf;
+			}
 		}
 		if (!ok) {
 			// FIXME is this OK?
@@ -64,9 +71,9 @@ public final class TfIdfFeatures {
 			System.out.println(warning);
 			throw new IllegalStateException(warning);
 		}
-		return new FeatureVector(values.toArray(new Double[values.size()]));
+		return new FeatureVector(terms.size(), Arrays.copyOf(indexes, amount), Arrays.copyOf(values, amount));
 	}
-	
+
 	/**
 	 * Calculate tfidf for given node wrt this document.
 	 * 
@@ -83,6 +90,15 @@ public final class TfIdfFeatures {
 		// df(n) = Anzahl verschiedener Dokumente, die den Knoten durchlaufen
 		// haben
 		Integer df = node.getDF();
+
+		return tfIdf(tf, df);
+	}
+
+	/*
+	 * Calculate tfidf from the number of visits of this document and the
+	 * number of documents visiting the node.
+	 */
+	private double tfIdf(int tf, Integer df) {
 		df = df == null ? 0 : df;
 
 		/* IDF */
@@ -1,7 +1,9 @@
 package modules.tree_building.suffixTreeClustering.st_interface;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -23,6 +25,12 @@ public class SuffixTreeInfo {
 	private Set<Type> types;
 	private Node[] nodes;
 
+	/*
+	 * per type the indexes of the nodes it visited and the number of visits,
+	 * collected in one pass over the nodes when first needed
+	 */
+	private Map<Type, int[][]> nodeFrequencies;
+
 	/**
 	 * Constructor.
 	 */
@@ -39,6 +47,7 @@ public class SuffixTreeInfo {
 	 */
 	public void addNode(Node node) {
 		this.nodes[node.getNodeNumber() - 2] = node;
+		this.nodeFrequencies = null;
 	}
 
 	/**
@@ -60,6 +69,7 @@ public class SuffixTreeInfo {
 	public void setNumberOfNodes(int number) {
 		this.numberOfNodes = number;
 		this.nodes = new Node[this.numberOfNodes];
+		this.nodeFrequencies = null;
 	}
 
 	public int getNumberOfNodes() {
@@ -91,4 +101,53 @@ public class SuffixTreeInfo {
 	public void addType(Type newType) {
 		this.types.add(newType);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Get the nodes a type visited together with the number of visits.
+	 * 
+	 * @param type
+	 *            Type
+	 * @return two arrays of equal length: the indexes of the visited nodes in
+	 *         {@link #getNodes()} in ascending order and the number of visits
+	 *         of each node; not to be modified
+	 */
+	public int[][] getNodeFrequencies(Type type) {
+		if (this.nodeFrequencies == null) {
+			this.nodeFrequencies = collectNodeFrequencies();
+		}
+		int[][] result = this.nodeFrequencies.get(type);
+		return result == null ? new int[][] { {}, {} } : result;
+	}
+
+	private Map<Type, int[][]> collectNodeFrequencies() {
+		// count the nodes per type first, to size the arrays
+		Map<Type, int[]> counts = new HashMap<Type, int[]>();
+		for (Node node : nodes) {
+			if (node == null)
+				continue;
+			for (Type type : node.getTypes().keySet()) {
+				int[] count = counts.get(type);
+				if (count == null)
+					counts.put(type, count = new int[1]);
+				count[0]++;
+			}
+		}
+		Map<Type, int[][]> result = new HashMap<Type, int[][]>();
+		for (Map.Entry<Type, int[]> entry : counts.entrySet()) {
+			int amount = entry.getValue()[0];
+			result.put(entry.getKey(), new int[][] { new int[amount], new int[amount] });
+			entry.getValue()[0] = 0;
+		}
+		for (int i = 0; i < nodes.length; i++) {
+			if (nodes[i] == null)
+				continue;
+			for (Map.Entry<Type, List<Integer>> visits : nodes[i].getTypes().entrySet()) {
+				int[][] frequencies = result.get(visits.getKey());
+				int[] count = counts.get(visits.getKey());
+				frequencies[0][count[0]] = i;
+				frequencies[1][count[0]++] = visits.getValue().size();
+			}
+		}
+		return result;
+	}
+}
@@ -1,9 +1,13 @@
 package modules.tree_building.suffixTreeModuleWrapper;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -27,6 +31,7 @@ import modules.tree_building.suffixTree.ResultToGstLabelDataListener;
 import modules.tree_building.suffixTree.ResultToJsonListener;
 import modules.tree_building.suffixTree.ResultToXmlListener;
 import modules.tree_building.suffixTree.SuffixTree;
+import modules.tree_building.suffixTree.SuffixTreeFile;
 import modules.tree_building.suffixTree.TreeWalker;
 
 /**
@@ -65,10 +70,31 @@ public class GeneralisedSuffixTreeModule extends modules.ModuleImpl {
 	private static final String OUTPUT_DOT_FILE_DESC = "Prints a graphical representation of the tree as a graphviz .dot file.";
 	private static final String OUTPUT_EDGE_SEGMENTS_ID = "edge segments";
 	private static final String OUTPUT_EDGE_SEGMENTS_DESC = "For each input text the output is that path in the tree split into it's edges.";
+	private static final String OUTPUT_BINARY_ID = "binary";
+	private static final String OUTPUT_BINARY_DESC = "[bytestream] The tree in a compact binary format, a file written from it can be opened again by setting the tree file property.";
+
+	// Property keys
+	public static final String PROPERTYKEY_COMPACT = "compact tree";
+	public static final String PROPERTYKEY_PARALLEL = "parallel walk";
+	public static final String PROPERTYKEY_FLUSHINTERVAL = "flush interval";
+	public static final String PROPERTYKEY_TREEFILE = "tree file";
 
 	private static final String OUTPUT_FOR_TN_ID = "tn";
 	private static final String OUTPUT_FOR_TN_DESC = "[bytestream] A forTN representation of the tree build, suitable for clustering.";
 
+	// Whether to keep the tree's nodes in primitive arrays
+	private boolean compact = false;
+
+	// Whether to walk the tree in parallel for outputs that allow it
+	private boolean parallel = false;
+
+	// The amount of nodes (or labels) after which buffered output is handed on
+	// to the connected pipes
+	private int flushInterval = 256;
+
+	// A binary tree file to map instead of building the tree (null if none)
+	private File treeFile = null;
+
 	// Main method for stand-alone execution
 	public static void main(String[] args) throws Exception {
 		ModuleRunner.runStandAlone(GeneralisedSuffixTreeModule.class, args);
@@ -92,6 +118,20 @@ public class GeneralisedSuffixTreeModule extends modules.ModuleImpl {
 		this.getPropertyDefaultValues().put(ModuleImpl.PROPERTYKEY_NAME, MODULE_NAME);
 		this.setDescription(MODULE_DESCRIPTION);
 
+		// Add property descriptions and defaults
+		this.getPropertyDescriptions().put(PROPERTYKEY_COMPACT,
+				"Keep the tree's nodes in primitive arrays, which needs a fraction of the memory but makes listener access to nodes a bit slower [true|false]");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_COMPACT, "false");
+		this.getPropertyDescriptions().put(PROPERTYKEY_PARALLEL,
+				"Walk subtrees concurrently when generating the label list and the label data [true|false]");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_PARALLEL, "false");
+		this.getPropertyDescriptions().put(PROPERTYKEY_FLUSHINTERVAL,
+				"Amount of nodes (or labels) after which the xml, json, label list and label data output written so far is handed on to the connected modules [int]");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_FLUSHINTERVAL, "256");
+		this.getPropertyDescriptions().put(PROPERTYKEY_TREEFILE,
+				"Path of a file written from the binary output; if set, the tree is mapped from that file instead of being built from the text input (leave empty to build the tree)");
+		this.getPropertyDefaultValues().put(PROPERTYKEY_TREEFILE, "");
+
 		// Add module category
 
 		// Setup I/O, reads from char input produced by KWIP.
@@ -117,34 +157,57 @@ public class GeneralisedSuffixTreeModule extends modules.ModuleImpl {
 
 		try {
 
-			// read in the list of type context end numbers if the port is
-			// connected, else leave it null
-			List<Integer> contextNrs = null;
-			final InputPort contextNrsIn = this.getInputPorts().get(INPUT_TYPE_CONTEXT_ID);
-			if (contextNrsIn.isConnected()) {
-				contextNrs = new ArrayList<Integer>();
-				final BufferedReader contextNrsReader = new BufferedReader(contextNrsIn.getInputReader());
-				String line = null;
-
-				while ((line = contextNrsReader.readLine()) != null) {
-					contextNrs.add(Integer.parseInt(line));
+			final SuffixTree suffixTree;
+			if (this.treeFile != null) {
+				// open a tree built before, the text input is not needed then
+				suffixTree = SuffixTreeFile.map(this.treeFile);
+			} else {
+				// read in the list of type context end numbers if the port is
+				// connected, else leave it null
+				List<Integer> contextNrs = null;
+				final InputPort contextNrsIn = this.getInputPorts().get(INPUT_TYPE_CONTEXT_ID);
+				if (contextNrsIn.isConnected()) {
+					contextNrs = new ArrayList<Integer>();
+					final BufferedReader contextNrsReader = new BufferedReader(contextNrsIn.getInputReader());
+					String line = null;
+
+					while ((line = contextNrsReader.readLine()) != null) {
+						contextNrs.add(Integer.parseInt(line));
+					}
 				}
+
+				// actually build the tree
+				final BufferedReader textReader = new BufferedReader(
+						this.getInputPorts().get(INPUT_TEXT_ID).getInputReader());
+				suffixTree = GST.buildGST(textReader, contextNrs, this.compact);
 			}
 
-			// actually build the tree
-			final BufferedReader textReader = new BufferedReader(
-					this.getInputPorts().get(INPUT_TEXT_ID).getInputReader());
-			final SuffixTree suffixTree = GST.buildGST(textReader, contextNrs);
+			// output the tree in the binary format
+			final OutputPort binaryOut = this.getOutputPorts().get(OUTPUT_BINARY_ID);
+			if (binaryOut.isConnected()) {
+				final OutputStream stream = binaryOut.getOutputStream();
+				SuffixTreeFile.write(suffixTree, stream);
+				stream.close();
+			}
 
 			// output a simple list of labels
 			final OutputPort labelsOut = this.getOutputPorts().get(OUTPUT_LIST_ID);
 			if (labelsOut.isConnected()) {
 				final ResultLabelListListener listener = new ResultLabelListListener(suffixTree);
-				TreeWalker.walk(suffixTree.getRoot(), suffixTree, listener);
+				if (this.parallel)
+					TreeWalker.walkParallel(suffixTree.getRoot(), suffixTree, listener);
+				else
+					TreeWalker.walk(suffixTree.getRoot(), suffixTree, listener);
 
+				final Writer writer = labelsOut.getWriter();
+				int labelsWritten = 0;
 				for (String label : listener.getLabels()) {
-					labelsOut.outputToAllCharPipes(label + System.lineSeparator());
+					writer.write(label);
+					writer.write(System.lineSeparator());
+					if (++labelsWritten % this.flushInterval == 0)
+						writer.flush();
 				}
+				writer.close();
 			}
 
 			// output a graphical representation as a graphviz .dot file
@@ -178,20 +241,23 @@ public class GeneralisedSuffixTreeModule extends modules.ModuleImpl {
 			}
 			
 			
-			// output an XML-Representation of the tree
+			// output an XML-Representation of the tree, it is written to the
+			// pipes while walking the tree, such that a reader can process it
+			// concurrently
 			final OutputPort xmlOut = this.getOutputPorts().get(OUTPUT_XML_ID);
 			if (xmlOut.isConnected()) {
-				final StringWriter sw = new StringWriter();
-				final ResultToXmlListener listener = new ResultToXmlListener(suffixTree, new XmlPrintWriter(sw));
+				final XmlPrintWriter writer = new XmlPrintWriter(
+						new OutputStreamWriter(xmlOut.getOutputStream(), StandardCharsets.UTF_8));
+				final ResultToXmlListener listener = new ResultToXmlListener(suffixTree, writer, this.flushInterval);
 				TreeWalker.walk(suffixTree.getRoot(), suffixTree, listener);
 				listener.finishWriting();
-				xmlOut.outputToAllBytePipes(sw.toString().getBytes());
-				xmlOut.close();
+				if (writer.checkError())
+					throw new IOException("Error writing the xml output.");
 			}
 
 			final OutputPort jsonOut = this.getOutputPorts().get(OUTPUT_JSON_ID);
 			if (jsonOut.isConnected()) {
-				final ResultToJsonListener listener = new ResultToJsonListener(suffixTree, jsonOut);
+				final ResultToJsonListener listener = new ResultToJsonListener(suffixTree, jsonOut, this.flushInterval);
 				TreeWalker.walk(suffixTree.getRoot(), suffixTree, listener);
 				listener.finishWriting();
 				jsonOut.close();
@@ -201,7 +267,10 @@ public class GeneralisedSuffixTreeModule extends modules.ModuleImpl {
 			final OutputPort labelDataOut = this.getOutputPorts().get(OUTPUT_LABEL_DATA_ID);
 			if (labelDataOut.isConnected()) {
 				final ResultToGstLabelDataListener listener = new ResultToGstLabelDataListener(suffixTree);
-				TreeWalker.walk(suffixTree.getRoot(), suffixTree, listener);
+				if (this.parallel)
+					TreeWalker.walkParallel(suffixTree.getRoot(), suffixTree, listener);
+				else
+					TreeWalker.walk(suffixTree.getRoot(), suffixTree, listener);
 				writeGstLabelData(listener.getLabelsToGstData().values(), labelDataOut);
 				labelDataOut.close();
 			}
@@ -216,6 +285,22 @@ public class GeneralisedSuffixTreeModule extends modules.ModuleImpl {
 		return result;
 	}
 
+	@Override
+	public void applyProperties() throws Exception {
+		super.setDefaultsIfMissing();
+
+		if (this.getProperties().containsKey(PROPERTYKEY_COMPACT))
+			this.compact = Boolean.parseBoolean(this.getProperties().getProperty(PROPERTYKEY_COMPACT));
+		if (this.getProperties().containsKey(PROPERTYKEY_PARALLEL))
+			this.parallel = Boolean.parseBoolean(this.getProperties().getProperty(PROPERTYKEY_PARALLEL));
+		if (this.getProperties().containsKey(PROPERTYKEY_FLUSHINTERVAL))
+			this.flushInterval = Math.max(1, Integer.parseInt(this.getProperties().getProperty(PROPERTYKEY_FLUSHINTERVAL)));
+		final String treeFile = this.getProperties().getProperty(PROPERTYKEY_TREEFILE);
+		this.treeFile = treeFile == null || treeFile.trim().isEmpty() ? null : new File(treeFile.trim());
+
+		super.applyProperties();
+	}
+
 	// this is normally done in the constructor, but was moved here to
 	// remove clutter from it
 	private void setupOutputPorts() {
@@ -249,11 +334,16 @@ public class GeneralisedSuffixTreeModule extends modules.ModuleImpl {
 		outputForTnPort.addSupportedPipe(CharPipe.class);
 		super.addOutputPort(outputForTnPort);
 
+		OutputPort outputBinaryPort = new OutputPort(OUTPUT_BINARY_ID, OUTPUT_BINARY_DESC, this);
+		outputBinaryPort.addSupportedPipe(BytePipe.class);
+		super.addOutputPort(outputBinaryPort);
+
 	}
 
 	/**
 	 * This just writes all entries in the provided set of GstLabelData objects
-	 * to the specified output port's char pipes.
+	 * to the specified output port's char pipes. The lines written so far are
+	 * handed on to the pipes every flushInterval labels.
 	 * 
 	 * @param labelsToData
 	 *            The data objects to write.
@@ -263,19 +353,25 @@ public class GeneralisedSuffixTreeModule extends modules.ModuleImpl {
 	 *             If something goes wrong with IO.
 	 */
 	private void writeGstLabelData(final Collection<GstLabelData> dataset, OutputPort outputPort) throws IOException {
+		final Writer writer = outputPort.getWriter();
 		final StringBuilder sb = new StringBuilder();
 		// output the header
 		sb.append(GstLabelData.getCsvHeader());
 		sb.append(System.lineSeparator());
 		// output the labels line by line
+		int labelsWritten = 0;
 		for (GstLabelData data : dataset) {
 			data.toCsv(sb);
 			sb.append(System.lineSeparator());
 
 			// output the line and reset string builder
-			outputPort.outputToAllCharPipes(sb.toString());
+			writer.append(sb);
 			sb.setLength(0);
+			if (++labelsWritten % this.flushInterval == 0)
+				writer.flush();
 		}
+		writer.append(sb);
+		writer.close();
 	}
 
 }
@@ -12,9 +12,6 @@ import java.util.Properties;
 import java.util.Scanner;
 import java.util.SortedMap;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-
 import base.workbench.ModuleRunner;
 import common.parallelization.CallbackReceiver;
 import models.ExtensibleTreeNode;
@@ -22,7 +19,6 @@ import modules.CharPipe;
 import modules.InputPort;
 import modules.ModuleImpl;
 import modules.OutputPort;
-import modules.Pipe;
 
 public class TreeBuilderV3Module extends ModuleImpl {
 
@@ -122,6 +118,7 @@ public class TreeBuilderV3Module extends ModuleImpl {
 				"JSON-encoded suffix tree (nodes based on the TreeNode interface).",
 				this);
 		outputPort.addSupportedPipe(CharPipe.class);
+		outputPort.addSupportedObjectPipe(ExtensibleTreeNode.class);
 
 		// Add I/O ports to instance (don't forget...)
 		super.addInputPort(inputPort);
@@ -433,20 +430,9 @@ public class TreeBuilderV3Module extends ModuleImpl {
 		 * )))); } }
 		 */
 
-		// Initialise JSON serialiser
-		GsonBuilder gsonBuilder = new GsonBuilder();
-		// gsonBuilder.registerTypeAdapter(ModuleNetwork.class, new
-		// ParentRelationTreeNodeSerialiser());
-		Gson gson = gsonBuilder.setPrettyPrinting().create();
-
-		// Write to outputs // TODO Not sure if this is really the best
-		// performing method. Needs testing.
-		Iterator<Pipe> outputPipes = this.getOutputPorts().get(ID_OUTPUT)
-				.getPipes(CharPipe.class).iterator();
-		while (outputPipes.hasNext()) {
-			CharPipe outputPipe = (CharPipe) outputPipes.next();
-			gson.toJson(rootNode, outputPipe.getOutput());
-		}
+		// Write to outputs (object pipes receive the tree itself, char pipes
+		// its JSON representation, streamed node by node)
+		this.writeTreeToOutputPort(this.getOutputPorts().get(ID_OUTPUT), rootNode);
 
 		// Close outputs (important!)
 		this.closeAllOutputs();
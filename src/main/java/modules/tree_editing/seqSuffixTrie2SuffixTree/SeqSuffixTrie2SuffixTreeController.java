@@ -1,6 +1,6 @@
 package modules.tree_editing.seqSuffixTrie2SuffixTree;
 
-import java.io.PipedReader;
+import java.io.Reader;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map.Entry;
@@ -84,7 +84,7 @@ public class SeqSuffixTrie2SuffixTreeController extends ModuleImpl {
 	
 	//setters:
 		
-	public void setGson(PipedReader reader) {
+	public void setGson(Reader reader) {
 		gson = new Gson();
 		mainNode = gson.fromJson(reader, Knoten.class);
 	}
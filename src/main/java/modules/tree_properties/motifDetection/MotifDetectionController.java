@@ -16,7 +16,7 @@ import org.apache.commons.lang3.ArrayUtils;
 //Java I/O imports.
 import java.io.BufferedReader;
 import java.io.StringReader;
-import java.io.PipedInputStream;
+import java.io.InputStream;
 
 //Workbench specific imports.
 import java.util.Properties;
@@ -93,7 +93,7 @@ public class MotifDetectionController extends ModuleImpl {
 	GSTXmlStreamReader treeXmlStreamReader;
 	
 	// GST XML input stream.
-	private PipedInputStream suffixTreeInStream;
+	private InputStream suffixTreeInStream;
 	
 	// GST XML TreeMap holding each node.
 	private TreeMap <Integer, GSTXmlNode> gstXmlNodes;
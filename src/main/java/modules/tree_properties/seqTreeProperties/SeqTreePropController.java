@@ -6,7 +6,7 @@ import java.util.Map.Entry;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.ArrayList;
-import java.io.PipedReader;
+import java.io.Reader;
 
 import modules.CharPipe;
 import modules.InputPort;
@@ -151,7 +151,7 @@ public class SeqTreePropController extends ModuleImpl {
 	
 	//setters:
 		
-	public void setGson(PipedReader reader) {
+	public void setGson(Reader reader) {
 		gson = new Gson();
 		mainNode = gson.fromJson(reader, SeqReducedTrieNode.class);
 	}
@@ -0,0 +1,93 @@
+package bag_of_words;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import modules.bag_of_words.BagDistances;
+import modules.bag_of_words.BagDistances.Candidates;
+import modules.bag_of_words.BagOfWordsHelper;
+
+public class BagDistancesTest {
+
+	@Test
+	public void testAllPairs() {
+		final List<Map<String, Integer>> bags = this.randomBags(60, 40, 8);
+		for (boolean normalize : new boolean[] { false, true }) {
+			final BagDistances distances = new BagDistances(bags, normalize, Candidates.ALL, 0, 0);
+			final int[] candidates = new int[bags.size()];
+			for (int a = 0; a < bags.size(); a++) {
+				assertEquals(bags.size() - 1, distances.candidates(a, candidates));
+				for (int i = 0; i < bags.size() - 1; i++) {
+					final int b = candidates[i];
+					final float expected = normalize
+							? BagOfWordsHelper.normalizedLevenshteinDistance(bags.get(a), bags.get(b))
+							: BagOfWordsHelper.levenshteinDistance(bags.get(a), bags.get(b));
+					assertEquals(expected, distances.distance(a, b), 0f);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testInvertedIndex() {
+		final List<Map<String, Integer>> bags = this.randomBags(60, 200, 5);
+		bags.add(new TreeMap<String, Integer>());
+		final BagDistances distances = new BagDistances(bags, false, Candidates.INVERTED_INDEX, 0, 0);
+		final int[] candidates = new int[bags.size()];
+		for (int a = 0; a < bags.size(); a++) {
+			final int amount = distances.candidates(a, candidates);
+			int i = 0;
+			for (int b = 0; b < bags.size(); b++) {
+				if (b == a)
+					continue;
+				final int maxSize = Math.max(bags.get(a).size(), bags.get(b).size());
+				final boolean shared = distances.distance(a, b) < maxSize;
+				if (shared)
+					assertEquals(b, candidates[i++]);
+			}
+			assertEquals(i, amount);
+		}
+	}
+
+	@Test
+	public void testMinHash() {
+		final List<Map<String, Integer>> bags = this.randomBags(80, 300, 10);
+		// near duplicates of the first bags
+		for (int i = 0; i < 10; i++) {
+			final Map<String, Integer> copy = new TreeMap<String, Integer>(bags.get(i));
+			copy.put("extra", 1);
+			bags.add(copy);
+		}
+		final BagDistances distances = new BagDistances(bags, true, Candidates.MINHASH, 20, 3);
+		final int[] candidates = new int[bags.size()];
+		for (int i = 0; i < 10; i++) {
+			final int amount = distances.candidates(i, candidates);
+			for (int c = 1; c < amount; c++)
+				assertTrue(candidates[c - 1] < candidates[c]);
+			assertTrue(Arrays.binarySearch(candidates, 0, amount, 80 + i) >= 0);
+		}
+	}
+
+	private List<Map<String, Integer>> randomBags(int amount, int vocabulary, int size) {
+		final Random random = new Random(amount);
+		final List<Map<String, Integer>> bags = new ArrayList<Map<String, Integer>>();
+		for (int i = 0; i < amount; i++) {
+			final Map<String, Integer> bag = new TreeMap<String, Integer>();
+			final int words = 1 + random.nextInt(size);
+			for (int w = 0; w < words; w++)
+				bag.merge("w" + random.nextInt(vocabulary), 1, Integer::sum);
+			bags.add(bag);
+		}
+		return bags;
+	}
+
+}
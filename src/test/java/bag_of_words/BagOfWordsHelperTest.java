@@ -0,0 +1,33 @@
+package bag_of_words;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import modules.bag_of_words.BagOfWordsHelper;
+
+public class BagOfWordsHelperTest {
+
+	@Test
+	public void testTfIdfMinFilter() {
+		final Map<String, Integer> bag = new TreeMap<String, Integer>();
+		bag.put("rare", 2);
+		bag.put("common", 3);
+		bag.put("unknown", 1);
+		final Map<String, Double> inverseDocumentFrequencies = new HashMap<String, Double>();
+		inverseDocumentFrequencies.put("rare", 0.5);
+		inverseDocumentFrequencies.put("common", 0.1);
+
+		// terms reaching the minimum and those without an IDF are kept
+		final Map<String, Integer> expected = new TreeMap<String, Integer>();
+		expected.put("rare", 2);
+		expected.put("unknown", 1);
+		assertEquals(expected, BagOfWordsHelper.tfIdfMinFilter(bag, inverseDocumentFrequencies, 0.8f));
+		assertEquals(bag, BagOfWordsHelper.tfIdfMinFilter(bag, inverseDocumentFrequencies, 0f));
+	}
+
+}
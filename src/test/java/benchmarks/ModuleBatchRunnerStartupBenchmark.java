@@ -0,0 +1,94 @@
+package benchmarks;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Properties;
+
+import base.workbench.ModuleBatchRunner;
+import base.workbench.ModuleWorkbenchController;
+import modules.Module;
+import modules.ModuleImpl;
+import modules.ModuleNetwork;
+import modules.basic_text_processing.ReverserModule;
+import modules.input_output.FileReaderModule;
+import modules.input_output.FileWriterModule;
+
+/**
+ * Measures how long {@link ModuleBatchRunner} takes to run a small module
+ * network (file reader, reverser, file writer) in a fresh JVM, which is
+ * dominated by startup. Also reports, within this JVM, how long creating a
+ * controller takes and how long instantiating the templates of all available
+ * modules would take, which the batch runner no longer does.
+ *
+ * The amount of runs is given as argument, the default being 5:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=benchmarks.ModuleBatchRunnerStartupBenchmark -Dexec.args="5"
+ * </pre>
+ */
+public class ModuleBatchRunnerStartupBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		final int runs = Integer.parseInt(args.length == 0 ? "5" : args[0]);
+		final File input = File.createTempFile("startup", ".txt");
+		final File output = File.createTempFile("startup", ".out");
+		final File config = File.createTempFile("startup", ".exp");
+		final File log = File.createTempFile("startup", ".log");
+		input.deleteOnExit();
+		output.deleteOnExit();
+		config.deleteOnExit();
+		log.deleteOnExit();
+		Files.write(input.toPath(), "abc\ndef\n".getBytes("UTF-8"));
+
+		long start = System.nanoTime();
+		final ModuleWorkbenchController controller = new ModuleWorkbenchController();
+		System.out.println(String.format("controller: %.1f ms", (System.nanoTime() - start) / 1e6));
+
+		// the network to run
+		final ModuleNetwork network = new ModuleNetwork();
+		controller.setModuleNetwork(network);
+		final Properties readerProperties = new Properties();
+		readerProperties.setProperty(ModuleImpl.PROPERTYKEY_NAME, "Reader");
+		readerProperties.setProperty(FileReaderModule.PROPERTYKEY_INPUTFILE, input.getPath());
+		final Module reader = new FileReaderModule(network, readerProperties);
+		final Properties reverserProperties = new Properties();
+		reverserProperties.setProperty(ModuleImpl.PROPERTYKEY_NAME, "Reverser");
+		final Module reverser = new ReverserModule(network, reverserProperties);
+		final Properties writerProperties = new Properties();
+		writerProperties.setProperty(ModuleImpl.PROPERTYKEY_NAME, "Writer");
+		writerProperties.setProperty(FileWriterModule.PROPERTYKEY_OUTPUTFILE, output.getPath());
+		final Module writer = new FileWriterModule(network, writerProperties);
+		for (Module module : new Module[] { reader, reverser, writer }) {
+			module.applyProperties();
+			network.addModule(module);
+		}
+		network.addConnection(reader.getOutputPorts().values().iterator().next(),
+				reverser.getInputPorts().values().iterator().next());
+		network.addConnection(reverser.getOutputPorts().values().iterator().next(),
+				writer.getInputPorts().values().iterator().next());
+		controller.saveModuleTreeToFile(config);
+
+		final long[] times = new long[runs];
+		for (int run = 0; run < runs; run++) {
+			final ProcessBuilder process = new ProcessBuilder(
+					new File(System.getProperty("java.home"), "bin/java").getPath(), "-cp",
+					System.getProperty("java.class.path"), ModuleBatchRunner.class.getName(), "-c", config.getPath());
+			process.redirectErrorStream(true);
+			process.redirectOutput(ProcessBuilder.Redirect.to(log));
+			start = System.nanoTime();
+			final int exitCode = process.start().waitFor();
+			times[run] = System.nanoTime() - start;
+			if (exitCode != 0)
+				throw new IllegalStateException("The batch runner exited with " + exitCode);
+		}
+		Arrays.sort(times);
+		System.out.println(String.format("batch runner: %d runs, min %.1f ms, median %.1f ms", runs, times[0] / 1e6,
+				times[runs / 2] / 1e6));
+
+		start = System.nanoTime();
+		final int templates = controller.getAvailableModules().size();
+		System.out.println(String.format("templates of all %d modules (workbench only): %.1f ms", templates,
+				(System.nanoTime() - start) / 1e6));
+	}
+
+}
@@ -0,0 +1,191 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PipedReader;
+import java.io.PipedWriter;
+import java.util.concurrent.TimeUnit;
+
+import modules.BytePipe;
+import modules.CharPipe;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the throughput of the ring buffer backed {@link CharPipe} and
+ * {@link BytePipe} with the piped streams of java.io they replaced. Each
+ * invocation moves {@link #TRANSFERSIZE} elements from a producer thread to
+ * the benchmark thread.
+ *
+ * Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=benchmarks.PipeThroughputBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class PipeThroughputBenchmark {
+
+	// Amount of chars resp. bytes transferred per invocation
+	public static final int TRANSFERSIZE = 16 * 1024 * 1024;
+
+	@Param({ "64", "8192" })
+	public int chunkSize;
+
+	private char[] charChunk;
+	private byte[] byteChunk;
+
+	@Setup
+	public void setup() {
+		this.charChunk = new char[this.chunkSize];
+		this.byteChunk = new byte[this.chunkSize];
+		for (int i = 0; i < this.chunkSize; i++) {
+			this.charChunk[i] = (char) ('a' + i % 26);
+			this.byteChunk[i] = (byte) i;
+		}
+	}
+
+	@Benchmark
+	public long pipedReaderWriter() throws Exception {
+		final PipedReader reader = new PipedReader();
+		final PipedWriter writer = new PipedWriter(reader);
+		Thread producer = this.startProducer(new ChunkWriter() {
+			@Override
+			public void write(int length) throws IOException {
+				writer.write(charChunk, 0, length);
+			}
+			@Override
+			public void close() throws IOException {
+				writer.close();
+			}
+		});
+		long read = 0l;
+		char[] buffer = new char[this.chunkSize];
+		int n;
+		while ((n = reader.read(buffer, 0, buffer.length)) != -1)
+			read += n;
+		producer.join();
+		return read;
+	}
+
+	@Benchmark
+	public long charPipe() throws Exception {
+		final CharPipe pipe = new CharPipe();
+		Thread producer = this.startProducer(new ChunkWriter() {
+			@Override
+			public void write(int length) throws IOException {
+				pipe.write(charChunk, 0, length);
+			}
+			@Override
+			public void close() throws IOException {
+				pipe.writeClose();
+			}
+		});
+		long read = 0l;
+		char[] buffer = new char[this.chunkSize];
+		int n;
+		while ((n = pipe.read(buffer, 0, buffer.length)) != -1)
+			read += n;
+		producer.join();
+		return read;
+	}
+
+	@Benchmark
+	public long pipedStreams() throws Exception {
+		final PipedInputStream input = new PipedInputStream();
+		final PipedOutputStream output = new PipedOutputStream(input);
+		Thread producer = this.startProducer(new ChunkWriter() {
+			@Override
+			public void write(int length) throws IOException {
+				output.write(byteChunk, 0, length);
+			}
+			@Override
+			public void close() throws IOException {
+				output.close();
+			}
+		});
+		long read = 0l;
+		byte[] buffer = new byte[this.chunkSize];
+		int n;
+		while ((n = input.read(buffer, 0, buffer.length)) != -1)
+			read += n;
+		producer.join();
+		return read;
+	}
+
+	@Benchmark
+	public long bytePipe() throws Exception {
+		final BytePipe pipe = new BytePipe();
+		Thread producer = this.startProducer(new ChunkWriter() {
+			@Override
+			public void write(int length) throws IOException {
+				pipe.write(byteChunk, 0, length);
+			}
+			@Override
+			public void close() throws IOException {
+				pipe.writeClose();
+			}
+		});
+		long read = 0l;
+		byte[] buffer = new byte[this.chunkSize];
+		int n;
+		while ((n = pipe.read(buffer, 0, buffer.length)) != -1)
+			read += n;
+		producer.join();
+		return read;
+	}
+
+	/**
+	 * Starts a thread that writes {@link #TRANSFERSIZE} elements in chunks and closes the pipe afterwards.
+	 * @param chunkWriter Pipe specific write/close operations
+	 * @return Producer thread
+	 */
+	private Thread startProducer(final ChunkWriter chunkWriter) {
+		final int chunkSize = this.chunkSize;
+		Thread producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					int remaining = TRANSFERSIZE;
+					while (remaining > 0) {
+						int length = Math.min(chunkSize, remaining);
+						chunkWriter.write(length);
+						remaining -= length;
+					}
+					chunkWriter.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		});
+		producer.start();
+		return producer;
+	}
+
+	private interface ChunkWriter {
+		void write(int length) throws IOException;
+		void close() throws IOException;
+	}
+
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(PipeThroughputBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,89 @@
+package benchmarks;
+
+import java.io.BufferedReader;
+import java.io.Reader;
+import java.util.Random;
+
+import modules.tree_building.suffixTree.GST;
+import modules.tree_building.suffixTree.SuffixTree;
+
+/**
+ * Builds compact generalised suffix trees over generated corpora of
+ * increasing size and reports the build time and throughput. The corpus is
+ * produced lazily by a {@link Reader} (one text of random words per line),
+ * so only the tree itself occupies memory. As the build streams text by text,
+ * the throughput should stay roughly constant over the corpus sizes.
+ *
+ * Corpus sizes are given in MB (of chars) as arguments, the default being
+ * 10 MB. Larger corpora need a correspondingly large heap (about 60 bytes per
+ * char, see {@link SuffixTreeMemoryBenchmark}), e.g. for 10, 100 and 500 MB:
+ * <pre>
+ * MAVEN_OPTS=-Xmx40g mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=benchmarks.StreamingGstBenchmark -Dexec.args="10 100 500"
+ * </pre>
+ */
+public class StreamingGstBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length == 0)
+			args = new String[] { "10" };
+
+		for (String arg : args) {
+			int length = Integer.parseInt(arg) * 1024 * 1024;
+			long start = System.currentTimeMillis();
+			SuffixTree tree = GST.buildGST(new BufferedReader(new CorpusReader(length, new Random(42l))), null, true);
+			long time = Math.max(System.currentTimeMillis() - start, 1l);
+			System.out.println(String.format("%4s MB: %d nodes, build: %d ms, %.2f MB/s", arg, tree.getNodeAmount(), time,
+					(double) length / (1024 * 1024) / (time / 1000d)));
+			tree = null;
+			System.gc();
+		}
+	}
+
+	/**
+	 * Generates lines of random words over a small alphabet, each line being
+	 * one text terminated by '$'.
+	 */
+	static class CorpusReader extends Reader {
+
+		private final Random random;
+		private int remaining;
+		private final StringBuilder line = new StringBuilder();
+		private int index = 0;
+
+		CorpusReader(int length, Random random) {
+			this.remaining = length;
+			this.random = random;
+		}
+
+		private void nextLine() {
+			this.line.setLength(0);
+			this.index = 0;
+			int words = 5 + this.random.nextInt(10);
+			for (int i = 0; i < words; i++) {
+				int wordLength = 2 + this.random.nextInt(8);
+				for (int j = 0; j < wordLength; j++)
+					this.line.append((char) ('a' + this.random.nextInt(12)));
+				this.line.append(' ');
+			}
+			this.line.append("$\n");
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) {
+			if (this.remaining <= 0)
+				return -1;
+			if (this.index == this.line.length())
+				this.nextLine();
+			int amount = Math.min(len, this.line.length() - this.index);
+			this.line.getChars(this.index, this.index + amount, cbuf, off);
+			this.index += amount;
+			this.remaining -= amount;
+			return amount;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+}
@@ -0,0 +1,77 @@
+package benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.util.Random;
+
+import modules.tree_building.suffixTree.GST;
+import modules.tree_building.suffixTree.ResultLabelListListener;
+import modules.tree_building.suffixTree.SuffixTree;
+import modules.tree_building.suffixTree.SuffixTreeFile;
+import modules.tree_building.suffixTree.TreeWalker;
+
+/**
+ * Builds a compact generalised suffix tree over a generated corpus, writes it
+ * to a binary tree file and opens it again by mapping the file to memory.
+ * Reports the time taken by building, writing and mapping the tree, and by
+ * searching patterns and walking the whole tree in memory and mapped.
+ *
+ * The corpus size is given in MB (of chars) as argument, the default being
+ * 10 MB:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=benchmarks.SuffixTreeFileBenchmark -Dexec.args="10"
+ * </pre>
+ */
+public class SuffixTreeFileBenchmark {
+
+	private static final int PATTERNS = 100000;
+
+	public static void main(String[] args) throws Exception {
+		final int length = Integer.parseInt(args.length == 0 ? "10" : args[0]) * 1024 * 1024;
+		final File file = File.createTempFile("gst", ".bin");
+		file.deleteOnExit();
+
+		long start = System.currentTimeMillis();
+		final SuffixTree tree = GST.buildGST(
+				new BufferedReader(new StreamingGstBenchmark.CorpusReader(length, new Random(42l))), null, true);
+		System.out.println(String.format("build: %d ms, %d nodes", System.currentTimeMillis() - start, tree.getNodeAmount()));
+
+		start = System.currentTimeMillis();
+		SuffixTreeFile.write(tree, file);
+		System.out.println(String.format("write: %d ms, %d bytes (%.1f bytes/char)", System.currentTimeMillis() - start,
+				file.length(), (double) file.length() / length));
+
+		start = System.nanoTime();
+		final SuffixTree mapped = SuffixTreeFile.map(file);
+		System.out.println(String.format("map: %.3f ms", (System.nanoTime() - start) / 1e6));
+
+		for (SuffixTree current : new SuffixTree[] { tree, mapped, tree, mapped }) {
+			final String name = current == tree ? "in memory" : "mapped";
+			final Random random = new Random(7l);
+			int found = 0;
+			start = System.currentTimeMillis();
+			for (int i = 0; i < PATTERNS; i++) {
+				if (current.findPattern(randomPattern(random)))
+					found++;
+			}
+			System.out.println(String.format("%9s: %d patterns (%d found): %d ms", name, PATTERNS, found,
+					System.currentTimeMillis() - start));
+
+			start = System.currentTimeMillis();
+			final ResultLabelListListener listener = new ResultLabelListListener(current);
+			TreeWalker.walk(current.getRoot(), current, listener);
+			System.out.println(String.format("%9s: walk (%d labels): %d ms", name, listener.getLabels().size(),
+					System.currentTimeMillis() - start));
+		}
+	}
+
+	// a pattern over the corpus' alphabet, long enough to be found only
+	// sometimes
+	private static String randomPattern(Random random) {
+		final char[] pattern = new char[6];
+		for (int i = 0; i < pattern.length; i++)
+			pattern[i] = (char) ('a' + random.nextInt(12));
+		return new String(pattern);
+	}
+
+}
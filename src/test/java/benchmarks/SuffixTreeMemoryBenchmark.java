@@ -0,0 +1,69 @@
+package benchmarks;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.Random;
+
+import modules.tree_building.suffixTree.GST;
+import modules.tree_building.suffixTree.SuffixTree;
+
+/**
+ * Measures the heap retained by a generalised suffix tree built with the
+ * object based and with the compact node storage. The input consists of
+ * random words over a small alphabet, with texts separated by '$'. Retained
+ * memory is measured as the difference in used heap after garbage
+ * collection, so the numbers are approximate; JMH is not used as it measures
+ * time, not space.
+ *
+ * Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=benchmarks.SuffixTreeMemoryBenchmark -Dexec.args=2000000
+ * </pre>
+ */
+public class SuffixTreeMemoryBenchmark {
+
+	// Default amount of input chars
+	public static final int DEFAULTLENGTH = 1000000;
+
+	public static void main(String[] args) throws Exception {
+		int length = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULTLENGTH;
+		String input = createInput(length, new Random(42l));
+
+		for (boolean compact : new boolean[] { false, true }) {
+			long before = usedHeap();
+			long start = System.currentTimeMillis();
+			SuffixTree tree = GST.buildGST(new BufferedReader(new StringReader(input)), null, compact);
+			long time = System.currentTimeMillis() - start;
+			long retained = usedHeap() - before;
+			System.out.println(String.format("%-7s nodes: %d, retained: %d MB, %.1f bytes/char, %.1f bytes/node, build: %d ms",
+					compact ? "compact" : "object", tree.getNodeAmount(), retained / (1024 * 1024),
+					(double) retained / input.length(), (double) retained / tree.getNodeAmount(), time));
+			tree = null;
+		}
+	}
+
+	private static String createInput(int length, Random random) {
+		StringBuilder input = new StringBuilder(length);
+		while (input.length() < length) {
+			int words = 5 + random.nextInt(10);
+			for (int i = 0; i < words; i++) {
+				int wordLength = 2 + random.nextInt(8);
+				for (int j = 0; j < wordLength; j++)
+					input.append((char) ('a' + random.nextInt(12)));
+				input.append(' ');
+			}
+			input.append('$');
+		}
+		return input.toString();
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(100l);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
@@ -0,0 +1,118 @@
+package burrows_wheeler;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import modules.basic_text_processing.burrows_wheeler.BurrowsWheeler;
+import modules.basic_text_processing.burrows_wheeler.FMIndex;
+import modules.basic_text_processing.burrows_wheeler.SuffixArray;
+
+import org.junit.Test;
+
+public class BurrowsWheelerTest {
+
+	private static String random(Random random, String alphabet, int length) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < length; i++)
+			text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		return text.toString();
+	}
+
+	private static String[] sortedRotations(String str) {
+		String[] table = new String[str.length()];
+		for (int i = 0; i < str.length(); i++)
+			table[i] = str.substring(i) + str.substring(0, i);
+		Arrays.sort(table);
+		return table;
+	}
+
+	@Test
+	public void testSuffixArray() {
+		Random random = new Random(1);
+		for (int i = 0; i < 200; i++) {
+			final int[] text = new int[1 + random.nextInt(i < 100 ? 20 : 2000)];
+			final int alphabetSize = 2 + random.nextInt(4);
+			for (int j = 0; j < text.length - 1; j++)
+				text[j] = 1 + random.nextInt(alphabetSize - 1);
+			List<Integer> expected = new ArrayList<Integer>();
+			for (int j = 0; j < text.length; j++)
+				expected.add(j);
+			Collections.sort(expected, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer a, Integer b) {
+					for (int k = 0;; k++) {
+						if (text[a + k] != text[b + k])
+							return text[a + k] - text[b + k];
+					}
+				}
+			});
+			int[] suffixArray = SuffixArray.build(text, alphabetSize);
+			for (int j = 0; j < text.length; j++)
+				assertEquals((int) expected.get(j), suffixArray[j]);
+		}
+	}
+
+	@Test
+	public void testTransformAsSortedRotations() {
+		Random random = new Random(2);
+		List<String> strings = new ArrayList<String>(Arrays.asList("banana$", "abab", "aaaa", "x", "\u00e4b\u00e4b ", ""));
+		for (int i = 0; i < 300; i++)
+			strings.add(random(random, i % 2 == 0 ? "ab" : "ab$c d", 1 + random.nextInt(60)));
+		for (String str : strings) {
+			StringBuilder expected = new StringBuilder();
+			for (String rotation : sortedRotations(str))
+				expected.append(rotation.charAt(str.length() - 1));
+			assertEquals(str, expected.toString(), BurrowsWheeler.transform(str));
+		}
+	}
+
+	@Test
+	public void testInverse() {
+		Random random = new Random(3);
+		assertEquals("banana$", BurrowsWheeler.inverse(BurrowsWheeler.transform("banana$"), '$'));
+		assertNull(BurrowsWheeler.inverse("abc", '$'));
+		for (int i = 0; i < 300; i++) {
+			String str = random(random, "ab$c", 1 + random.nextInt(40));
+			// the rotation ending with the char that comes first, as the table of rotations gives
+			String expected = null;
+			for (String rotation : sortedRotations(str)) {
+				if (rotation.charAt(str.length() - 1) == '$') {
+					expected = rotation;
+					break;
+				}
+			}
+			assertEquals(str, expected, BurrowsWheeler.inverse(BurrowsWheeler.transform(str), '$'));
+		}
+	}
+
+	@Test
+	public void testFMIndex() {
+		Random random = new Random(4);
+		for (int length : new int[] { 0, 1, 63, 64, 127, 5000 }) {
+			String text = random(random, "acgt", length);
+			FMIndex index = new FMIndex(text);
+			assertEquals(length, index.length());
+			for (int i = 0; i < 50; i++) {
+				String pattern = random(random, "acgtn", 1 + random.nextInt(6));
+				List<Integer> expected = new ArrayList<Integer>();
+				for (int p = text.indexOf(pattern); p >= 0; p = text.indexOf(pattern, p + 1))
+					expected.add(p);
+				assertEquals(pattern, expected.size(), index.count(pattern));
+				int[] positions = index.locate(pattern);
+				assertEquals(expected.size(), positions.length);
+				for (int p = 0; p < positions.length; p++)
+					assertEquals((int) expected.get(p), positions[p]);
+			}
+		}
+		assertArrayEquals(new int[] { 1, 3 }, new FMIndex("banana").locate("an"));
+	}
+
+}
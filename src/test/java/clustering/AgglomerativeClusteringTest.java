@@ -0,0 +1,111 @@
+package clustering;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import modules.tree_building.suffixTreeClustering.clustering.hierarchical.AgglomerativeClustering;
+import modules.tree_building.suffixTreeClustering.clustering.hierarchical.HierarchicalClusterer;
+import modules.tree_building.suffixTreeClustering.clustering.hierarchical.SimilarityMeasure;
+import modules.tree_building.suffixTreeClustering.data.Type;
+import modules.tree_building.suffixTreeClustering.features.FeatureVector;
+
+public class AgglomerativeClusteringTest {
+
+	@Test
+	public void testMatchesGreedyClustering() {
+		final Random random = new Random(11);
+		for (SimilarityMeasure measure : SimilarityMeasure.values()) {
+			for (int n : new int[] { 1, 2, 3, 10, 60 }) {
+				final double[][] distances = new double[n][n];
+				final AgglomerativeClustering engine = new AgglomerativeClustering(n, measure);
+				for (int i = 0; i < n; i++) {
+					for (int j = i + 1; j < n; j++) {
+						distances[i][j] = distances[j][i] = random.nextDouble();
+						engine.setDistance(i, j, distances[i][j]);
+					}
+				}
+				engine.run();
+
+				final List<String> expected = greedy(distances, measure);
+				final List<TreeSet<Integer>> clusters = new ArrayList<TreeSet<Integer>>();
+				for (int i = 0; i < n; i++)
+					clusters.add(new TreeSet<Integer>(Arrays.asList(i)));
+				final List<String> actual = new ArrayList<String>();
+				for (int k = 0; k < engine.getMergeAmount(); k++) {
+					final TreeSet<Integer> merged = new TreeSet<Integer>(clusters.get(engine.getLeft(k)));
+					merged.addAll(clusters.get(engine.getRight(k)));
+					clusters.add(merged);
+					actual.add(String.format("%s@%.9f", merged, engine.getHeight(k)));
+				}
+				assertEquals(measure + " " + n, expected, actual);
+			}
+		}
+	}
+
+	/*
+	 * Merges the nearest clusters one at a time, comparing all members.
+	 */
+	private static List<String> greedy(double[][] distances, SimilarityMeasure measure) {
+		final List<TreeSet<Integer>> clusters = new ArrayList<TreeSet<Integer>>();
+		for (int i = 0; i < distances.length; i++)
+			clusters.add(new TreeSet<Integer>(Arrays.asList(i)));
+		final List<String> merges = new ArrayList<String>();
+		while (clusters.size() > 1) {
+			double min = Double.POSITIVE_INFINITY;
+			int c1 = 0;
+			int c2 = 0;
+			for (int i = 0; i < clusters.size(); i++) {
+				for (int j = i + 1; j < clusters.size(); j++) {
+					double single = Double.POSITIVE_INFINITY;
+					double complete = 0;
+					double sum = 0;
+					for (int a : clusters.get(i)) {
+						for (int b : clusters.get(j)) {
+							single = Math.min(single, distances[a][b]);
+							complete = Math.max(complete, distances[a][b]);
+							sum += distances[a][b];
+						}
+					}
+					final double distance = measure == SimilarityMeasure.SINGLE_LINK ? single
+							: measure == SimilarityMeasure.COMPLETE_LINK ? complete
+									: sum / (clusters.get(i).size() * clusters.get(j).size());
+					if (distance < min) {
+						min = distance;
+						c1 = i;
+						c2 = j;
+					}
+				}
+			}
+			final TreeSet<Integer> merged = new TreeSet<Integer>(clusters.get(c1));
+			merged.addAll(clusters.remove(c2));
+			clusters.set(c1, merged);
+			merges.add(String.format("%s@%.9f", merged, min));
+		}
+		return merges;
+	}
+
+	@Test
+	public void testNewick() {
+		final List<Type> types = new ArrayList<Type>();
+		final double[][] points = { { 0 }, { 1 }, { 5 }, { 5.5 } };
+		final String[] names = { "a", "b", "c d", "e'f" };
+		for (int i = 0; i < points.length; i++) {
+			final Type type = new Type(new FeatureVector(points[i]));
+			type.setID(i);
+			type.setTypeString(names[i]);
+			types.add(type);
+		}
+		final HierarchicalClusterer clusterer = new HierarchicalClusterer(types, SimilarityMeasure.SINGLE_LINK);
+		clusterer.analyze();
+		assertEquals(1, clusterer.getClusters().size());
+		assertEquals("(('c d':0.5,'e''f':0.5):3.5,(a:1.0,b:1.0):3.0);", clusterer.toNewick());
+	}
+
+}
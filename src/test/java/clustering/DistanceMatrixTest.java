@@ -0,0 +1,72 @@
+package clustering;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import modules.clustering.minkowskiDistance.DistanceMatrix;
+import modules.clustering.minkowskiDistance.DistanceMatrix.Metric;
+
+public class DistanceMatrixTest {
+
+	@Test
+	public void testMetrics() {
+		final double[] vectors = { 0, 0, 0, 3, 4, 0, 1, 1, 1 };
+		assertEquals(5d, new DistanceMatrix(vectors, 3, 3, Metric.MINKOWSKI, 2d).distance(0, 1), 1e-12);
+		assertEquals(7d, new DistanceMatrix(vectors, 3, 3, Metric.MANHATTAN, 2d).distance(0, 1), 1e-12);
+		assertEquals(7d, new DistanceMatrix(vectors, 3, 3, Metric.MINKOWSKI, 1d).distance(0, 1), 1e-12);
+		assertEquals(Math.cbrt(91d), new DistanceMatrix(vectors, 3, 3, Metric.MINKOWSKI, 3d).distance(0, 1), 1e-12);
+		assertEquals(4d, new DistanceMatrix(vectors, 3, 3, Metric.MINKOWSKI, Double.POSITIVE_INFINITY).distance(0, 1),
+				1e-12);
+
+		final DistanceMatrix cosine = new DistanceMatrix(vectors, 3, 3, Metric.COSINE, 0d);
+		assertEquals(1d - 7d / (5d * Math.sqrt(3d)), cosine.distance(1, 2), 1e-12);
+		assertEquals(0d, cosine.distance(2, 2), 1e-12);
+		// the zero vector has no direction
+		assertEquals(1d, cosine.distance(0, 1), 0d);
+		assertEquals(0d, cosine.distance(0, 0), 0d);
+	}
+
+	@Test
+	public void testBlocks() {
+		final ForkJoinPool pool = new ForkJoinPool(3);
+		// long vectors give small tiles, short ones a single tile whose rows
+		// are split up
+		this.checkBlocks(23, 6000, pool);
+		this.checkBlocks(40, 10, pool);
+		pool.shutdown();
+	}
+
+	private void checkBlocks(int amount, int dimensions, ForkJoinPool pool) {
+		final Random random = new Random(3);
+		final double[] vectors = new double[amount * dimensions];
+		for (int i = 0; i < vectors.length; i++)
+			vectors[i] = random.nextDouble();
+
+		for (Metric metric : Metric.values()) {
+			final DistanceMatrix matrix = new DistanceMatrix(vectors, amount, dimensions, metric, 2.5d);
+			for (boolean upperOnly : new boolean[] { false, true }) {
+				final double[][] block = new double[amount / 4][amount];
+				for (int begin = 0; begin < amount; begin += block.length) {
+					final int end = Math.min(amount, begin + block.length);
+					for (double[] row : block)
+						Arrays.fill(row, -1d);
+					matrix.computeRows(begin, end, upperOnly, block, pool);
+					for (int row = begin; row < end; row++) {
+						for (int col = 0; col < amount; col++) {
+							final double expected = (upperOnly && col <= row) ? -1d
+									: (row == col ? 0d : matrix.distance(row, col));
+							assertEquals(metric + " " + row + "/" + col, expected, block[row - begin][col], 0d);
+							assertEquals(matrix.distance(row, col), matrix.distance(col, row), 1e-9);
+						}
+					}
+				}
+			}
+		}
+	}
+
+}
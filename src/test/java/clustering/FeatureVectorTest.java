@@ -0,0 +1,108 @@
+package clustering;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import modules.tree_building.suffixTreeClustering.data.Node;
+import modules.tree_building.suffixTreeClustering.data.Type;
+import modules.tree_building.suffixTreeClustering.features.BinaryFeatures;
+import modules.tree_building.suffixTreeClustering.features.FeatureVector;
+import modules.tree_building.suffixTreeClustering.features.TfDfFeatures;
+import modules.tree_building.suffixTreeClustering.features.TfIdfFeatures;
+import modules.tree_building.suffixTreeClustering.st_interface.SuffixTreeInfo;
+
+public class FeatureVectorTest {
+
+	@Test
+	public void testSparseArithmetic() {
+		final Random random = new Random(3);
+		for (int n = 0; n < 50; n++) {
+			final double[] a = this.randomValues(random, 40);
+			final double[] b = this.randomValues(random, 40);
+			final FeatureVector va = new FeatureVector(a);
+			final FeatureVector vb = new FeatureVector(b);
+
+			double sumOfSquares = 0;
+			double dot = 0;
+			double normA = 0;
+			double normB = 0;
+			for (int i = 0; i < a.length; i++) {
+				sumOfSquares += (a[i] - b[i]) * (a[i] - b[i]);
+				dot += a[i] * b[i];
+				normA += a[i] * a[i];
+				normB += b[i] * b[i];
+			}
+			assertEquals((float) Math.sqrt(sumOfSquares), va.distance(vb), 0d);
+			assertEquals(va.distance(vb), vb.distance(va));
+			final double similarity = dot == 0 ? 0 : dot / (Math.sqrt(normA) * Math.sqrt(normB));
+			assertEquals(similarity, va.similarity(vb), 1e-12);
+			assertEquals(Math.sqrt(normA), va.norm(), 1e-12);
+
+			final Double[] boxed = va.getValues();
+			for (int i = 0; i < a.length; i++)
+				assertEquals(a[i], boxed[i], 0d);
+			assertEquals(va, new FeatureVector(boxed));
+		}
+	}
+
+	@Test
+	public void testFeaturesFromNodeFrequencies() {
+		final Random random = new Random(5);
+		final SuffixTreeInfo corpus = new SuffixTreeInfo();
+		final List<Type> types = new ArrayList<Type>();
+		for (int t = 0; t < 4; t++) {
+			final Type type = new Type();
+			type.setID(t);
+			type.setTypeString("type" + t);
+			types.add(type);
+			corpus.addType(type);
+		}
+		corpus.setNumberOfTypes(types.size());
+		corpus.setNumberOfNodes(30);
+		for (int n = 0; n < 30; n++) {
+			final Node node = new Node();
+			node.setNodeNumber(n + 2);
+			for (Type type : types) {
+				if (random.nextInt(3) == 0) {
+					node.addType(type);
+					for (int visits = random.nextInt(3); visits >= 0; visits--)
+						node.getStartPositionsOfType(type).add(visits);
+				}
+			}
+			corpus.addNode(node);
+		}
+
+		for (Type type : types) {
+			final TfIdfFeatures tfIdf = new TfIdfFeatures(type, corpus);
+			final TfDfFeatures tfDf = new TfDfFeatures(type, corpus);
+			final BinaryFeatures binary = new BinaryFeatures(type, corpus);
+			final List<Node> nodes = corpus.getNodes();
+			final Double[] expectedTfIdf = new Double[nodes.size()];
+			final Double[] expectedTfDf = new Double[nodes.size()];
+			final Double[] expectedBinary = new Double[nodes.size()];
+			for (int i = 0; i < nodes.size(); i++) {
+				// nodes no type visited are 0 rather than 0 * infinity
+				expectedTfIdf[i] = nodes.get(i).getDF() == 0 ? 0.0 : tfIdf.tfIdf(nodes.get(i));
+				expectedTfDf[i] = tfDf.tfDf(nodes.get(i));
+				expectedBinary[i] = binary.value(nodes.get(i)) ? 1.0 : 0.0;
+			}
+			assertArrayEquals(expectedTfIdf, tfIdf.vector().getValues());
+			assertArrayEquals(expectedTfDf, tfDf.vector().getValues());
+			assertArrayEquals(expectedBinary, binary.vector().getValues());
+		}
+	}
+
+	private double[] randomValues(Random random, int length) {
+		final double[] values = new double[length];
+		for (int i = 0; i < length; i++)
+			values[i] = random.nextInt(4) == 0 ? random.nextDouble() : 0d;
+		return values;
+	}
+
+}
@@ -0,0 +1,139 @@
+package clustering;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import modules.tree_building.suffixTreeClustering.clustering.flat.FlatCluster;
+import modules.tree_building.suffixTreeClustering.clustering.flat.FlatClusterer;
+import modules.tree_building.suffixTreeClustering.clustering.flat.KMedoids;
+import modules.tree_building.suffixTreeClustering.data.Type;
+import modules.tree_building.suffixTreeClustering.features.FeatureVector;
+
+public class KMedoidsTest {
+
+	/*
+	 * Documents around the given directions, so that clusters differ in both
+	 * distance and angle.
+	 */
+	private static List<Type> documents(Random random, double[][] directions, int perDirection) {
+		final List<Type> documents = new ArrayList<Type>();
+		for (int group = 0; group < directions.length; group++) {
+			final double[] direction = directions[group];
+			for (int d = 0; d < perDirection; d++) {
+				final double[] values = new double[direction.length];
+				for (int v = 0; v < values.length; v++)
+					values[v] = direction[v] == 0 ? 0 : direction[v] + random.nextDouble() * 0.1;
+				final Type type = new Type(new FeatureVector(values));
+				type.setID(documents.size());
+				type.setTypeString("g" + group);
+				documents.add(type);
+			}
+		}
+		return documents;
+	}
+
+	@Test
+	public void testSeparatedClusters() {
+		final double[][] directions = { { 10, 0, 0, 1 }, { 0, 10, 0, 1 }, { 0, 0, 10, 1 } };
+		final List<Type> documents = documents(new Random(2), directions, 30);
+		final KMedoids kMedoids = new KMedoids(documents);
+		final KMedoids.Result result = kMedoids.run(3, 20, 1);
+		assertTrue(result.getIterations() < 20);
+		for (int group = 0; group < directions.length; group++) {
+			final int cluster = result.getCluster(group * 30);
+			for (int d = 0; d < 30; d++)
+				assertEquals(cluster, result.getCluster(group * 30 + d));
+		}
+		assertTrue(result.getSilhouette() > 0.9);
+		assertEquals(1, result.getPurity(), 0);
+
+		// each document in exactly one cluster
+		final Set<Type> clustered = new HashSet<Type>();
+		int size = 0;
+		for (FlatCluster cluster : result.getClusters()) {
+			clustered.addAll(cluster.getDocuments());
+			size += cluster.getDocuments().size();
+			assertTrue(cluster.getDocuments().contains(cluster.getMedoid()));
+		}
+		assertEquals(documents.size(), size);
+		assertEquals(new HashSet<Type>(documents), clustered);
+	}
+
+	@Test
+	public void testMedoidsAndAssignment() {
+		final Random random = new Random(4);
+		final List<Type> documents = new ArrayList<Type>();
+		for (int i = 0; i < 60; i++) {
+			final double[] values = new double[8];
+			for (int v = 0; v < values.length; v++)
+				values[v] = random.nextInt(3) == 0 ? random.nextDouble() : 0;
+			final Type type = new Type(new FeatureVector(values));
+			type.setID(i);
+			type.setTypeString("t" + (i % 5));
+			documents.add(type);
+		}
+		final KMedoids.Result result = new KMedoids(documents).run(4, 50, 3);
+		assertTrue(result.getPurity() < 1);
+
+		// every document is at its nearest medoid
+		for (int i = 0; i < documents.size(); i++) {
+			final FeatureVector vector = documents.get(i).getVector();
+			double min = Double.POSITIVE_INFINITY;
+			for (int c = 0; c < result.getK(); c++)
+				min = Math.min(min, vector.distance(documents.get(result.getMedoid(c)).getVector()));
+			assertEquals(min, vector.distance(documents.get(result.getMedoid(result.getCluster(i))).getVector()), 0);
+		}
+
+		// every medoid is the member most similar to the others
+		for (FlatCluster cluster : result.getClusters()) {
+			double max = Double.NEGATIVE_INFINITY;
+			double medoid = 0;
+			for (Type i : cluster) {
+				double sum = 0;
+				for (Type j : cluster) {
+					if (i != j)
+						sum += i.getVector().similarity(j.getVector());
+				}
+				max = Math.max(max, sum);
+				if (i == cluster.getMedoid())
+					medoid = sum;
+			}
+			assertEquals(max, medoid, 1e-9);
+		}
+	}
+
+	@Test
+	public void testSweep() {
+		final double[][] directions = { { 10, 0, 0 }, { 0, 10, 0 }, { 0, 0, 10 } };
+		final List<Type> documents = documents(new Random(6), directions, 20);
+		final FlatClusterer clusterer = new FlatClusterer(documents);
+		final List<KMedoids.Result> results = clusterer.sweep(2, 5, 10);
+		assertEquals(4, results.size());
+		double best = Double.NEGATIVE_INFINITY;
+		int bestK = 0;
+		for (int i = 0; i < results.size(); i++) {
+			final KMedoids.Result result = results.get(i);
+			assertEquals(2 + i, result.getK());
+			if (result.getSilhouette() > best) {
+				best = result.getSilhouette();
+				bestK = result.getK();
+			}
+			// the same as clustering for this k alone
+			final List<FlatCluster> single = clusterer.analyse(result.getK(), 10);
+			assertEquals(result.getClusters().size(), single.size());
+			for (int c = 0; c < single.size(); c++)
+				assertEquals(result.getClusters().get(c).getDocuments(), single.get(c).getDocuments());
+		}
+		assertEquals(3, bestK);
+		assertEquals(4, clusterer.analyse(2, 5, 10).size());
+	}
+
+}
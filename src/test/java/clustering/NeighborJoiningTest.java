@@ -0,0 +1,222 @@
+package clustering;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import modules.tree_building.suffixTreeClustering.clustering.neighborjoin.NeighborJoining;
+import modules.tree_building.suffixTreeClustering.clustering.neighborjoin.RapidNeighborJoining;
+import modules.tree_building.suffixTreeClustering.data.Type;
+import modules.tree_building.suffixTreeClustering.features.FeatureVector;
+
+public class NeighborJoiningTest {
+
+	@Test
+	public void testMatchesDenseNeighborJoining() {
+		final Random random = new Random(7);
+		for (int n : new int[] { 10, 80, 300 }) {
+			final double[][] distances = new double[n][n];
+			for (int i = 0; i < n; i++)
+				for (int j = i + 1; j < n; j++)
+					distances[i][j] = distances[j][i] = random.nextDouble();
+			// with four clusters left, complementary pairs are equal up to
+			// rounding, the joins before are compared
+			final List<String> expected = dense(distances).subList(0, n - 4);
+			assertEquals("exact " + n, expected, joins(distances, false).subList(0, n - 4));
+			assertEquals("rapid " + n, expected, joins(distances, true).subList(0, n - 4));
+		}
+	}
+
+	@Test
+	public void testRecoversAdditiveTree() {
+		final Random random = new Random(13);
+		final int n = 200;
+		// a random tree of n leaves, each node joined to an earlier one
+		final int nodes = 2 * n;
+		final int[] parent = new int[nodes];
+		final double[] length = new double[nodes];
+		for (int v = 1; v < nodes; v++) {
+			parent[v] = random.nextInt(v);
+			length[v] = 0.1 + random.nextDouble();
+		}
+		final int[] leaves = new int[n];
+		for (int i = 0; i < n; i++)
+			leaves[i] = nodes - n + i;
+		final double[][] distances = new double[n][n];
+		for (int i = 0; i < n; i++)
+			for (int j = i + 1; j < n; j++)
+				distances[i][j] = distances[j][i] = pathLength(parent, length, leaves[i], leaves[j]);
+
+		for (boolean rapid : new boolean[] { false, true }) {
+			final RapidNeighborJoining engine = engine(distances);
+			assertTrue(engine.isAdditive(1000, new Random(1), 1e-9));
+			engine.run(rapid);
+
+			// the distances along the resulting tree are the given ones
+			final int[] treeParent = new int[2 * n];
+			final double[] treeLength = new double[2 * n];
+			final int center = n + engine.getJoinAmount();
+			for (int k = 0; k < engine.getJoinAmount(); k++) {
+				treeParent[engine.getJoinedA(k)] = treeParent[engine.getJoinedB(k)] = n + k;
+				treeLength[engine.getJoinedA(k)] = engine.getLengthA(k);
+				treeLength[engine.getJoinedB(k)] = engine.getLengthB(k);
+			}
+			for (int i = 0; i < 3; i++) {
+				treeParent[engine.getLastCluster(i)] = center;
+				treeLength[engine.getLastCluster(i)] = engine.getLastLength(i);
+			}
+			treeParent[center] = center;
+			for (int i = 0; i < n; i++)
+				for (int j = i + 1; j < n; j++)
+					assertEquals(distances[i][j], pathLength(treeParent, treeLength, i, j), 1e-9);
+		}
+
+		final RapidNeighborJoining randomDistances = engine(new double[][] { { 0, 1, 5, 2 }, { 1, 0, 1, 7 },
+				{ 5, 1, 0, 3 }, { 2, 7, 3, 0 } });
+		assertFalse(randomDistances.isAdditive(100, new Random(1), 1e-9));
+	}
+
+	@Test
+	public void testTree() {
+		final List<Type> types = new ArrayList<Type>();
+		final double[][] points = { { 0, 0 }, { 1, 0 }, { 0, 4 }, { 5, 5 } };
+		for (int i = 0; i < points.length; i++) {
+			final Type type = new Type(new FeatureVector(points[i]));
+			type.setID(i);
+			type.setTypeString("t" + i);
+			types.add(type);
+		}
+		final NeighborJoining nj = new NeighborJoining(types);
+		nj.start();
+		assertEquals(3, nj.getRoot().getChildren().size());
+		assertEquals(4, nj.getRoot().getChildren().get(2).getClusteredDocuments().size()
+				+ nj.getRoot().getChildren().get(0).getClusteredDocuments().size()
+				+ nj.getRoot().getChildren().get(1).getClusteredDocuments().size());
+		final String tree = nj.getTree();
+		assertTrue(tree, tree.startsWith("graph NJTree {\nroot -- "));
+		for (Type type : types)
+			assertTrue(tree, tree.contains(" -- " + type.getString() + "[label = "));
+	}
+
+	private static RapidNeighborJoining engine(double[][] distances) {
+		final RapidNeighborJoining engine = new RapidNeighborJoining(distances.length);
+		for (int i = 0; i < distances.length; i++)
+			for (int j = i + 1; j < distances.length; j++)
+				engine.setDistance(i, j, distances[i][j]);
+		return engine;
+	}
+
+	private static List<String> joins(double[][] distances, boolean rapid) {
+		final int n = distances.length;
+		final RapidNeighborJoining engine = engine(distances);
+		engine.run(rapid);
+		final List<TreeSet<Integer>> clusters = new ArrayList<TreeSet<Integer>>();
+		for (int i = 0; i < n; i++)
+			clusters.add(new TreeSet<Integer>(Arrays.asList(i)));
+		final List<String> joins = new ArrayList<String>();
+		for (int k = 0; k < engine.getJoinAmount(); k++) {
+			final TreeSet<Integer> a = clusters.get(engine.getJoinedA(k));
+			final TreeSet<Integer> b = clusters.get(engine.getJoinedB(k));
+			joins.add(String.format("%s:%.9f %s:%.9f", a, engine.getLengthA(k), b, engine.getLengthB(k)));
+			final TreeSet<Integer> joined = new TreeSet<Integer>(a);
+			joined.addAll(b);
+			clusters.add(joined);
+		}
+		final TreeSet<String> last = new TreeSet<String>();
+		for (int i = 0; i < 3; i++)
+			last.add(String.format("%s:%.9f", clusters.get(engine.getLastCluster(i)), engine.getLastLength(i)));
+		joins.add(last.toString());
+		return joins;
+	}
+
+	/*
+	 * Neighbor joining on a full matrix, comparing all pairs in each step.
+	 */
+	private static List<String> dense(double[][] matrix) {
+		final List<double[]> d = new ArrayList<double[]>();
+		final List<TreeSet<Integer>> clusters = new ArrayList<TreeSet<Integer>>();
+		for (int i = 0; i < matrix.length; i++) {
+			d.add(matrix[i].clone());
+			clusters.add(new TreeSet<Integer>(Arrays.asList(i)));
+		}
+		final List<Integer> alive = new ArrayList<Integer>();
+		for (int i = 0; i < matrix.length; i++)
+			alive.add(i);
+		final List<String> joins = new ArrayList<String>();
+		while (true) {
+			final int m = alive.size();
+			final double[] r = new double[m];
+			for (int i = 0; i < m; i++) {
+				for (int j = 0; j < m; j++)
+					r[i] += d.get(alive.get(i))[alive.get(j)];
+				r[i] /= m - 2;
+			}
+			double min = Double.POSITIVE_INFINITY;
+			int bi = 0;
+			int bj = 0;
+			for (int i = 0; i < m; i++) {
+				for (int j = i + 1; j < m; j++) {
+					final double q = d.get(alive.get(i))[alive.get(j)] - r[i] - r[j];
+					if (q < min) {
+						min = q;
+						bi = i;
+						bj = j;
+					}
+				}
+			}
+			final int a = alive.get(bi);
+			final int b = alive.get(bj);
+			final double dab = d.get(a)[b];
+			final double la = dab / 2 + (r[bi] - r[bj]) / 2;
+			if (m == 3) {
+				// all pairs are equal in the end, up to rounding
+				final int c = alive.get(3 - bi - bj);
+				final TreeSet<String> last = new TreeSet<String>();
+				last.add(String.format("%s:%.9f", clusters.get(a), la));
+				last.add(String.format("%s:%.9f", clusters.get(b), dab - la));
+				last.add(String.format("%s:%.9f", clusters.get(c), (d.get(a)[c] + d.get(b)[c] - dab) / 2));
+				joins.add(last.toString());
+				return joins;
+			}
+			joins.add(String.format("%s:%.9f %s:%.9f", clusters.get(a), la, clusters.get(b), dab - la));
+			for (int x : alive) {
+				if (x != a && x != b)
+					d.get(a)[x] = d.get(x)[a] = (d.get(a)[x] + d.get(b)[x] - dab) / 2;
+			}
+			final TreeSet<Integer> joined = new TreeSet<Integer>(clusters.get(a));
+			joined.addAll(clusters.get(b));
+			clusters.set(a, joined);
+			alive.remove(bj);
+		}
+	}
+
+	private static double pathLength(int[] parent, double[] length, int u, int v) {
+		final List<Integer> ancestors = new ArrayList<Integer>();
+		for (int x = u;; x = parent[x]) {
+			ancestors.add(x);
+			if (parent[x] == x)
+				break;
+		}
+		double sum = 0;
+		int x = v;
+		while (!ancestors.contains(x)) {
+			sum += length[x];
+			x = parent[x];
+		}
+		for (int y : ancestors) {
+			if (y == x)
+				break;
+			sum += length[y];
+		}
+		return sum;
+	}
+
+}
@@ -0,0 +1,100 @@
+package clustering;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import models.ExtensibleTreeNode;
+import modules.clustering.treeSimilarityClustering.NodeComparator;
+import modules.clustering.treeSimilarityClustering.TreeSimilarity;
+
+public class TreeSimilarityTest {
+
+	/*
+	 * A tree of few keys and values, so that branches and values coincide.
+	 */
+	private static ExtensibleTreeNode tree(Random random, String value, int depth) {
+		final ExtensibleTreeNode node = new ExtensibleTreeNode(value);
+		node.setNodeCounter(1 + random.nextInt(5));
+		if (depth < 5) {
+			final int children = random.nextInt(4);
+			for (int c = 0; c < children; c++) {
+				final String key = "k" + random.nextInt(6);
+				node.getChildNodes().put(key, tree(random, "v" + random.nextInt(3), depth + 1));
+			}
+		}
+		return node;
+	}
+
+	@Test
+	public void testMatchesNodeComparator() {
+		final Random random = new Random(3);
+		final List<ExtensibleTreeNode> trees = new ArrayList<ExtensibleTreeNode>();
+		for (int i = 0; i < 25; i++)
+			trees.add(tree(random, "t" + i, 0));
+		for (int maxDepth : new int[] { -1, 1, 2, 4 }) {
+			for (double exponent : new double[] { 0, 1.5 }) {
+				for (boolean onMatchesOnly : new boolean[] { false, true }) {
+					final TreeSimilarity similarity = new TreeSimilarity(maxDepth, exponent, onMatchesOnly);
+					for (ExtensibleTreeNode tree : trees)
+						similarity.add(tree);
+					final NodeComparator comparator = new NodeComparator(maxDepth, exponent, onMatchesOnly);
+					for (int i = 0; i < trees.size(); i++) {
+						for (int j = 0; j < trees.size(); j++) {
+							final double expected = comparator.vergleiche(trees.get(i), trees.get(j));
+							assertEquals(expected, similarity.similarity(i, j), 1e-12);
+							assertTrue(similarity.upperBound(i, j) >= expected || Double.isNaN(expected));
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testDeepTrees() {
+		// chains far deeper than the call stack would allow to recurse into
+		final ExtensibleTreeNode[] roots = new ExtensibleTreeNode[2];
+		for (int t = 0; t < roots.length; t++) {
+			roots[t] = new ExtensibleTreeNode("t" + t);
+			ExtensibleTreeNode node = roots[t];
+			for (int depth = 1; depth <= 200000; depth++) {
+				final ExtensibleTreeNode child = new ExtensibleTreeNode(depth % 2 == 0 ? "even" : "v" + t);
+				child.setNodeCounter(1);
+				node.getChildNodes().put("k", child);
+				node = child;
+			}
+		}
+		final TreeSimilarity similarity = new TreeSimilarity(-1, 0, false);
+		similarity.add(roots[0]);
+		similarity.add(roots[1]);
+		assertEquals(0.5, similarity.similarity(0, 1), 1e-12);
+		assertEquals(1, similarity.similarity(0, 0), 1e-12);
+	}
+
+	@Test
+	public void testPruning() {
+		final Random random = new Random(5);
+		final TreeSimilarity similarity = new TreeSimilarity(-1, 0, false);
+		for (int i = 0; i < 40; i++)
+			similarity.add(tree(random, "t" + i, 0));
+		for (double minimum : new double[] { 0, 0.1, 0.3, 0.6 }) {
+			for (int i = 0; i < similarity.size(); i++) {
+				for (int j = i + 1; j < similarity.size(); j++) {
+					final double exact = similarity.similarity(i, j);
+					final double pruned = similarity.similarity(i, j, minimum);
+					if (exact > minimum)
+						assertEquals(exact, pruned, 0);
+					else
+						assertTrue(pruned <= minimum || Double.isNaN(pruned));
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,82 @@
+package common;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringWriter;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class StreamingRegExReplacerTest {
+
+	private static String stream(StreamingRegExReplacer replacer, String text, Random random, int maxChunk)
+			throws Exception {
+		StringWriter output = new StringWriter();
+		char[] chars = text.toCharArray();
+		int offset = 0;
+		while (offset < chars.length) {
+			int length = Math.min(chars.length - offset, 1 + random.nextInt(maxChunk));
+			replacer.write(chars, offset, length, output);
+			offset += length;
+		}
+		replacer.close(output);
+		return output.toString();
+	}
+
+	private static String text(Random random, int length) {
+		String alphabet = "aab c\n.1x";
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < length; i++)
+			text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		return text.toString();
+	}
+
+	@Test
+	public void testSameAsReplaceAllInAnyChunks() throws Exception {
+		String[][] rules = { { "[aeiu]", "o" }, { "a+b", "<$0>" }, { "(a)(b)?", "$2$1" }, { "x*", "-" },
+				{ "^a|c$", "!" }, { "(?m)^a.*$", "[line]" }, { "(?<=b )c", "C" }, { "\\bab\\b", "AB" },
+				{ "(?<digit>\\d)\\.", "${digit}\\$" }, { "a{2,}+", "$00" }, { "(?<=a)", "-" }, { "(?<!a)", "-" },
+				{ "\\G", "-" }, { "\\Ga", "-" } };
+		Random random = new Random(1);
+		for (String[] rule : rules) {
+			for (int i = 0; i < 20; i++) {
+				String text = text(random, random.nextInt(300));
+				StreamingRegExReplacer replacer = new StreamingRegExReplacer(64);
+				replacer.addRule(rule[0], rule[1]);
+				assertEquals(rule[0], text.replaceAll(rule[0], rule[1]), stream(replacer, text, random, 1 + i));
+
+				// the same replacer for another stream, and a text on its own
+				assertEquals(rule[0], text.replaceAll(rule[0], rule[1]), stream(replacer, text, random, 50));
+				StringWriter output = new StringWriter();
+				replacer.replace(("#" + text + "#").toCharArray(), 1, text.length() + 1, output);
+				assertEquals(rule[0], text.replaceAll(rule[0], rule[1]), output.toString());
+			}
+		}
+	}
+
+	@Test
+	public void testMatchesLongerThanWindow() throws Exception {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 100; i++)
+			text.append('a');
+		StreamingRegExReplacer replacer = new StreamingRegExReplacer(100);
+		replacer.addRule("a+", "x");
+		assertEquals("x", stream(replacer, text.toString(), new Random(2), 7));
+	}
+
+	@Test
+	public void testRulesInOnePass() throws Exception {
+		StreamingRegExReplacer replacer = new StreamingRegExReplacer(16);
+		replacer.addRule("cat", "dog");
+		replacer.addRule("dog", "cat");
+		replacer.addRule("ca", "XX");
+		// replaced text is not matched again, the first match in the text and then the first rule wins
+		assertEquals("cat dog XXr", stream(replacer, "dog cat car", new Random(3), 2));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testMissingGroup() {
+		new StreamingRegExReplacer(16).addRule("(a)", "$2");
+	}
+
+}
@@ -0,0 +1,63 @@
+package matrix;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import models.NamedFieldMatrix;
+import modules.matrix.HammingDistances;
+
+public class HammingDistancesTest {
+
+	@Test
+	public void testPresenceMatrix() {
+		// more columns than fit into two words
+		final NamedFieldMatrix matrix = this.randomMatrix(40, 150, 1d);
+		final HammingDistances distances = new HammingDistances(matrix);
+		assertTrue(distances.isPacked());
+		this.assertDistances(matrix, distances);
+	}
+
+	@Test
+	public void testValueMatrix() {
+		final NamedFieldMatrix matrix = this.randomMatrix(40, 70, 1d);
+		matrix.setValue(3, 5, 2d);
+		final HammingDistances distances = new HammingDistances(matrix);
+		assertFalse(distances.isPacked());
+		this.assertDistances(matrix, distances);
+	}
+
+	private void assertDistances(NamedFieldMatrix matrix, HammingDistances distances) {
+		final int rows = matrix.getRowAmount();
+		final int[][] block = new int[7][rows];
+		final ForkJoinPool pool = new ForkJoinPool(3);
+		for (int begin = 0; begin < rows; begin += block.length) {
+			final int end = Math.min(rows, begin + block.length);
+			distances.computeRows(begin, end, block, pool);
+			for (int row = begin; row < end; row++) {
+				final int[] expected = new int[rows];
+				for (int other = 0; other < rows; other++)
+					expected[other] = matrix.getHammingDistanceForRows(row, other);
+				assertArrayEquals(expected, block[row - begin]);
+				assertEquals(0, block[row - begin][row]);
+			}
+		}
+		pool.shutdown();
+	}
+
+	private NamedFieldMatrix randomMatrix(int rows, int cols, double presence) {
+		final Random random = new Random(rows * cols);
+		final NamedFieldMatrix matrix = new NamedFieldMatrix();
+		for (int row = 0; row < rows; row++)
+			for (int col = 0; col < cols; col++)
+				matrix.setValue("row" + row, "col" + col, random.nextInt(3) == 0 ? presence : 0d);
+		return matrix;
+	}
+
+}
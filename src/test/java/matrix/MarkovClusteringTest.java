@@ -0,0 +1,122 @@
+package matrix;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import Jama.Matrix;
+import modules.matrix.MarkovClustering;
+
+public class MarkovClusteringTest {
+
+	@Test
+	public void testMatchesDenseComputation() throws Exception {
+		final int size = 30;
+		final Random random = new Random(7);
+		final double[][] dense = new double[size][size];
+		for (int i = 0; i < size; i++)
+			for (int j = 0; j < size; j++)
+				if (i == j || random.nextInt(4) == 0)
+					dense[i][j] = random.nextDouble();
+
+		// without pruning the result is that of the dense computation
+		for (int threads = 1; threads <= 3; threads += 2) {
+			final MarkovClustering mcl = this.createMcl(dense, 3, 2.0, 0d, 0, -1d);
+			assertEquals(4, mcl.run(4, threads));
+
+			Matrix expected = new Matrix(dense);
+			for (int iteration = 0; iteration < 4; iteration++) {
+				inflate(expected, 2.0);
+				expected = expected.times(expected).times(expected);
+			}
+			this.assertMatrixEquals(expected.getArray(), mcl);
+		}
+	}
+
+	@Test
+	public void testClusters() throws Exception {
+		// two cliques joined by a single weak edge
+		final double[][] dense = new double[7][7];
+		for (int i = 0; i < 7; i++)
+			for (int j = 0; j < 7; j++)
+				if ((i < 4) == (j < 4))
+					dense[i][j] = 1d;
+		dense[3][4] = 0.1;
+		dense[4][3] = 0.1;
+
+		for (int threads = 1; threads <= 2; threads++) {
+			final MarkovClustering mcl = this.createMcl(dense, 2, 2.0, 0.0001, 500, 0.0001);
+			final int iterations = mcl.run(1000, threads);
+			assertTrue("should converge early, took " + iterations, iterations < 100);
+			assertTrue(mcl.getChaos() <= 0.0001);
+
+			final int[][] clusters = mcl.getClusters();
+			assertEquals(2, clusters.length);
+			assertArrayEquals(new int[] { 0, 1, 2, 3 }, clusters[0]);
+			assertArrayEquals(new int[] { 4, 5, 6 }, clusters[1]);
+		}
+	}
+
+	@Test
+	public void testPruning() throws Exception {
+		final double[][] dense = { { 0.5, 0.3, 0.2 }, { 0.2, 0.5, 0.3 }, { 0.3, 0.2, 0.5 } };
+		final MarkovClustering mcl = this.createMcl(dense, 2, 1.0, 0d, 2, -1d);
+		mcl.run(1, 1);
+
+		// only the biggest values are kept, but the rows keep their sum
+		final int[] cols = new int[3];
+		final double[] values = new double[3];
+		for (int row = 0; row < 3; row++) {
+			assertEquals(2, mcl.getRow(row, cols, values));
+			assertEquals(1d, values[0] + values[1], 1e-12);
+		}
+	}
+
+	private MarkovClustering createMcl(double[][] dense, int expansion, double inflation, double pruneThreshold,
+			int maxRowEntries, double maxChaos) {
+		final MarkovClustering mcl = new MarkovClustering(dense.length, expansion, inflation, pruneThreshold,
+				maxRowEntries, maxChaos);
+		final int[] cols = new int[dense.length];
+		final double[] values = new double[dense.length];
+		for (int row = 0; row < dense.length; row++) {
+			int amount = 0;
+			for (int col = 0; col < dense.length; col++) {
+				if (dense[row][col] != 0) {
+					cols[amount] = col;
+					values[amount++] = dense[row][col];
+				}
+			}
+			mcl.setRow(row, cols, values, amount);
+		}
+		return mcl;
+	}
+
+	private void assertMatrixEquals(double[][] expected, MarkovClustering mcl) {
+		final int[] cols = new int[expected.length];
+		final double[] values = new double[expected.length];
+		for (int row = 0; row < expected.length; row++) {
+			final double[] actual = new double[expected.length];
+			final int amount = mcl.getRow(row, cols, values);
+			for (int i = 0; i < amount; i++)
+				actual[cols[i]] = values[i];
+			assertArrayEquals(expected[row], actual, 1e-9);
+		}
+	}
+
+	// the inflation step as the module computed it on dense matrices
+	private static void inflate(Matrix a, double r) {
+		for (int i = 0; i < a.getRowDimension(); i++) {
+			double denom = 0;
+			for (int k = 0; k < a.getColumnDimension(); k++)
+				denom = denom + Math.pow(a.get(i, k), r);
+			if (denom != 0)
+				for (int j = 0; j < a.getColumnDimension(); j++)
+					a.set(i, j, Math.pow(a.get(i, j), r) / denom);
+		}
+	}
+
+}
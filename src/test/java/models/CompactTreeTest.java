@@ -0,0 +1,99 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+public class CompactTreeTest {
+
+	private static ExtensibleTreeNode tree(Random random, int depth) {
+		final ExtensibleTreeNode node = new ExtensibleTreeNode(random.nextInt(4) == 0 ? null : "v" + random.nextInt(5));
+		node.setNodeCounter(random.nextInt(100));
+		if (random.nextInt(3) == 0) {
+			node.getAttributes().put("doubleCounter", new Double(random.nextInt(10)));
+			node.getAttributes().put("text", "node " + depth);
+		}
+		if (depth < 6) {
+			final int children = random.nextInt(4);
+			for (int c = 0; c < children; c++)
+				node.getChildNodes().put("k" + random.nextInt(8), tree(random, depth + 1));
+		}
+		return node;
+	}
+
+	private static void assertSameTree(ExtensibleTreeNode expected, ExtensibleTreeNode actual) {
+		assertEquals(expected.getNodeValue(), actual.getNodeValue());
+		assertEquals(expected.getNodeCounter(), actual.getNodeCounter());
+		assertEquals(expected.getAttributes(), actual.getAttributes());
+		assertEquals(expected.getChildNodes().keySet(), actual.getChildNodes().keySet());
+		for (Entry<String, ExtensibleTreeNode> child : expected.getChildNodes().entrySet())
+			assertSameTree(child.getValue(), actual.getChildNodes().get(child.getKey()));
+	}
+
+	@Test
+	public void testNavigation() {
+		final ExtensibleTreeNode root = tree(new Random(1), 0);
+		final CompactTree tree = CompactTree.of(root);
+		assertSameTree(root, tree.toExtensibleTreeNode());
+		assertEquals(-1, tree.getParent(0));
+		for (int node = 0; node < tree.size(); node++) {
+			for (int child : tree.getChildren(node)) {
+				assertEquals(node, tree.getParent(child));
+				assertEquals(child, tree.getChild(node, tree.getKey(child)));
+			}
+			assertEquals(-1, tree.getChild(node, "none"));
+		}
+	}
+
+	@Test
+	public void testJsonCompatibleWithGson() throws Exception {
+		final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+		final Random random = new Random(2);
+		for (int i = 0; i < 20; i++) {
+			final ExtensibleTreeNode root = tree(random, 0);
+
+			// Gson's JSON read by the codec
+			final CompactTree tree = CompactTreeJson.read(new StringReader(gson.toJson(root)));
+			assertSameTree(root, tree.toExtensibleTreeNode());
+
+			// the codec's JSON read by Gson, from both kinds of trees
+			final StringWriter fromCompact = new StringWriter();
+			CompactTreeJson.write(tree, fromCompact);
+			assertSameTree(root, gson.fromJson(fromCompact.toString(), ExtensibleTreeNode.class));
+			final StringWriter fromNodes = new StringWriter();
+			CompactTreeJson.write(root, fromNodes);
+			assertEquals(fromCompact.toString(), fromNodes.toString());
+		}
+	}
+
+	@Test
+	public void testDeepTree() throws Exception {
+		// deeper than recursion would allow
+		final ExtensibleTreeNode root = new ExtensibleTreeNode("^");
+		ExtensibleTreeNode node = root;
+		for (int depth = 1; depth <= 200000; depth++) {
+			final ExtensibleTreeNode child = new ExtensibleTreeNode("" + depth);
+			child.setNodeCounter(depth);
+			node.getChildNodes().put("k", child);
+			node = child;
+		}
+		final StringWriter json = new StringWriter();
+		CompactTreeJson.write(root, json);
+		final CompactTree tree = CompactTreeJson.read(new StringReader(json.toString()));
+		assertEquals(200001, tree.size());
+		assertEquals(200000, tree.getNodeCounter(200000));
+		assertEquals(199999, tree.getParent(200000));
+		assertEquals(200001, tree.getEnd(0));
+		assertTrue(tree.getAttributes(1).isEmpty());
+	}
+
+}
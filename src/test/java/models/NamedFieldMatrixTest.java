@@ -1,8 +1,15 @@
 package models;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
 import org.junit.Test;
 
 public class NamedFieldMatrixTest {
@@ -177,6 +184,85 @@ public class NamedFieldMatrixTest {
 		assertTrue(matrix.getHammingDistanceForColumns(0, 1) == 1);
 	}
 
+	@Test
+	public void testSparseMatchesDense() throws Exception {
+		NamedFieldMatrix dense = NamedFieldMatrix.parseCSV(new StringReader(CSV), ",", false);
+		NamedFieldMatrix sparse = NamedFieldMatrix.parseCSV(new StringReader(CSV), ",", true);
+		assertFalse(dense.isSparse());
+		assertTrue(sparse.isSparse());
+
+		assertEquals(dense.getRowNames(), sparse.getRowNames());
+		assertEquals(dense.getColumnNames(), sparse.getColumnNames());
+		for (int i = 0; i < dense.getRowAmount(); i++) {
+			assertArrayEquals(dense.getRow(i), sparse.getRow(i), 0d);
+			assertEquals(dense.csvLine(i), sparse.csvLine(i));
+			for (int j = 0; j < dense.getRowAmount(); j++) {
+				assertEquals(dense.getHammingDistanceForRows(i, j), sparse.getHammingDistanceForRows(i, j));
+			}
+		}
+		for (int i = 0; i < dense.getColumnsAmount(); i++) {
+			assertArrayEquals(dense.getColumn(i), sparse.getColumn(i), 0d);
+			for (int j = 0; j < dense.getColumnsAmount(); j++) {
+				assertEquals(dense.getHammingDistanceForColumns(i, j), sparse.getHammingDistanceForColumns(i, j));
+			}
+		}
+
+		// values set to zero are removed, values set out of order are kept
+		sparse.setValue("set2", "data2", 0d);
+		sparse.setValue("set1", "data1", 5d);
+		sparse.addValue("set1", "data1", 1d);
+		assertEquals(0d, sparse.getValue("set2", "data2"), 0d);
+		assertEquals(6d, sparse.getValue("set1", "data1"), 0d);
+		assertEquals(0.4d, sparse.getValue("set1", "data2"), 0d);
+		assertEquals("set2,2.1,,1.2,9.41\n", sparse.csvLine(1));
+
+		// the values array is a copy, but can be set
+		double[][] values = sparse.getValues();
+		values[2][3] = 0d;
+		assertEquals(9.41d, sparse.getValue(2, 3), 0d);
+		sparse.setValues(values);
+		assertEquals(0d, sparse.getValue(2, 3), 0d);
+	}
+
+	@Test
+	public void testParseCSVChoosesStorage() throws Exception {
+		assertFalse(NamedFieldMatrix.parseCSV(CSV, ",").isSparse());
+
+		StringBuilder csv = new StringBuilder(";a;b;c;d\r\n");
+		for (int i = 0; i < 100; i++) {
+			csv.append("row").append(i).append(";;").append(i % 10 == 0 ? "1.5" : "").append(";;\r\n");
+		}
+		NamedFieldMatrix matrix = NamedFieldMatrix.parseCSV(csv.toString(), ";");
+		assertTrue(matrix.isSparse());
+		assertEquals(100, matrix.getRowAmount());
+		assertEquals(4, matrix.getColumnsAmount());
+		assertEquals(1.5d, matrix.getValue("row10", "b"), 0d);
+		assertEquals(0d, matrix.getValue("row11", "b"), 0d);
+		assertEquals(0d, matrix.getValue("row11", "d"), 0d);
+	}
+
+	@Test
+	public void testParseCSVDelimitersAndLineEnds() throws Exception {
+		// multi-char delimiter, mixed line ends, no final line break
+		String csv = "::x::y\rr1::1::2\r\n\nr2::::3";
+		NamedFieldMatrix matrix = NamedFieldMatrix.parseCSV(csv, "::");
+		assertEquals(2, matrix.getRowAmount());
+		assertEquals(2d, matrix.getValue("r1", "y"), 0d);
+		assertEquals(0d, matrix.getValue("r2", "x"), 0d);
+		assertEquals(3d, matrix.getValue("r2", "y"), 0d);
+
+		// the written csv can be read again
+		StringWriter writer = new StringWriter();
+		matrix.setDelimiter("::");
+		matrix.writeCsv(writer);
+		assertEquals("::x::y\nr1::1.0::2.0\nr2::::3.0\n", writer.toString());
+	}
+
+	@Test(expected = IOException.class)
+	public void testParseEmptyCSV() throws Exception {
+		NamedFieldMatrix.parseCSV("", ",");
+	}
+
 	private NamedFieldMatrix makeTestMatrix() {
 		NamedFieldMatrix matrix = new NamedFieldMatrix();
 		matrix.addValue("set1", "data1", 1.1d);
@@ -0,0 +1,193 @@
+package modularization;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.text.Normalizer;
+import java.text.Normalizer.Form;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import modules.BytePipe;
+import modules.CharPipe;
+import modules.InputPort;
+import modules.ModuleImpl;
+import modules.ModuleNetwork;
+import modules.OutputPort;
+import modules.input_output.FileReaderModule;
+import modules.input_output.ParallelGzipInputStream;
+
+import org.junit.Test;
+
+public class FileReaderModuleTest {
+
+	@Test
+	public void testNormalizesAcrossChunks() throws Exception {
+		// Combining sequences, surrogate pairs and Hangul jamo in random places
+		String[] parts = { "Cafe\u0301 ", "a\u0323\u0302", "\uD835\uDC9C\u0301", "\u1100\u1161\u11A8", "x", " ", "\u0301" };
+		Random random = new Random(1);
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 5000; i++)
+			text.append(parts[random.nextInt(parts.length)]);
+		byte[] bytes = text.toString().getBytes("UTF-8");
+		File file = this.write(bytes);
+		String expected = Normalizer.normalize(text, Form.NFC);
+
+		for (int bufferLength : new int[] { 2, 17, 31, 64, 8192 }) {
+			Object[] output = this.read(file, bufferLength, false, 1, true);
+			assertArrayEquals(bytes, (byte[]) output[0]);
+			assertEquals("buffer length " + bufferLength, expected, output[1]);
+		}
+		// Left as it is if not to be normalized
+		assertEquals(text.toString(), this.read(file, 5, false, 1, false)[1]);
+	}
+
+	@Test
+	public void testInflatesMembersInParallel() throws Exception {
+		Random random = new Random(2);
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		ByteArrayOutputStream file = new ByteArrayOutputStream();
+		for (int i = 0; i < 40; i++) {
+			byte[] block = new byte[i == 20 ? 0 : random.nextInt(30000)];
+			for (int j = 0; j < block.length; j++)
+				block[j] = (byte) ('a' + random.nextInt(random.nextInt(26) + 1));
+			expected.write(block);
+			file.write(bgzfMember(block));
+		}
+		// Members not stating their size are inflated sequentially
+		byte[] tail = "plain GZIP member".getBytes("UTF-8");
+		expected.write(tail);
+		GZIPOutputStream gzip = new GZIPOutputStream(file);
+		gzip.write(tail);
+		gzip.finish();
+		File gzipFile = this.write(file.toByteArray());
+
+		for (int threads : new int[] { 1, 4 }) {
+			Object[] output = this.read(gzipFile, 4096, true, threads, true);
+			assertArrayEquals(expected.toByteArray(), (byte[]) output[0]);
+			assertEquals(expected.toString("UTF-8"), output[1]);
+			assertEquals(threads > 1 ? ParallelGzipInputStream.class : GZIPInputStream.class, output[2]);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsNoGzipThreads() throws Exception {
+		Properties properties = new Properties();
+		properties.setProperty(ModuleImpl.PROPERTYKEY_NAME, "FileReader");
+		properties.setProperty(FileReaderModule.PROPERTYKEY_GZIPTHREADS, "0");
+		new FileReaderModule(new ModuleNetwork(), properties).applyProperties();
+	}
+
+	private static byte[] bgzfMember(byte[] data) {
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		deflater.setInput(data);
+		deflater.finish();
+		byte[] deflated = new byte[data.length + 1024];
+		int length = 0;
+		while (!deflater.finished())
+			length += deflater.deflate(deflated, length, deflated.length - length);
+		deflater.end();
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		ByteBuffer member = ByteBuffer.allocate(18 + length + 8).order(ByteOrder.LITTLE_ENDIAN);
+		member.put(new byte[] { 0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff });
+		member.putShort((short) 6).put((byte) 'B').put((byte) 'C').putShort((short) 2);
+		member.putShort((short) (member.capacity() - 1));
+		member.put(deflated, 0, length);
+		member.putInt((int) crc.getValue()).putInt(data.length);
+		return member.array();
+	}
+
+	private File write(byte[] bytes) throws IOException {
+		File file = File.createTempFile("filereader", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), bytes);
+		return file;
+	}
+
+	/*
+	 * Runs the module with the pipes requested connected and returns the
+	 * bytes and the chars they received, and the class of the stream that
+	 * inflated the file (null if not compressed).
+	 */
+	private Object[] read(File file, int bufferLength, boolean gzip, int threads, boolean normalize)
+			throws Exception {
+		Properties properties = new Properties();
+		properties.setProperty(ModuleImpl.PROPERTYKEY_NAME, "FileReader");
+		properties.setProperty(FileReaderModule.PROPERTYKEY_INPUTFILE, file.getPath());
+		properties.setProperty(FileReaderModule.PROPERTYKEY_BUFFERLENGTH, "" + bufferLength);
+		properties.setProperty(FileReaderModule.PROPERTYKEY_USEGZIP, "" + gzip);
+		properties.setProperty(FileReaderModule.PROPERTYKEY_GZIPTHREADS, "" + threads);
+		properties.setProperty(FileReaderModule.PROPERTYKEY_NORMALIZE, "" + normalize);
+		final Class<?>[] gzipStream = new Class<?>[1];
+		FileReaderModule reader = new FileReaderModule(new ModuleNetwork(), properties) {
+			@Override
+			protected InputStream openGzipStream(FileChannel fileChannel) throws IOException {
+				InputStream stream = super.openGzipStream(fileChannel);
+				gzipStream[0] = stream.getClass();
+				return stream;
+			}
+		};
+		reader.applyProperties();
+		OutputPort outputPort = reader.getOutputPorts().get("output");
+
+		final BytePipe bytePipe = new BytePipe();
+		InputPort byteInput = new InputPort("bytes", "", null);
+		byteInput.addSupportedPipe(BytePipe.class);
+		outputPort.addPipe(bytePipe, byteInput);
+		final CharPipe charPipe = new CharPipe();
+		InputPort charInput = new InputPort("chars", "", null);
+		charInput.addSupportedPipe(CharPipe.class);
+		outputPort.addPipe(charPipe, charInput);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<byte[]> bytes = executor.submit(new Callable<byte[]>() {
+				@Override
+				public byte[] call() throws Exception {
+					ByteArrayOutputStream output = new ByteArrayOutputStream();
+					InputStream input = bytePipe.getInput();
+					byte[] buffer = new byte[1000];
+					int read;
+					while ((read = input.read(buffer)) != -1)
+						output.write(buffer, 0, read);
+					return output.toByteArray();
+				}
+			});
+			Future<String> text = executor.submit(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					StringBuilder output = new StringBuilder();
+					Reader input = charPipe.getInput();
+					char[] buffer = new char[1000];
+					int read;
+					while ((read = input.read(buffer)) != -1)
+						output.append(buffer, 0, read);
+					return output.toString();
+				}
+			});
+			reader.process();
+			return new Object[] { bytes.get(), text.get(), gzipStream[0] };
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,123 @@
+package modularization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Properties;
+
+import modules.BoundedModuleScheduler;
+import modules.CharPipe;
+import modules.InputPort;
+import modules.Module;
+import modules.ModuleImpl;
+import modules.ModuleNetwork;
+import modules.ModuleScheduler;
+import modules.OutputPort;
+import modules.ThreadPerModuleScheduler;
+import modules.VirtualThreadModuleScheduler;
+import modules.input_output.FileReaderModule;
+import modules.input_output.FileWriterModule;
+
+import org.junit.Test;
+
+public class ModuleSchedulerTest {
+
+	// Status is only logged once per interval, so a run noticing its completion by polling would take at least this long
+	private static final long INTERVAL = 60000l;
+
+	@Test
+	public void testSchedulersCompleteWithoutPolling() throws Exception {
+		String expected = this.runNetwork(new ThreadPerModuleScheduler());
+		assertTrue(expected.length() > 0);
+		assertEquals(expected, this.runNetwork(new BoundedModuleScheduler(2)));
+		assertEquals(expected, this.runNetwork(new VirtualThreadModuleScheduler()));
+		// The input fits into the pipe, so the writer can wait for the reader's thread
+		assertEquals(expected, this.runNetwork(new BoundedModuleScheduler(1)));
+	}
+
+	@Test(timeout = 30000l)
+	public void testPooledModuleFailureReleasesPipes() throws Exception {
+		BoundedModuleScheduler scheduler = new BoundedModuleScheduler(2);
+		ModuleNetwork moduleNetwork = new ModuleNetwork();
+		moduleNetwork.setScheduler(scheduler);
+
+		// Writes far more than the pipe holds
+		Properties producerProperties = new Properties();
+		producerProperties.setProperty(ModuleImpl.PROPERTYKEY_NAME, "Producer");
+		ModuleImpl producer = new ModuleImpl(moduleNetwork, producerProperties) {
+			@Override
+			public boolean process() throws Exception {
+				char[] chars = new char[1024];
+				for (int i = 0; i < 1 << 16; i++)
+					this.getOutputPorts().get("output").outputToAllCharPipes(chars, 0, chars.length);
+				this.getOutputPorts().get("output").close();
+				return true;
+			}
+		};
+		OutputPort output = new OutputPort("output", "", producer);
+		output.addSupportedPipe(CharPipe.class);
+		producer.addOutputPort(output);
+
+		// Fails without closing its input, while its pooled thread lives on
+		Properties consumerProperties = new Properties();
+		consumerProperties.setProperty(ModuleImpl.PROPERTYKEY_NAME, "Consumer");
+		ModuleImpl consumer = new ModuleImpl(moduleNetwork, consumerProperties) {
+			@Override
+			public boolean process() throws Exception {
+				throw new Exception("Consumer failed");
+			}
+		};
+		InputPort input = new InputPort("input", "", consumer);
+		input.addSupportedPipe(CharPipe.class);
+		consumer.addInputPort(input);
+
+		moduleNetwork.addModule(producer);
+		moduleNetwork.addModule(consumer);
+		moduleNetwork.addConnection(output, input, new CharPipe());
+		moduleNetwork.runModules(true, INTERVAL);
+		assertEquals(Module.STATUSCODE_FAILURE, producer.getStatus());
+		scheduler.shutdown();
+	}
+
+	/**
+	 * Copies the test article with a reader and a writer module.
+	 * @param scheduler Scheduler to run the modules with
+	 * @return Content of the written file
+	 * @throws Exception Thrown if something goes wrong
+	 */
+	private String runNetwork(ModuleScheduler scheduler) throws Exception {
+		String inputFile = "src" + File.separator + "test" + File.separator + "data" + File.separator + "Article247_4.txt";
+		File outputFile = File.createTempFile("scheduler", ".txt");
+		outputFile.deleteOnExit();
+
+		ModuleNetwork moduleNetwork = new ModuleNetwork();
+		moduleNetwork.setScheduler(scheduler);
+
+		Properties readerProperties = new Properties();
+		readerProperties.setProperty(ModuleImpl.PROPERTYKEY_NAME, "FileReader");
+		readerProperties.setProperty(FileReaderModule.PROPERTYKEY_INPUTFILE, inputFile);
+		FileReaderModule fileReader = new FileReaderModule(moduleNetwork, readerProperties);
+		fileReader.applyProperties();
+
+		Properties writerProperties = new Properties();
+		writerProperties.setProperty(ModuleImpl.PROPERTYKEY_NAME, "FileWriter");
+		writerProperties.setProperty(FileWriterModule.PROPERTYKEY_OUTPUTFILE, outputFile.getPath());
+		FileWriterModule fileWriter = new FileWriterModule(moduleNetwork, writerProperties);
+		fileWriter.applyProperties();
+
+		moduleNetwork.addModule(fileReader);
+		moduleNetwork.addModule(fileWriter);
+		moduleNetwork.addConnection(fileReader.getOutputPorts().get("output"), fileWriter.getInputPorts().get("input"), new CharPipe());
+
+		long start = System.currentTimeMillis();
+		moduleNetwork.runModules(true, INTERVAL);
+		assertTrue(System.currentTimeMillis() - start < INTERVAL);
+		assertTrue(moduleNetwork.getStartedThreads().isEmpty());
+		scheduler.shutdown();
+
+		return new String(Files.readAllBytes(outputFile.toPath()), "UTF-8");
+	}
+
+}
@@ -0,0 +1,249 @@
+package modularization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import models.ExtensibleTreeNode;
+import modules.BytePipe;
+import modules.CharBroadcastBuffer;
+import modules.CharPipe;
+import modules.InputPort;
+import modules.ModuleNetwork;
+import modules.ObjectPipe;
+import modules.OutputPort;
+import modules.Pipe;
+
+import org.junit.Test;
+
+public class PipeTest {
+
+	@Test
+	public void testCharPipeTransfersAllData() throws Exception {
+		// Small buffer so that the ring wraps around many times
+		final CharPipe pipe = new CharPipe(16);
+		final int total = 100000;
+		Thread producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					for (int i = 0; i < total; i += 7) {
+						StringBuilder chunk = new StringBuilder();
+						for (int j = i; j < Math.min(i + 7, total); j++)
+							chunk.append((char) ('a' + j % 26));
+						pipe.write(chunk.toString());
+					}
+					pipe.writeClose();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		});
+		producer.start();
+
+		char[] buffer = new char[11];
+		int position = 0;
+		int n;
+		while ((n = pipe.read(buffer, 0, buffer.length)) != -1) {
+			for (int i = 0; i < n; i++, position++)
+				assertEquals((char) ('a' + position % 26), buffer[i]);
+		}
+		producer.join();
+		assertEquals(total, position);
+	}
+
+	@Test
+	public void testBytePipeSingleByteIO() throws Exception {
+		BytePipe pipe = new BytePipe(4);
+		pipe.getOutput().write(200);
+		pipe.getOutput().write(1);
+		pipe.writeClose();
+		assertEquals(200, pipe.getInput().read());
+		assertEquals(1, pipe.getInput().read());
+		assertEquals(-1, pipe.getInput().read());
+	}
+
+	@Test(expected = IOException.class)
+	public void testWriteToClosedPipeFails() throws Exception {
+		CharPipe pipe = new CharPipe();
+		pipe.readClose();
+		pipe.write("data");
+	}
+
+	@Test
+	public void testResetReopensPipe() throws Exception {
+		CharPipe pipe = new CharPipe();
+		pipe.write("first");
+		pipe.writeClose();
+		pipe.reset();
+		pipe.write("second");
+		pipe.writeClose();
+		char[] buffer = new char[16];
+		assertEquals(6, pipe.read(buffer, 0, buffer.length));
+		assertEquals("second", new String(buffer, 0, 6));
+	}
+
+	@Test
+	public void testObjectPipeBatches() throws Exception {
+		ObjectPipe<String> pipe = new ObjectPipe<String>(2);
+		pipe.write("a");
+		pipe.write("b");
+		List<String> batch = new ArrayList<String>();
+		assertEquals(2, pipe.readBatch(batch, 10));
+		pipe.writeBatch(Arrays.asList("c"));
+		pipe.writeClose();
+		assertEquals("c", pipe.read());
+		assertEquals(null, pipe.read());
+		assertEquals(Arrays.asList("a", "b"), batch);
+	}
+
+	@Test
+	public void testObjectPipeNegotiation() throws Exception {
+		OutputPort outputPort = new OutputPort("out", "", null);
+		outputPort.addSupportedPipe(CharPipe.class);
+		outputPort.addSupportedObjectPipe(ExtensibleTreeNode.class);
+
+		InputPort treeInput = new InputPort("tree", "", null);
+		treeInput.addSupportedPipe(CharPipe.class);
+		treeInput.addSupportedObjectPipe(ExtensibleTreeNode.class);
+		Pipe pipe = ModuleNetwork.getCompatiblePipe(outputPort, treeInput);
+		assertEquals(ObjectPipe.class, pipe.getClass());
+		// Order of the arguments must not matter
+		pipe = ModuleNetwork.getCompatiblePipe(treeInput, outputPort);
+		assertEquals(ObjectPipe.class, pipe.getClass());
+
+		InputPort stringInput = new InputPort("string", "", null);
+		stringInput.addSupportedPipe(CharPipe.class);
+		stringInput.addSupportedObjectPipe(String.class);
+		pipe = ModuleNetwork.getCompatiblePipe(outputPort, stringInput);
+		assertEquals(CharPipe.class, pipe.getClass());
+	}
+
+	@Test
+	public void testBroadcastDecouplesReceivers() throws Exception {
+		OutputPort outputPort = new OutputPort("out", "", null);
+		outputPort.addSupportedPipe(CharPipe.class);
+		outputPort.setBroadcast(true, 1024);
+		// Without char pipes there is no buffer to write to yet
+		assertTrue(outputPort.isBroadcast());
+		outputPort.outputToAllCharPipes("unheard");
+		InputPort fastInput = new InputPort("fast", "", null);
+		fastInput.addSupportedPipe(CharPipe.class);
+		InputPort slowInput = new InputPort("slow", "", null);
+		slowInput.addSupportedPipe(CharPipe.class);
+		CharPipe fastPipe = new CharPipe();
+		CharPipe slowPipe = new CharPipe();
+		outputPort.addPipe(fastPipe, fastInput);
+		fastInput.addPipe(fastPipe, outputPort);
+		outputPort.addPipe(slowPipe, slowInput);
+		slowInput.addPipe(slowPipe, outputPort);
+
+		// Everything fits into the allowed lag, so the slow receiver does not block the writer
+		outputPort.outputToAllCharPipes("broadcast");
+		outputPort.close();
+		char[] buffer = new char[32];
+		assertEquals(9, fastPipe.read(buffer, 0, buffer.length));
+		assertEquals(-1, fastPipe.read(buffer, 0, buffer.length));
+		assertEquals(Long.valueOf(9l), outputPort.getBroadcastLag().get(slowInput));
+		assertEquals(Long.valueOf(0l), outputPort.getBroadcastLag().get(fastInput));
+
+		assertEquals(9, slowPipe.read(buffer, 0, buffer.length));
+		assertEquals("broadcast", new String(buffer, 0, 9));
+		assertEquals(-1, slowPipe.read(buffer, 0, buffer.length));
+
+		// Reset re-subscribes the pipes
+		outputPort.reset();
+		outputPort.outputToAllCharPipes("again");
+		outputPort.close();
+		assertEquals(5, slowPipe.read(buffer, 0, buffer.length));
+	}
+
+	@Test(timeout = 10000)
+	public void testBroadcastSurvivesDeadReceiver() throws Exception {
+		final CharBroadcastBuffer broadcastBuffer = new CharBroadcastBuffer(16);
+		CharBroadcastBuffer.Subscription dead = broadcastBuffer.subscribe();
+		final CharBroadcastBuffer.Subscription live = broadcastBuffer.subscribe();
+		final int total = 1000;
+		Thread producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					for (int i = 0; i < total; i++)
+						broadcastBuffer.write(String.valueOf((char) ('a' + i % 26)), 0, 1);
+					broadcastBuffer.closeWrite();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		});
+		producer.start();
+
+		// The dead receiver never reads, yet must not hold back the live one
+		dead.markDead();
+		char[] buffer = new char[11];
+		int position = 0;
+		int n;
+		while ((n = live.read(buffer, 0, buffer.length)) != -1) {
+			for (int i = 0; i < n; i++, position++)
+				assertEquals((char) ('a' + position % 26), buffer[i]);
+		}
+		producer.join();
+		assertEquals(total, position);
+		assertEquals(1, broadcastBuffer.getSubscriptions().size());
+
+		// Once no live receiver is left, writing fails
+		CharBroadcastBuffer lonely = new CharBroadcastBuffer(16);
+		lonely.subscribe().markDead();
+		try {
+			lonely.write("data", 0, 4);
+			fail("Writing without a live receiver should fail.");
+		} catch (IOException e) {
+			assertEquals("Read end dead", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testPortWriterBuffersOutput() throws Exception {
+		OutputPort outputPort = new OutputPort("out", "", null);
+		outputPort.addSupportedPipe(CharPipe.class);
+		outputPort.addSupportedPipe(BytePipe.class);
+		InputPort charInput = new InputPort("chars", "", null);
+		charInput.addSupportedPipe(CharPipe.class);
+		InputPort byteInput = new InputPort("bytes", "", null);
+		byteInput.addSupportedPipe(BytePipe.class);
+		CharPipe charPipe = new CharPipe();
+		BytePipe bytePipe = new BytePipe();
+		outputPort.addPipe(charPipe, charInput);
+		outputPort.addPipe(bytePipe, byteInput);
+
+		// Nothing reaches the pipe before the writer is flushed
+		Writer writer = outputPort.getWriter(8);
+		writer.write("abc");
+		assertTrue(!charPipe.getInput().ready());
+		writer.flush();
+		char[] chars = new char[16];
+		assertEquals(3, charPipe.read(chars, 0, chars.length));
+		// A full buffer is written without flushing
+		writer.write("defghijklm");
+		assertTrue(charPipe.getInput().ready());
+
+		OutputStream stream = outputPort.getOutputStream(4);
+		stream.write(new byte[] { 1, 2 });
+		stream.flush();
+		// Closing the writer closes the whole port
+		writer.close();
+		assertEquals(10, charPipe.read(chars, 0, chars.length));
+		assertEquals(-1, charPipe.read(chars, 0, chars.length));
+		byte[] bytes = new byte[4];
+		assertEquals(2, bytePipe.read(bytes, 0, bytes.length));
+		assertEquals(-1, bytePipe.read(bytes, 0, bytes.length));
+	}
+
+}
@@ -0,0 +1,105 @@
+package modularization;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import modules.CharPipe;
+import modules.InputPort;
+import modules.ModuleImpl;
+import modules.ModuleNetwork;
+import modules.OutputPort;
+import modules.basic_text_processing.RegExReplacementModule;
+
+import org.junit.Test;
+
+public class RegExReplacementModuleTest {
+
+	@Test
+	public void testStreamAndLines() throws Exception {
+		Random random = new Random(1);
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 100000; i++)
+			text.append("ab c\n\r".charAt(random.nextInt(6)));
+		String input = text.toString();
+
+		Properties properties = new Properties();
+		properties.setProperty(RegExReplacementModule.PROPERTYKEY_REGEX, "ab+");
+		properties.setProperty(RegExReplacementModule.PROPERTYKEY_REPLACEMENT, "<$0>");
+		properties.setProperty(RegExReplacementModule.PROPERTYKEY_REGEX + " 2", "^c");
+		properties.setProperty(RegExReplacementModule.PROPERTYKEY_REPLACEMENT + " 2", "C");
+
+		// As a whole, '^' matches at the start of the input only
+		assertEquals(this.replaceAll(input, false), this.run(properties, input));
+
+		// Line by line, with several threads
+		properties.setProperty(RegExReplacementModule.PROPERTYKEY_LINETHREADS, "3");
+		assertEquals(this.replaceAll(input, true), this.run(properties, input));
+	}
+
+	/*
+	 * The rules do not overlap, so they can be applied one after the other.
+	 */
+	private String replaceAll(String input, boolean lines) {
+		if (!lines)
+			return input.replaceAll("^c", "C").replaceAll("ab+", "<$0>");
+		StringBuilder output = new StringBuilder();
+		for (String line : input.split("\n", -1))
+			output.append(line.replaceAll("^c", "C").replaceAll("ab+", "<$0>")).append('\n');
+		return output.substring(0, output.length() - 1);
+	}
+
+	private String run(Properties properties, final String input) throws Exception {
+		properties.setProperty(ModuleImpl.PROPERTYKEY_NAME, "RegEx");
+		RegExReplacementModule module = new RegExReplacementModule(new ModuleNetwork(), properties);
+		module.applyProperties();
+
+		OutputPort source = new OutputPort("source", "", null);
+		source.addSupportedPipe(CharPipe.class);
+		final CharPipe inputPipe = new CharPipe();
+		InputPort inputPort = module.getInputPorts().get("input");
+		inputPort.addPipe(inputPipe, source);
+		final CharPipe outputPipe = new CharPipe();
+		InputPort sink = new InputPort("sink", "", null);
+		sink.addSupportedPipe(CharPipe.class);
+		module.getOutputPorts().get("output").addPipe(outputPipe, sink);
+
+		ExecutorService executor = Executors.newFixedThreadPool(1);
+		try {
+			Future<String> output = executor.submit(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					StringBuilder output = new StringBuilder();
+					char[] buffer = new char[1000];
+					int read;
+					while ((read = outputPipe.read(buffer, 0, buffer.length)) != -1)
+						output.append(buffer, 0, read);
+					return output.toString();
+				}
+			});
+			Thread writer = new Thread() {
+				@Override
+				public void run() {
+					try {
+						inputPipe.write(input);
+						inputPipe.writeClose();
+					} catch (Exception e) {
+						e.printStackTrace();
+					}
+				}
+			};
+			writer.start();
+			module.process();
+			writer.join();
+			return output.get();
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
@@ -14,6 +14,7 @@ import org.junit.Test;
 import modules.tree_building.suffixTree.AbstractResultNodeStackListener;
 import modules.tree_building.suffixTree.BaseSuffixTree;
 import modules.tree_building.suffixTree.GST;
+import modules.tree_building.suffixTree.LeafIndex;
 import modules.tree_building.suffixTree.Node;
 import modules.tree_building.suffixTree.NodePosition;
 import modules.tree_building.suffixTree.TreeWalker;
@@ -80,9 +81,24 @@ public class AbstractResultNodeStackListenerTest {
 			}
 
 			// compare the set of leaves found by travelling down the edges to
-			// the set aggregated by the node stack listener
+			// the range of leaves indexed by the node stack listener (a
+			// terminal node's range consists of the node itself)
 			final Set<Node> expectedLeaves = findLeaves(node);
-			assertTrue(expectedLeaves.equals(node.getLeaves()));
+			if (node.isTerminal()) {
+				expectedLeaves.add(node);
+			}
+			final LeafIndex leafIndex = getLeafIndex();
+			final Set<Node> indexedLeaves = new HashSet<Node>();
+			for (int i = leafIndex.getFirstLeaf(nodeNr); i < leafIndex.getEndLeaf(nodeNr); i++) {
+				indexedLeaves.add(tree.getNode(leafIndex.getLeaf(i)));
+			}
+			assertEquals(expectedLeaves.size(), leafIndex.getLeafAmount(nodeNr));
+			assertEquals(expectedLeaves, indexedLeaves);
+			int expectedPositions = 0;
+			for (Node leaf : expectedLeaves) {
+				expectedPositions += leaf.getPositionsAmount();
+			}
+			assertEquals(expectedPositions, leafIndex.getPositionsAmount(nodeNr));
 
 			// Check that the path length can be used to correctly identify the
 			// path leading to the current node. For every node position
@@ -107,6 +123,11 @@ public class AbstractResultNodeStackListenerTest {
 			nodesProcessed += 1;
 		}
 
+		// exposes the leaf index to the test
+		LeafIndex leafIndex() {
+			return getLeafIndex();
+		}
+
 		// Setup the recursive call to find all leaves of a node.
 		private Set<Node> findLeaves(Node node) {
 			Set<Node> result = new HashSet<Node>();
@@ -151,6 +172,19 @@ public class AbstractResultNodeStackListenerTest {
 
 		// test that all nodes were processed
 		assertEquals(tree.getNodeAmount(), listener.nodesProcessed);
+
+		// building the leaf index directly has to result in the same ranges
+		final LeafIndex expectedIndex = listener.leafIndex();
+		final LeafIndex leafIndex = LeafIndex.build(tree, tree.getRoot());
+		assertEquals(expectedIndex.getLeafAmount(), leafIndex.getLeafAmount());
+		for (int nodeNr = 1; nodeNr <= tree.getNodeAmount(); nodeNr++) {
+			assertEquals(expectedIndex.getFirstLeaf(nodeNr), leafIndex.getFirstLeaf(nodeNr));
+			assertEquals(expectedIndex.getEndLeaf(nodeNr), leafIndex.getEndLeaf(nodeNr));
+			assertEquals(expectedIndex.getPositionsAmount(nodeNr), leafIndex.getPositionsAmount(nodeNr));
+		}
+		for (int leafNr = 0; leafNr < leafIndex.getLeafAmount(); leafNr++) {
+			assertEquals(expectedIndex.getLeaf(leafNr), leafIndex.getLeaf(leafNr));
+		}
 	}
 
 }
@@ -6,13 +6,25 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Test;
 
+import common.XmlPrintWriter;
+import modules.BytePipe;
+import modules.InputPort;
+import modules.OutputPort;
+import modules.tree_building.suffixTree.GST;
+import modules.tree_building.suffixTree.Node;
+import modules.tree_building.suffixTree.ResultToXmlListener;
 import modules.tree_building.suffixTree.SuffixTree;
+import modules.tree_building.suffixTree.TreeWalker;
 
 public class GstTest {
 
@@ -251,4 +263,110 @@ public class GstTest {
 		assertFalse(tree.findPattern("$N"));
 	}
 
+	@Test
+	public void testCompactStorage() throws Exception {
+		final InputStream stream = getClass().getClassLoader().getResourceAsStream("line1K");
+		assertNotNull(stream);
+		final String bigInput = new BufferedReader(new InputStreamReader(stream, "UTF-8")).readLine();
+		final String typeContextInput = "aa cc$bb cc$bb dd$aa cc$bb cc$bb dd$";
+		final List<Integer> contextEndIndices = Arrays.asList(1, 3, 5, 6);
+
+		String[] inputs = new String[] { "aa$bb$aa$bb$aa$", "aaaaaaaa$", "abcabxabcd$",
+				"bbaaab$aabbba$aabccd$bba$aab$", "romane$romanus$romulus$rubens$ruber$rubicon$rubicundus$", bigInput };
+		for (String input : inputs)
+			this.assertSameTrees(GST.buildGST(new BufferedReader(new StringReader(input)), null),
+					GST.buildGST(new BufferedReader(new StringReader(input)), null, true));
+
+		SuffixTree compactTree = GST.buildGST(new BufferedReader(new StringReader(typeContextInput)), contextEndIndices, true);
+		this.assertSameTrees(GST.buildGST(new BufferedReader(new StringReader(typeContextInput)), contextEndIndices),
+				compactTree);
+		GstTestHelper.generalTreeCheck(compactTree, typeContextInput);
+		GstTestHelper.checkTypeContexts(compactTree, " cc$", Arrays.asList(0, 1, 2, 2));
+		assertTrue(compactTree.findPattern("bb dd$"));
+	}
+
+	@Test
+	public void testStreamingInput() throws Exception {
+		// Lines ending with '$' are appended directly, others are preceded by a blank
+		String lines = "romane$romanus$\nromulus$\nrubens\nruber$romane$\nromane$\nrubicon$";
+		String joined = "romane$romanus$romulus$ rubensruber$romane$romane$rubicon$";
+		SuffixTree expected = GST.buildGST(new BufferedReader(new StringReader(joined)), null);
+		// A size hint of one char forces all arrays to grow during the build
+		for (boolean compact : new boolean[] { false, true }) {
+			SuffixTree actual = GST.buildGST(new BufferedReader(new StringReader(lines)), null, compact, 1);
+			this.assertSameTrees(expected, actual);
+			assertTrue(actual.findPattern("romulus$"));
+			assertEquals(23, actual.getTextBegin(3));
+			assertEquals(50, actual.getTextBegin(6));
+		}
+	}
+
+	@Test
+	public void testXmlOutputIsStreamed() throws Exception {
+		final SuffixTree tree = GST.buildGST(new BufferedReader(new StringReader("romane$romanus$romulus$rubens$ruber$rubicon$rubicundus$")), null);
+		final StringWriter expected = new StringWriter();
+		ResultToXmlListener listener = new ResultToXmlListener(tree, new XmlPrintWriter(expected));
+		TreeWalker.walk(tree.getRoot(), tree, listener);
+		listener.finishWriting();
+
+		// the pipe is much smaller than the output, so it has to be read while
+		// the tree is still being written
+		final OutputPort outputPort = new OutputPort("xml", "", null);
+		outputPort.addSupportedPipe(BytePipe.class);
+		final InputPort inputPort = new InputPort("xml", "", null);
+		inputPort.addSupportedPipe(BytePipe.class);
+		final BytePipe pipe = new BytePipe(64);
+		outputPort.addPipe(pipe, inputPort);
+		final StringBuilder actual = new StringBuilder();
+		final Thread reader = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					final BufferedReader in = new BufferedReader(new InputStreamReader(pipe.getInput(), StandardCharsets.UTF_8));
+					int c;
+					while ((c = in.read()) != -1)
+						actual.append((char) c);
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		});
+		reader.start();
+		final XmlPrintWriter writer = new XmlPrintWriter(new OutputStreamWriter(outputPort.getOutputStream(16), StandardCharsets.UTF_8));
+		listener = new ResultToXmlListener(tree, writer, 1);
+		TreeWalker.walk(tree.getRoot(), tree, listener);
+		listener.finishWriting();
+		reader.join();
+		assertFalse(writer.checkError());
+		assertEquals(expected.toString(), actual.toString());
+	}
+
+	// Both trees need to have the same nodes (by number), positions and listener results
+	private void assertSameTrees(SuffixTree expected, SuffixTree actual) throws IOException {
+		assertEquals(expected.getNodeAmount(), actual.getNodeAmount());
+		for (int nodeNr = 1; nodeNr <= expected.getNodeAmount(); nodeNr++) {
+			Node expectedNode = expected.getNode(nodeNr);
+			Node actualNode = actual.getNode(nodeNr);
+			assertArrayEquals(expected.getChildren(nodeNr), actual.getChildren(nodeNr));
+			assertEquals(expectedNode.getPositions(), actualNode.getPositions());
+			assertEquals(expectedNode.getEdgeBegins(), actualNode.getEdgeBegins());
+			assertEquals(expected.edgeString(nodeNr), actual.edgeString(nodeNr));
+		}
+
+		StringWriter expectedXml = new StringWriter();
+		ResultToXmlListener listener = new ResultToXmlListener(expected, new XmlPrintWriter(expectedXml));
+		TreeWalker.walk(expected.getRoot(), expected, listener);
+		listener.finishWriting();
+		StringWriter actualXml = new StringWriter();
+		listener = new ResultToXmlListener(actual, new XmlPrintWriter(actualXml));
+		TreeWalker.walk(actual.getRoot(), actual, listener);
+		listener.finishWriting();
+		// Leaves are kept in hash sets, so only the written lines can be compared, not their order
+		String[] expectedLines = expectedXml.toString().split("\n");
+		String[] actualLines = actualXml.toString().split("\n");
+		Arrays.sort(expectedLines);
+		Arrays.sort(actualLines);
+		assertArrayEquals(expectedLines, actualLines);
+	}
+
 }
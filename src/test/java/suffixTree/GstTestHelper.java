@@ -250,7 +250,7 @@ class GstTestHelper {
 	protected static void checkNodeConsistency(final BaseSuffixTree tree, final Node node) {
 		// root node does not have positions or an edge string, so it needs no
 		// checking
-		if (node == tree.getNode(tree.getRoot()))
+		if (node.equals(tree.getNode(tree.getRoot())))
 			return;
 
 		final String text = tree.getText();
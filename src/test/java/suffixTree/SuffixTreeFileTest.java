@@ -0,0 +1,105 @@
+package suffixTree;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import common.XmlPrintWriter;
+import modules.tree_building.suffixTree.BaseSuffixTree;
+import modules.tree_building.suffixTree.GST;
+import modules.tree_building.suffixTree.ResultToXmlListener;
+import modules.tree_building.suffixTree.SuffixTree;
+import modules.tree_building.suffixTree.SuffixTreeFile;
+import modules.tree_building.suffixTree.TreeWalker;
+
+public class SuffixTreeFileTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testMappedTreeEqualsWrittenTree() throws Exception {
+		final InputStream stream = getClass().getClassLoader().getResourceAsStream("line1K");
+		assertNotNull(stream);
+		final String input = new BufferedReader(new InputStreamReader(stream, "UTF-8")).readLine();
+
+		for (boolean compact : new boolean[] { false, true }) {
+			final SuffixTree expected = GST.buildGST(new BufferedReader(new StringReader(input)), null, compact);
+			final File file = folder.newFile();
+			SuffixTreeFile.write(expected, file);
+			final SuffixTree actual = SuffixTreeFile.map(file);
+
+			assertEquals(expected.getNodeAmount(), actual.getNodeAmount());
+			assertEquals(expected.getText(), actual.getText());
+			assertEquals(expected.textNrsAmount(), actual.textNrsAmount());
+			for (int nodeNr = 1; nodeNr <= expected.getNodeAmount(); nodeNr++) {
+				assertArrayEquals(expected.getChildren(nodeNr), actual.getChildren(nodeNr));
+				assertEquals(expected.getNode(nodeNr).getPositions(), actual.getNode(nodeNr).getPositions());
+				assertEquals(expected.getNode(nodeNr).getEdgeBegins(), actual.getNode(nodeNr).getEdgeBegins());
+				assertEquals(expected.edgeString(nodeNr), actual.edgeString(nodeNr));
+			}
+			assertTrue(actual.findPattern("Sophomore guard Trey Burke"));
+			assertFalse(actual.findPattern("Sophomore guard Trey Burke#"));
+			GstTestHelper.generalTreeCheck(actual, input);
+
+			// walking the mapped tree gives the same results
+			assertEquals(this.toXml(expected), this.toXml(actual));
+		}
+	}
+
+	@Test
+	public void testTypeContexts() throws Exception {
+		final String input = "aa cc$bb cc$bb dd$aa cc$bb cc$bb dd$";
+		final SuffixTree expected = GstTestHelper.buildAndCheckTree(input, Arrays.asList(1, 3, 5, 6));
+		final File file = folder.newFile();
+		SuffixTreeFile.write(expected, file);
+		final SuffixTree actual = SuffixTreeFile.map(file);
+
+		assertEquals(4, actual.getTypeContextsAmount());
+		assertEquals("bb dd$", actual.getInputText(2));
+		GstTestHelper.checkTypeContexts(actual, " cc$", Arrays.asList(0, 1, 2, 2));
+		GstTestHelper.checkTypeContexts(actual, " dd$", Arrays.asList(1, 3));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testMappedTreeIsReadOnly() throws Exception {
+		final SuffixTree expected = GstTestHelper.buildAndCheckTree("banana$");
+		final File file = folder.newFile();
+		SuffixTreeFile.write(expected, file);
+		SuffixTreeFile.map(file).addChar('a', 1);
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidFile() throws Exception {
+		final File file = folder.newFile();
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write("no suffix tree".getBytes("UTF-8"));
+		}
+		SuffixTreeFile.map(file);
+	}
+
+	private String toXml(BaseSuffixTree tree) throws IOException {
+		final StringWriter xml = new StringWriter();
+		final ResultToXmlListener listener = new ResultToXmlListener(tree, new XmlPrintWriter(xml));
+		TreeWalker.walk(tree.getRoot(), tree, listener);
+		listener.finishWriting();
+		return xml.toString();
+	}
+
+}
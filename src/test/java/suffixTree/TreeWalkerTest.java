@@ -0,0 +1,94 @@
+package suffixTree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import models.GstLabelData;
+import modules.tree_building.suffixTree.GST;
+import modules.tree_building.suffixTree.ITreeWalkerListener;
+import modules.tree_building.suffixTree.ResultLabelListListener;
+import modules.tree_building.suffixTree.ResultToGstLabelDataListener;
+import modules.tree_building.suffixTree.SuffixTree;
+import modules.tree_building.suffixTree.TreeWalker;
+
+public class TreeWalkerTest {
+
+	@Test
+	public void testDeepTree() throws Exception {
+		// a single repeated char results in a path as long as the input, which
+		// is too deep to be walked recursively
+		final int length = 100000;
+		final StringBuilder input = new StringBuilder(length + 1);
+		for (int i = 0; i < length; i++) {
+			input.append('a');
+		}
+		input.append('$');
+		final SuffixTree tree = GST.buildGST(new BufferedReader(new StringReader(input.toString())), null, true);
+
+		final int[] maxLevel = new int[1];
+		final List<Integer> exits = new ArrayList<Integer>();
+		TreeWalker.walk(tree.getRoot(), tree, new ITreeWalkerListener() {
+			@Override
+			public void entryaction(int nodeNr, int level) {
+				maxLevel[0] = Math.max(maxLevel[0], level);
+			}
+
+			@Override
+			public void exitaction(int nodeNr, int level) {
+				exits.add(nodeNr);
+			}
+		});
+
+		assertEquals(tree.getNodeAmount(), exits.size());
+		assertEquals(length, maxLevel[0]);
+		// the root is exited last
+		assertEquals(tree.getRoot(), (int) exits.get(exits.size() - 1));
+	}
+
+	@Test
+	public void testParallelWalkMatchesSequentialWalk() throws Exception {
+		final InputStream stream = getClass().getClassLoader().getResourceAsStream("line1K");
+		assertNotNull(stream);
+		final String input = new BufferedReader(new InputStreamReader(stream, "UTF-8")).readLine();
+		final ForkJoinPool pool = new ForkJoinPool(4);
+
+		for (boolean compact : new boolean[] { false, true }) {
+			final SuffixTree tree = GST.buildGST(new BufferedReader(new StringReader(input)), null, compact);
+
+			final ResultLabelListListener labels = new ResultLabelListListener(tree);
+			TreeWalker.walk(tree.getRoot(), tree, labels);
+			final ResultLabelListListener parallelLabels = new ResultLabelListListener(tree);
+			TreeWalker.walkParallel(tree.getRoot(), tree, parallelLabels, pool);
+			assertEquals(labels.getLabels(), parallelLabels.getLabels());
+
+			// the label data has to be in the same order, so the csv output is
+			// compared
+			final ResultToGstLabelDataListener labelData = new ResultToGstLabelDataListener(tree);
+			TreeWalker.walk(tree.getRoot(), tree, labelData);
+			final ResultToGstLabelDataListener parallelLabelData = new ResultToGstLabelDataListener(tree);
+			TreeWalker.walkParallel(tree.getRoot(), tree, parallelLabelData, pool);
+			assertEquals(this.toCsv(labelData), this.toCsv(parallelLabelData));
+		}
+		pool.shutdown();
+	}
+
+	private String toCsv(ResultToGstLabelDataListener listener) {
+		final StringBuilder sb = new StringBuilder();
+		for (GstLabelData data : listener.getLabelsToGstData().values()) {
+			data.toCsv(sb);
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+}